@@ -0,0 +1,93 @@
+#!/bin/bash
+# benchmark.sh - Compare application start time with and without the AppCDS archive
+#
+# Usage: benchmark.sh [--runs N] [--drop-caches] [--java PATH] [--jar PATH] [--archive PATH]
+#
+# Times --test-startup runs of the application, alternating between the
+# default runtime and the runtime plus the dynamic archive. The archive is
+# trained first if it does not exist. With --drop-caches (Linux, root only)
+# the page cache is dropped before every run to measure a true cold start.
+
+set -e
+
+PROJECT_ROOT="$(cd "$(dirname "${BASH_SOURCE[0]}")/../.." && pwd)"
+
+RUNS=10
+DROP_CACHES=false
+JAVA="${JAVA_HOME:+$JAVA_HOME/bin/}java"
+JAR_FILE=$(find "$PROJECT_ROOT/target" -maxdepth 1 -name "extension-updater-*.jar" 2>/dev/null | head -n1)
+ARCHIVE="$PROJECT_ROOT/target/extension-updater.jsa"
+
+while [[ $# -gt 0 ]]; do
+    case "$1" in
+        --runs) RUNS="$2"; shift 2 ;;
+        --drop-caches) DROP_CACHES=true; shift ;;
+        --java) JAVA="$2"; shift 2 ;;
+        --jar) JAR_FILE="$2"; shift 2 ;;
+        --archive) ARCHIVE="$2"; shift 2 ;;
+        *) echo "Unknown option: $1"; exit 1 ;;
+    esac
+done
+
+if [[ -z "$JAR_FILE" || ! -f "$JAR_FILE" ]]; then
+    echo "❌ Error: Application JAR not found. Run 'mvn package' or pass --jar"
+    exit 1
+fi
+
+if [[ ! -f "$ARCHIVE" ]]; then
+    echo "⚙️ Training CDS archive..."
+    bash "$PROJECT_ROOT/installers/cds/train.sh" "$JAVA" "$JAR_FILE" "$ARCHIVE"
+fi
+
+BENCHMARK_HOME=$(mktemp -d)
+trap 'rm -rf "$BENCHMARK_HOME"' EXIT
+COMMON_OPTIONS=(-Duser.home="$BENCHMARK_HOME" -Djava.awt.headless=true)
+
+# -Xshare:on fails instead of silently ignoring an archive that does not match
+if ! "$JAVA" -Xshare:on -XX:SharedArchiveFile="$ARCHIVE" "${COMMON_OPTIONS[@]}" \
+        -jar "$JAR_FILE" --test-startup --allow-headless > /dev/null 2>&1; then
+    echo "❌ Error: $ARCHIVE cannot be used with this runtime and JAR; train it again"
+    exit 1
+fi
+
+drop_caches() {
+    if [[ "$DROP_CACHES" == true ]]; then
+        sync
+        echo 3 > /proc/sys/vm/drop_caches
+    fi
+}
+
+# Prints the wall-clock seconds of one start
+time_start() {
+    local TIMEFORMAT='%R'
+    drop_caches
+    { time "$JAVA" "$@" "${COMMON_OPTIONS[@]}" -jar "$JAR_FILE" --test-startup --allow-headless \
+        > /dev/null 2>&1; } 2>&1
+}
+
+median() {
+    sort -n | awk '{ values[NR] = $1 } END {
+        if (NR % 2) { printf "%.3f", values[(NR + 1) / 2] }
+        else { printf "%.3f", (values[NR / 2] + values[NR / 2 + 1]) / 2 }
+    }'
+}
+
+echo "⏱️  Timing $RUNS start(s) each..."
+WITHOUT=()
+WITH=()
+for ((i = 1; i <= RUNS; i++)); do
+    WITHOUT+=("$(time_start)")
+    WITH+=("$(time_start -XX:SharedArchiveFile="$ARCHIVE")")
+    echo "   run $i: ${WITHOUT[i - 1]}s without, ${WITH[i - 1]}s with archive"
+done
+
+MEDIAN_WITHOUT=$(printf '%s\n' "${WITHOUT[@]}" | median)
+MEDIAN_WITH=$(printf '%s\n' "${WITH[@]}" | median)
+
+echo ""
+echo "📊 Startup Summary"
+echo "=================="
+echo "Without archive: ${MEDIAN_WITHOUT}s (median)"
+echo "With archive:    ${MEDIAN_WITH}s (median)"
+awk -v without="$MEDIAN_WITHOUT" -v with="$MEDIAN_WITH" \
+    'BEGIN { printf "Improvement:     %.0f%%\n", (without - with) * 100 / without }'
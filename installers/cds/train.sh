@@ -0,0 +1,57 @@
+#!/bin/bash
+# train.sh - Create a dynamic AppCDS archive for the application JAR
+#
+# Usage: train.sh <java> <jar> <archive>
+#
+# Runs the application once in --train-startup mode, which builds the tray
+# menu and the Swing windows and exits, and archives every class it loaded.
+# This needs a display; without one, xvfb-run provides it. The archive only
+# works with the same runtime and the same JAR file (size and timestamp), so
+# train against the files that will ship.
+
+set -e
+
+if [[ $# -ne 3 ]]; then
+    echo "Usage: $0 <java> <jar> <archive>"
+    exit 1
+fi
+
+JAVA="$1"
+JAR_FILE="$2"
+ARCHIVE="$3"
+
+# Train with a throwaway home so the build machine's configuration is untouched
+TRAINING_HOME=$(mktemp -d)
+trap 'rm -rf "$TRAINING_HOME"' EXIT
+
+# Linux build machines usually have no display; macOS always has one
+LAUNCHER=()
+JAVA_OPTIONS=()
+MODE=(--train-startup)
+if [[ "$(uname)" == "Linux" && -z "$DISPLAY" && -z "$WAYLAND_DISPLAY" ]]; then
+    if command -v xvfb-run > /dev/null; then
+        LAUNCHER=(xvfb-run -a)
+    else
+        echo "⚠️  No display and no xvfb-run: training headless, tray and window classes will not be archived"
+        JAVA_OPTIONS=(-Djava.awt.headless=true)
+        MODE=(--test-startup --allow-headless)
+    fi
+fi
+
+rm -f "$ARCHIVE"
+"${LAUNCHER[@]}" "$JAVA" \
+  -XX:ArchiveClassesAtExit="$ARCHIVE" \
+  -Duser.home="$TRAINING_HOME" \
+  "${JAVA_OPTIONS[@]}" \
+  -jar "$JAR_FILE" "${MODE[@]}" > "$TRAINING_HOME/training.log" 2>&1 || {
+    echo "❌ Error: Training run failed"
+    cat "$TRAINING_HOME/training.log"
+    exit 1
+}
+
+if [[ ! -f "$ARCHIVE" ]]; then
+    echo "❌ Error: No CDS archive was created (does the runtime include a base archive?)"
+    exit 1
+fi
+
+echo "✅ CDS archive created: $ARCHIVE ($(du -h "$ARCHIVE" | cut -f1))"
@@ -85,7 +85,7 @@ trap 'rm -rf "$RUNTIME_IMAGE"' EXIT
 
 # Detect modules (simplified approach - add basic modules)
 # For a real app, use jdeps to find exact modules: jdeps --print-module-deps ...
-MODULES="java.base,java.desktop,java.logging,java.management,java.naming,java.net.http,java.scripting,java.xml"
+MODULES="java.base,java.desktop,java.logging,java.management,java.naming,java.net.http,jdk.httpserver,java.scripting,java.xml"
 
 jlink \
   --add-modules "$MODULES" \
@@ -93,7 +93,8 @@ jlink \
   --compress zip-6 \
   --no-header-files \
   --no-man-pages \
-  --strip-debug
+  --strip-debug \
+  --generate-cds-archive
 
 if [[ ! -d "$RUNTIME_IMAGE" ]]; then
     echo "❌ Error: Custom JRE was not created"
@@ -102,9 +103,9 @@ fi
 
 echo "✅ Custom JRE created successfully at $RUNTIME_IMAGE"
 
-# Step 3: Create installer package using jpackage
+# Step 3: Create the application image using jpackage
 echo ""
-echo "📦 Creating Linux DEB installer package..."
+echo "📦 Creating application image..."
 
 # Remove existing installer output
 if [[ -d "target/installer" ]]; then
@@ -119,16 +120,21 @@ fi
 mkdir -p target/installer-input
 cp "$JAR_FILE" target/installer-input/
 
+if [[ -d "target/app-image" ]]; then
+    rm -rf target/app-image
+fi
+
 JAR_NAME=$(basename "$JAR_FILE")
 APP_NAME="VSCodeExtensionUpdater"
 APP_VERSION="1.0.0"
 VENDOR="Bruno Borges"
 DESCRIPTION="Background application for updating VS Code extensions"
 ICON_PATH="src/main/linux/icon.png"
+CDS_ARCHIVE="extension-updater.jsa"
 
-JPACKAGE_CMD="jpackage \
-  --type deb \
-  --dest target/installer \
+APP_IMAGE_CMD="jpackage \
+  --type app-image \
+  --dest target/app-image \
   --input target/installer-input \
   --name $APP_NAME \
   --app-version $APP_VERSION \
@@ -138,20 +144,50 @@ JPACKAGE_CMD="jpackage \
   --main-jar $JAR_NAME \
   --main-class com.vscode.updater.Application \
   --runtime-image \"$RUNTIME_IMAGE\" \
-  --linux-shortcut \
-  --linux-menu-group \"VSCode Tools\" \
-  --linux-deb-maintainer \"$VENDOR <bruno.borges@example.com>\" \
-  --linux-app-category \"utils\" \
   --java-options \"-Dfile.encoding=UTF-8\" \
+  --java-options \"-XX:SharedArchiveFile=\\\$APPDIR/$CDS_ARCHIVE\" \
   --verbose"
 
 if [[ -f "$ICON_PATH" ]]; then
     echo "✅ Using icon: $ICON_PATH"
-    JPACKAGE_CMD="$JPACKAGE_CMD --icon \"$ICON_PATH\""
+    APP_IMAGE_CMD="$APP_IMAGE_CMD --icon \"$ICON_PATH\""
 else
     echo "⚠️  Icon not found at $ICON_PATH"
 fi
 
+echo "Running jpackage..."
+eval $APP_IMAGE_CMD
+
+APP_IMAGE="target/app-image/$APP_NAME"
+if [[ ! -f "$APP_IMAGE/lib/app/$JAR_NAME" ]]; then
+    echo "❌ Error: Application image was not created"
+    exit 1
+fi
+
+# Step 4: Train the AppCDS archive against the JAR and runtime that ship
+echo ""
+echo "🧠 Training AppCDS archive..."
+bash installers/cds/train.sh "$RUNTIME_IMAGE/bin/java" "$APP_IMAGE/lib/app/$JAR_NAME" "$APP_IMAGE/lib/app/$CDS_ARCHIVE"
+
+# Step 5: Create installer package from the application image
+echo ""
+echo "📦 Creating Linux DEB installer package..."
+
+JPACKAGE_CMD="jpackage \
+  --type deb \
+  --dest target/installer \
+  --app-image \"$APP_IMAGE\" \
+  --name $APP_NAME \
+  --app-version $APP_VERSION \
+  --vendor \"$VENDOR\" \
+  --copyright \"Copyright 2025 $VENDOR\" \
+  --description \"$DESCRIPTION\" \
+  --linux-shortcut \
+  --linux-menu-group \"VSCode Tools\" \
+  --linux-deb-maintainer \"$VENDOR <bruno.borges@example.com>\" \
+  --linux-app-category \"utils\" \
+  --verbose"
+
 echo "Running jpackage..."
 eval $JPACKAGE_CMD
 
@@ -170,6 +206,7 @@ echo ""
 echo "🎉 Build Summary"
 echo "================="
 echo "📦 Package: $DEB_FILE"
+echo "🧠 AppCDS archive: $CDS_ARCHIVE ($(du -h "$APP_IMAGE/lib/app/$CDS_ARCHIVE" | cut -f1))"
 echo "✅ Linux DEB installer build completed successfully!"
 echo ""
 echo "📋 Installation Instructions:"
@@ -70,15 +70,15 @@ fi
 
 jlink \
   --module-path "$JAVA_HOME/jmods" \
-  --add-modules java.base,java.desktop,java.logging,java.management,java.naming,java.security.jgss,java.instrument,java.net.http \
+  --add-modules java.base,java.desktop,java.logging,java.management,java.naming,java.security.jgss,java.instrument,java.net.http,jdk.httpserver \
   --output target/custom-jre \
   --compress zip-9 \
   --no-header-files \
   --no-man-pages \
   --strip-debug \
-  --strip-native-commands \
   --bind-services \
-  --ignore-signing-information
+  --ignore-signing-information \
+  --generate-cds-archive
 
 if [[ ! -d "target/custom-jre" ]]; then
     echo "❌ Error: Custom JRE was not created"
@@ -89,72 +89,120 @@ fi
 JRE_SIZE=$(du -sh target/custom-jre | cut -f1)
 echo "✅ Custom JRE created successfully (Size: $JRE_SIZE)"
 
-# Step 3: Create installer package using jpackage directly
+# Step 3: Create the application image using jpackage
 echo ""
-echo "📦 Creating macOS installer package..."
+echo "📦 Creating macOS application image..."
 
 # Remove existing installer output
 if [[ -d "target/installer" ]]; then
     rm -rf target/installer
 fi
+if [[ -d "target/app-image" ]]; then
+    rm -rf target/app-image
+fi
+if [[ -d "target/installer-input" ]]; then
+    rm -rf target/installer-input
+fi
 
-mkdir -p target/installer
+mkdir -p target/installer target/installer-input
+cp target/extension-updater-1.0.jar target/installer-input/
 
 # Parse signing parameters
 SIGNING_IDENTITY="${MAC_SIGNING_IDENTITY:-}"
 NOTARIZATION_PROFILE="${MAC_NOTARIZATION_PROFILE:-}"
 
+APP_NAME="VS Code Extension Updater"
+CDS_ARCHIVE="extension-updater.jsa"
+
 # Base jpackage command
-JPACKAGE_CMD="jpackage \
-  --type PKG \
-  --name \"VS Code Extension Updater\" \
+APP_IMAGE_CMD="jpackage \
+  --type app-image \
+  --name \"$APP_NAME\" \
   --app-version 1.0 \
   --vendor \"Bruno Borges\" \
   --copyright \"2024 Bruno Borges\" \
   --description \"Background application for updating VS Code extensions with embedded Java runtime\" \
   --main-class com.vscode.updater.Application \
   --main-jar extension-updater-1.0.jar \
-  --input target \
-  --dest target/installer \
+  --input target/installer-input \
+  --dest target/app-image \
   --runtime-image target/custom-jre \
   --java-options \"-Djava.awt.headless=false\" \
   --java-options \"-Xms16m\" \
   --java-options \"-Xmx64m\" \
   --java-options \"-XX:+UseG1GC\" \
   --java-options \"-XX:+UseStringDeduplication\" \
+  --java-options \"-XX:SharedArchiveFile=\\\$APPDIR/$CDS_ARCHIVE\" \
   --arguments \"--system-tray\" \
   --mac-package-identifier io.github.brunoborges.vscode-extension-updater \
-  --mac-package-name \"VS Code Extension Updater\""
+  --mac-package-name \"$APP_NAME\""
 
 # Add macOS-specific icon if available
 ICON_PATH="src/main/macos/icons/vsc-updater.icns"
 if [[ -f "$ICON_PATH" ]]; then
     echo "✅ Using custom application icon: $ICON_PATH"
-    JPACKAGE_CMD="$JPACKAGE_CMD --icon \"$ICON_PATH\""
+    APP_IMAGE_CMD="$APP_IMAGE_CMD --icon \"$ICON_PATH\""
 else
     echo "⚠️  No custom icon found at $ICON_PATH - using default Java icon"
 fi
 
-# Add code signing if identity is provided
+echo "🏗️  Running jpackage..."
+eval $APP_IMAGE_CMD
+
+APP_IMAGE="target/app-image/$APP_NAME.app"
+if [[ ! -f "$APP_IMAGE/Contents/app/extension-updater-1.0.jar" ]]; then
+    echo "❌ Error: Application image was not created"
+    exit 1
+fi
+
+# Step 4: Train the AppCDS archive against the JAR and runtime that ship
+echo ""
+echo "🧠 Training AppCDS archive..."
+bash installers/cds/train.sh target/custom-jre/bin/java \
+  "$APP_IMAGE/Contents/app/extension-updater-1.0.jar" "$APP_IMAGE/Contents/app/$CDS_ARCHIVE"
+
+# The launchers were only needed for training
+rm -rf "$APP_IMAGE/Contents/runtime/Contents/Home/bin"
+
+# Step 5: Sign the application image now that it is complete
+SIGNING_OPTIONS=""
 if [[ -n "$SIGNING_IDENTITY" ]]; then
     echo "🔐 Code signing will be applied with identity: $SIGNING_IDENTITY"
-    JPACKAGE_CMD="$JPACKAGE_CMD \
-      --mac-sign \
+    SIGNING_OPTIONS="--mac-sign \
       --mac-signing-key-user-name \"$SIGNING_IDENTITY\""
     
     # Add entitlements if file exists
     if [[ -f "src/main/macos/entitlements.plist" ]]; then
-        JPACKAGE_CMD="$JPACKAGE_CMD \
+        SIGNING_OPTIONS="$SIGNING_OPTIONS \
           --mac-entitlements src/main/macos/entitlements.plist"
     fi
     
+    eval jpackage --type app-image --app-image \"$APP_IMAGE\" $SIGNING_OPTIONS
+    
     # Add package signing prefix
-    JPACKAGE_CMD="$JPACKAGE_CMD \
+    SIGNING_OPTIONS="$SIGNING_OPTIONS \
       --mac-package-signing-prefix io.github.brunoborges"
 else
     echo "ℹ️  No signing identity provided - creating unsigned package"
 fi
 
+# Step 6: Create installer package from the application image
+echo ""
+echo "📦 Creating macOS installer package..."
+
+JPACKAGE_CMD="jpackage \
+  --type PKG \
+  --name \"$APP_NAME\" \
+  --app-version 1.0 \
+  --vendor \"Bruno Borges\" \
+  --copyright \"2024 Bruno Borges\" \
+  --description \"Background application for updating VS Code extensions with embedded Java runtime\" \
+  --app-image \"$APP_IMAGE\" \
+  --dest target/installer \
+  --mac-package-identifier io.github.brunoborges.vscode-extension-updater \
+  --mac-package-name \"$APP_NAME\" \
+  $SIGNING_OPTIONS"
+
 # Execute jpackage
 echo "🏗️  Running jpackage..."
 eval $JPACKAGE_CMD
@@ -169,7 +217,7 @@ fi
 PKG_SIZE=$(du -sh "$PKG_FILE" | cut -f1)
 echo "✅ Installer package created: $PKG_FILE (Size: $PKG_SIZE)"
 
-# Step 4: Notarization (if credentials are provided)
+# Step 7: Notarization (if credentials are provided)
 if [[ -n "$SIGNING_IDENTITY" && -n "$NOTARIZATION_PROFILE" ]]; then
     echo ""
     echo "📝 Submitting for notarization..."
@@ -185,7 +233,7 @@ if [[ -n "$SIGNING_IDENTITY" && -n "$NOTARIZATION_PROFILE" ]]; then
     fi
 fi
 
-# Step 5: Final verification
+# Step 8: Final verification
 echo ""
 echo "🔍 Final verification..."
 
@@ -211,6 +259,7 @@ echo "================="
 echo "📦 Package: $PKG_FILE"
 echo "📏 Size: $PKG_SIZE"
 echo "🔧 Custom JRE: $JRE_SIZE"
+echo "🧠 AppCDS archive: $CDS_ARCHIVE"
 echo "🔐 Signed: $(if [[ -n "$SIGNING_IDENTITY" ]]; then echo "Yes ($SIGNING_IDENTITY)"; else echo "No"; fi)"
 echo "📝 Notarized: $(if [[ -n "$NOTARIZATION_PROFILE" ]]; then echo "Yes"; else echo "No"; fi)"
 
@@ -24,6 +24,8 @@ if (-not $TargetDir) { New-Item -ItemType Directory -Path "target" | Out-Null; $
 $InstallerInput = Join-Path $TargetDir "installer-input"
 $InstallerOutput = Join-Path $TargetDir "installer"
 $RuntimeImage = Join-Path $TargetDir "runtime-image"
+$AppImageOutput = Join-Path $TargetDir "app-image"
+$CdsArchive = "extension-updater.jsa"
 
 # --- Helper Functions ---
 
@@ -96,18 +98,23 @@ Copy-Item $JarFile.FullName -Destination $InstallerInput
 
 # 4. Create Runtime Image (jlink)
 # This creates a smaller, bundled JRE
+# Images from before AppCDS training lack the base archive the training run needs
+if ((Test-Path $RuntimeImage) -and -not (Test-Path (Join-Path $RuntimeImage "lib\server\classes.jsa"))) {
+    Clean-Directory $RuntimeImage
+}
 if (-not (Test-Path $RuntimeImage)) {
     Write-Host "`nCreating custom runtime image (jlink)..." -ForegroundColor Yellow
     
     # Detect modules (simplified approach - add basic modules)
     # For a real app, use jdeps to find exact modules: jdeps --print-module-deps ...
-    $Modules = "java.base,java.desktop,java.logging,java.management,java.naming,java.net.http,java.scripting,java.xml"
+    $Modules = "java.base,java.desktop,java.logging,java.management,java.naming,java.net.http,jdk.httpserver,java.scripting,java.xml"
     
     $JlinkArgs = @(
         "--strip-debug",
         "--no-man-pages",
         "--no-header-files",
         "--compress", "zip-6",
+        "--generate-cds-archive",
         "--add-modules", $Modules,
         "--output", $RuntimeImage
     )
@@ -122,12 +129,13 @@ if (-not (Test-Path $RuntimeImage)) {
 $WixTempDir = Join-Path $TargetDir "wix-temp"
 Clean-Directory $WixTempDir
 
-# 5. Run jpackage
-Write-Host "`nRunning jpackage..." -ForegroundColor Yellow
+# 5. Create the application image
+Write-Host "`nCreating application image..." -ForegroundColor Yellow
+Clean-Directory $AppImageOutput
 
-$JPackageArgs = @(
-    "--type", "msi",
-    "--dest", $InstallerOutput,
+$AppImageArgs = @(
+    "--type", "app-image",
+    "--dest", $AppImageOutput,
     "--input", $InstallerInput,
     "--name", $AppName,
     "--app-version", $AppVersion,
@@ -137,22 +145,71 @@ $JPackageArgs = @(
     "--main-jar", $JarFile.Name,
     "--main-class", $MainClass,
     "--runtime-image", $RuntimeImage,
-    "--win-dir-chooser",
-    "--win-menu",
-    "--win-menu-group", "VSCode Tools",
-    "--win-shortcut",
     "--java-options", "-Dfile.encoding=UTF-8",
-    "--temp", $WixTempDir,
+    "--java-options", "-XX:SharedArchiveFile=`$APPDIR\$CdsArchive",
     "--verbose"
 )
 
 # Add icon if it exists
 $IconPath = "src/main/windows/icons/vsc-updater.ico"
 if (Test-Path $IconPath) {
-    $JPackageArgs += "--icon"
-    $JPackageArgs += $IconPath
+    $AppImageArgs += "--icon"
+    $AppImageArgs += $IconPath
 }
 
+& jpackage $AppImageArgs
+if ($LASTEXITCODE -ne 0) { Write-Error "jpackage failed to create the application image."; exit 1 }
+
+$AppImage = Join-Path $AppImageOutput $AppName
+$ShippedJar = Join-Path $AppImage "app\$($JarFile.Name)"
+
+# 6. Train the AppCDS archive against the JAR and runtime that ship
+Write-Host "`nTraining AppCDS archive..." -ForegroundColor Yellow
+
+# MSI cabinets keep file times to two seconds; the archive is only used if the JAR's time is unchanged
+$ShippedJarItem = Get-Item $ShippedJar
+$JarTime = $ShippedJarItem.LastWriteTimeUtc
+$ShippedJarItem.LastWriteTimeUtc = $JarTime.AddTicks(-($JarTime.Ticks % (2 * [TimeSpan]::TicksPerSecond)))
+
+# Train with a throwaway profile so the build machine's configuration is untouched
+$TrainingHome = Join-Path $TargetDir "cds-training"
+Clean-Directory $TrainingHome
+New-Item -ItemType Directory -Path $TrainingHome | Out-Null
+$SavedAppData = $env:APPDATA
+$env:APPDATA = $TrainingHome
+try {
+    & (Join-Path $RuntimeImage "bin\java.exe") "-XX:ArchiveClassesAtExit=$(Join-Path $AppImage "app\$CdsArchive")" `
+        "-Duser.home=$TrainingHome" `
+        -jar $ShippedJar --train-startup | Out-Null
+} finally {
+    $env:APPDATA = $SavedAppData
+}
+if (-not (Test-Path (Join-Path $AppImage "app\$CdsArchive"))) { Write-Error "AppCDS training failed."; exit 1 }
+Write-Host "Created AppCDS archive $CdsArchive" -ForegroundColor Green
+
+$WixTempDir = Join-Path $TargetDir "wix-temp"
+Clean-Directory $WixTempDir
+
+# 7. Run jpackage
+Write-Host "`nRunning jpackage..." -ForegroundColor Yellow
+
+$JPackageArgs = @(
+    "--type", "msi",
+    "--dest", $InstallerOutput,
+    "--app-image", $AppImage,
+    "--name", $AppName,
+    "--app-version", $AppVersion,
+    "--vendor", $Vendor,
+    "--copyright", $Copyright,
+    "--description", $Description,
+    "--win-dir-chooser",
+    "--win-menu",
+    "--win-menu-group", "VSCode Tools",
+    "--win-shortcut",
+    "--temp", $WixTempDir,
+    "--verbose"
+)
+
 Write-Host "Command: jpackage $JPackageArgs" -ForegroundColor Gray
 
 # Capture output to parse for WiX command if failure occurs
@@ -3,12 +3,19 @@ package com.vscode.updater;
 import com.vscode.updater.config.VSCodeConfig;
 import com.vscode.updater.config.ConfigManager;
 import com.vscode.updater.discovery.VSCodeDetector;
+import com.vscode.updater.inventory.DiskUsageAnalyzer;
+import com.vscode.updater.inventory.HardlinkDeduplicator;
 import com.vscode.updater.tray.SystemTrayManager;
+import com.vscode.updater.util.StartupTimings;
+import com.vscode.updater.vsix.VsixCache;
+import com.vscode.updater.vsix.VsixMirror;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.swing.*;
 import java.awt.*;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Path;
 import java.util.Arrays;
 
 /**
@@ -19,6 +26,8 @@ public class Application {
     private static final Logger logger = LoggerFactory.getLogger(Application.class);
     
     public static void main(String[] args) {
+        StartupTimings timings = StartupTimings.start();
+        
         // Handle command-line arguments
         if (handleCommandLineArgs(args)) {
             return; // Exit after handling command-line args
@@ -37,7 +46,9 @@ public class Application {
         
         // Check system tray support (unless in test mode)
         boolean testMode = Arrays.asList(args).contains("--test-startup");
-        if (!SystemTray.isSupported() && !testMode) {
+        boolean trainMode = Arrays.asList(args).contains("--train-startup");
+        boolean startupReport = Arrays.asList(args).contains("--startup-report");
+        if (!SystemTray.isSupported() && !testMode && !trainMode) {
             System.err.println("Error: System tray is not supported on this platform.");
             System.exit(1);
         }
@@ -47,55 +58,83 @@ public class Application {
         System.setProperty("swing.aatext", "true");
         
         try {
-            // Initialize configuration with VS Code detection
-            ConfigManager configManager = new ConfigManager();
-            VSCodeConfig config = configManager.loadConfig();
+            // Start from the saved configuration; detection is refreshed once the tray is up
+            ConfigManager configManager = timings.time("Load configuration", ConfigManager::new);
+            VSCodeConfig config = timings.time("Read cached instances", configManager::loadCachedConfig);
             logger.info("Configuration loaded from: {}", configManager.getConfigFile());
             
-            // Validate configuration
-            String validationError = config.validate();
-            if (validationError != null) {
-                logger.error("Invalid configuration: {}", validationError);
-                if (!testMode) {
+            // The saved file is replaced once detection completes, so say so now
+            configManager.getLoadWarning().ifPresent(warning -> {
+                logger.error("{}", warning);
+                if (!testMode && !trainMode) {
                     showErrorDialog("Configuration Error", 
-                        "Invalid configuration: " + validationError + "\n\nUsing default settings with detection.");
+                        warning + "\n\nUsing default settings with detection.");
                 }
-                config = VSCodeConfig.createDefault();
-                config = configManager.refreshDetection(config); // Re-detect
-            }
+            });
             
             // Log configuration summary
-            logger.info("Configuration: {} instances detected, timeout={}s, notifications={}", 
+            logger.info("Configuration: {} cached instance(s), timeout={}s, notifications={}", 
                 config.vsCodeInstances().size(), 
                 config.commandTimeoutSeconds(), 
                 config.showNotifications());
             
-            // Log detected VS Code instances
-            config.vsCodeInstances().forEach(instance -> 
-                logger.info("VS Code instance: {} {} at {}", 
-                    instance.edition().getDisplayName(),
-                    instance.version(),
-                    instance.getShortPath())
-            );
-            
             // Handle test startup mode
             if (testMode) {
+                VSCodeConfig cachedConfig = config;
+                timings.time("Detect VS Code installations", () -> refreshDetection(configManager, cachedConfig));
                 logger.info("Test startup mode - exiting after initialization");
+                if (startupReport) {
+                    System.out.println(timings.getReport());
+                }
+                System.exit(0);
+            }
+            
+            // Handle training mode: the tray and window startup path once, for the AppCDS archive
+            if (trainMode) {
+                VSCodeConfig cachedConfig = config;
+                timings.time("Detect VS Code installations", () -> refreshDetection(configManager, cachedConfig));
+                SystemTrayManager trayManager = timings.time("Show tray icon",
+                    () -> new SystemTrayManager(cachedConfig, configManager, false));
+                timings.time("Build windows", () -> invokeAndWait(trayManager::prepareWindows));
+                logger.info("Training startup mode - exiting after building the tray and windows");
+                if (startupReport) {
+                    System.out.println(timings.getReport());
+                }
                 System.exit(0);
             }
             
             // Initialize system tray with multi-instance support
-            SystemTrayManager trayManager = new SystemTrayManager(config, configManager);
+            SystemTrayManager trayManager = timings.time("Show tray icon", () -> new SystemTrayManager(config, configManager));
+            timings.markTrayVisible();
             logger.info("System tray initialized with {} VS Code instance(s)", 
                 config.vsCodeInstances().size());
             
+            // Everything else continues behind the tray icon
+            Thread.ofPlatform().daemon().name("startup").start(() -> {
+                try {
+                    timings.timeInBackground("Detect VS Code installations", () -> {
+                        VSCodeConfig detectedConfig = refreshDetection(configManager, trayManager.getConfig());
+                        if (detectedConfig != null) {
+                            invokeAndWait(() -> trayManager.applyDetectedInstances(detectedConfig));
+                        }
+                    });
+                    timings.timeInBackground("Start background services", trayManager::startBackgroundServices);
+                    timings.timeInBackground("Build windows", () -> invokeAndWait(trayManager::prepareWindows));
+                } catch (RuntimeException e) {
+                    logger.error("Background startup failed", e);
+                }
+                logger.info("Startup complete:\n{}", timings.getReport());
+                if (startupReport) {
+                    System.out.println(timings.getReport());
+                }
+            });
+            
             // Show startup notification if enabled
             if (config.showNotifications()) {
-                final VSCodeConfig finalConfig = config; // Make effectively final for lambda
                 SwingUtilities.invokeLater(() -> {
                     // Small delay to ensure tray icon is visible
                     Timer timer = new Timer(1000, e -> {
-                        showStartupNotification(finalConfig);
+                        showStartupNotification(trayManager.getConfig());
                     });
                     timer.setRepeats(false);
                     timer.start();
@@ -107,7 +146,7 @@ public class Application {
             
         } catch (Exception e) {
             logger.error("Failed to start application", e);
-            if (!testMode) {
+            if (!testMode && !trainMode) {
                 showErrorDialog("Startup Error", 
                     "Failed to start VS Code Extension Updater:\n" + e.getMessage());
             }
@@ -115,14 +154,43 @@ public class Application {
         }
     }
     
+    /**
+     * Re-detects installations when auto-detection is on, or when nothing
+     * is configured yet. Returns the updated configuration, or null if
+     * detection was skipped.
+     */
+    private static VSCodeConfig refreshDetection(ConfigManager configManager, VSCodeConfig config) {
+        if (!config.autoDetectInstances() && !config.vsCodeInstances().isEmpty()) {
+            return null;
+        }
+        VSCodeConfig detectedConfig = configManager.refreshDetection(config);
+        detectedConfig.vsCodeInstances().forEach(instance -> 
+            logger.info("VS Code instance: {} {} at {}", 
+                instance.edition().getDisplayName(),
+                instance.version(),
+                instance.getShortPath())
+        );
+        return detectedConfig;
+    }
+    
+    private static void invokeAndWait(Runnable action) {
+        try {
+            SwingUtilities.invokeAndWait(action);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+    
     /**
      * Handle command-line arguments for testing and utility functions
      * @param args Command line arguments
      * @return true if application should exit after handling args
      */
     private static boolean handleCommandLineArgs(String[] args) {
-        for (String arg : args) {
-            switch (arg) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
                 case "--version":
                     System.out.println("VS Code Extension Updater v1.0");
                     System.out.println("Java: " + System.getProperty("java.version"));
@@ -133,6 +201,26 @@ public class Application {
                     testVSCodeDetection();
                     return true;
                     
+                case "--export-mirror":
+                    if (i + 1 >= args.length) {
+                        System.err.println("Error: --export-mirror requires a directory");
+                        System.exit(1);
+                    }
+                    exportMirror(Path.of(args[i + 1]));
+                    return true;
+                    
+                case "--cache-stats":
+                    printCacheStats();
+                    return true;
+                    
+                case "--disk-usage":
+                    printDiskUsage();
+                    return true;
+                    
+                case "--undo-dedup":
+                    undoDeduplication();
+                    return true;
+                    
                 case "--help":
                     printHelp();
                     return true;
@@ -169,6 +257,105 @@ public class Application {
         }
     }
     
+    /**
+     * Export the VSIX cache as an offline mirror
+     */
+    private static void exportMirror(Path mirrorDirectory) {
+        try {
+            ConfigManager configManager = new ConfigManager();
+            VSCodeConfig config = configManager.loadConfig();
+            VsixCache cache = VsixCache.open(configManager.getConfigDirectory().resolve(VsixCache.DIRECTORY),
+                config.cache().getVsixCacheMaxBytes());
+            
+            VsixMirror.ExportResult result = VsixMirror.export(cache, mirrorDirectory);
+            System.out.println("Exported mirror to " + mirrorDirectory.toAbsolutePath());
+            System.out.println(result.getSummary());
+        } catch (Exception e) {
+            System.err.println("Error exporting mirror: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Print VSIX cache usage and deduplication figures
+     */
+    private static void printCacheStats() {
+        try {
+            ConfigManager configManager = new ConfigManager();
+            VSCodeConfig config = configManager.loadConfig();
+            VsixCache cache = VsixCache.open(configManager.getConfigDirectory().resolve(VsixCache.DIRECTORY),
+                config.cache().getVsixCacheMaxBytes());
+            
+            VsixCache.CacheStats stats = cache.getStats();
+            System.out.println("VSIX cache: " + cache.getDirectory().toAbsolutePath());
+            System.out.println("  Packages:       " + stats.entries() + " (" + stats.chunkedPackages() + " chunked)");
+            System.out.println("  Logical bytes:  " + stats.logicalBytes());
+            System.out.println("  Physical bytes: " + stats.totalBytes());
+            System.out.println(String.format("  Dedup ratio:    %.2f", stats.dedupRatio()));
+        } catch (Exception e) {
+            System.err.println("Error reading VSIX cache: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Print the disk usage of the extensions directories of configured instances
+     */
+    private static void printDiskUsage() {
+        try {
+            ConfigManager configManager = new ConfigManager();
+            VSCodeConfig config = configManager.loadConfig();
+            DiskUsageAnalyzer analyzer = DiskUsageAnalyzer.load(
+                configManager.getConfigDirectory().resolve(DiskUsageAnalyzer.FILE_NAME));
+            
+            DiskUsageAnalyzer.UsageReport report = analyzer.analyze(config.vsCodeInstances());
+            analyzer.save();
+            
+            for (DiskUsageAnalyzer.InstanceUsage instance : report.instances()) {
+                System.out.println(instance.name() + ": " + instance.extensionsDirectory());
+                System.out.println(String.format("  %d extension folder(s), %d KB in %d file(s)",
+                    instance.extensions().size(), instance.totalBytes() / 1024, instance.totalFiles()));
+                instance.extensions().stream().limit(15).forEach(extension -> {
+                    System.out.println(String.format("  %10d KB %7d files  %s",
+                        extension.bytes() / 1024, extension.files(), extension.folder()));
+                    extension.largestFiles().stream().limit(3).forEach(file ->
+                        System.out.println(String.format("  %10d KB                %s",
+                            file.bytes() / 1024, file.path())));
+                });
+            }
+            if (!report.duplicates().isEmpty()) {
+                System.out.println("Installed in several instances:");
+                report.duplicates().forEach(duplicate ->
+                    System.out.println(String.format("  %10d KB  %s (%s)", duplicate.redundantBytes() / 1024,
+                        duplicate.folder(), String.join(", ", duplicate.instances()))));
+            }
+            System.out.println(report.getSummary());
+        } catch (Exception e) {
+            System.err.println("Error analyzing disk usage: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Give every hard-linked extension file its own copy again
+     */
+    private static void undoDeduplication() {
+        try {
+            ConfigManager configManager = new ConfigManager();
+            HardlinkDeduplicator deduplicator = HardlinkDeduplicator.load(
+                configManager.getConfigDirectory().resolve(HardlinkDeduplicator.FILE_NAME));
+            
+            HardlinkDeduplicator.UndoResult result = deduplicator.undoAll();
+            System.out.println(result.getSummary());
+            if (result.failures() > 0) {
+                System.exit(1);
+            }
+        } catch (Exception e) {
+            System.err.println("Error undoing deduplication: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+    
     /**
      * Print help information
      */
@@ -181,8 +368,14 @@ public class Application {
         System.out.println("  --version           Show version information");
         System.out.println("  --test-detection    Test VS Code detection");
         System.out.println("  --test-startup      Test application startup (for CI)");
+        System.out.println("  --train-startup     Build the tray and windows once, then exit (CDS training)");
+        System.out.println("  --startup-report    Print how long each startup phase took");
         System.out.println("  --allow-headless    Allow running in headless environment");
         System.out.println("  --system-tray       Start in system tray mode (default)");
+        System.out.println("  --export-mirror DIR Export the VSIX cache as an offline mirror");
+        System.out.println("  --cache-stats       Show VSIX cache size and deduplication");
+        System.out.println("  --disk-usage        Show disk usage of installed extensions");
+        System.out.println("  --undo-dedup        Replace hard-linked extension files with copies");
         System.out.println("  --help              Show this help message");
         System.out.println();
         System.out.println("When run without options, the application starts in system tray mode.");
@@ -3,6 +3,7 @@ package com.vscode.updater.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.vscode.updater.discovery.DetectionSnapshot;
 import com.vscode.updater.discovery.VSCodeDetector;
 import com.vscode.updater.discovery.VSCodeInstance;
 import org.slf4j.Logger;
@@ -12,6 +13,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Enhanced configuration manager for Milestone 2 with multi-instance VS Code support.
@@ -23,6 +25,8 @@ public class ConfigManager {
     private final Path configDir;
     private final Path configFile;
     private final ObjectMapper objectMapper;
+    private final DetectionSnapshot detectionSnapshot;
+    private volatile String loadWarning;
     
     public ConfigManager() {
         this.configDir = getConfigDirectory();
@@ -33,12 +37,14 @@ public class ConfigManager {
             .enable(SerializationFeature.INDENT_OUTPUT);
         
         ensureConfigDirectoryExists();
+        this.detectionSnapshot = DetectionSnapshot.load(configDir.resolve(DetectionSnapshot.FILE_NAME));
     }
     
     /**
      * Loads configuration from file, creating default with auto-detection if none exists.
      */
     public VSCodeConfig loadConfig() {
+        loadWarning = null;
         if (!Files.exists(configFile)) {
             logger.info("Configuration file not found, creating default config with VS Code detection");
             VSCodeConfig defaultConfig = createConfigWithDetection();
@@ -53,13 +59,14 @@ public class ConfigManager {
             String validationError = config.validate();
             if (validationError != null) {
                 logger.warn("Invalid configuration: {}. Using defaults.", validationError);
+                loadWarning = "Invalid configuration: " + validationError;
                 return createConfigWithDetection();
             }
             
             // If auto-detection is enabled and no instances configured, detect now
             if (config.autoDetectInstances() && config.vsCodeInstances().isEmpty()) {
                 logger.info("Auto-detection enabled but no instances configured, running detection");
-                List<VSCodeInstance> detectedInstances = VSCodeDetector.detectInstallations();
+                List<VSCodeInstance> detectedInstances = detectInstallations();
                 config = config.withUpdatedInstances(detectedInstances);
                 saveConfig(config); // Save updated config
             }
@@ -71,10 +78,48 @@ public class ConfigManager {
         } catch (IOException e) {
             logger.error("Failed to load configuration: {}", e.getMessage());
             logger.info("Using default configuration with detection");
+            loadWarning = "Failed to read configuration: " + e.getMessage();
             return createConfigWithDetection();
         }
     }
     
+    /**
+     * Loads the saved configuration as is, without running detection.
+     * A missing or invalid file yields the defaults with no instances;
+     * {@link #refreshDetection} fills them in later.
+     */
+    public VSCodeConfig loadCachedConfig() {
+        loadWarning = null;
+        if (!Files.exists(configFile)) {
+            logger.info("Configuration file not found, starting with defaults until detection completes");
+            return VSCodeConfig.createDefault();
+        }
+
+        try {
+            VSCodeConfig config = objectMapper.readValue(configFile.toFile(), VSCodeConfig.class);
+            String validationError = config.validate();
+            if (validationError != null) {
+                logger.warn("Invalid configuration: {}. Using defaults.", validationError);
+                loadWarning = "Invalid configuration: " + validationError;
+                return VSCodeConfig.createDefault();
+            }
+            logger.info("Cached configuration loaded with {} VS Code instance(s)", config.vsCodeInstances().size());
+            return config;
+        } catch (IOException e) {
+            logger.error("Failed to load configuration: {}", e.getMessage());
+            loadWarning = "Failed to read configuration: " + e.getMessage();
+            return VSCodeConfig.createDefault();
+        }
+    }
+
+    /**
+     * Gets why the last load fell back to the defaults, if it did, so the
+     * user can be told before their file is overwritten.
+     */
+    public Optional<String> getLoadWarning() {
+        return Optional.ofNullable(loadWarning);
+    }
+
     /**
      * Saves configuration to file.
      */
@@ -106,7 +151,7 @@ public class ConfigManager {
      */
     public VSCodeConfig refreshDetection(VSCodeConfig currentConfig) {
         logger.info("Refreshing VS Code installation detection");
-        List<VSCodeInstance> detectedInstances = VSCodeDetector.detectInstallations();
+        List<VSCodeInstance> detectedInstances = detectInstallations();
         
         // Merge with existing configuration, preserving enabled/disabled state
         List<VSCodeInstance> mergedInstances = mergeInstances(
@@ -124,10 +169,17 @@ public class ConfigManager {
     
     private VSCodeConfig createConfigWithDetection() {
         logger.info("Running VS Code installation detection...");
-        List<VSCodeInstance> detectedInstances = VSCodeDetector.detectInstallations();
+        List<VSCodeInstance> detectedInstances = detectInstallations();
         return VSCodeConfig.withInstances(detectedInstances);
     }
     
+    private List<VSCodeInstance> detectInstallations() {
+        List<VSCodeInstance> detectedInstances =
+            VSCodeDetector.detectInstallations(detectionSnapshot, VSCodeDetector.DEFAULT_BUDGET);
+        detectionSnapshot.save();
+        return detectedInstances;
+    }
+    
     private List<VSCodeInstance> mergeInstances(
             List<VSCodeInstance> existing, 
             List<VSCodeInstance> detected) {
@@ -6,6 +6,8 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.vscode.updater.discovery.VSCodeInstance;
 import com.vscode.updater.scheduler.UpdateScheduler;
 
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.List;
 
 /**
@@ -38,9 +40,60 @@ public record VSCodeConfig(
     UIConfig ui,
     
     @JsonProperty("schedule")
-    UpdateScheduler.ScheduleConfig schedule
+    UpdateScheduler.ScheduleConfig schedule,
+    
+    @JsonProperty("updates")
+    UpdateConfig updates,
+    
+    @JsonProperty("cache")
+    CacheConfig cache,
+    
+    @JsonProperty("bandwidth")
+    BandwidthConfig bandwidth,
+    
+    @JsonProperty("mirror")
+    MirrorConfig mirror,
+    
+    @JsonProperty("peers")
+    PeerConfig peers,
+    
+    @JsonProperty("maintenance")
+    MaintenanceConfig maintenance
 ) {
     
+    public VSCodeConfig {
+        // Sections added after the first release are absent from older config files
+        if (updates == null) {
+            updates = UpdateConfig.createDefault();
+        }
+        if (cache == null) {
+            cache = CacheConfig.createDefault();
+        }
+        if (bandwidth == null) {
+            bandwidth = BandwidthConfig.createDefault();
+        }
+        if (mirror == null) {
+            mirror = MirrorConfig.createDefault();
+        }
+        if (peers == null) {
+            peers = PeerConfig.createDefault();
+        }
+        if (maintenance == null) {
+            maintenance = MaintenanceConfig.createDefault();
+        }
+    }
+    
+    /**
+     * Creates a configuration using defaults for sections added after Milestone 3.
+     */
+    public VSCodeConfig(List<VSCodeInstance> vsCodeInstances, boolean autoDetectInstances,
+                        int commandTimeoutSeconds, String logLevel, boolean autoStart,
+                        boolean showNotifications, ConcurrencyConfig concurrency, UIConfig ui,
+                        UpdateScheduler.ScheduleConfig schedule) {
+        this(vsCodeInstances, autoDetectInstances, commandTimeoutSeconds, logLevel, autoStart,
+            showNotifications, concurrency, ui, schedule, null, null, null, null, null, null);
+    }
+    
     public record ConcurrencyConfig(
         @JsonProperty("maxConcurrentUpdates")
         int maxConcurrentUpdates,
@@ -74,6 +127,207 @@ public record VSCodeConfig(
         }
     }
     
+    public record UpdateConfig(
+        @JsonProperty("mode")
+        UpdateMode mode,
+        
+        @JsonProperty("granularParallelism")
+        int granularParallelism,
+        
+        @JsonProperty("batchSize")
+        int batchSize,
+        
+        @JsonProperty("directInstall")
+        boolean directInstall
+    ) {
+        public enum UpdateMode {
+            BULK("Single --update-extensions run"),
+            GRANULAR("Parallel per-extension installs");
+            
+            private final String description;
+            
+            UpdateMode(String description) {
+                this.description = description;
+            }
+            
+            public String getDescription() { return description; }
+        }
+        
+        /**
+         * Creates update settings without direct installs.
+         */
+        public UpdateConfig(UpdateMode mode, int granularParallelism, int batchSize) {
+            this(mode, granularParallelism, batchSize, false);
+        }
+        
+        public static UpdateConfig createDefault() {
+            return new UpdateConfig(UpdateMode.BULK, 4, 8, false);
+        }
+        
+        public String validate() {
+            if (mode == null) {
+                return "Update mode is required";
+            }
+            if (granularParallelism <= 0 || granularParallelism > 16) {
+                return "Granular parallelism must be between 1 and 16";
+            }
+            if (batchSize <= 0 || batchSize > 100) {
+                return "Batch size must be between 1 and 100";
+            }
+            return null;
+        }
+    }
+    
+    public record CacheConfig(
+        @JsonProperty("vsixCacheEnabled")
+        boolean vsixCacheEnabled,
+        
+        @JsonProperty("vsixCacheMaxMegabytes")
+        int vsixCacheMaxMegabytes
+    ) {
+        public static CacheConfig createDefault() {
+            return new CacheConfig(true, 2048);
+        }
+        
+        @JsonIgnore
+        public long getVsixCacheMaxBytes() {
+            return vsixCacheMaxMegabytes * 1024L * 1024L;
+        }
+        
+        public String validate() {
+            if (vsixCacheMaxMegabytes < 64 || vsixCacheMaxMegabytes > 102400) {
+                return "VSIX cache size must be between 64 MB and 100 GB";
+            }
+            return null;
+        }
+    }
+    
+    public record BandwidthConfig(
+        @JsonProperty("scheduledLimitKilobytesPerSecond")
+        int scheduledLimitKilobytesPerSecond,
+        
+        @JsonProperty("manualLimitKilobytesPerSecond")
+        int manualLimitKilobytesPerSecond,
+        
+        @JsonProperty("burstKilobytes")
+        int burstKilobytes
+    ) {
+        /** Limit value meaning no limit. */
+        public static final int UNLIMITED = 0;
+        
+        public static BandwidthConfig createDefault() {
+            return new BandwidthConfig(UNLIMITED, UNLIMITED, 1024);
+        }
+        
+        @JsonIgnore
+        public long getScheduledBytesPerSecond() {
+            return scheduledLimitKilobytesPerSecond * 1024L;
+        }
+        
+        @JsonIgnore
+        public long getManualBytesPerSecond() {
+            return manualLimitKilobytesPerSecond * 1024L;
+        }
+        
+        @JsonIgnore
+        public long getBurstBytes() {
+            return burstKilobytes * 1024L;
+        }
+        
+        public String validate() {
+            if (scheduledLimitKilobytesPerSecond < 0 || manualLimitKilobytesPerSecond < 0) {
+                return "Bandwidth limits cannot be negative";
+            }
+            if (burstKilobytes < 64 || burstKilobytes > 1048576) {
+                return "Burst size must be between 64 KB and 1 GB";
+            }
+            return null;
+        }
+    }
+    
+    public record MirrorConfig(
+        @JsonProperty("enabled")
+        boolean enabled,
+        
+        @JsonProperty("directory")
+        String directory
+    ) {
+        public static MirrorConfig createDefault() {
+            return new MirrorConfig(false, null);
+        }
+        
+        public String validate() {
+            if (enabled && (directory == null || directory.isBlank())) {
+                return "Mirror directory is required when mirror mode is enabled";
+            }
+            return null;
+        }
+    }
+    
+    public record PeerConfig(
+        @JsonProperty("serveEnabled")
+        boolean serveEnabled,
+        
+        @JsonProperty("servePort")
+        int servePort,
+        
+        @JsonProperty("peers")
+        List<String> peers
+    ) {
+        public static final int DEFAULT_PORT = 47800;
+        
+        public PeerConfig {
+            peers = peers != null ? List.copyOf(peers) : List.of();
+        }
+        
+        public static PeerConfig createDefault() {
+            return new PeerConfig(false, DEFAULT_PORT, List.of());
+        }
+        
+        public String validate() {
+            if (servePort < 1024 || servePort > 65535) {
+                return "Peer cache port must be between 1024 and 65535";
+            }
+            for (String peer : peers) {
+                if (!isValidPeerUrl(peer)) {
+                    return "Peer must be an http(s) URL: " + peer;
+                }
+            }
+            return null;
+        }
+        
+        private static boolean isValidPeerUrl(String peer) {
+            try {
+                URI uri = new URI(peer);
+                return ("http".equals(uri.getScheme()) || "https".equals(uri.getScheme())) && uri.getHost() != null;
+            } catch (URISyntaxException | NullPointerException e) {
+                return false;
+            }
+        }
+    }
+    
+    public record MaintenanceConfig(
+        @JsonProperty("collectObsoleteExtensions")
+        boolean collectObsoleteExtensions,
+        
+        @JsonProperty("dryRun")
+        boolean dryRun,
+        
+        @JsonProperty("deduplicateExtensions")
+        boolean deduplicateExtensions
+    ) {
+        /**
+         * Creates maintenance settings without cross-instance deduplication.
+         */
+        public MaintenanceConfig(boolean collectObsoleteExtensions, boolean dryRun) {
+            this(collectObsoleteExtensions, dryRun, false);
+        }
+        
+        public static MaintenanceConfig createDefault() {
+            return new MaintenanceConfig(true, false, false);
+        }
+    }
+    
     /**
      * Creates a default configuration with sensible defaults.
      */
@@ -121,7 +375,13 @@ public record VSCodeConfig(
             showNotifications,
             concurrency,
             ui,
-            schedule
+            schedule,
+            updates,
+            cache,
+            bandwidth,
+            mirror,
+            peers,
+            maintenance
         );
     }
     
@@ -138,7 +398,151 @@ public record VSCodeConfig(
             showNotifications,
             concurrency,
             ui,
-            newSchedule
+            newSchedule,
+            updates,
+            cache,
+            bandwidth,
+            mirror,
+            peers,
+            maintenance
+        );
+    }
+    
+    /**
+     * Returns a new config with updated extension update settings.
+     */
+    public VSCodeConfig withUpdatedUpdates(UpdateConfig newUpdates) {
+        return new VSCodeConfig(
+            vsCodeInstances,
+            autoDetectInstances,
+            commandTimeoutSeconds,
+            logLevel,
+            autoStart,
+            showNotifications,
+            concurrency,
+            ui,
+            schedule,
+            newUpdates,
+            cache,
+            bandwidth,
+            mirror,
+            peers,
+            maintenance
+        );
+    }
+    
+    /**
+     * Returns a new config with updated cache settings.
+     */
+    public VSCodeConfig withUpdatedCache(CacheConfig newCache) {
+        return new VSCodeConfig(
+            vsCodeInstances,
+            autoDetectInstances,
+            commandTimeoutSeconds,
+            logLevel,
+            autoStart,
+            showNotifications,
+            concurrency,
+            ui,
+            schedule,
+            updates,
+            newCache,
+            bandwidth,
+            mirror,
+            peers,
+            maintenance
+        );
+    }
+    
+    /**
+     * Returns a new config with updated bandwidth limits.
+     */
+    public VSCodeConfig withUpdatedBandwidth(BandwidthConfig newBandwidth) {
+        return new VSCodeConfig(
+            vsCodeInstances,
+            autoDetectInstances,
+            commandTimeoutSeconds,
+            logLevel,
+            autoStart,
+            showNotifications,
+            concurrency,
+            ui,
+            schedule,
+            updates,
+            cache,
+            newBandwidth,
+            mirror,
+            peers,
+            maintenance
+        );
+    }
+    
+    /**
+     * Returns a new config with updated mirror settings.
+     */
+    public VSCodeConfig withUpdatedMirror(MirrorConfig newMirror) {
+        return new VSCodeConfig(
+            vsCodeInstances,
+            autoDetectInstances,
+            commandTimeoutSeconds,
+            logLevel,
+            autoStart,
+            showNotifications,
+            concurrency,
+            ui,
+            schedule,
+            updates,
+            cache,
+            bandwidth,
+            newMirror,
+            peers,
+            maintenance
+        );
+    }
+    
+    /**
+     * Returns a new config with updated peer cache settings.
+     */
+    public VSCodeConfig withUpdatedPeers(PeerConfig newPeers) {
+        return new VSCodeConfig(
+            vsCodeInstances,
+            autoDetectInstances,
+            commandTimeoutSeconds,
+            logLevel,
+            autoStart,
+            showNotifications,
+            concurrency,
+            ui,
+            schedule,
+            updates,
+            cache,
+            bandwidth,
+            mirror,
+            newPeers,
+            maintenance
+        );
+    }
+    
+    /**
+     * Returns a new config with updated maintenance settings.
+     */
+    public VSCodeConfig withUpdatedMaintenance(MaintenanceConfig newMaintenance) {
+        return new VSCodeConfig(
+            vsCodeInstances,
+            autoDetectInstances,
+            commandTimeoutSeconds,
+            logLevel,
+            autoStart,
+            showNotifications,
+            concurrency,
+            ui,
+            schedule,
+            updates,
+            cache,
+            bandwidth,
+            mirror,
+            peers,
+            newMaintenance
         );
     }
     
@@ -191,6 +595,31 @@ public record VSCodeConfig(
             }
         }
         
+        String updatesValidation = updates.validate();
+        if (updatesValidation != null) {
+            return "Invalid update configuration: " + updatesValidation;
+        }
+        
+        String cacheValidation = cache.validate();
+        if (cacheValidation != null) {
+            return "Invalid cache configuration: " + cacheValidation;
+        }
+        
+        String bandwidthValidation = bandwidth.validate();
+        if (bandwidthValidation != null) {
+            return "Invalid bandwidth configuration: " + bandwidthValidation;
+        }
+        
+        String mirrorValidation = mirror.validate();
+        if (mirrorValidation != null) {
+            return "Invalid mirror configuration: " + mirrorValidation;
+        }
+        
+        String peersValidation = peers.validate();
+        if (peersValidation != null) {
+            return "Invalid peer cache configuration: " + peersValidation;
+        }
+        
         return null; // No validation errors
     }
     
@@ -0,0 +1,143 @@
+package com.vscode.updater.discovery;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Versions of previously detected VS Code installs, keyed by the launcher
+ * path. An install whose {@link ExecutableFingerprint} is unchanged is
+ * trusted on later launches without running {@code --version}, until the
+ * entry expires: a wrapper such as {@code /usr/bin/snap} stays the same
+ * file while the install behind it is refreshed.
+ */
+public class DetectionSnapshot {
+    private static final Logger logger = LoggerFactory.getLogger(DetectionSnapshot.class);
+
+    /** File name of the snapshot inside the configuration directory. */
+    public static final String FILE_NAME = "detection-snapshot.json";
+
+    /** How long a recorded version is trusted. */
+    public static final Duration DEFAULT_MAX_AGE = Duration.ofDays(1);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final Path file;
+    private final Duration maxAge;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * What was learned about one executable, and when.
+     */
+    public record Entry(
+        @JsonProperty("fingerprint") ExecutableFingerprint fingerprint,
+        @JsonProperty("version") String version,
+        @JsonProperty("checkedAt") Instant checkedAt
+    ) {}
+
+    /**
+     * On-disk format.
+     */
+    private record SnapshotFile(@JsonProperty("executables") Map<String, Entry> executables) {}
+
+    private DetectionSnapshot(Path file, Duration maxAge) {
+        this.file = file;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Loads the snapshot from a file; a missing or unreadable file yields an empty snapshot.
+     */
+    public static DetectionSnapshot load(Path file) {
+        return load(file, DEFAULT_MAX_AGE);
+    }
+
+    static DetectionSnapshot load(Path file, Duration maxAge) {
+        DetectionSnapshot snapshot = new DetectionSnapshot(file, maxAge);
+        if (file != null && Files.isRegularFile(file)) {
+            try {
+                SnapshotFile stored = objectMapper.readValue(file.toFile(), SnapshotFile.class);
+                if (stored.executables() != null) {
+                    snapshot.entries.putAll(stored.executables());
+                }
+                logger.debug("Loaded detection snapshot with {} executable(s)", snapshot.entries.size());
+            } catch (IOException e) {
+                logger.warn("Ignoring unreadable detection snapshot {}: {}", file, e.getMessage());
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Creates a snapshot that is never persisted.
+     */
+    public static DetectionSnapshot inMemory() {
+        return new DetectionSnapshot(null, DEFAULT_MAX_AGE);
+    }
+
+    /**
+     * Gets the version recorded for an executable if it has not changed since
+     * and the entry has not expired.
+     */
+    public Optional<String> getVersion(ExecutableFingerprint fingerprint) {
+        return getVersion(fingerprint, Instant.now());
+    }
+
+    Optional<String> getVersion(ExecutableFingerprint fingerprint, Instant now) {
+        Entry entry = entries.get(fingerprint.path());
+        return entry != null && fingerprint.equals(entry.fingerprint())
+                && entry.checkedAt() != null && entry.checkedAt().plus(maxAge).isAfter(now)
+            ? Optional.ofNullable(entry.version())
+            : Optional.empty();
+    }
+
+    public void record(ExecutableFingerprint fingerprint, String version) {
+        entries.put(fingerprint.path(), new Entry(fingerprint, version, Instant.now()));
+    }
+
+    /**
+     * Drops launchers that were not found by the latest detection.
+     */
+    public void retainOnly(Set<String> paths) {
+        entries.keySet().retainAll(paths);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Writes the snapshot to disk atomically.
+     */
+    public synchronized void save() {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            objectMapper.writeValue(temp.toFile(), new SnapshotFile(new HashMap<>(entries)));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Failed to save detection snapshot to {}: {}", file, e.getMessage());
+        }
+    }
+}
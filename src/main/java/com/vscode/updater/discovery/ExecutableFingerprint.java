@@ -0,0 +1,48 @@
+package com.vscode.updater.discovery;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Optional;
+
+/**
+ * Identity of an executable on disk: the path it is launched by, its real
+ * path (symlinks resolved) and the size, modification time and file key of
+ * the file it resolves to. An install or update replaces the file, so an
+ * equal fingerprint means facts learned by running the executable still
+ * hold. Launchers that share a target, such as snap's {@code /snap/bin/code}
+ * and {@code /snap/bin/code-insiders}, keep their own {@link #path}.
+ */
+public record ExecutableFingerprint(
+    @JsonProperty("path") String path,
+    @JsonProperty("realPath") String realPath,
+    @JsonProperty("size") long size,
+    @JsonProperty("modifiedMillis") long modifiedMillis,
+    @JsonProperty("fileKey") String fileKey
+) {
+    /**
+     * Reads the fingerprint of an executable, or empty if it cannot be resolved.
+     */
+    public static Optional<ExecutableFingerprint> of(String executablePath) {
+        if (executablePath == null || executablePath.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            Path path = Path.of(executablePath).toAbsolutePath().normalize();
+            Path realPath = path.toRealPath();
+            BasicFileAttributes attributes = Files.readAttributes(realPath, BasicFileAttributes.class);
+            if (!attributes.isRegularFile()) {
+                return Optional.empty();
+            }
+            Object fileKey = attributes.fileKey();
+            return Optional.of(new ExecutableFingerprint(path.toString(), realPath.toString(), attributes.size(),
+                attributes.lastModifiedTime().toMillis(), fileKey != null ? fileKey.toString() : null));
+        } catch (IOException | InvalidPathException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.vscode.updater.discovery;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Reads what {@code code --version} would print straight from the install:
+ * {@code resources/app/product.json} and {@code package.json} next to the
+ * launcher, and the header of the Electron binary for the architecture.
+ * Nothing is spawned.
+ */
+public class InstallationResolver {
+    private static final Logger logger = LoggerFactory.getLogger(InstallationResolver.class);
+
+    private static final String PRODUCT_FILE = "product.json";
+    private static final String PACKAGE_FILE = "package.json";
+    private static final String INSIDER_QUALITY = "insider";
+
+    /** How far above the launcher the install root may be. */
+    private static final int MAX_DEPTH = 4;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Build information of a VS Code install.
+     */
+    public record InstallationInfo(
+        String version,
+        String commit,
+        String quality,
+        String architecture,
+        Path appDirectory
+    ) {
+        /**
+         * Gets the edition from the build quality.
+         */
+        public VSCodeInstance.VSCodeEdition edition() {
+            return INSIDER_QUALITY.equals(quality)
+                ? VSCodeInstance.VSCodeEdition.INSIDERS
+                : VSCodeInstance.VSCodeEdition.STABLE;
+        }
+
+        /**
+         * Gets the same lines {@code code --version} prints.
+         */
+        public String getVersionInfo() {
+            return version + "\n" + commit + "\n" + architecture;
+        }
+
+        /**
+         * Gets the folder every process of the install runs from: the
+         * bundle's {@code Contents} on macOS, else the folder holding {@code bin}.
+         */
+        public Path installRoot() {
+            Path root = appDirectory.getParent().getParent();
+            Path parent = root.getParent();
+            // A per-commit folder sits below the one with bin and the .exe
+            return !Files.isDirectory(root.resolve("bin")) && parent != null && Files.isDirectory(parent.resolve("bin"))
+                ? parent
+                : root;
+        }
+    }
+
+    /**
+     * Resolves the install a launcher belongs to, or empty if its product
+     * files cannot be found (for example a snap wrapper).
+     */
+    public static Optional<InstallationInfo> resolve(String executablePath) {
+        if (executablePath == null || executablePath.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            Path launcher = Path.of(executablePath).toRealPath();
+            Optional<Path> appDirectory = findAppDirectory(launcher);
+            if (appDirectory.isEmpty()) {
+                logger.debug("No product.json found for {}", executablePath);
+                return Optional.empty();
+            }
+            return Optional.of(read(appDirectory.get()));
+        } catch (IOException | InvalidPathException e) {
+            logger.debug("Could not resolve installation of {}: {}", executablePath, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Walks up from the launcher to the {@code resources/app} folder:
+     * {@code bin/code} sits inside it on macOS and next to {@code resources}
+     * on Linux and Windows, where newer builds add a per-commit folder.
+     */
+    static Optional<Path> findAppDirectory(Path launcher) throws IOException {
+        Path directory = launcher.getParent();
+        for (int depth = 0; directory != null && depth < MAX_DEPTH; depth++, directory = directory.getParent()) {
+            if (isAppDirectory(directory)) {
+                return Optional.of(directory);
+            }
+            Path app = directory.resolve("resources").resolve("app");
+            if (isAppDirectory(app)) {
+                return Optional.of(app);
+            }
+            Optional<Path> versioned = findVersionedAppDirectory(directory);
+            if (versioned.isPresent()) {
+                return versioned;
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<Path> findVersionedAppDirectory(Path root) throws IOException {
+        if (!Files.isRegularFile(root.resolve("bin").resolve("code.cmd"))
+                && !Files.isRegularFile(root.resolve("bin").resolve("code-insiders.cmd"))) {
+            return Optional.empty();
+        }
+        // The most recent update wins while an older folder awaits cleanup
+        try (Stream<Path> children = Files.list(root)) {
+            return children
+                .map(child -> child.resolve("resources").resolve("app"))
+                .filter(InstallationResolver::isAppDirectory)
+                .max(Comparator.comparingLong(InstallationResolver::lastModified));
+        }
+    }
+
+    private static boolean isAppDirectory(Path directory) {
+        return Files.isRegularFile(directory.resolve(PRODUCT_FILE))
+            && Files.isRegularFile(directory.resolve(PACKAGE_FILE));
+    }
+
+    private static long lastModified(Path appDirectory) {
+        try {
+            return Files.getLastModifiedTime(appDirectory.resolve(PRODUCT_FILE)).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static InstallationInfo read(Path appDirectory) throws IOException {
+        JsonNode product = objectMapper.readTree(appDirectory.resolve(PRODUCT_FILE).toFile());
+        JsonNode manifest = objectMapper.readTree(appDirectory.resolve(PACKAGE_FILE).toFile());
+        String version = manifest.path("version").asText(null);
+        if (version == null) {
+            throw new IOException("No version in " + appDirectory.resolve(PACKAGE_FILE));
+        }
+        return new InstallationInfo(
+            version,
+            product.path("commit").asText("unknown"),
+            product.path("quality").asText("stable"),
+            findExecutable(appDirectory, product).map(InstallationResolver::readArchitecture).orElse("unknown"),
+            appDirectory
+        );
+    }
+
+    /**
+     * Finds the Electron binary: {@code Contents/MacOS/*} in an app bundle,
+     * {@code <nameShort>.exe} on Windows and {@code <applicationName>} on Linux.
+     */
+    private static Optional<Path> findExecutable(Path appDirectory, JsonNode product) {
+        Path resources = appDirectory.getParent();
+        Path root = resources != null ? resources.getParent() : null;
+        if (root == null) {
+            return Optional.empty();
+        }
+        Path macOS = root.resolve("MacOS");
+        if (Files.isDirectory(macOS)) {
+            try (Stream<Path> binaries = Files.list(macOS)) {
+                return binaries.filter(Files::isRegularFile).findFirst();
+            } catch (IOException e) {
+                return Optional.empty();
+            }
+        }
+        String windowsName = product.path("nameShort").asText("Code") + ".exe";
+        String linuxName = product.path("applicationName").asText("code");
+        // A per-commit folder keeps the .exe one level up
+        return Stream.of(root, root.getParent())
+            .filter(directory -> directory != null)
+            .flatMap(directory -> Stream.of(directory.resolve(windowsName), directory.resolve(linuxName)))
+            .filter(Files::isRegularFile)
+            .findFirst();
+    }
+
+    /**
+     * Reads the CPU architecture from an ELF, PE or Mach-O header, using the
+     * names VS Code itself prints.
+     */
+    static String readArchitecture(Path executable) {
+        byte[] header = new byte[64];
+        try (InputStream in = Files.newInputStream(executable)) {
+            int read = in.readNBytes(header, 0, header.length);
+            if (read >= 20 && header[0] == 0x7f && header[1] == 'E' && header[2] == 'L' && header[3] == 'F') {
+                ByteOrder order = header[5] == 2 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+                return elfArchitecture(ByteBuffer.wrap(header).order(order).getShort(18));
+            }
+            if (read >= 0x40 && header[0] == 'M' && header[1] == 'Z') {
+                int peOffset = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN).getInt(0x3c);
+                byte[] pe = new byte[0];
+                if (peOffset >= read) {
+                    in.skipNBytes(peOffset - read);
+                    pe = in.readNBytes(6);
+                }
+                if (pe.length == 6 && pe[0] == 'P' && pe[1] == 'E') {
+                    return peArchitecture(ByteBuffer.wrap(pe).order(ByteOrder.LITTLE_ENDIAN).getShort(4));
+                }
+            }
+            if (read >= 8) {
+                int magic = ByteBuffer.wrap(header).order(ByteOrder.BIG_ENDIAN).getInt(0);
+                if (magic == 0xcafebabe) {
+                    return "universal";
+                }
+                if (magic == 0xcffaedfe || magic == 0xcefaedfe) {
+                    return machOArchitecture(ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN).getInt(4));
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Could not read header of {}: {}", executable, e.getMessage());
+        }
+        return "unknown";
+    }
+
+    private static String elfArchitecture(short machine) {
+        return switch (machine) {
+            case 0x3e -> "x64";
+            case 0xb7 -> "arm64";
+            case 0x28 -> "armhf";
+            case 0x03 -> "ia32";
+            default -> "unknown";
+        };
+    }
+
+    private static String peArchitecture(short machine) {
+        return switch (machine & 0xffff) {
+            case 0x8664 -> "x64";
+            case 0xaa64 -> "arm64";
+            case 0x014c -> "ia32";
+            default -> "unknown";
+        };
+    }
+
+    private static String machOArchitecture(int cpuType) {
+        return switch (cpuType) {
+            case 0x01000007 -> "x64";
+            case 0x0100000c -> "arm64";
+            default -> "unknown";
+        };
+    }
+}
@@ -1,214 +1,279 @@
 package com.vscode.updater.discovery;
 
-import com.vscode.updater.util.ProcessUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
 
 /**
  * Detects VS Code installations across different platforms and editions.
  * Supports both VS Code stable and VS Code Insiders.
+ * <p>
+ * Candidate paths are probed and versions checked concurrently on virtual
+ * threads within an overall time budget. Versions are kept in a
+ * {@link DetectionSnapshot}, so an unchanged install is not run at all.
  */
 public class VSCodeDetector {
     private static final Logger logger = LoggerFactory.getLogger(VSCodeDetector.class);
     
+    /** Time allowed for a whole detection run, version checks included. */
+    public static final Duration DEFAULT_BUDGET = Duration.ofSeconds(15);
+    
+    private static final long VERSION_TIMEOUT_SECONDS = 10;
+    
+    /**
+     * A path that may hold the launcher of an edition, in order of preference.
+     */
+    record Candidate(String path, VSCodeInstance.VSCodeEdition edition, boolean fromPath) {}
+    
+    /**
+     * An existing candidate, with its build information when the install could be read.
+     */
+    private record Probe(String path, VSCodeInstance.VSCodeEdition edition,
+                         InstallationResolver.InstallationInfo info) {}
+    
     /**
      * Detects all VS Code installations on the current platform.
      */
     public static List<VSCodeInstance> detectInstallations() {
+        return detectInstallations(DetectionSnapshot.inMemory(), DEFAULT_BUDGET);
+    }
+    
+    /**
+     * Detects all VS Code installations, trusting the versions in a snapshot
+     * for unchanged executables and recording the versions learned.
+     */
+    public static List<VSCodeInstance> detectInstallations(DetectionSnapshot snapshot, Duration budget) {
         logger.info("Starting VS Code installation detection");
-        List<VSCodeInstance> instances = new ArrayList<>();
         
         String osName = System.getProperty("os.name").toLowerCase();
-        
+        List<Candidate> candidates;
         if (osName.contains("win")) {
-            instances.addAll(detectWindowsInstallations());
+            candidates = windowsCandidates();
         } else if (osName.contains("mac")) {
-            instances.addAll(detectMacOSInstallations());
+            candidates = macOSCandidates();
         } else {
-            instances.addAll(detectLinuxInstallations());
+            candidates = linuxCandidates();
         }
         
-        // Validate each instance and get version information
+        return detect(candidates, snapshot, budget);
+    }
+    
+    static List<VSCodeInstance> detect(List<Candidate> candidates, DetectionSnapshot snapshot, Duration budget) {
+        long startNanos = System.nanoTime();
+        long deadline = startNanos + budget.toNanos();
         List<VSCodeInstance> validInstances = new ArrayList<>();
-        for (VSCodeInstance instance : instances) {
-            VSCodeInstance validatedInstance = validateAndEnrichInstance(instance);
-            if (validatedInstance != null) {
-                validInstances.add(validatedInstance);
-                logger.info("Detected: {} at {}", validatedInstance.displayName(), validatedInstance.getShortPath());
+        
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            // Probe every candidate at once; per edition the first existing one wins
+            List<Future<Optional<Probe>>> probes = candidates.stream()
+                .map(candidate -> executor.submit(() -> probe(candidate)))
+                .toList();
+            List<Probe> found = new ArrayList<>();
+            Set<VSCodeInstance.VSCodeEdition> editions = EnumSet.noneOf(VSCodeInstance.VSCodeEdition.class);
+            for (Future<Optional<Probe>> future : probes) {
+                Optional<Probe> probe = await(future, deadline, Optional.empty());
+                if (probe.isPresent() && editions.add(probe.get().edition())) {
+                    found.add(probe.get());
+                }
+            }
+            probes.forEach(probe -> probe.cancel(true));
+            List<VSCodeInstance> instances = found.stream()
+                .map(probe -> createInstance(probe.path(), probe.edition()))
+                .toList();
+            
+            // Validate each instance and get version information
+            List<Future<VSCodeInstance>> checks = new ArrayList<>();
+            for (int i = 0; i < found.size(); i++) {
+                VSCodeInstance instance = instances.get(i);
+                InstallationResolver.InstallationInfo info = found.get(i).info();
+                checks.add(executor.submit(() -> validateAndEnrichInstance(instance, info, snapshot)));
+            }
+            for (int i = 0; i < instances.size(); i++) {
+                VSCodeInstance validatedInstance = await(checks.get(i), deadline, instances.get(i));
+                if (validatedInstance == instances.get(i)) {
+                    // Still running when the budget ran out: keep the install, version unknown
+                    checks.get(i).cancel(true);
+                    logger.warn("Version check of {} exceeded the detection budget", instances.get(i).executablePath());
+                }
+                if (validatedInstance != null) {
+                    validInstances.add(validatedInstance);
+                    logger.info("Detected: {} at {}", validatedInstance.displayName(), validatedInstance.getShortPath());
+                }
             }
         }
         
-        logger.info("Detection complete. Found {} valid VS Code installation(s)", validInstances.size());
+        snapshot.retainOnly(validInstances.stream()
+            .map(instance -> ExecutableFingerprint.of(instance.executablePath()))
+            .flatMap(Optional::stream)
+            .map(ExecutableFingerprint::path)
+            .collect(Collectors.toSet()));
+        
+        logger.info("Detection complete. Found {} valid VS Code installation(s) in {} ms", validInstances.size(),
+            (System.nanoTime() - startNanos) / 1_000_000);
         return validInstances;
     }
     
-    private static List<VSCodeInstance> detectWindowsInstallations() {
-        List<VSCodeInstance> instances = new ArrayList<>();
+    private static List<Candidate> windowsCandidates() {
+        List<Candidate> candidates = new ArrayList<>();
         
         // VS Code Stable paths
-        String[] stablePaths = {
+        addCandidates(candidates, VSCodeInstance.VSCodeEdition.STABLE,
             System.getenv("LOCALAPPDATA") + "\\Programs\\Microsoft VS Code\\bin\\code.cmd",
             System.getenv("PROGRAMFILES") + "\\Microsoft VS Code\\bin\\code.cmd",
-            "C:\\Program Files\\Microsoft VS Code\\bin\\code.cmd"
-        };
-        
-        for (String path : stablePaths) {
-            if (path != null && Files.exists(Paths.get(path))) {
-                instances.add(createInstance(path, VSCodeInstance.VSCodeEdition.STABLE));
-                break; // Only add one stable instance
-            }
-        }
+            "C:\\Program Files\\Microsoft VS Code\\bin\\code.cmd");
         
         // VS Code Insiders paths
-        String[] insidersPaths = {
+        addCandidates(candidates, VSCodeInstance.VSCodeEdition.INSIDERS,
             System.getenv("LOCALAPPDATA") + "\\Programs\\Microsoft VS Code Insiders\\bin\\code-insiders.cmd",
             System.getenv("PROGRAMFILES") + "\\Microsoft VS Code Insiders\\bin\\code-insiders.cmd",
-            "C:\\Program Files\\Microsoft VS Code Insiders\\bin\\code-insiders.cmd"
-        };
-        
-        for (String path : insidersPaths) {
-            if (path != null && Files.exists(Paths.get(path))) {
-                instances.add(createInstance(path, VSCodeInstance.VSCodeEdition.INSIDERS));
-                break; // Only add one insiders instance
-            }
-        }
+            "C:\\Program Files\\Microsoft VS Code Insiders\\bin\\code-insiders.cmd");
         
         // Try PATH lookup for both
-        addFromPath(instances, "code.cmd", VSCodeInstance.VSCodeEdition.STABLE);
-        addFromPath(instances, "code-insiders.cmd", VSCodeInstance.VSCodeEdition.INSIDERS);
+        addFromPath(candidates, "code.cmd", VSCodeInstance.VSCodeEdition.STABLE);
+        addFromPath(candidates, "code-insiders.cmd", VSCodeInstance.VSCodeEdition.INSIDERS);
         
-        return instances;
+        return candidates;
     }
     
-    private static List<VSCodeInstance> detectMacOSInstallations() {
-        List<VSCodeInstance> instances = new ArrayList<>();
+    private static List<Candidate> macOSCandidates() {
+        List<Candidate> candidates = new ArrayList<>();
         
         // VS Code Stable paths
-        String[] stablePaths = {
+        addCandidates(candidates, VSCodeInstance.VSCodeEdition.STABLE,
             "/Applications/Visual Studio Code.app/Contents/Resources/app/bin/code",
             "/usr/local/bin/code",
-            System.getProperty("user.home") + "/Applications/Visual Studio Code.app/Contents/Resources/app/bin/code"
-        };
-        
-        for (String path : stablePaths) {
-            if (Files.exists(Paths.get(path))) {
-                instances.add(createInstance(path, VSCodeInstance.VSCodeEdition.STABLE));
-                break; // Only add one stable instance
-            }
-        }
+            System.getProperty("user.home") + "/Applications/Visual Studio Code.app/Contents/Resources/app/bin/code");
         
         // VS Code Insiders paths
-        String[] insidersPaths = {
+        addCandidates(candidates, VSCodeInstance.VSCodeEdition.INSIDERS,
             "/Applications/Visual Studio Code - Insiders.app/Contents/Resources/app/bin/code", // Correct binary name
             "/usr/local/bin/code-insiders",
-            System.getProperty("user.home") + "/Applications/Visual Studio Code - Insiders.app/Contents/Resources/app/bin/code"
-        };
-        
-        for (String path : insidersPaths) {
-            if (Files.exists(Paths.get(path)) && isInsidersPath(path)) {
-                instances.add(createInstance(path, VSCodeInstance.VSCodeEdition.INSIDERS));
-                break; // Only add one insiders instance
-            }
-        }
+            System.getProperty("user.home") + "/Applications/Visual Studio Code - Insiders.app/Contents/Resources/app/bin/code");
         
         // Try PATH lookup for both
-        addFromPath(instances, "code", VSCodeInstance.VSCodeEdition.STABLE);
-        addFromPath(instances, "code-insiders", VSCodeInstance.VSCodeEdition.INSIDERS);
+        addFromPath(candidates, "code", VSCodeInstance.VSCodeEdition.STABLE);
+        addFromPath(candidates, "code-insiders", VSCodeInstance.VSCodeEdition.INSIDERS);
         
-        return instances;
+        return candidates;
     }
     
-    private static List<VSCodeInstance> detectLinuxInstallations() {
-        List<VSCodeInstance> instances = new ArrayList<>();
+    private static List<Candidate> linuxCandidates() {
+        List<Candidate> candidates = new ArrayList<>();
         
         // VS Code Stable paths
-        String[] stablePaths = {
+        addCandidates(candidates, VSCodeInstance.VSCodeEdition.STABLE,
             "/usr/bin/code",
             "/usr/local/bin/code",
             "/snap/bin/code",
             "/opt/visual-studio-code/bin/code",
-            "/flatpak/bin/code"
-        };
-        
-        for (String path : stablePaths) {
-            if (Files.exists(Paths.get(path))) {
-                instances.add(createInstance(path, VSCodeInstance.VSCodeEdition.STABLE));
-                break; // Only add one stable instance
-            }
-        }
+            "/flatpak/bin/code");
         
         // VS Code Insiders paths
-        String[] insidersPaths = {
+        addCandidates(candidates, VSCodeInstance.VSCodeEdition.INSIDERS,
             "/usr/bin/code-insiders",
             "/usr/local/bin/code-insiders",
             "/snap/bin/code-insiders",
-            "/opt/visual-studio-code-insiders/bin/code-insiders"
-        };
-        
-        for (String path : insidersPaths) {
-            if (Files.exists(Paths.get(path))) {
-                instances.add(createInstance(path, VSCodeInstance.VSCodeEdition.INSIDERS));
-                break; // Only add one insiders instance
-            }
-        }
+            "/opt/visual-studio-code-insiders/bin/code-insiders");
         
         // Try PATH lookup for both
-        addFromPath(instances, "code", VSCodeInstance.VSCodeEdition.STABLE);
-        addFromPath(instances, "code-insiders", VSCodeInstance.VSCodeEdition.INSIDERS);
+        addFromPath(candidates, "code", VSCodeInstance.VSCodeEdition.STABLE);
+        addFromPath(candidates, "code-insiders", VSCodeInstance.VSCodeEdition.INSIDERS);
         
-        return instances;
+        return candidates;
     }
     
-    private static void addFromPath(List<VSCodeInstance> instances, String executable, VSCodeInstance.VSCodeEdition edition) {
-        // Don't add from PATH if we already have this edition
-        boolean hasEdition = instances.stream().anyMatch(i -> i.edition() == edition);
-        if (hasEdition) return;
-        
-        String path = findInPath(executable);
-        if (path != null) {
-            // Additional validation for Insiders to make sure the path matches the edition
-            if (edition == VSCodeInstance.VSCodeEdition.INSIDERS && !isInsidersPath(path)) {
-                logger.debug("PATH executable {} does not appear to be Insiders edition", path);
-                return;
-            }
-            if (edition == VSCodeInstance.VSCodeEdition.STABLE && isInsidersPath(path)) {
-                logger.debug("PATH executable {} appears to be Insiders edition, skipping for stable", path);
-                return;
+    private static void addCandidates(List<Candidate> candidates, VSCodeInstance.VSCodeEdition edition,
+                                      String... paths) {
+        for (String path : paths) {
+            // Unset environment variables leave "null" in the path
+            if (path != null && !path.startsWith("null")) {
+                candidates.add(new Candidate(path, edition, false));
             }
-            instances.add(createInstance(path, edition));
         }
     }
     
-    private static String findInPath(String executable) {
-        try {
-            String[] command = System.getProperty("os.name").toLowerCase().contains("win") 
-                ? new String[]{"where", executable}
-                : new String[]{"which", executable};
-                
-            ProcessBuilder pb = new ProcessBuilder(command);
-            Process process = pb.start();
-            boolean finished = process.waitFor(5, TimeUnit.SECONDS);
-            
-            if (finished && process.exitValue() == 0) {
-                String result = new String(process.getInputStream().readAllBytes()).trim();
-                if (!result.isEmpty()) {
-                    return result.split("\n")[0]; // Return first result
+    /**
+     * Adds the PATH entries that would hold an executable, in PATH order.
+     * Resolved in-process, the way {@code which}/{@code where} would.
+     */
+    private static void addFromPath(List<Candidate> candidates, String executable,
+                                    VSCodeInstance.VSCodeEdition edition) {
+        String path = System.getenv("PATH");
+        if (path == null) {
+            return;
+        }
+        for (String directory : path.split(File.pathSeparator)) {
+            if (!directory.isBlank()) {
+                try {
+                    candidates.add(new Candidate(Path.of(directory, executable).toString(), edition, true));
+                } catch (InvalidPathException e) {
+                    logger.debug("Skipping invalid PATH entry {}: {}", directory, e.getMessage());
                 }
             }
-        } catch (IOException | InterruptedException e) {
-            logger.debug("Failed to find {} in PATH: {}", executable, e.getMessage());
         }
-        
-        return null;
+    }
+    
+    /**
+     * Checks that a candidate exists and works out its edition, from the
+     * build quality when the install can be read and from the path otherwise.
+     */
+    private static Optional<Probe> probe(Candidate candidate) {
+        Path path = Paths.get(candidate.path());
+        if (!Files.exists(path) || candidate.fromPath() && !Files.isExecutable(path)) {
+            return Optional.empty();
+        }
+        Optional<InstallationResolver.InstallationInfo> info = InstallationResolver.resolve(candidate.path());
+        if (info.isPresent()) {
+            return Optional.of(new Probe(candidate.path(), info.get().edition(), info.get()));
+        }
+        // Additional validation to make sure the path matches the edition
+        if (candidate.edition() == VSCodeInstance.VSCodeEdition.INSIDERS && !isInsidersPath(candidate.path())) {
+            logger.debug("Executable {} does not appear to be Insiders edition", candidate.path());
+            return Optional.empty();
+        }
+        if (candidate.edition() == VSCodeInstance.VSCodeEdition.STABLE && candidate.fromPath()
+                && isInsidersPath(candidate.path())) {
+            logger.debug("PATH executable {} appears to be Insiders edition, skipping for stable", candidate.path());
+            return Optional.empty();
+        }
+        return Optional.of(new Probe(candidate.path(), candidate.edition(), null));
+    }
+    
+    /**
+     * Waits for a task until the deadline, returning {@code fallback} if it fails or is late.
+     */
+    private static <T> T await(Future<T> future, long deadline, T fallback) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            return fallback;
+        } catch (ExecutionException e) {
+            logger.debug("Detection task failed: {}", e.getCause().getMessage());
+            return fallback;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallback;
+        }
     }
     
     private static VSCodeInstance createInstance(String path, VSCodeInstance.VSCodeEdition edition) {
@@ -223,32 +288,40 @@ public class VSCodeDetector {
         );
     }
     
-    private static VSCodeInstance validateAndEnrichInstance(VSCodeInstance instance) {
+    private static VSCodeInstance validateAndEnrichInstance(VSCodeInstance instance,
+                                                            InstallationResolver.InstallationInfo info,
+                                                            DetectionSnapshot snapshot) {
         if (!instance.isValid()) {
             return null;
         }
         
+        if (info != null) {
+            logger.debug("Version of {} read from {}", instance.executablePath(), info.appDirectory());
+            return withVersion(instance, info.version());
+        }
+        
+        Optional<ExecutableFingerprint> fingerprint = ExecutableFingerprint.of(instance.executablePath());
+        Optional<String> knownVersion = fingerprint.flatMap(snapshot::getVersion);
+        if (knownVersion.isPresent()) {
+            logger.debug("Version of unchanged {} taken from the detection snapshot", instance.executablePath());
+            return withVersion(instance, knownVersion.get());
+        }
+        
+        Process process = null;
         try {
             // Test if executable works and get version
             ProcessBuilder pb = new ProcessBuilder(instance.executablePath(), "--version");
-            Process process = pb.start();
-            boolean finished = process.waitFor(10, TimeUnit.SECONDS);
+            process = pb.start();
+            boolean finished = process.waitFor(VERSION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
             
             if (finished && process.exitValue() == 0) {
                 String output = new String(process.getInputStream().readAllBytes()).trim();
                 String[] lines = output.split("\n");
                 String version = lines.length > 0 ? lines[0] : "Unknown";
+                fingerprint.ifPresent(value -> snapshot.record(value, version));
                 
                 // Return enriched instance
-                return new VSCodeInstance(
-                    instance.executablePath(),
-                    instance.edition(),
-                    version,
-                    instance.displayName() + " (" + version + ")",
-                    instance.enabled(),
-                    instance.lastUpdateTime(),
-                    instance.lastUpdateStatus()
-                );
+                return withVersion(instance, version);
             } else {
                 logger.warn("VS Code validation failed for {}: exit code {}", 
                     instance.executablePath(), finished ? process.exitValue() : "timeout");
@@ -257,9 +330,25 @@ public class VSCodeDetector {
         } catch (IOException | InterruptedException e) {
             logger.warn("Failed to validate VS Code instance {}: {}", instance.executablePath(), e.getMessage());
             return null;
+        } finally {
+            if (process != null && process.isAlive()) {
+                process.destroyForcibly();
+            }
         }
     }
     
+    private static VSCodeInstance withVersion(VSCodeInstance instance, String version) {
+        return new VSCodeInstance(
+            instance.executablePath(),
+            instance.edition(),
+            version,
+            instance.displayName() + " (" + version + ")",
+            instance.enabled(),
+            instance.lastUpdateTime(),
+            instance.lastUpdateStatus()
+        );
+    }
+    
     /**
      * Asynchronously detects VS Code installations.
      */
@@ -269,6 +358,7 @@ public class VSCodeDetector {
     
     /**
      * Checks if a given path represents VS Code Insiders installation.
+     * Only used for installs whose product.json cannot be found.
      */
     private static boolean isInsidersPath(String path) {
         if (path == null) return false;
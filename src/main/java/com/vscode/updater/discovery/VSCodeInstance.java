@@ -3,6 +3,8 @@ package com.vscode.updater.discovery;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.nio.file.Path;
+
 /**
  * Represents a detected VS Code installation.
  * Uses Java Records for immutable data representation.
@@ -44,6 +46,13 @@ public record VSCodeInstance(
         
         public String getDisplayName() { return displayName; }
         public String getExecutable() { return executable; }
+        
+        /**
+         * Gets the per-user data folder name, e.g. {@code .vscode}.
+         */
+        public String getDataFolderName() {
+            return this == INSIDERS ? ".vscode-insiders" : ".vscode";
+        }
     }
     
     /**
@@ -77,6 +86,14 @@ public record VSCodeInstance(
         return "..." + executablePath.substring(executablePath.length() - 37);
     }
     
+    /**
+     * Gets the user extensions directory, e.g. {@code ~/.vscode/extensions}.
+     */
+    @JsonIgnore
+    public Path getExtensionsDirectory() {
+        return Path.of(System.getProperty("user.home"), edition.getDataFolderName(), "extensions");
+    }
+    
     /**
      * Gets the command arguments for updating extensions.
      */
@@ -85,6 +102,14 @@ public record VSCodeInstance(
         return new String[]{executablePath, "--update-extensions"};
     }
     
+    /**
+     * Gets the command arguments for listing installed extensions with versions.
+     */
+    @JsonIgnore
+    public String[] getListExtensionsCommand() {
+        return new String[]{executablePath, "--list-extensions", "--show-versions"};
+    }
+    
     /**
      * Validates that this VS Code instance is usable.
      */
@@ -0,0 +1,127 @@
+package com.vscode.updater.executor;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free token bucket that paces byte transfers. The bucket is tracked as
+ * a single theoretical arrival time updated with compare-and-set: each caller
+ * reserves its bytes and then sleeps off any debt outside the bucket, so
+ * concurrent downloads share the rate without holding a lock. A limit of
+ * zero means unlimited.
+ */
+public class BandwidthLimiter {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final int WINDOW_SECONDS = 5;
+
+    private final AtomicLong theoreticalArrivalNanos = new AtomicLong(System.nanoTime());
+    private final AtomicLong totalBytes = new AtomicLong();
+
+    // Per-second byte counts over the last few seconds for the effective rate
+    private final AtomicLongArray windowSeconds = new AtomicLongArray(WINDOW_SECONDS + 1);
+    private final AtomicLongArray windowBytes = new AtomicLongArray(WINDOW_SECONDS + 1);
+
+    private volatile Limit limit;
+
+    /**
+     * Rate and burst, replaced as a pair when the limit changes.
+     */
+    private record Limit(long bytesPerSecond, long burstBytes) {
+        boolean isUnlimited() {
+            return bytesPerSecond <= 0;
+        }
+
+        long costNanos(long bytes) {
+            return bytes * NANOS_PER_SECOND / bytesPerSecond;
+        }
+
+        long burstNanos() {
+            return costNanos(burstBytes);
+        }
+    }
+
+    public BandwidthLimiter(long bytesPerSecond, long burstBytes) {
+        this.limit = new Limit(bytesPerSecond, Math.max(burstBytes, 0));
+    }
+
+    /**
+     * Changes the limit; transfers already in progress pick it up on their next acquire.
+     */
+    public void setLimit(long bytesPerSecond, long burstBytes) {
+        limit = new Limit(bytesPerSecond, Math.max(burstBytes, 0));
+    }
+
+    public long getBytesPerSecond() {
+        return limit.bytesPerSecond();
+    }
+
+    public boolean isUnlimited() {
+        return limit.isUnlimited();
+    }
+
+    /**
+     * Takes tokens for {@code bytes}, waiting until the rate allows it.
+     */
+    public void acquire(long bytes) throws InterruptedException {
+        record(bytes);
+        Limit current = limit;
+        if (current.isUnlimited() || bytes <= 0) {
+            return;
+        }
+
+        long cost = current.costNanos(bytes);
+        long burst = current.burstNanos();
+        long now;
+        long next;
+        while (true) {
+            long previous = theoreticalArrivalNanos.get();
+            now = System.nanoTime();
+            // An idle bucket refills up to the burst, not beyond
+            next = Math.max(previous, now) + cost;
+            if (theoreticalArrivalNanos.compareAndSet(previous, next)) {
+                break;
+            }
+        }
+
+        long waitNanos = next - now - burst;
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Gets the total bytes that passed through the limiter.
+     */
+    public long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    /**
+     * Gets the measured transfer rate over the last few seconds.
+     */
+    public long getEffectiveBytesPerSecond() {
+        long currentSecond = System.nanoTime() / NANOS_PER_SECOND;
+        long bytes = 0;
+        for (int i = 0; i < windowSeconds.length(); i++) {
+            long second = windowSeconds.get(i);
+            // Only complete seconds, so a fresh second does not skew the rate down
+            if (second < currentSecond && second >= currentSecond - WINDOW_SECONDS) {
+                bytes += windowBytes.get(i);
+            }
+        }
+        return bytes / WINDOW_SECONDS;
+    }
+
+    private void record(long bytes) {
+        totalBytes.addAndGet(bytes);
+        long second = System.nanoTime() / NANOS_PER_SECOND;
+        int slot = (int) Math.floorMod(second, (long) windowSeconds.length());
+        long slotSecond = windowSeconds.get(slot);
+        if (slotSecond != second && windowSeconds.compareAndSet(slot, slotSecond, second)) {
+            windowBytes.set(slot, 0);
+        }
+        windowBytes.addAndGet(slot, bytes);
+    }
+}
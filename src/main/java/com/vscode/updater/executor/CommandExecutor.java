@@ -1,6 +1,6 @@
 package com.vscode.updater.executor;
 
-import com.vscode.updater.util.ProcessUtils;
+import com.vscode.updater.discovery.VSCodeInstance;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -10,57 +10,95 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
 
 /**
  * Executes VS Code commands and captures their output in real-time.
- * Uses Virtual Threads for non-blocking execution.
+ * Async work runs on a caller-supplied {@link CommandRuntime} (see {@link ExecutorStrategy}).
  */
 public class CommandExecutor {
     private static final Logger logger = LoggerFactory.getLogger(CommandExecutor.class);
     private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
     
     /**
-     * Result of command execution.
+     * Result of command execution. Granular updates also report one
+     * {@link ExtensionOutcome} per extension; bulk updates leave that list empty.
      */
     public record ExecutionResult(
         boolean success,
         int exitCode,
         Duration duration,
         String summary,
-        List<String> outputLines
-    ) {}
+        List<String> outputLines,
+        List<ExtensionOutcome> extensionOutcomes
+    ) {
+        public ExecutionResult(boolean success, int exitCode, Duration duration, 
+                               String summary, List<String> outputLines) {
+            this(success, exitCode, duration, summary, outputLines, List.of());
+        }
+        
+        public boolean isGranular() {
+            return !extensionOutcomes.isEmpty();
+        }
+    }
+    
+    /**
+     * Result of updating a single extension.
+     */
+    public record ExtensionOutcome(
+        String extensionId,
+        String previousVersion,
+        String targetVersion,
+        Status status,
+        String message
+    ) {
+        public enum Status {
+            UPDATED, UP_TO_DATE, UNINSTALLED, FAILED
+        }
+        
+        public boolean success() {
+            return status != Status.FAILED;
+        }
+    }
     
     /**
      * Executes VS Code extension update command asynchronously.
+     * Validation runs on the runtime's executor and is skipped for an executable
+     * the {@link ValidationCache} already knows; the update itself is supervised
+     * by {@link ProcessSupervisor} and holds no thread while the CLI runs or
+     * waits for the runtime's process limit.
      * 
      * @param vsCodePath Path to VS Code executable
      * @param timeoutSeconds Maximum execution time in seconds
      * @param outputConsumer Consumer for real-time output lines
+     * @param runtime Executor and process limit for validation, the CLI and completion handling
      * @return CompletableFuture with execution result
      */
     public static CompletableFuture<ExecutionResult> updateExtensionsAsync(
             String vsCodePath, 
             int timeoutSeconds,
-            Consumer<String> outputConsumer) {
+            Consumer<String> outputConsumer,
+            CommandRuntime runtime) {
         
-        return CompletableFuture.supplyAsync(() -> {
-            LocalDateTime startTime = LocalDateTime.now();
-            String timeStamp = startTime.format(TIME_FORMAT);
-            
-            // Validate VS Code path first
-            if (!ProcessUtils.isVSCodeValid(vsCodePath)) {
-                String error = String.format("[%s] ERROR: VS Code executable not found or invalid: %s", 
-                    timeStamp, vsCodePath);
-                outputConsumer.accept(error);
-                logger.error("VS Code validation failed: {}", vsCodePath);
-                return new ExecutionResult(false, -1, Duration.ZERO, 
-                    "VS Code executable validation failed", List.of(error));
-            }
-            
-            try {
+        ValidationCache validationCache = ValidationCache.shared();
+        return CompletableFuture.supplyAsync(() -> validationCache.validate(vsCodePath), runtime.executor())
+            .thenCompose(validation -> {
+                String timeStamp = LocalDateTime.now().format(TIME_FORMAT);
+                
+                // Validate VS Code path first
+                if (!validation.valid()) {
+                    String error = String.format("[%s] ERROR: VS Code executable not found or invalid: %s", 
+                        timeStamp, vsCodePath);
+                    outputConsumer.accept(error);
+                    logger.error("VS Code validation failed: {}", vsCodePath);
+                    return CompletableFuture.completedFuture(new ExecutionResult(false, -1, Duration.ZERO, 
+                        "VS Code executable validation failed", List.of(error)));
+                }
+                
+                outputConsumer.accept(String.format("[%s] INFO: %s (%s)", timeStamp,
+                    validation.cached() ? "VS Code executable unchanged, validation skipped" : "VS Code executable validated",
+                    validationCache.getStats().getSummary()));
+                
                 // Log execution start
                 String startMessage = String.format("[%s] INFO: Starting VS Code extension update...", timeStamp);
                 outputConsumer.accept(startMessage);
@@ -70,86 +108,135 @@ public class CommandExecutor {
                     timeStamp, vsCodePath);
                 outputConsumer.accept(commandMessage);
                 
-                // Create and start process
                 ProcessBuilder processBuilder = new ProcessBuilder(vsCodePath, "--update-extensions");
                 processBuilder.redirectErrorStream(true); // Merge stderr with stdout
                 
-                Process process = processBuilder.start();
-                
-                // Capture output in real-time using Virtual Thread
-                OutputStreamCapture capture = new OutputStreamCapture(
-                    process.getInputStream(), 
-                    outputConsumer
-                );
-                
-                Thread.startVirtualThread(capture);
-                
-                // Wait for process completion with timeout
-                boolean completed = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
-                
-                LocalDateTime endTime = LocalDateTime.now();
-                Duration duration = Duration.between(startTime, endTime);
-                
-                if (!completed) {
-                    process.destroyForcibly();
-                    String timeoutMessage = String.format("[%s] ERROR: Command timed out after %d seconds", 
-                        endTime.format(TIME_FORMAT), timeoutSeconds);
-                    outputConsumer.accept(timeoutMessage);
-                    logger.warn("Command execution timed out after {} seconds", timeoutSeconds);
-                    
-                    return new ExecutionResult(false, -1, duration, 
-                        "Command execution timed out", capture.getOutputLines());
-                }
-                
-                int exitCode = process.exitValue();
-                boolean success = exitCode == 0;
-                
-                String completionMessage = String.format("[%s] %s: Command completed with exit code: %d (duration: %d seconds)", 
-                    endTime.format(TIME_FORMAT),
-                    success ? "INFO" : "ERROR",
-                    exitCode,
-                    duration.getSeconds());
-                outputConsumer.accept(completionMessage);
-                
-                if (success) {
-                    logger.info("Extension update completed successfully in {} seconds", duration.getSeconds());
-                } else {
-                    logger.warn("Extension update failed with exit code: {}", exitCode);
+                return runtime.startProcess(processBuilder, timeoutSeconds, outputConsumer)
+                    .handle((outcome, throwable) -> {
+                        if (throwable == null) {
+                            return toExecutionResult(outcome, timeoutSeconds, outputConsumer);
+                        }
+                        Throwable cause = throwable.getCause() != null ? throwable.getCause() : throwable;
+                        String errorMessage = String.format("[%s] ERROR: Failed to start command: %s", 
+                            LocalDateTime.now().format(TIME_FORMAT), cause.getMessage());
+                        outputConsumer.accept(errorMessage);
+                        logger.error("Failed to execute command", cause);
+                        
+                        return new ExecutionResult(false, -1, Duration.ZERO, 
+                            "Failed to start command: " + cause.getMessage(), List.of(errorMessage));
+                    });
+            });
+    }
+    
+    private static ExecutionResult toExecutionResult(ProcessSupervisor.ProcessOutcome outcome, 
+                                                     int timeoutSeconds,
+                                                     Consumer<String> outputConsumer) {
+        String endTime = LocalDateTime.now().format(TIME_FORMAT);
+        Duration duration = outcome.duration();
+        
+        if (outcome.timedOut()) {
+            String timeoutMessage = String.format("[%s] ERROR: Command timed out after %d seconds", 
+                endTime, timeoutSeconds);
+            outputConsumer.accept(timeoutMessage);
+            logger.warn("Command execution timed out after {} seconds", timeoutSeconds);
+            
+            return new ExecutionResult(false, -1, duration, 
+                "Command execution timed out", outcome.outputLines());
+        }
+        
+        int exitCode = outcome.exitCode();
+        boolean success = exitCode == 0;
+        
+        String completionMessage = String.format("[%s] %s: Command completed with exit code: %d (duration: %d seconds)", 
+            endTime,
+            success ? "INFO" : "ERROR",
+            exitCode,
+            duration.getSeconds());
+        outputConsumer.accept(completionMessage);
+        
+        if (success) {
+            logger.info("Extension update completed successfully in {} seconds", duration.getSeconds());
+        } else {
+            logger.warn("Extension update failed with exit code: {}", exitCode);
+        }
+        
+        String summary = String.format("Extension update %s in %d seconds", 
+            success ? "completed successfully" : "failed", duration.getSeconds());
+        
+        return new ExecutionResult(success, exitCode, duration, summary, outcome.outputLines());
+    }
+    
+    /**
+     * Updates outdated extensions as independent install jobs instead of a single
+     * {@code --update-extensions} run, installing from local VSIX packages where
+     * the options supply them. With direct installs the CLI still installs
+     * whatever could not be installed directly.
+     * 
+     * @param instance VS Code instance to update
+     * @param timeoutSeconds Maximum execution time per CLI invocation
+     * @param options Resolver, package source, batching and parallelism of the update
+     * @param outputConsumer Consumer for real-time output lines
+     * @param runtime Executor and process limit for validation, the CLI and completion handling
+     * @return CompletableFuture with per-extension results
+     */
+    public static CompletableFuture<ExecutionResult> updateExtensionsGranularAsync(
+            VSCodeInstance instance,
+            int timeoutSeconds,
+            GranularUpdateOptions options,
+            Consumer<String> outputConsumer,
+            CommandRuntime runtime) {
+        
+        return new GranularUpdateExecutor(instance, timeoutSeconds, options, outputConsumer, runtime).run();
+    }
+    
+    /**
+     * Runs a batch of extension operations in a single CLI process and maps the
+     * combined output back to one outcome per extension. Validation of the
+     * executable is the caller's responsibility.
+     * 
+     * @param vsCodePath Path to VS Code executable
+     * @param batch Operations to pass to one CLI invocation
+     * @param timeoutSeconds Maximum execution time in seconds
+     * @param outputConsumer Consumer for real-time output lines
+     * @param runtime Executor and process limit for the CLI and completion handling
+     * @return CompletableFuture with one outcome per operation
+     */
+    public static CompletableFuture<List<ExtensionOutcome>> runExtensionBatchAsync(
+            String vsCodePath,
+            ExtensionBatch batch,
+            int timeoutSeconds,
+            Consumer<String> outputConsumer,
+            CommandRuntime runtime) {
+        
+        ProcessBuilder processBuilder = new ProcessBuilder(batch.toCommand(vsCodePath));
+        processBuilder.redirectErrorStream(true);
+        
+        return runtime.startProcess(processBuilder, timeoutSeconds, outputConsumer)
+            .handle((outcome, throwable) -> {
+                if (throwable != null) {
+                    Throwable cause = throwable.getCause() != null ? throwable.getCause() : throwable;
+                    logger.error("Failed to start extension batch", cause);
+                    return failAll(batch, "Failed to start command: " + cause.getMessage());
                 }
-                
-                String summary = String.format("Extension update %s in %d seconds", 
-                    success ? "completed successfully" : "failed", duration.getSeconds());
-                
-                return new ExecutionResult(success, exitCode, duration, summary, capture.getOutputLines());
-                
-            } catch (IOException e) {
-                String errorMessage = String.format("[%s] ERROR: Failed to start command: %s", 
-                    LocalDateTime.now().format(TIME_FORMAT), e.getMessage());
-                outputConsumer.accept(errorMessage);
-                logger.error("Failed to execute command", e);
-                
-                return new ExecutionResult(false, -1, Duration.between(startTime, LocalDateTime.now()), 
-                    "Failed to start command: " + e.getMessage(), List.of(errorMessage));
-                
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                String interruptMessage = String.format("[%s] ERROR: Command execution interrupted", 
-                    LocalDateTime.now().format(TIME_FORMAT));
-                outputConsumer.accept(interruptMessage);
-                logger.warn("Command execution interrupted", e);
-                
-                return new ExecutionResult(false, -1, Duration.between(startTime, LocalDateTime.now()), 
-                    "Command execution interrupted", List.of(interruptMessage));
-            }
-        });
+                return outcome.timedOut()
+                    ? failAll(batch, "Timed out after " + timeoutSeconds + " seconds")
+                    : batch.parseOutcomes(outcome.outputLines(), outcome.exitCode());
+            });
+    }
+    
+    private static List<ExtensionOutcome> failAll(ExtensionBatch batch, String reason) {
+        return batch.operations().stream()
+            .map(op -> new ExtensionOutcome(op.extensionId(), op.currentVersion(), op.targetVersion(),
+                ExtensionOutcome.Status.FAILED, reason))
+            .toList();
     }
     
     /**
      * Executes command synchronously with default timeout.
      */
     public static ExecutionResult updateExtensions(String vsCodePath, Consumer<String> outputConsumer) {
-        try {
-            return updateExtensionsAsync(vsCodePath, 300, outputConsumer).get();
+        try (CommandRuntime runtime = ExecutorStrategy.VIRTUAL_THREADS.createRuntime(1)) {
+            return updateExtensionsAsync(vsCodePath, 300, outputConsumer, runtime).get();
         } catch (Exception e) {
             logger.error("Synchronous command execution failed", e);
             String errorMessage = "Execution failed: " + e.getMessage();
@@ -159,28 +246,28 @@ public class CommandExecutor {
     }
     
     /**
-     * Launches VS Code instance asynchronously.
+     * Launches VS Code instance without waiting for it.
+     * {@link ProcessBuilder#start()} returns once the child is spawned, so no
+     * pool thread is needed; the returned future is already complete.
      * 
      * @param vsCodePath Path to VS Code executable
-     * @return CompletableFuture that completes when VS Code is launched
+     * @return CompletableFuture with the launch status
      */
     public static CompletableFuture<Boolean> launchVSCodeAsync(String vsCodePath) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                logger.info("Launching VS Code: {}", vsCodePath);
-                
-                // Launch VS Code without waiting for it to complete
-                ProcessBuilder pb = new ProcessBuilder(vsCodePath);
-                pb.start();
-                
-                logger.info("VS Code launched successfully");
-                return true;
-                
-            } catch (IOException e) {
-                logger.error("Failed to launch VS Code: {}", e.getMessage());
-                return false;
-            }
-        });
+        try {
+            logger.info("Launching VS Code: {}", vsCodePath);
+            
+            // Launch VS Code without waiting for it to complete
+            ProcessBuilder pb = new ProcessBuilder(vsCodePath);
+            pb.start();
+            
+            logger.info("VS Code launched successfully");
+            return CompletableFuture.completedFuture(true);
+            
+        } catch (IOException e) {
+            logger.error("Failed to launch VS Code: {}", e.getMessage());
+            return CompletableFuture.completedFuture(false);
+        }
     }
     
     /**
@@ -189,14 +276,48 @@ public class CommandExecutor {
      * @param vsCodePath Path to VS Code executable
      * @param timeoutSeconds Timeout for update command
      * @param outputConsumer Consumer for real-time output lines
+     * @param runtime Executor and process limit for validation, the CLI and completion handling
      * @return CompletableFuture with update result and launch status
      */
     public static CompletableFuture<UpdateAndLaunchResult> updateAndLaunchAsync(
             String vsCodePath, 
             int timeoutSeconds,
+            Consumer<String> outputConsumer,
+            CommandRuntime runtime) {
+        
+        return launchAfterUpdate(vsCodePath,
+            updateExtensionsAsync(vsCodePath, timeoutSeconds, outputConsumer, runtime), outputConsumer);
+    }
+    
+    /**
+     * Installs the given updates from local VSIX packages and then launches
+     * VS Code. Used when the packages were prefetched, so no download happens.
+     * 
+     * @param instance VS Code instance to update and launch
+     * @param timeoutSeconds Maximum execution time per CLI invocation
+     * @param options Updates to install, their packages, batching and parallelism
+     * @param outputConsumer Consumer for real-time output lines
+     * @param runtime Executor and process limit for validation, the CLI and completion handling
+     * @return CompletableFuture with combined update and launch results
+     */
+    public static CompletableFuture<UpdateAndLaunchResult> updateAndLaunchAsync(
+            VSCodeInstance instance,
+            int timeoutSeconds,
+            GranularUpdateOptions options,
+            Consumer<String> outputConsumer,
+            CommandRuntime runtime) {
+        
+        return launchAfterUpdate(instance.executablePath(),
+            updateExtensionsGranularAsync(instance, timeoutSeconds, options, outputConsumer, runtime),
+            outputConsumer);
+    }
+    
+    private static CompletableFuture<UpdateAndLaunchResult> launchAfterUpdate(
+            String vsCodePath,
+            CompletableFuture<ExecutionResult> update,
             Consumer<String> outputConsumer) {
         
-        return updateExtensionsAsync(vsCodePath, timeoutSeconds, outputConsumer)
+        return update
             .thenCompose(updateResult -> {
                 if (updateResult.success()) {
                     outputConsumer.accept(String.format("[%s] INFO: Extensions updated successfully, launching VS Code...", 
@@ -0,0 +1,91 @@
+package com.vscode.updater.executor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Where VS Code commands run: the executor for validation and completion
+ * stages, and the limiter every CLI process started for them goes through.
+ * Both come from one {@link ExecutorStrategy}.
+ * A runtime that is replaced is {@link #retire() retired}: its executor shuts
+ * down once the work {@link #track(Supplier) tracked} on it has completed.
+ */
+public final class CommandRuntime implements AutoCloseable {
+    private final ExecutorService executor;
+    private final ProcessLimiter processLimiter;
+    private int inFlight;
+    private boolean retired;
+
+    CommandRuntime(ExecutorService executor, ProcessLimiter processLimiter) {
+        this.executor = executor;
+        this.processLimiter = processLimiter;
+    }
+
+    public ExecutorService executor() {
+        return executor;
+    }
+
+    public ProcessLimiter processLimiter() {
+        return processLimiter;
+    }
+
+    /**
+     * Starts a supervised process once the limiter has a slot for it.
+     * A process that cannot be started completes the future with the IOException.
+     */
+    public CompletableFuture<ProcessSupervisor.ProcessOutcome> startProcess(ProcessBuilder processBuilder,
+                                                                           int timeoutSeconds,
+                                                                           Consumer<String> outputConsumer) {
+        return processLimiter.run(() ->
+            ProcessSupervisor.execute(processBuilder, timeoutSeconds, outputConsumer, executor));
+    }
+
+    /**
+     * Runs work that uses this runtime and keeps the executor alive until the
+     * returned future completes, even if the runtime is retired meanwhile.
+     */
+    public <T> CompletableFuture<T> track(Supplier<CompletableFuture<T>> work) {
+        synchronized (this) {
+            inFlight++;
+        }
+        CompletableFuture<T> future;
+        try {
+            future = work.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((result, error) -> finished());
+    }
+
+    /**
+     * Shuts the executor down once no tracked work is in flight.
+     */
+    public void retire() {
+        synchronized (this) {
+            retired = true;
+            if (inFlight > 0) {
+                return;
+            }
+        }
+        executor.shutdown();
+    }
+
+    private void finished() {
+        synchronized (this) {
+            if (--inFlight > 0 || !retired) {
+                return;
+            }
+        }
+        executor.shutdown();
+    }
+
+    /**
+     * Shuts the executor down, waiting for queued tasks.
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
@@ -0,0 +1,344 @@
+package com.vscode.updater.executor;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.vscode.updater.inventory.ExtensionInventoryScanner;
+import com.vscode.updater.inventory.ExtensionVersions;
+import com.vscode.updater.inventory.InstalledExtension;
+import com.vscode.updater.inventory.ObsoleteExtensionCollector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Installs a VSIX package into an extensions directory without the VS Code
+ * CLI, following the steps VS Code takes itself: the package is extracted
+ * into a hidden staging folder, renamed into place, registered in
+ * {@code extensions.json} and the previous version is listed in
+ * {@code .obsolete} for VS Code to delete. Anything unexpected raises an
+ * {@link IOException} before {@code extensions.json} changes, so the caller
+ * can fall back to {@code --install-extension}.
+ */
+public class DirectVsixInstaller {
+    private static final Logger logger = LoggerFactory.getLogger(DirectVsixInstaller.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final String EXTENSION_PREFIX = "extension/";
+
+    // extensions.json is rewritten as a whole, so installs into one directory take turns
+    private static final Map<Path, Object> MANIFEST_LOCKS = new ConcurrentHashMap<>();
+
+    private DirectVsixInstaller() {
+    }
+
+    /**
+     * Installs a package.
+     *
+     * @param extensionsDirectory Extensions directory of the instance
+     * @param vsCodeVersion Version of the instance, checked against {@code engines.vscode}, or null to skip
+     * @param update Update the package was fetched for; its id and version must match the package
+     * @param vsix Local package, trusted by the caller (e.g. hash-checked by the VSIX cache)
+     * @return the installed extension
+     * @throws IOException if the package does not match or cannot be installed
+     */
+    public static InstalledExtension install(Path extensionsDirectory, String vsCodeVersion, ExtensionUpdate update,
+                                             Path vsix) throws IOException {
+        long startNanos = System.nanoTime();
+        String platform = update.targetPlatform() == null || update.targetPlatform().isEmpty()
+            ? InstalledExtension.UNIVERSAL
+            : update.targetPlatform();
+        String folderName = folderName(update.extensionId(), update.targetVersion(), platform);
+        Path target = extensionsDirectory.resolve(folderName);
+        if (Files.exists(target)) {
+            throw new IOException(folderName + " already exists");
+        }
+
+        Files.createDirectories(extensionsDirectory);
+        Path staging = extensionsDirectory.resolve("." + UUID.randomUUID());
+        try {
+            extract(vsix, staging);
+            restoreExecutableBits(vsix, staging);
+            verify(staging, extensionsDirectory, vsCodeVersion, update);
+
+            synchronized (MANIFEST_LOCKS.computeIfAbsent(extensionsDirectory.toAbsolutePath().normalize(),
+                    path -> new Object())) {
+                move(staging, target);
+                try {
+                    String previousFolder = register(extensionsDirectory, update, platform, target);
+                    if (previousFolder != null && !previousFolder.equals(folderName)) {
+                        ObsoleteExtensionCollector.markObsolete(extensionsDirectory, previousFolder);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    deleteRecursively(target);
+                    throw e;
+                }
+            }
+        } finally {
+            deleteRecursively(staging);
+        }
+
+        logger.info("Installed {}@{} directly into {} in {} ms", update.extensionId(), update.targetVersion(),
+            extensionsDirectory, (System.nanoTime() - startNanos) / 1_000_000);
+        return new InstalledExtension(update.extensionId(), update.targetVersion(), platform, target);
+    }
+
+    /**
+     * Gets the folder VS Code uses for an extension version, e.g.
+     * {@code ms-python.python-2024.2.1-linux-x64}.
+     */
+    public static String folderName(String extensionId, String version, String targetPlatform) {
+        String name = extensionId.toLowerCase(Locale.ROOT) + "-" + version;
+        return targetPlatform == null || targetPlatform.equals(InstalledExtension.UNIVERSAL)
+            ? name
+            : name + "-" + targetPlatform;
+    }
+
+    /**
+     * Extracts the {@code extension/} folder of a package, one task per
+     * entry. Every file must come out at the size the zip declares.
+     */
+    private static void extract(Path vsix, Path staging) throws IOException {
+        Files.createDirectories(staging);
+        try (ZipFile zip = new ZipFile(vsix.toFile());
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> tasks = new ArrayList<>();
+            Iterator<? extends ZipEntry> entries = zip.entries().asIterator();
+            while (entries.hasNext()) {
+                ZipEntry entry = entries.next();
+                if (entry.isDirectory() || !entry.getName().startsWith(EXTENSION_PREFIX)) {
+                    continue;
+                }
+                Path file = staging.resolve(entry.getName().substring(EXTENSION_PREFIX.length())).normalize();
+                if (!file.startsWith(staging) || file.equals(staging)) {
+                    throw new IOException("Unsafe entry in package: " + entry.getName());
+                }
+                tasks.add(executor.submit(() -> {
+                    extractEntry(zip, entry, file);
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Extraction interrupted", e);
+        }
+    }
+
+    private static void extractEntry(ZipFile zip, ZipEntry entry, Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        long written;
+        try (InputStream in = zip.getInputStream(entry);
+             ReadableByteChannel source = Channels.newChannel(in);
+             FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            written = 0;
+            long transferred;
+            while ((transferred = out.transferFrom(source, written, 1 << 20)) > 0) {
+                written += transferred;
+            }
+        }
+        if (entry.getSize() >= 0 && written != entry.getSize()) {
+            throw new IOException("Size mismatch extracting " + entry.getName());
+        }
+    }
+
+    /**
+     * Copies the execute bits of the entries' Unix modes onto the extracted
+     * files, which ZipFile does not expose: bundled language servers and
+     * debuggers must stay runnable, as they are after a CLI install.
+     */
+    private static void restoreExecutableBits(Path vsix, Path staging) throws IOException {
+        if (!staging.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            return;
+        }
+        // Entries without a Unix mode (packed on Windows) read as not executable
+        Map<String, Object> env = Map.of("enablePosixFileAttributes", "true",
+            "defaultPermissions", PosixFilePermissions.fromString("rw-r--r--"));
+        try (FileSystem zip = FileSystems.newFileSystem(vsix, env)) {
+            Path root = zip.getPath("/" + EXTENSION_PREFIX);
+            if (!Files.isDirectory(root)) {
+                return;
+            }
+            try (Stream<Path> entries = Files.walk(root)) {
+                for (Path entry : (Iterable<Path>) entries.filter(Files::isRegularFile)::iterator) {
+                    Set<PosixFilePermission> execute = new HashSet<>(Files.getPosixFilePermissions(entry));
+                    execute.retainAll(Set.of(PosixFilePermission.OWNER_EXECUTE,
+                        PosixFilePermission.GROUP_EXECUTE, PosixFilePermission.OTHERS_EXECUTE));
+                    if (execute.isEmpty()) {
+                        continue;
+                    }
+                    Path file = staging.resolve(root.relativize(entry).toString());
+                    Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(file);
+                    permissions.addAll(execute);
+                    Files.setPosixFilePermissions(file, permissions);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that the extracted extension is the expected one and needs
+     * nothing the CLI would have to resolve.
+     */
+    private static void verify(Path staging, Path extensionsDirectory, String vsCodeVersion, ExtensionUpdate update)
+            throws IOException {
+        ExtensionInventoryScanner.PackageInfo info = ExtensionInventoryScanner.readPackageManifest(staging, false)
+            .orElseThrow(() -> new IOException("Package has no readable package.json"));
+        if (!info.id().equals(update.extensionId().toLowerCase(Locale.ROOT))
+                || !info.version().equals(update.targetVersion())) {
+            throw new IOException("Package is " + info.id() + "@" + info.version() + ", expected "
+                + update.extensionId() + "@" + update.targetVersion());
+        }
+
+        JsonNode manifest = objectMapper.readTree(staging.resolve(ExtensionInventoryScanner.PACKAGE_MANIFEST).toFile());
+        String engine = manifest.path("engines").path("vscode").asText(null);
+        if (!ExtensionVersions.isEngineCompatible(engine, vsCodeVersion)) {
+            throw new IOException("Requires VS Code " + engine + ", instance is " + vsCodeVersion);
+        }
+
+        Set<String> dependencies = new HashSet<>();
+        manifest.path("extensionDependencies").forEach(node -> dependencies.add(node.asText().toLowerCase(Locale.ROOT)));
+        manifest.path("extensionPack").forEach(node -> dependencies.add(node.asText().toLowerCase(Locale.ROOT)));
+        if (!dependencies.isEmpty()) {
+            Set<String> installed = ExtensionInventoryScanner.scan(extensionsDirectory).extensions().stream()
+                .map(InstalledExtension::id)
+                .collect(Collectors.toSet());
+            dependencies.removeAll(installed);
+            if (!dependencies.isEmpty()) {
+                throw new IOException("Dependencies not installed: " + String.join(", ", dependencies));
+            }
+        }
+    }
+
+    /**
+     * Points the extension's {@code extensions.json} entry at the new folder,
+     * keeping its gallery metadata. The file is replaced atomically.
+     *
+     * @return folder of the previously installed version, or null
+     */
+    private static String register(Path extensionsDirectory, ExtensionUpdate update, String platform, Path target)
+            throws IOException {
+        Path manifestFile = extensionsDirectory.resolve(ExtensionInventoryScanner.EXTENSIONS_MANIFEST);
+        ArrayNode manifest;
+        if (Files.isRegularFile(manifestFile)) {
+            JsonNode root = objectMapper.readTree(manifestFile.toFile());
+            if (!(root instanceof ArrayNode array)) {
+                throw new IOException("Unexpected " + ExtensionInventoryScanner.EXTENSIONS_MANIFEST + " format");
+            }
+            manifest = array;
+        } else {
+            manifest = objectMapper.createArrayNode();
+        }
+
+        String id = update.extensionId().toLowerCase(Locale.ROOT);
+        ObjectNode entry = null;
+        for (JsonNode node : manifest) {
+            if (node instanceof ObjectNode object
+                    && id.equalsIgnoreCase(object.path("identifier").path("id").asText())) {
+                entry = object;
+                break;
+            }
+        }
+
+        String previousFolder = null;
+        if (entry == null) {
+            entry = manifest.addObject();
+            entry.putObject("identifier").put("id", id);
+        } else if (entry.hasNonNull("relativeLocation")) {
+            previousFolder = entry.get("relativeLocation").asText();
+        } else if (entry.path("location").hasNonNull("path")) {
+            previousFolder = Path.of(entry.path("location").path("path").asText()).getFileName().toString();
+        }
+
+        String path = target.toAbsolutePath().toUri().getPath();
+        entry.put("version", update.targetVersion());
+        ObjectNode location = entry.putObject("location");
+        location.put("$mid", 1);
+        location.put("path", path.endsWith("/") ? path.substring(0, path.length() - 1) : path);
+        location.put("scheme", "file");
+        entry.put("relativeLocation", target.getFileName().toString());
+        JsonNode existingMetadata = entry.get("metadata");
+        ObjectNode metadata = existingMetadata instanceof ObjectNode object ? object : entry.putObject("metadata");
+        metadata.put("installedTimestamp", System.currentTimeMillis());
+        metadata.put("targetPlatform", platform);
+        metadata.put("updated", previousFolder != null);
+        if (!metadata.has("source")) {
+            metadata.put("source", "vsix");
+        }
+
+        writeAtomically(manifestFile, objectMapper.writeValueAsBytes(manifest));
+        return previousFolder;
+    }
+
+    private static void writeAtomically(Path file, byte[] content) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            Files.write(temp, content);
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target);
+        }
+    }
+
+    private static void deleteRecursively(Path root) {
+        if (!Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            logger.debug("Failed to delete {}: {}", root, e.getMessage());
+        }
+    }
+}
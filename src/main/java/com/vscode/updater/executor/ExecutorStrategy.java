@@ -0,0 +1,107 @@
+package com.vscode.updater.executor;
+
+import com.vscode.updater.config.VSCodeConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Strategies for running VS Code commands off the caller thread.
+ * Every async entry point in {@link CommandExecutor} takes a
+ * {@link CommandRuntime} created here, so blocking process work never lands
+ * on the common pool.
+ */
+public enum ExecutorStrategy {
+    /** One virtual thread per task; blocking waits do not pin carrier threads. */
+    VIRTUAL_THREADS("Virtual thread per task"),
+
+    /** Fixed-size pool of daemon platform threads. */
+    PLATFORM_POOL("Bounded platform thread pool"),
+
+    /**
+     * A single daemon thread; tasks run strictly one after another, and so do
+     * the processes they start (see {@link #createProcessLimiter}).
+     */
+    SEQUENTIAL("Sequential");
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutorStrategy.class);
+
+    private final String description;
+
+    ExecutorStrategy(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() { return description; }
+
+    /**
+     * Selects the strategy described by the concurrency configuration.
+     * Sequential updates take precedence over the thread type.
+     */
+    public static ExecutorStrategy fromConfig(VSCodeConfig.ConcurrencyConfig concurrency) {
+        if (concurrency == null) {
+            return VIRTUAL_THREADS;
+        }
+        if (concurrency.updateInstancesSequentially()) {
+            return SEQUENTIAL;
+        }
+        return concurrency.useVirtualThreads() ? VIRTUAL_THREADS : PLATFORM_POOL;
+    }
+
+    /**
+     * Creates the executor and process limiter for the strategy selected by the configuration.
+     */
+    public static CommandRuntime createRuntime(VSCodeConfig.ConcurrencyConfig concurrency) {
+        int poolSize = concurrency != null ? concurrency.maxConcurrentUpdates() : 1;
+        return fromConfig(concurrency).createRuntime(poolSize);
+    }
+
+    /**
+     * Creates a new executor and process limiter for this strategy.
+     *
+     * @param poolSize Number of platform threads for {@link #PLATFORM_POOL}; ignored otherwise
+     */
+    public CommandRuntime createRuntime(int poolSize) {
+        return new CommandRuntime(createExecutor(poolSize), createProcessLimiter());
+    }
+
+    /**
+     * Creates a new executor for this strategy.
+     *
+     * @param poolSize Number of platform threads for {@link #PLATFORM_POOL}; ignored otherwise
+     * @return a new executor owned by the caller
+     */
+    public ExecutorService createExecutor(int poolSize) {
+        logger.info("Creating command executor: {} (pool size {})", description, poolSize);
+        return switch (this) {
+            case VIRTUAL_THREADS -> Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("vscode-command-", 0).factory());
+            case PLATFORM_POOL -> Executors.newFixedThreadPool(Math.max(1, poolSize),
+                daemonThreadFactory("vscode-command-"));
+            case SEQUENTIAL -> Executors.newSingleThreadExecutor(daemonThreadFactory("vscode-command-seq-"));
+        };
+    }
+
+    /**
+     * Creates the limiter processes of this strategy go through.
+     * {@link ProcessSupervisor} frees the executor thread as soon as a
+     * process starts, so only the limiter keeps {@link #SEQUENTIAL} from
+     * running several CLI processes at once.
+     */
+    public ProcessLimiter createProcessLimiter() {
+        return this == SEQUENTIAL ? ProcessLimiter.of(1) : ProcessLimiter.unlimited();
+    }
+
+    private static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger(0);
+        return r -> {
+            Thread t = new Thread(r, prefix + counter.getAndIncrement());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
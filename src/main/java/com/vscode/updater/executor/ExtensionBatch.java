@@ -0,0 +1,174 @@
+package com.vscode.updater.executor;
+
+import com.vscode.updater.executor.CommandExecutor.ExtensionOutcome;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A group of same-type extension operations executed by one CLI process.
+ * The VS Code CLI accepts repeated {@code --install-extension} or
+ * {@code --uninstall-extension} flags, but only handles one kind per run,
+ * so batches never mix installs and uninstalls.
+ */
+public record ExtensionBatch(
+    ExtensionOperation.Type type,
+    List<ExtensionOperation> operations
+) {
+    private static final Pattern QUOTED_ID = Pattern.compile("'([^']+)'");
+    private static final String FAILED_INSTALLING_PREFIX = "failed installing extensions:";
+
+    public ExtensionBatch {
+        operations = List.copyOf(operations);
+        for (ExtensionOperation operation : operations) {
+            if (operation.type() != type) {
+                throw new IllegalArgumentException("Batch of " + type + " cannot contain " + operation.type());
+            }
+        }
+    }
+
+    /**
+     * Splits operations into batches of at most {@code batchSize} entries,
+     * grouped by operation type and otherwise preserving order.
+     */
+    public static List<ExtensionBatch> partition(List<ExtensionOperation> operations, int batchSize) {
+        int size = Math.max(1, batchSize);
+        Map<ExtensionOperation.Type, List<ExtensionOperation>> byType = new LinkedHashMap<>();
+        for (ExtensionOperation operation : operations) {
+            byType.computeIfAbsent(operation.type(), t -> new ArrayList<>()).add(operation);
+        }
+
+        List<ExtensionBatch> batches = new ArrayList<>();
+        byType.forEach((type, ops) -> {
+            for (int i = 0; i < ops.size(); i += size) {
+                batches.add(new ExtensionBatch(type, ops.subList(i, Math.min(i + size, ops.size()))));
+            }
+        });
+        return batches;
+    }
+
+    /**
+     * Builds the command line for this batch.
+     */
+    public String[] toCommand(String vsCodePath) {
+        List<String> command = new ArrayList<>();
+        command.add(vsCodePath);
+        for (ExtensionOperation operation : operations) {
+            command.add(type.getCliFlag());
+            command.add(operation.getCliArgument());
+        }
+        if (type == ExtensionOperation.Type.INSTALL) {
+            command.add("--force"); // Update already installed extensions to the requested version
+        }
+        return command.toArray(String[]::new);
+    }
+
+    /**
+     * Maps the combined CLI output back to one outcome per operation.
+     * Operations the CLI did not mention are judged by the exit code.
+     */
+    public List<ExtensionOutcome> parseOutcomes(List<String> outputLines, int exitCode) {
+        Map<String, ExtensionOperation> byKey = new HashMap<>();
+        Map<String, String> vsixKeys = new HashMap<>();
+        for (ExtensionOperation operation : operations) {
+            byKey.put(normalize(operation.extensionId()), operation);
+            if (operation.vsixPath() != null) {
+                // The CLI reports VSIX installs by file name or full path
+                vsixKeys.put(normalize(operation.vsixPath().getFileName().toString()),
+                    normalize(operation.extensionId()));
+                vsixKeys.put(normalize(operation.vsixPath().toString()), normalize(operation.extensionId()));
+            }
+        }
+
+        Map<String, ExtensionOutcome.Status> statuses = new HashMap<>();
+        Map<String, String> messages = new HashMap<>();
+        for (String line : outputLines) {
+            String lower = line.toLowerCase(Locale.ROOT).trim();
+
+            if (lower.startsWith(FAILED_INSTALLING_PREFIX)) {
+                for (String id : lower.substring(FAILED_INSTALLING_PREFIX.length()).split(",")) {
+                    String key = normalize(id);
+                    record(statuses, messages, vsixKeys.getOrDefault(key, key), ExtensionOutcome.Status.FAILED, line);
+                }
+                continue;
+            }
+
+            Matcher matcher = QUOTED_ID.matcher(line);
+            if (!matcher.find()) {
+                continue;
+            }
+            String key = normalize(matcher.group(1));
+            key = vsixKeys.getOrDefault(key, key);
+            if (!byKey.containsKey(key)) {
+                continue;
+            }
+
+            // Ids such as 'usernamehw.errorlens' must not read as failures
+            ExtensionOutcome.Status status = classifyLine(QUOTED_ID.matcher(lower).replaceAll("''"));
+            if (status != null) {
+                record(statuses, messages, key, status, line);
+            }
+        }
+
+        List<ExtensionOutcome> outcomes = new ArrayList<>();
+        for (ExtensionOperation operation : operations) {
+            String key = normalize(operation.extensionId());
+            ExtensionOutcome.Status status = statuses.get(key);
+            String message = messages.get(key);
+            if (status == null) {
+                status = exitCode == 0 ? successStatus() : ExtensionOutcome.Status.FAILED;
+                message = exitCode == 0 ? "Completed" : "Exit code " + exitCode;
+            }
+            outcomes.add(new ExtensionOutcome(operation.extensionId(), operation.currentVersion(),
+                operation.targetVersion(), status, message.trim()));
+        }
+        return outcomes;
+    }
+
+    private ExtensionOutcome.Status successStatus() {
+        return type == ExtensionOperation.Type.INSTALL
+            ? ExtensionOutcome.Status.UPDATED
+            : ExtensionOutcome.Status.UNINSTALLED;
+    }
+
+    private static ExtensionOutcome.Status classifyLine(String lowerLine) {
+        if (lowerLine.contains("successfully uninstalled")) {
+            return ExtensionOutcome.Status.UNINSTALLED;
+        }
+        if (lowerLine.contains("successfully installed")) {
+            return ExtensionOutcome.Status.UPDATED;
+        }
+        if (lowerLine.contains("already installed") || lowerLine.contains("is not installed")) {
+            return ExtensionOutcome.Status.UP_TO_DATE;
+        }
+        if (lowerLine.contains("not found") || lowerLine.contains("failed") || lowerLine.contains("error")) {
+            return ExtensionOutcome.Status.FAILED;
+        }
+        return null;
+    }
+
+    private static void record(Map<String, ExtensionOutcome.Status> statuses, Map<String, String> messages,
+                               String key, ExtensionOutcome.Status status, String line) {
+        // A failure reported anywhere in the output wins over earlier progress lines
+        if (statuses.get(key) == ExtensionOutcome.Status.FAILED) {
+            return;
+        }
+        statuses.put(key, status);
+        messages.put(key, line);
+    }
+
+    /**
+     * Normalizes an extension reference for matching: lower case, without {@code @version}.
+     */
+    static String normalize(String reference) {
+        String value = reference.trim().toLowerCase(Locale.ROOT);
+        int at = value.lastIndexOf('@');
+        return at > 0 ? value.substring(0, at) : value;
+    }
+}
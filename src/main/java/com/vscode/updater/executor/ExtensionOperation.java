@@ -0,0 +1,62 @@
+package com.vscode.updater.executor;
+
+import java.nio.file.Path;
+
+/**
+ * A single install or uninstall to be passed to the VS Code CLI.
+ *
+ * @param type Kind of operation
+ * @param extensionId Extension identifier (publisher.name)
+ * @param currentVersion Installed version, if known
+ * @param targetVersion Version to install, or null for the latest version
+ * @param vsixPath Local VSIX package to install from, or null to install from the gallery
+ */
+public record ExtensionOperation(
+    Type type,
+    String extensionId,
+    String currentVersion,
+    String targetVersion,
+    Path vsixPath
+) {
+    public enum Type {
+        INSTALL("--install-extension"),
+        UNINSTALL("--uninstall-extension");
+
+        private final String cliFlag;
+
+        Type(String cliFlag) {
+            this.cliFlag = cliFlag;
+        }
+
+        public String getCliFlag() { return cliFlag; }
+    }
+
+    public ExtensionOperation(Type type, String extensionId, String currentVersion, String targetVersion) {
+        this(type, extensionId, currentVersion, targetVersion, null);
+    }
+
+    public static ExtensionOperation install(ExtensionUpdate update) {
+        return new ExtensionOperation(Type.INSTALL, update.extensionId(), update.currentVersion(), update.targetVersion());
+    }
+
+    public static ExtensionOperation uninstall(String extensionId) {
+        return new ExtensionOperation(Type.UNINSTALL, extensionId, null, null);
+    }
+
+    /**
+     * Returns this install taken from a local VSIX package.
+     */
+    public ExtensionOperation withVsixPath(Path path) {
+        return new ExtensionOperation(type, extensionId, currentVersion, targetVersion, path);
+    }
+
+    /**
+     * Gets the CLI argument that follows the operation flag.
+     */
+    public String getCliArgument() {
+        if (type == Type.INSTALL && vsixPath != null) {
+            return vsixPath.toString();
+        }
+        return type == Type.INSTALL && targetVersion != null ? extensionId + "@" + targetVersion : extensionId;
+    }
+}
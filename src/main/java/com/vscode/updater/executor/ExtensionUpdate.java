@@ -0,0 +1,33 @@
+package com.vscode.updater.executor;
+
+/**
+ * A single extension selected for update.
+ *
+ * @param extensionId Extension identifier (publisher.name)
+ * @param currentVersion Installed version
+ * @param targetVersion Version to install, or null to let the CLI pick the latest
+ * @param targetPlatform Target platform of the package to install, or null if unknown
+ * @param vsixUrl Download URL of the VSIX package, or null to let the CLI download it
+ */
+public record ExtensionUpdate(
+    String extensionId,
+    String currentVersion,
+    String targetVersion,
+    String targetPlatform,
+    String vsixUrl
+) {
+    /**
+     * Creates an update without package download details.
+     */
+    public ExtensionUpdate(String extensionId, String currentVersion, String targetVersion) {
+        this(extensionId, currentVersion, targetVersion, null, null);
+    }
+
+    /**
+     * Gets a display label such as {@code publisher.name 1.0.0 -> 1.1.0}.
+     */
+    public String getDisplayLabel() {
+        return String.format("%s %s -> %s", extensionId, currentVersion,
+            targetVersion != null ? targetVersion : "latest");
+    }
+}
@@ -0,0 +1,295 @@
+package com.vscode.updater.executor;
+
+import com.vscode.updater.discovery.VSCodeInstance;
+import com.vscode.updater.executor.CommandExecutor.ExecutionResult;
+import com.vscode.updater.executor.CommandExecutor.ExtensionOutcome;
+import com.vscode.updater.inventory.ExtensionInventoryScanner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Runs a granular update: lists installed extensions, resolves the outdated
+ * ones and installs them as independent CLI jobs of up to {@code batchSize}
+ * extensions each, across a bounded number of async workers.
+ * With direct installs enabled, the extensions directory is read from disk and
+ * local packages are installed by {@link DirectVsixInstaller}; the CLI only
+ * runs for what that could not install.
+ * One instance handles one update run.
+ */
+class GranularUpdateExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(GranularUpdateExecutor.class);
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
+    private static final Pattern EXTENSION_LINE = Pattern.compile("^([\\w-]+\\.[\\w.-]+)@(\\S+)$");
+
+    private final VSCodeInstance instance;
+    private final int timeoutSeconds;
+    private final int parallelism;
+    private final int batchSize;
+    private final OutdatedExtensionResolver resolver;
+    private final VsixProvider vsixProvider;
+    private final boolean directInstall;
+    private final Consumer<String> outputConsumer;
+    private final CommandRuntime runtime;
+    private final List<String> outputLines = new CopyOnWriteArrayList<>();
+
+    GranularUpdateExecutor(VSCodeInstance instance, int timeoutSeconds, GranularUpdateOptions options,
+                           Consumer<String> outputConsumer, CommandRuntime runtime) {
+        this.instance = instance;
+        this.timeoutSeconds = timeoutSeconds;
+        this.parallelism = options.parallelism();
+        this.batchSize = options.batchSize();
+        this.resolver = options.resolver();
+        this.vsixProvider = options.vsixProvider();
+        this.directInstall = options.directInstall();
+        this.outputConsumer = outputConsumer;
+        this.runtime = runtime;
+    }
+
+    CompletableFuture<ExecutionResult> run() {
+        long startNanos = System.nanoTime();
+        String vsCodePath = instance.executablePath();
+
+        // Direct installs only need the extensions directory; the CLI is checked if it is needed
+        return CompletableFuture.supplyAsync(this::validate, runtime.executor())
+            .thenCompose(valid -> {
+                if (!valid) {
+                    String error = message("ERROR", "VS Code executable not found or invalid: " + vsCodePath);
+                    logger.error("VS Code validation failed: {}", vsCodePath);
+                    return CompletableFuture.completedFuture(new ExecutionResult(false, -1, Duration.ZERO,
+                        "VS Code executable validation failed", List.of(error)));
+                }
+
+                message("INFO", String.format(
+                    "Starting granular extension update (up to %d parallel processes, %d extension(s) each)...",
+                    parallelism, batchSize));
+                return listInstalledExtensions()
+                    .thenCompose(installed -> installOutdated(installed, startNanos));
+            })
+            .exceptionally(throwable -> {
+                Throwable cause = throwable.getCause() != null ? throwable.getCause() : throwable;
+                String error = message("ERROR", "Granular update failed: " + cause.getMessage());
+                logger.error("Granular update failed for {}", vsCodePath, cause);
+                return new ExecutionResult(false, -1, Duration.ofNanos(System.nanoTime() - startNanos),
+                    "Granular update failed: " + cause.getMessage(), List.of(error));
+            });
+    }
+
+    private boolean validate() {
+        if (readsFromDisk()) {
+            return true;
+        }
+        ValidationCache validationCache = ValidationCache.shared();
+        ValidationCache.Validation validation = validationCache.validate(instance.executablePath());
+        if (validation.valid()) {
+            message("INFO", String.format("%s (%s)",
+                validation.cached() ? "VS Code executable unchanged, validation skipped" : "VS Code executable validated",
+                validationCache.getStats().getSummary()));
+        }
+        return validation.valid();
+    }
+
+    private boolean readsFromDisk() {
+        return directInstall && Files.isDirectory(instance.getExtensionsDirectory());
+    }
+
+    private CompletableFuture<Map<String, String>> listInstalledExtensions() {
+        if (readsFromDisk()) {
+            return CompletableFuture.supplyAsync(() -> {
+                Map<String, String> installed = ExtensionInventoryScanner.scan(instance).installedVersions();
+                message("INFO", "Found " + installed.size() + " installed extension(s) on disk");
+                return installed;
+            }, runtime.executor());
+        }
+
+        ProcessBuilder processBuilder = new ProcessBuilder(instance.getListExtensionsCommand());
+        processBuilder.redirectErrorStream(true);
+
+        return runtime.startProcess(processBuilder, timeoutSeconds, line -> { })
+            .thenApply(outcome -> {
+                if (!outcome.success()) {
+                    throw new IllegalStateException(outcome.timedOut()
+                        ? "listing extensions timed out"
+                        : "listing extensions exited with code " + outcome.exitCode());
+                }
+                Map<String, String> installed = parseExtensionList(outcome.outputLines());
+                message("INFO", "Found " + installed.size() + " installed extension(s)");
+                return installed;
+            });
+    }
+
+    private CompletableFuture<ExecutionResult> installOutdated(Map<String, String> installed, long startNanos) {
+        List<ExtensionUpdate> updates = resolver.resolveOutdated(installed);
+        if (updates.isEmpty()) {
+            message("INFO", "All extensions are up to date");
+            return CompletableFuture.completedFuture(new ExecutionResult(true, 0,
+                Duration.ofNanos(System.nanoTime() - startNanos),
+                "All " + installed.size() + " extension(s) are up to date", List.copyOf(outputLines)));
+        }
+
+        List<ExtensionBatch> batches = ExtensionBatch.partition(
+            updates.stream().map(ExtensionOperation::install).toList(), batchSize);
+        message("INFO", String.format("%d extension(s) queued for update in %d batch(es)",
+            updates.size(), batches.size()));
+        logger.info("Granular update of {} extension(s) in {} batch(es) for {} with parallelism {}",
+            updates.size(), batches.size(), instance.displayName(), parallelism);
+
+        Map<String, ExtensionUpdate> updatesById = updates.stream()
+            .collect(Collectors.toMap(ExtensionUpdate::extensionId, update -> update, (a, b) -> a));
+        Queue<ExtensionBatch> workQueue = new ConcurrentLinkedQueue<>(batches);
+        List<ExtensionOutcome> outcomes = new CopyOnWriteArrayList<>();
+        List<CompletableFuture<Void>> workers = new ArrayList<>();
+        for (int i = 0; i < Math.min(parallelism, batches.size()); i++) {
+            workers.add(drain(workQueue, updatesById, outcomes));
+        }
+
+        return CompletableFuture.allOf(workers.toArray(CompletableFuture[]::new))
+            .thenApply(ignored -> summarize(outcomes, Duration.ofNanos(System.nanoTime() - startNanos)));
+    }
+
+    /**
+     * Runs queued batches one after another until the queue is empty.
+     * Several of these chains run side by side to form the worker pool.
+     */
+    private CompletableFuture<Void> drain(Queue<ExtensionBatch> workQueue, Map<String, ExtensionUpdate> updatesById,
+                                          List<ExtensionOutcome> outcomes) {
+        ExtensionBatch queued = workQueue.poll();
+        if (queued == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        // Fetch packages on the worker so downloads overlap with other batches' installs
+        return CompletableFuture.supplyAsync(() -> withLocalPackages(queued, updatesById), runtime.executor())
+            .thenApply(batch -> directInstall ? installDirectly(batch, updatesById, outcomes) : batch)
+            .thenCompose(batch -> {
+                if (batch.operations().isEmpty()) {
+                    return CompletableFuture.completedFuture(List.<ExtensionOutcome>of());
+                }
+                message("INFO", "Installing " + batch.operations().stream()
+                    .map(operation -> operation.vsixPath() != null
+                        ? operation.extensionId() + "@" + operation.targetVersion() + " (cached)"
+                        : operation.getCliArgument())
+                    .collect(Collectors.joining(", ")));
+
+                return CommandExecutor.runExtensionBatchAsync(instance.executablePath(), batch, timeoutSeconds,
+                    line -> {
+                        outputLines.add(line);
+                        outputConsumer.accept(line);
+                    }, runtime);
+            })
+            .thenAccept(batchOutcomes -> batchOutcomes.forEach(outcome -> {
+                if (!outcome.success()) {
+                    message("ERROR", outcome.extensionId() + ": " + outcome.message());
+                }
+                outcomes.add(outcome);
+            }))
+            .thenCompose(ignored -> drain(workQueue, updatesById, outcomes));
+    }
+
+    /**
+     * Points pinned installs at local VSIX packages where the provider has one.
+     */
+    private ExtensionBatch withLocalPackages(ExtensionBatch batch, Map<String, ExtensionUpdate> updatesById) {
+        if (batch.type() != ExtensionOperation.Type.INSTALL) {
+            return batch;
+        }
+        List<ExtensionOperation> operations = batch.operations().stream()
+            .map(operation -> {
+                ExtensionUpdate update = updatesById.get(operation.extensionId());
+                if (update == null || update.targetVersion() == null) {
+                    return operation;
+                }
+                return vsixProvider.provide(update).map(operation::withVsixPath).orElse(operation);
+            })
+            .toList();
+        return new ExtensionBatch(batch.type(), operations);
+    }
+
+    /**
+     * Installs the operations that have a local package without the CLI.
+     *
+     * @return the operations left for the CLI
+     */
+    private ExtensionBatch installDirectly(ExtensionBatch batch, Map<String, ExtensionUpdate> updatesById,
+                                           List<ExtensionOutcome> outcomes) {
+        if (batch.type() != ExtensionOperation.Type.INSTALL) {
+            return batch;
+        }
+        List<ExtensionOperation> remaining = new ArrayList<>();
+        for (ExtensionOperation operation : batch.operations()) {
+            ExtensionUpdate update = updatesById.get(operation.extensionId());
+            if (operation.vsixPath() == null || update == null) {
+                remaining.add(operation);
+                continue;
+            }
+            try {
+                DirectVsixInstaller.install(instance.getExtensionsDirectory(), instance.version(), update,
+                    operation.vsixPath());
+                message("INFO", "Installed " + operation.extensionId() + "@" + operation.targetVersion()
+                    + " directly");
+                outcomes.add(new ExtensionOutcome(operation.extensionId(), operation.currentVersion(),
+                    operation.targetVersion(), ExtensionOutcome.Status.UPDATED, "Installed directly from VSIX"));
+            } catch (IOException e) {
+                message("WARN", operation.extensionId() + ": direct install not possible (" + e.getMessage()
+                    + "), using the CLI");
+                remaining.add(operation);
+            }
+        }
+        return new ExtensionBatch(batch.type(), remaining);
+    }
+
+    private ExecutionResult summarize(List<ExtensionOutcome> outcomes, Duration duration) {
+        long updated = outcomes.stream().filter(o -> o.status() == ExtensionOutcome.Status.UPDATED).count();
+        long failed = outcomes.stream().filter(o -> o.status() == ExtensionOutcome.Status.FAILED).count();
+        boolean success = failed == 0;
+
+        String summary = String.format("Granular update %s in %d seconds: %d updated, %d up to date, %d failed",
+            success ? "completed successfully" : "completed with failures",
+            duration.getSeconds(), updated, outcomes.size() - updated - failed, failed);
+        message(success ? "INFO" : "ERROR", summary);
+        logger.info("{}: {}", instance.displayName(), summary);
+
+        return new ExecutionResult(success, success ? 0 : 1, duration, summary,
+            List.copyOf(outputLines), List.copyOf(outcomes));
+    }
+
+    private String message(String level, String text) {
+        String line = String.format("[%s] %s: %s", LocalDateTime.now().format(TIME_FORMAT), level, text);
+        outputLines.add(line);
+        outputConsumer.accept(line);
+        return line;
+    }
+
+    /**
+     * Parses {@code --list-extensions --show-versions} output ({@code publisher.name@1.2.3} per line).
+     * Lines that do not look like extension entries (warnings, blank lines) are ignored.
+     */
+    static Map<String, String> parseExtensionList(List<String> lines) {
+        Map<String, String> installed = new LinkedHashMap<>();
+        for (String line : lines) {
+            Matcher matcher = EXTENSION_LINE.matcher(line.trim());
+            if (matcher.matches()) {
+                installed.put(matcher.group(1).toLowerCase(Locale.ROOT), matcher.group(2));
+            }
+        }
+        return installed;
+    }
+}
@@ -0,0 +1,24 @@
+package com.vscode.updater.executor;
+
+/**
+ * How a granular update selects, fetches and installs extensions.
+ *
+ * @param resolver Decides which installed extensions are outdated
+ * @param vsixProvider Supplies local VSIX packages, or {@link VsixProvider#NONE} to let the CLI download
+ * @param directInstall Whether local packages are installed by {@link DirectVsixInstaller} instead of the CLI
+ * @param batchSize Maximum number of extensions installed per CLI process
+ * @param parallelism Maximum number of concurrent CLI processes
+ */
+public record GranularUpdateOptions(
+    OutdatedExtensionResolver resolver,
+    VsixProvider vsixProvider,
+    boolean directInstall,
+    int batchSize,
+    int parallelism
+) {
+    public GranularUpdateOptions {
+        vsixProvider = vsixProvider != null ? vsixProvider : VsixProvider.NONE;
+        batchSize = Math.max(1, batchSize);
+        parallelism = Math.max(1, parallelism);
+    }
+}
@@ -0,0 +1,28 @@
+package com.vscode.updater.executor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides which installed extensions need an update in granular mode.
+ */
+@FunctionalInterface
+public interface OutdatedExtensionResolver {
+
+    /**
+     * Resolves the extensions to update.
+     *
+     * @param installedVersions Installed extension versions keyed by lower-case extension id
+     * @return extensions to install, in the order they should be queued
+     */
+    List<ExtensionUpdate> resolveOutdated(Map<String, String> installedVersions);
+
+    /**
+     * Treats every installed extension as a candidate and lets the CLI install
+     * the latest version ({@code --install-extension id --force}). Used when no
+     * version metadata is available.
+     */
+    OutdatedExtensionResolver ALL_TO_LATEST = installedVersions -> installedVersions.entrySet().stream()
+        .map(entry -> new ExtensionUpdate(entry.getKey(), entry.getValue(), null))
+        .toList();
+}
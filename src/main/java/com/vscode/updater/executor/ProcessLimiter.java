@@ -0,0 +1,92 @@
+package com.vscode.updater.executor;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Caps how many supervised processes run at once. A start that has to wait
+ * is queued and made by whichever process frees a slot, so no thread is
+ * parked while waiting; a slot is held until the start's future completes.
+ */
+public final class ProcessLimiter {
+    private final int maxProcesses;
+    private final Queue<Runnable> waiting = new ArrayDeque<>();
+    private int running;
+
+    /**
+     * Starts a process and returns a future for its outcome.
+     */
+    @FunctionalInterface
+    public interface ProcessStart<T> {
+        CompletableFuture<T> start() throws IOException;
+    }
+
+    private ProcessLimiter(int maxProcesses) {
+        this.maxProcesses = maxProcesses;
+    }
+
+    /**
+     * Creates a limiter that lets every start through at once.
+     */
+    public static ProcessLimiter unlimited() {
+        return new ProcessLimiter(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a limiter for at most the given number of processes.
+     */
+    public static ProcessLimiter of(int maxProcesses) {
+        return new ProcessLimiter(Math.max(1, maxProcesses));
+    }
+
+    /**
+     * Starts a process now if a slot is free, otherwise once one is.
+     * A start that throws completes the returned future exceptionally.
+     */
+    public <T> CompletableFuture<T> run(ProcessStart<T> start) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable task = () -> {
+            CompletableFuture<T> started;
+            try {
+                started = start.start();
+            } catch (IOException | RuntimeException e) {
+                release();
+                result.completeExceptionally(e);
+                return;
+            }
+            started.whenComplete((value, error) -> {
+                release();
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        };
+        synchronized (this) {
+            if (running >= maxProcesses) {
+                waiting.add(task);
+                return result;
+            }
+            running++;
+        }
+        task.run();
+        return result;
+    }
+
+    private void release() {
+        Runnable next;
+        synchronized (this) {
+            next = waiting.poll();
+            if (next == null) {
+                running--;
+            }
+        }
+        // The slot passes straight to the next start
+        if (next != null) {
+            next.run();
+        }
+    }
+}
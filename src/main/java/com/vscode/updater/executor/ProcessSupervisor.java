@@ -0,0 +1,121 @@
+package com.vscode.updater.executor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Supervises external processes without parking a thread per process.
+ * Completion is driven by {@link Process#onExit()} and timeouts by a single
+ * shared scheduler thread; on timeout the whole process tree is killed.
+ */
+public final class ProcessSupervisor {
+    private static final Logger logger = LoggerFactory.getLogger(ProcessSupervisor.class);
+
+    /** How long to keep reading output after exit, in case a helper child still holds the pipe. */
+    private static final long OUTPUT_DRAIN_GRACE_SECONDS = 2;
+
+    private static final ScheduledExecutorService TIMEOUT_SCHEDULER =
+        Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ProcessSupervisor-timeouts");
+            t.setDaemon(true);
+            return t;
+        });
+
+    /**
+     * Outcome of a supervised process.
+     */
+    public record ProcessOutcome(
+        int exitCode,
+        boolean timedOut,
+        Duration duration,
+        List<String> outputLines
+    ) {
+        public boolean success() {
+            return !timedOut && exitCode == 0;
+        }
+    }
+
+    private ProcessSupervisor() {
+    }
+
+    /**
+     * Starts a process and returns a future that completes when it exits or times out.
+     * Output is streamed to the consumer line by line from a virtual thread.
+     * Use {@link CommandRuntime#startProcess} to respect the strategy's process limit.
+     *
+     * @param processBuilder Configured process builder; stderr should already be merged if wanted
+     * @param timeoutSeconds Time after which the process tree is forcibly destroyed
+     * @param outputConsumer Consumer for real-time output lines
+     * @param completionExecutor Executor on which dependent stages run
+     * @return future with the process outcome
+     * @throws IOException if the process cannot be started
+     */
+    public static CompletableFuture<ProcessOutcome> execute(
+            ProcessBuilder processBuilder,
+            int timeoutSeconds,
+            Consumer<String> outputConsumer,
+            Executor completionExecutor) throws IOException {
+
+        long startNanos = System.nanoTime();
+        Process process = processBuilder.start();
+
+        OutputStreamCapture capture = new OutputStreamCapture(process.getInputStream(), outputConsumer);
+        CompletableFuture<Void> captureDone = new CompletableFuture<>();
+        Thread.startVirtualThread(() -> {
+            try {
+                capture.run();
+            } finally {
+                captureDone.complete(null);
+            }
+        });
+
+        AtomicBoolean timedOut = new AtomicBoolean(false);
+        ScheduledFuture<?> timeoutTask = TIMEOUT_SCHEDULER.schedule(() -> {
+            if (process.isAlive()) {
+                timedOut.set(true);
+                logger.warn("Process {} exceeded {} seconds, destroying process tree", process.pid(), timeoutSeconds);
+                destroyProcessTree(process.toHandle());
+            }
+        }, timeoutSeconds, TimeUnit.SECONDS);
+
+        return process.onExit()
+            .thenCompose(exited -> {
+                timeoutTask.cancel(false);
+                return captureDone.completeOnTimeout(null, OUTPUT_DRAIN_GRACE_SECONDS, TimeUnit.SECONDS);
+            })
+            .thenApplyAsync(ignored -> new ProcessOutcome(
+                timedOut.get() ? -1 : process.exitValue(),
+                timedOut.get(),
+                Duration.ofNanos(System.nanoTime() - startNanos),
+                capture.getOutputLines()
+            ), completionExecutor);
+    }
+
+    /**
+     * Forcibly destroys a process and every descendant it spawned.
+     * Descendants are captured before the root is killed because they are
+     * re-parented (and no longer reachable from the root) once it exits.
+     */
+    public static void destroyProcessTree(ProcessHandle root) {
+        List<ProcessHandle> descendants = root.descendants().toList();
+        root.destroyForcibly();
+        descendants.forEach(child -> {
+            if (child.isAlive()) {
+                logger.debug("Destroying descendant process {}", child.pid());
+                child.destroyForcibly();
+            }
+        });
+    }
+}
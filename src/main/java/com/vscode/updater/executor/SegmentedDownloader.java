@@ -0,0 +1,401 @@
+package com.vscode.updater.executor;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Downloads large files as parallel byte-range segments over one shared
+ * {@link HttpClient} (HTTP/2 where the server supports it). Segments are
+ * written with positional writes into a pre-allocated {@link FileChannel},
+ * and progress is persisted next to the target in a {@code .part.json} file
+ * so an interrupted download resumes where it stopped. Servers without range
+ * support, and small files, are fetched as a single stream. All bytes pass
+ * through a {@link BandwidthLimiter}.
+ */
+public class SegmentedDownloader {
+    private static final Logger logger = LoggerFactory.getLogger(SegmentedDownloader.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes \\d+-\\d+/(\\d+)");
+
+    /** Suffix of the resume state file written next to the target. */
+    public static final String STATE_SUFFIX = ".part.json";
+
+    /** Default number of parallel segments. */
+    public static final int DEFAULT_SEGMENTS = 4;
+
+    /** Files smaller than this are downloaded as a single stream. */
+    public static final long DEFAULT_MIN_SEGMENTED_SIZE = 8L * 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long STATE_SAVE_INTERVAL_BYTES = 4L * 1024 * 1024;
+
+    private final HttpClient httpClient;
+    private final int segments;
+    private final long minSegmentedSize;
+    private final BandwidthLimiter limiter;
+
+    /**
+     * Persisted progress of a segmented download.
+     */
+    record DownloadState(
+        @JsonProperty("url") String url,
+        @JsonProperty("etag") String etag,
+        @JsonProperty("totalSize") long totalSize,
+        @JsonProperty("segments") List<Segment> segments
+    ) {}
+
+    /**
+     * A byte range {@code [start, end]} of which the first {@code downloaded} bytes are on disk.
+     */
+    record Segment(
+        @JsonProperty("start") long start,
+        @JsonProperty("end") long end,
+        @JsonProperty("downloaded") long downloaded
+    ) {
+        long length() {
+            return end - start + 1;
+        }
+    }
+
+    /**
+     * Size and validator of a remote file, learned from a one-byte range probe.
+     */
+    private record RemoteFile(long totalSize, boolean rangesSupported, String etag) {}
+
+    public SegmentedDownloader(HttpClient httpClient, int segments, long minSegmentedSize) {
+        this(httpClient, segments, minSegmentedSize, new BandwidthLimiter(0, 0));
+    }
+
+    public SegmentedDownloader(HttpClient httpClient, int segments, long minSegmentedSize, BandwidthLimiter limiter) {
+        this.httpClient = httpClient;
+        this.segments = Math.max(1, segments);
+        this.minSegmentedSize = minSegmentedSize;
+        this.limiter = limiter;
+    }
+
+    /**
+     * Gets a downloader sharing this one's HTTP client but paced by another limiter.
+     */
+    public SegmentedDownloader withLimiter(BandwidthLimiter newLimiter) {
+        return new SegmentedDownloader(httpClient, segments, minSegmentedSize, newLimiter);
+    }
+
+    /**
+     * Creates a downloader with an HTTP/2-preferring client.
+     */
+    public static SegmentedDownloader create() {
+        HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofSeconds(10))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+        return new SegmentedDownloader(client, DEFAULT_SEGMENTS, DEFAULT_MIN_SEGMENTED_SIZE);
+    }
+
+    /**
+     * Downloads {@code source} to {@code target}, resuming a previous partial
+     * download of the same URL if its state file is present.
+     *
+     * @throws IOException if the download fails; progress is kept for a retry
+     */
+    public void download(URI source, Path target) throws IOException {
+        download(source, target, false);
+    }
+
+    private void download(URI source, Path target, boolean restarted) throws IOException {
+        Path stateFile = stateFile(target);
+        Optional<DownloadState> resumable = loadState(stateFile)
+            .filter(state -> state.url().equals(source.toString()) && Files.exists(target));
+
+        DownloadState state;
+        if (resumable.isPresent()) {
+            state = resumable.get();
+            logger.info("Resuming download of {} ({} of {} bytes done)", source,
+                downloadedBytes(state), state.totalSize());
+        } else {
+            RemoteFile remote = probe(source);
+            if (!remote.rangesSupported() || remote.totalSize() < minSegmentedSize) {
+                downloadSingleStream(source, target);
+                return;
+            }
+            state = new DownloadState(source.toString(), remote.etag(), remote.totalSize(),
+                planSegments(remote.totalSize(), segments));
+            preallocate(target, remote.totalSize());
+            saveState(stateFile, state);
+        }
+
+        try {
+            downloadSegments(source, target, stateFile, state);
+            Files.deleteIfExists(stateFile);
+        } catch (RestartException e) {
+            Files.deleteIfExists(stateFile);
+            Files.deleteIfExists(target);
+            if (restarted) {
+                throw new IOException(source + " changed again after restarting the download", e);
+            }
+            logger.info("{} changed on the server, restarting download", source);
+            download(source, target, true);
+        }
+    }
+
+    /**
+     * Rejects a content-encoded response, such as a body a proxy gzipped:
+     * its bytes are not the file and its ranges do not line up with it.
+     */
+    public static void requireIdentityEncoding(URI source, HttpResponse<?> response) throws IOException {
+        Optional<String> encoding = response.headers().firstValue("Content-Encoding");
+        if (encoding.isPresent() && !encoding.get().equalsIgnoreCase("identity")) {
+            throw new IOException("Download of " + source + " is " + encoding.get() + "-encoded");
+        }
+    }
+
+    /**
+     * Gets the resume state file of a download target.
+     */
+    public static Path stateFile(Path target) {
+        return target.resolveSibling(target.getFileName() + STATE_SUFFIX);
+    }
+
+    static List<Segment> planSegments(long totalSize, int count) {
+        List<Segment> planned = new ArrayList<>();
+        long segmentSize = (totalSize + count - 1) / count;
+        for (long start = 0; start < totalSize; start += segmentSize) {
+            planned.add(new Segment(start, Math.min(start + segmentSize, totalSize) - 1, 0));
+        }
+        return planned;
+    }
+
+    private RemoteFile probe(URI source) throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(source)
+            .timeout(Duration.ofSeconds(30))
+            .header("Range", "bytes=0-0")
+            .GET()
+            .build();
+        HttpResponse<Void> response = send(request, HttpResponse.BodyHandlers.discarding());
+
+        String etag = response.headers().firstValue("ETag").orElse(null);
+        requireIdentityEncoding(source, response);
+        if (response.statusCode() == 206) {
+            Matcher matcher = CONTENT_RANGE.matcher(response.headers().firstValue("Content-Range").orElse(""));
+            if (matcher.matches()) {
+                return new RemoteFile(Long.parseLong(matcher.group(1)), true, etag);
+            }
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("Download of " + source + " returned HTTP " + response.statusCode());
+        }
+        return new RemoteFile(response.headers().firstValueAsLong("Content-Length").orElse(-1), false, etag);
+    }
+
+    private void downloadSingleStream(URI source, Path target) throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(source).timeout(Duration.ofMinutes(10)).GET().build();
+        HttpResponse<InputStream> response = send(request, HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream in = response.body();
+             FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                 StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (response.statusCode() / 100 != 2) {
+                throw new IOException("Download of " + source + " returned HTTP " + response.statusCode());
+            }
+            requireIdentityEncoding(source, response);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                throttle(read);
+                ByteBuffer data = ByteBuffer.wrap(buffer, 0, read);
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+            }
+        }
+    }
+
+    private static void preallocate(Path target, long totalSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (totalSize > 0) {
+                channel.write(ByteBuffer.wrap(new byte[1]), totalSize - 1);
+            }
+        }
+    }
+
+    private void downloadSegments(URI source, Path target, Path stateFile, DownloadState state) throws IOException {
+        List<Segment> planned = state.segments();
+        AtomicLongArray progress = new AtomicLongArray(planned.size());
+        for (int i = 0; i < planned.size(); i++) {
+            progress.set(i, planned.get(i).downloaded());
+        }
+        AtomicLong unsavedBytes = new AtomicLong();
+
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE);
+             ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < planned.size(); i++) {
+                int index = i;
+                if (progress.get(index) >= planned.get(index).length()) {
+                    continue;
+                }
+                futures.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        downloadSegment(source, state.etag(), planned.get(index), index, progress, channel, () -> {
+                            // Persist progress every few MB so a crash loses little
+                            if (unsavedBytes.get() >= STATE_SAVE_INTERVAL_BYTES) {
+                                unsavedBytes.set(0);
+                                saveProgress(channel, stateFile, state, progress);
+                            }
+                        }, unsavedBytes);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, workers));
+            }
+
+            try {
+                CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+            } catch (CompletionException e) {
+                saveProgress(channel, stateFile, state, progress);
+                Throwable cause = e.getCause();
+                if (cause instanceof RestartException restart) {
+                    throw restart;
+                }
+                throw cause instanceof IOException io ? io : new IOException(cause);
+            }
+            channel.force(false);
+        }
+    }
+
+    private void downloadSegment(URI source, String etag, Segment segment, int index, AtomicLongArray progress,
+                                 FileChannel channel, Runnable onProgress, AtomicLong unsavedBytes)
+            throws IOException {
+        long position = segment.start() + progress.get(index);
+        HttpRequest.Builder request = HttpRequest.newBuilder(source)
+            .timeout(Duration.ofMinutes(10))
+            .header("Range", "bytes=" + position + "-" + segment.end())
+            .GET();
+        // Servers must ignore a weak ETag in If-Range (RFC 7233) and would send every range whole
+        if (etag != null && !etag.startsWith("W/")) {
+            request.header("If-Range", etag);
+        }
+
+        HttpResponse<InputStream> response = send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream in = response.body()) {
+            if (response.statusCode() == 200) {
+                // The validator no longer matches: the file changed since the download started
+                throw new RestartException();
+            }
+            if (response.statusCode() != 206) {
+                throw new IOException("Range request for " + source + " returned HTTP " + response.statusCode());
+            }
+            requireIdentityEncoding(source, response);
+
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long remaining = segment.end() - position + 1;
+            int read;
+            while (remaining > 0 && (read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+                throttle(read);
+                ByteBuffer data = ByteBuffer.wrap(buffer, 0, read);
+                while (data.hasRemaining()) {
+                    position += channel.write(data, position);
+                }
+                remaining -= read;
+                progress.addAndGet(index, read);
+                unsavedBytes.addAndGet(read);
+                onProgress.run();
+            }
+            if (remaining > 0) {
+                throw new IOException("Connection closed with " + remaining + " bytes of segment " + index + " left");
+            }
+        }
+    }
+
+    private void saveProgress(FileChannel channel, Path stateFile, DownloadState state, AtomicLongArray progress) {
+        List<Segment> updated = new ArrayList<>();
+        for (int i = 0; i < state.segments().size(); i++) {
+            Segment segment = state.segments().get(i);
+            updated.add(new Segment(segment.start(), segment.end(), progress.get(i)));
+        }
+        try {
+            // Data must be on disk before the state claims it is
+            channel.force(false);
+            saveState(stateFile, new DownloadState(state.url(), state.etag(), state.totalSize(), updated));
+        } catch (IOException e) {
+            logger.debug("Failed to save download state {}: {}", stateFile, e.getMessage());
+        }
+    }
+
+    private static synchronized void saveState(Path stateFile, DownloadState state) throws IOException {
+        Path temp = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+        objectMapper.writeValue(temp.toFile(), state);
+        Files.move(temp, stateFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static Optional<DownloadState> loadState(Path stateFile) {
+        if (!Files.isRegularFile(stateFile)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readValue(stateFile.toFile(), DownloadState.class));
+        } catch (IOException e) {
+            logger.debug("Ignoring unreadable download state {}: {}", stateFile, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void throttle(int bytes) throws IOException {
+        try {
+            limiter.acquire(bytes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Download interrupted", e);
+        }
+    }
+
+    private static long downloadedBytes(DownloadState state) {
+        return state.segments().stream().mapToLong(Segment::downloaded).sum();
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException {
+        try {
+            return httpClient.send(request, handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Download interrupted", e);
+        }
+    }
+
+    /**
+     * Signals that the remote file changed and the download must start over.
+     */
+    private static class RestartException extends IOException {
+        RestartException() {
+            super("Remote file changed");
+        }
+    }
+}
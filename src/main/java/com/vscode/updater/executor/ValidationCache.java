@@ -0,0 +1,110 @@
+package com.vscode.updater.executor;
+
+import com.vscode.updater.discovery.ExecutableFingerprint;
+import com.vscode.updater.util.ProcessUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Remembers which VS Code executables passed validation, so an update does
+ * not check the same unchanged executable again. Entries are keyed by the
+ * launcher path, as launchers sharing a target may behave differently, and
+ * used while the {@link ExecutableFingerprint} is unchanged and the entry is
+ * younger than the expiry. Failed validations are never cached.
+ */
+public class ValidationCache {
+    private static final Logger logger = LoggerFactory.getLogger(ValidationCache.class);
+
+    /** How long a successful validation is trusted. */
+    public static final Duration DEFAULT_EXPIRY = Duration.ofHours(1);
+
+    private static final ValidationCache SHARED = new ValidationCache(DEFAULT_EXPIRY, ProcessUtils::isVSCodeValid);
+
+    private final Duration expiry;
+    private final Predicate<String> validator;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private record Entry(ExecutableFingerprint fingerprint, Instant validatedAt) {
+        boolean isFresh(ExecutableFingerprint current, Duration expiry, Instant now) {
+            return fingerprint.equals(current) && validatedAt.plus(expiry).isAfter(now);
+        }
+    }
+
+    /**
+     * Outcome of a validation and whether it came from the cache.
+     */
+    public record Validation(boolean valid, boolean cached) {}
+
+    /**
+     * Lookups so far.
+     */
+    public record Stats(long hits, long misses) {
+        public long lookups() {
+            return hits + misses;
+        }
+
+        public double hitRate() {
+            return lookups() == 0 ? 0 : (double) hits / lookups();
+        }
+
+        public String getSummary() {
+            return String.format("validation cache hit rate %.0f%% (%d of %d)", hitRate() * 100, hits, lookups());
+        }
+    }
+
+    ValidationCache(Duration expiry, Predicate<String> validator) {
+        this.expiry = expiry;
+        this.validator = validator;
+    }
+
+    /**
+     * Gets the cache shared by all updates.
+     */
+    public static ValidationCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Validates an executable unless it passed validation recently and has not changed since.
+     */
+    public Validation validate(String executablePath) {
+        return validate(executablePath, Instant.now());
+    }
+
+    Validation validate(String executablePath, Instant now) {
+        Optional<ExecutableFingerprint> fingerprint = ExecutableFingerprint.of(executablePath);
+        if (fingerprint.isEmpty()) {
+            misses.incrementAndGet();
+            return new Validation(false, false);
+        }
+        Entry entry = entries.get(fingerprint.get().path());
+        if (entry != null && entry.isFresh(fingerprint.get(), expiry, now)) {
+            hits.incrementAndGet();
+            logger.debug("Skipping validation of unchanged {}", executablePath);
+            return new Validation(true, true);
+        }
+
+        misses.incrementAndGet();
+        boolean valid = validator.test(executablePath);
+        if (valid) {
+            entries.put(fingerprint.get().path(), new Entry(fingerprint.get(), now));
+        } else {
+            entries.remove(fingerprint.get().path());
+        }
+        return new Validation(valid, false);
+    }
+
+    public Stats getStats() {
+        return new Stats(hits.get(), misses.get());
+    }
+}
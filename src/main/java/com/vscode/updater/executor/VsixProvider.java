@@ -0,0 +1,23 @@
+package com.vscode.updater.executor;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Supplies local VSIX packages for granular installs so the CLI installs
+ * from disk ({@code --install-extension /path/to.vsix}) instead of
+ * downloading from the gallery.
+ */
+@FunctionalInterface
+public interface VsixProvider {
+
+    /**
+     * Gets a local package for the update, fetching it if needed.
+     *
+     * @return the VSIX path, or empty to let the CLI download the extension
+     */
+    Optional<Path> provide(ExtensionUpdate update);
+
+    /** Always lets the CLI download extensions. */
+    VsixProvider NONE = update -> Optional.empty();
+}
@@ -2,6 +2,7 @@ package com.vscode.updater.gui;
 
 import com.vscode.updater.config.VSCodeConfig;
 import com.vscode.updater.discovery.VSCodeInstance;
+import com.vscode.updater.executor.BandwidthLimiter;
 import com.vscode.updater.scheduler.UpdateScheduler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,6 +37,16 @@ public class SettingsWindow extends JFrame {
     private JCheckBox onlyWhenIdleCheckBox;
     private JSpinner maxConcurrentSpinner;
     
+    // Bandwidth components
+    private JSpinner scheduledLimitSpinner;
+    private JSpinner manualLimitSpinner;
+    private JSpinner burstSpinner;
+    private JLabel scheduledThroughputLabel;
+    private JLabel manualThroughputLabel;
+    private Timer throughputTimer;
+    private BandwidthLimiter scheduledBandwidth;
+    private BandwidthLimiter manualBandwidth;
+    
     // Instance management components  
     private JTable instanceTable;
     private InstanceTableModel instanceTableModel;
@@ -74,6 +85,14 @@ public class SettingsWindow extends JFrame {
         onlyWhenIdleCheckBox = new JCheckBox("Only update when system is idle");
         maxConcurrentSpinner = new JSpinner(new SpinnerNumberModel(2, 1, 10, 1));
         
+        // Bandwidth components
+        scheduledLimitSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 1048576, 128));
+        manualLimitSpinner = new JSpinner(new SpinnerNumberModel(0, 0, 1048576, 128));
+        burstSpinner = new JSpinner(new SpinnerNumberModel(1024, 64, 1048576, 64));
+        scheduledThroughputLabel = new JLabel("Scheduled: idle");
+        manualThroughputLabel = new JLabel("Manual: idle");
+        throughputTimer = new Timer(1000, e -> updateThroughputLabels());
+        
         // Instance management
         instanceTableModel = new InstanceTableModel();
         instanceTable = new JTable(instanceTableModel);
@@ -105,6 +124,10 @@ public class SettingsWindow extends JFrame {
         JPanel instancesPanel = createInstancesPanel();
         tabbedPane.addTab("VS Code Instances", instancesPanel);
         
+        // Bandwidth tab
+        JPanel bandwidthPanel = createBandwidthPanel();
+        tabbedPane.addTab("Bandwidth", bandwidthPanel);
+        
         // General tab
         JPanel generalPanel = createGeneralPanel();
         tabbedPane.addTab("General", generalPanel);
@@ -217,6 +240,47 @@ public class SettingsWindow extends JFrame {
         return panel;
     }
     
+    private JPanel createBandwidthPanel() {
+        JPanel panel = new JPanel(new GridBagLayout());
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.insets = new Insets(5, 5, 5, 5);
+        gbc.anchor = GridBagConstraints.WEST;
+        
+        gbc.gridx = 0; gbc.gridy = 0;
+        panel.add(new JLabel("Scheduled updates limit:"), gbc);
+        gbc.gridx = 1;
+        JPanel scheduledPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        scheduledPanel.add(scheduledLimitSpinner);
+        scheduledPanel.add(new JLabel(" KB/s (0 = unlimited)"));
+        panel.add(scheduledPanel, gbc);
+        
+        gbc.gridx = 0; gbc.gridy = 1;
+        panel.add(new JLabel("Manual updates limit:"), gbc);
+        gbc.gridx = 1;
+        JPanel manualPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        manualPanel.add(manualLimitSpinner);
+        manualPanel.add(new JLabel(" KB/s (0 = unlimited)"));
+        panel.add(manualPanel, gbc);
+        
+        gbc.gridx = 0; gbc.gridy = 2;
+        panel.add(new JLabel("Burst size:"), gbc);
+        gbc.gridx = 1;
+        JPanel burstPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        burstPanel.add(burstSpinner);
+        burstPanel.add(new JLabel(" KB"));
+        panel.add(burstPanel, gbc);
+        
+        // Effective throughput
+        JPanel throughputPanel = new JPanel(new GridLayout(2, 1, 5, 5));
+        throughputPanel.setBorder(BorderFactory.createTitledBorder("Effective Throughput"));
+        throughputPanel.add(scheduledThroughputLabel);
+        throughputPanel.add(manualThroughputLabel);
+        gbc.gridx = 0; gbc.gridy = 3; gbc.gridwidth = 2; gbc.fill = GridBagConstraints.HORIZONTAL;
+        panel.add(throughputPanel, gbc);
+        
+        return panel;
+    }
+    
     private JPanel createGeneralPanel() {
         JPanel panel = new JPanel(new GridBagLayout());
         GridBagConstraints gbc = new GridBagConstraints();
@@ -280,6 +344,11 @@ public class SettingsWindow extends JFrame {
         onlyWhenIdleCheckBox.setSelected(schedule.onlyWhenIdle());
         maxConcurrentSpinner.setValue(schedule.maxConcurrentUpdates());
         
+        VSCodeConfig.BandwidthConfig bandwidth = currentConfig.bandwidth();
+        scheduledLimitSpinner.setValue(bandwidth.scheduledLimitKilobytesPerSecond());
+        manualLimitSpinner.setValue(bandwidth.manualLimitKilobytesPerSecond());
+        burstSpinner.setValue(bandwidth.burstKilobytes());
+        
         instanceTableModel.setInstances(currentConfig.vsCodeInstances());
         updateComponentStates();
     }
@@ -299,8 +368,17 @@ public class SettingsWindow extends JFrame {
                 (Integer) maxConcurrentSpinner.getValue()
             );
             
-            // Validate schedule config
+            VSCodeConfig.BandwidthConfig newBandwidth = new VSCodeConfig.BandwidthConfig(
+                (Integer) scheduledLimitSpinner.getValue(),
+                (Integer) manualLimitSpinner.getValue(),
+                (Integer) burstSpinner.getValue()
+            );
+            
+            // Validate schedule and bandwidth config
             String validationError = newSchedule.validate();
+            if (validationError == null) {
+                validationError = newBandwidth.validate();
+            }
             if (validationError != null) {
                 JOptionPane.showMessageDialog(this, 
                     "Invalid settings: " + validationError, 
@@ -319,7 +397,13 @@ public class SettingsWindow extends JFrame {
                 currentConfig.showNotifications(),
                 currentConfig.concurrency(),
                 currentConfig.ui(),
-                newSchedule
+                newSchedule,
+                currentConfig.updates(),
+                currentConfig.cache(),
+                newBandwidth,
+                currentConfig.mirror(),
+                currentConfig.peers(),
+                currentConfig.maintenance()
             );
             
             // Apply the new configuration
@@ -381,6 +465,31 @@ public class SettingsWindow extends JFrame {
         });
     }
     
+    /**
+     * Sets the limiters whose measured throughput is shown while the window is open.
+     */
+    public void setBandwidthLimiters(BandwidthLimiter scheduled, BandwidthLimiter manual) {
+        this.scheduledBandwidth = scheduled;
+        this.manualBandwidth = manual;
+    }
+    
+    private void updateThroughputLabels() {
+        if (scheduledBandwidth != null) {
+            scheduledThroughputLabel.setText("Scheduled: " + formatThroughput(scheduledBandwidth));
+        }
+        if (manualBandwidth != null) {
+            manualThroughputLabel.setText("Manual: " + formatThroughput(manualBandwidth));
+        }
+    }
+    
+    private static String formatThroughput(BandwidthLimiter limiter) {
+        long bytesPerSecond = limiter.getEffectiveBytesPerSecond();
+        String rate = bytesPerSecond == 0 ? "idle" : String.format("%.1f KB/s", bytesPerSecond / 1024.0);
+        return limiter.isUnlimited()
+            ? rate + " (unlimited)"
+            : rate + String.format(" of %d KB/s", limiter.getBytesPerSecond() / 1024);
+    }
+    
     /**
      * Updates the current configuration and refreshes the UI.
      */
@@ -397,6 +506,10 @@ public class SettingsWindow extends JFrame {
         if (visible) {
             // Refresh the UI with the current configuration when window is shown
             updateFromConfig();
+            updateThroughputLabels();
+            throughputTimer.start();
+        } else {
+            throughputTimer.stop();
         }
         super.setVisible(visible);
     }
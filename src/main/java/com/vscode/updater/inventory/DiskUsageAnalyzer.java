@@ -0,0 +1,383 @@
+package com.vscode.updater.inventory;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vscode.updater.discovery.VSCodeInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the extensions directories of VS Code instances: size, file count
+ * and largest files per extension folder, plus folders installed identically
+ * in more than one instance. Directories are walked in parallel on a
+ * fork/join pool. The files of each directory are cached with the
+ * directory's modification time and only re-listed when it changes;
+ * extension folders are written once at install time, so an unchanged
+ * directory is trusted without touching its files.
+ */
+public class DiskUsageAnalyzer {
+    private static final Logger logger = LoggerFactory.getLogger(DiskUsageAnalyzer.class);
+
+    /** File name of the cache inside the configuration directory. */
+    public static final String FILE_NAME = "disk-usage-cache.json";
+
+    /** Number of largest files kept per directory and per extension. */
+    public static final int LARGEST_FILES = 5;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Path file;
+    private final ForkJoinPool pool;
+    private volatile Map<String, DirectoryEntry> cache = new ConcurrentHashMap<>();
+
+    /**
+     * A file and its size; the path is relative to the extension folder.
+     */
+    public record FileSize(@JsonProperty("path") String path, @JsonProperty("bytes") long bytes) {}
+
+    /**
+     * Cached listing of one directory.
+     */
+    record DirectoryEntry(
+        @JsonProperty("modifiedMillis") long modifiedMillis,
+        @JsonProperty("subdirectories") List<String> subdirectories,
+        @JsonProperty("files") int files,
+        @JsonProperty("bytes") long bytes,
+        @JsonProperty("largestFiles") List<FileSize> largestFiles
+    ) {}
+
+    /**
+     * On-disk format, keyed by absolute directory path.
+     */
+    private record CacheFile(@JsonProperty("directories") Map<String, DirectoryEntry> directories) {}
+
+    /**
+     * Disk usage of one extension folder.
+     */
+    public record ExtensionUsage(String folder, long bytes, int files, List<FileSize> largestFiles) {}
+
+    /**
+     * Disk usage of one extensions directory, largest extensions first.
+     */
+    public record InstanceUsage(String name, Path extensionsDirectory, List<ExtensionUsage> extensions) {
+        public long totalBytes() {
+            return extensions.stream().mapToLong(ExtensionUsage::bytes).sum();
+        }
+
+        public int totalFiles() {
+            return extensions.stream().mapToInt(ExtensionUsage::files).sum();
+        }
+    }
+
+    /**
+     * An extension folder with the same name, size and file count in several
+     * instances. Contents are not compared; {@link HardlinkDeduplicator} does that.
+     */
+    public record DuplicateFolder(String folder, List<String> instances, long bytes) {
+        /** Bytes that would be freed by keeping a single copy. */
+        public long redundantBytes() {
+            return bytes * (instances.size() - 1);
+        }
+    }
+
+    /**
+     * Result of one analysis.
+     */
+    public record UsageReport(
+        List<InstanceUsage> instances,
+        List<DuplicateFolder> duplicates,
+        int directoriesListed,
+        int directoriesFromCache,
+        long elapsedMillis
+    ) {
+        public long duplicateBytes() {
+            return duplicates.stream().mapToLong(DuplicateFolder::redundantBytes).sum();
+        }
+
+        public String getSummary() {
+            return String.format("%d instance(s), %d MB in %d file(s), %d MB duplicated; "
+                    + "%d director(ies) listed, %d from cache in %d ms",
+                instances.size(), instances.stream().mapToLong(InstanceUsage::totalBytes).sum() / (1024 * 1024),
+                instances.stream().mapToInt(InstanceUsage::totalFiles).sum(), duplicateBytes() / (1024 * 1024),
+                directoriesListed, directoriesFromCache, elapsedMillis);
+        }
+    }
+
+    /**
+     * Running totals of one walk.
+     */
+    private record Walk(Map<String, DirectoryEntry> visited, AtomicInteger listed, AtomicInteger fromCache) {}
+
+    /**
+     * Totals of a directory tree.
+     */
+    private record Totals(int files, long bytes, List<FileSize> largestFiles) {
+        static final Totals EMPTY = new Totals(0, 0, List.of());
+    }
+
+    private DiskUsageAnalyzer(Path file) {
+        this.file = file;
+        this.pool = new ForkJoinPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Loads the analyzer cache from a file; a missing or unreadable file yields an empty cache.
+     */
+    public static DiskUsageAnalyzer load(Path file) {
+        DiskUsageAnalyzer analyzer = new DiskUsageAnalyzer(file);
+        if (file != null && Files.isRegularFile(file)) {
+            try {
+                CacheFile stored = objectMapper.readValue(file.toFile(), CacheFile.class);
+                if (stored.directories() != null) {
+                    analyzer.cache.putAll(stored.directories());
+                }
+                logger.debug("Loaded disk usage cache for {} director(ies)", analyzer.cache.size());
+            } catch (IOException e) {
+                logger.warn("Ignoring unreadable disk usage cache {}: {}", file, e.getMessage());
+            }
+        }
+        return analyzer;
+    }
+
+    /**
+     * Creates an analyzer whose cache is never persisted.
+     */
+    public static DiskUsageAnalyzer inMemory() {
+        return new DiskUsageAnalyzer(null);
+    }
+
+    /**
+     * Analyzes the extensions directories of VS Code instances, named by edition.
+     */
+    public UsageReport analyze(List<VSCodeInstance> instances) {
+        // Installs of the same edition share one extensions directory
+        Map<String, Path> directories = new LinkedHashMap<>();
+        for (VSCodeInstance instance : instances) {
+            if (!directories.containsValue(instance.getExtensionsDirectory())) {
+                directories.put(instance.edition().getDisplayName(), instance.getExtensionsDirectory());
+            }
+        }
+        return analyzeDirectories(directories);
+    }
+
+    /**
+     * Analyzes extensions directories keyed by a display name. Directories
+     * that were not part of this analysis are dropped from the cache.
+     */
+    public UsageReport analyzeDirectories(Map<String, Path> extensionsDirectories) {
+        long startNanos = System.nanoTime();
+        Walk walk = new Walk(new ConcurrentHashMap<>(), new AtomicInteger(), new AtomicInteger());
+
+        List<InstanceUsage> instances = new ArrayList<>();
+        for (Map.Entry<String, Path> directory : extensionsDirectories.entrySet()) {
+            instances.add(pool.invoke(new InstanceTask(directory.getKey(), directory.getValue(), walk)));
+        }
+        cache = walk.visited();
+
+        UsageReport report = new UsageReport(instances, findDuplicates(instances), walk.listed().get(),
+            walk.fromCache().get(), (System.nanoTime() - startNanos) / 1_000_000);
+        logger.info("Disk usage: {}", report.getSummary());
+        return report;
+    }
+
+    /**
+     * Writes the cache to disk atomically.
+     */
+    public synchronized void save() {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            objectMapper.writeValue(temp.toFile(), new CacheFile(new HashMap<>(cache)));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Failed to save disk usage cache to {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static List<DuplicateFolder> findDuplicates(List<InstanceUsage> instances) {
+        Map<String, List<String>> owners = new LinkedHashMap<>();
+        Map<String, Long> sizes = new HashMap<>();
+        for (InstanceUsage instance : instances) {
+            for (ExtensionUsage extension : instance.extensions()) {
+                // Same folder name, size and file count: very likely the same package
+                String fingerprint = extension.folder() + "|" + extension.bytes() + "|" + extension.files();
+                owners.computeIfAbsent(fingerprint, key -> new ArrayList<>()).add(instance.name());
+                sizes.put(fingerprint, extension.bytes());
+            }
+        }
+
+        List<DuplicateFolder> duplicates = new ArrayList<>();
+        owners.forEach((fingerprint, names) -> {
+            if (names.size() > 1) {
+                String folder = fingerprint.substring(0, fingerprint.indexOf('|'));
+                duplicates.add(new DuplicateFolder(folder, List.copyOf(names), sizes.get(fingerprint)));
+            }
+        });
+        duplicates.sort(Comparator.comparingLong(DuplicateFolder::redundantBytes).reversed());
+        return duplicates;
+    }
+
+    private static List<FileSize> largest(List<FileSize> files) {
+        return files.stream()
+            .sorted(Comparator.comparingLong(FileSize::bytes).reversed())
+            .limit(LARGEST_FILES)
+            .toList();
+    }
+
+    /**
+     * Measures every extension folder of one extensions directory.
+     */
+    private final class InstanceTask extends RecursiveTask<InstanceUsage> {
+        private final String name;
+        private final Path extensionsDirectory;
+        private final Walk walk;
+
+        InstanceTask(String name, Path extensionsDirectory, Walk walk) {
+            this.name = name;
+            this.extensionsDirectory = extensionsDirectory;
+            this.walk = walk;
+        }
+
+        @Override
+        protected InstanceUsage compute() {
+            if (!Files.isDirectory(extensionsDirectory)) {
+                return new InstanceUsage(name, extensionsDirectory, List.of());
+            }
+            DirectoryEntry root;
+            try {
+                root = listDirectory(extensionsDirectory, walk);
+            } catch (UncheckedIOException e) {
+                logger.warn("Failed to list extensions directory {}: {}", extensionsDirectory, e.getMessage());
+                return new InstanceUsage(name, extensionsDirectory, List.of());
+            }
+            List<DirectoryTask> tasks = root.subdirectories().stream()
+                .map(folder -> new DirectoryTask(extensionsDirectory.resolve(folder), "", walk))
+                .toList();
+            ForkJoinTask.invokeAll(tasks);
+
+            List<ExtensionUsage> extensions = new ArrayList<>();
+            for (int i = 0; i < tasks.size(); i++) {
+                Totals totals = tasks.get(i).join();
+                extensions.add(new ExtensionUsage(root.subdirectories().get(i), totals.bytes(), totals.files(),
+                    totals.largestFiles()));
+            }
+            extensions.sort(Comparator.comparingLong(ExtensionUsage::bytes).reversed());
+            return new InstanceUsage(name, extensionsDirectory, List.copyOf(extensions));
+        }
+    }
+
+    /**
+     * Measures one directory tree, forking a task per subdirectory.
+     */
+    private final class DirectoryTask extends RecursiveTask<Totals> {
+        private final Path directory;
+        private final String relativePath;
+        private final Walk walk;
+
+        DirectoryTask(Path directory, String relativePath, Walk walk) {
+            this.directory = directory;
+            this.relativePath = relativePath;
+            this.walk = walk;
+        }
+
+        @Override
+        protected Totals compute() {
+            DirectoryEntry entry;
+            try {
+                entry = listDirectory(directory, walk);
+            } catch (UncheckedIOException e) {
+                logger.debug("Skipping unreadable directory {}: {}", directory, e.getMessage());
+                return Totals.EMPTY;
+            }
+
+            List<DirectoryTask> tasks = entry.subdirectories().stream()
+                .map(child -> new DirectoryTask(directory.resolve(child), relativePath + child + "/", walk))
+                .toList();
+            ForkJoinTask.invokeAll(tasks);
+
+            int files = entry.files();
+            long bytes = entry.bytes();
+            List<FileSize> candidates = new ArrayList<>();
+            for (FileSize file : entry.largestFiles()) {
+                candidates.add(new FileSize(relativePath + file.path(), file.bytes()));
+            }
+            for (DirectoryTask task : tasks) {
+                Totals totals = task.join();
+                files += totals.files();
+                bytes += totals.bytes();
+                candidates.addAll(totals.largestFiles());
+            }
+            return new Totals(files, bytes, largest(candidates));
+        }
+    }
+
+    /**
+     * Lists a directory, or reuses the cached listing if its modification time is unchanged.
+     */
+    private DirectoryEntry listDirectory(Path directory, Walk walk) {
+        String key = directory.toAbsolutePath().toString();
+        try {
+            long modifiedMillis = Files.readAttributes(directory, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS)
+                .lastModifiedTime().toMillis();
+            DirectoryEntry entry = cache.get(key);
+            if (entry != null && entry.modifiedMillis() == modifiedMillis) {
+                walk.fromCache().incrementAndGet();
+            } else {
+                entry = readDirectory(directory, modifiedMillis);
+                walk.listed().incrementAndGet();
+            }
+            walk.visited().put(key, entry);
+            return entry;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static DirectoryEntry readDirectory(Path directory, long modifiedMillis) throws IOException {
+        List<String> subdirectories = new ArrayList<>();
+        List<FileSize> files = new ArrayList<>();
+        long bytes = 0;
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+            for (Path child : children) {
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(child, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (IOException e) {
+                    continue;
+                }
+                String name = child.getFileName().toString();
+                if (attributes.isDirectory()) {
+                    subdirectories.add(name);
+                } else if (attributes.isRegularFile()) {
+                    files.add(new FileSize(name, attributes.size()));
+                    bytes += attributes.size();
+                }
+            }
+        }
+        subdirectories.sort(null);
+        return new DirectoryEntry(modifiedMillis, List.copyOf(subdirectories), files.size(), bytes, largest(files));
+    }
+}
@@ -0,0 +1,248 @@
+package com.vscode.updater.inventory;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.vscode.updater.discovery.VSCodeInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Reads the installed extensions of a VS Code instance straight from disk,
+ * without spawning the CLI. Uses {@code extensions.json} when present and each
+ * extension's {@code package.json}, parsed with Jackson's streaming parser so
+ * that large manifests (e.g. {@code contributes}) are skipped, not bound.
+ */
+public class ExtensionInventoryScanner {
+    private static final Logger logger = LoggerFactory.getLogger(ExtensionInventoryScanner.class);
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /** Extension registry maintained by VS Code in the extensions directory. */
+    public static final String EXTENSIONS_MANIFEST = "extensions.json";
+
+    /** Per-extension manifest. */
+    public static final String PACKAGE_MANIFEST = "package.json";
+
+    /**
+     * Fields of an extension's {@code package.json} relevant to the inventory.
+     */
+    public record PackageInfo(String publisher, String name, String version, String targetPlatform) {
+        public String id() {
+            return (publisher + "." + name).toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Scans the extensions directory of a VS Code instance.
+     */
+    public static InventorySnapshot scan(VSCodeInstance instance) {
+        return scan(instance.getExtensionsDirectory());
+    }
+
+    /**
+     * Scans an extensions directory.
+     */
+    public static InventorySnapshot scan(Path extensionsDirectory) {
+        if (!Files.isDirectory(extensionsDirectory)) {
+            logger.debug("Extensions directory does not exist: {}", extensionsDirectory);
+            return InventorySnapshot.empty(extensionsDirectory);
+        }
+
+        long startNanos = System.nanoTime();
+        List<InstalledExtension> extensions;
+        Path manifest = extensionsDirectory.resolve(EXTENSIONS_MANIFEST);
+        if (Files.isRegularFile(manifest)) {
+            try {
+                extensions = readExtensionsManifest(extensionsDirectory).stream()
+                    .map(ExtensionInventoryScanner::reconcileWithPackage)
+                    .flatMap(Optional::stream)
+                    .toList();
+            } catch (IOException e) {
+                logger.warn("Failed to read {}, falling back to folder scan: {}", manifest, e.getMessage());
+                extensions = scanFolders(extensionsDirectory);
+            }
+        } else {
+            extensions = scanFolders(extensionsDirectory);
+        }
+
+        logger.debug("Scanned {} extension(s) in {} in {} ms", extensions.size(), extensionsDirectory,
+            (System.nanoTime() - startNanos) / 1_000_000);
+        return new InventorySnapshot(extensionsDirectory, extensions, Instant.now());
+    }
+
+    /**
+     * Reads the entries of {@code extensions.json}. Versions come from the
+     * manifest and are not checked against {@code package.json}.
+     */
+    public static List<InstalledExtension> readExtensionsManifest(Path extensionsDirectory) throws IOException {
+        List<InstalledExtension> extensions = new ArrayList<>();
+        try (JsonParser parser = JSON_FACTORY.createParser(extensionsDirectory.resolve(EXTENSIONS_MANIFEST).toFile())) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected an array in " + EXTENSIONS_MANIFEST);
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                InstalledExtension extension = readManifestEntry(parser, extensionsDirectory);
+                if (extension != null) {
+                    extensions.add(extension);
+                }
+            }
+        }
+        return extensions;
+    }
+
+    private static InstalledExtension readManifestEntry(JsonParser parser, Path extensionsDirectory) throws IOException {
+        String id = null;
+        String version = null;
+        String targetPlatform = null;
+        String fsPath = null;
+        String relativeLocation = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "identifier" -> id = readNestedString(parser, value, "id");
+                case "version" -> version = parser.getValueAsString();
+                case "relativeLocation" -> relativeLocation = parser.getValueAsString();
+                case "location" -> fsPath = value == JsonToken.VALUE_STRING
+                    ? parser.getValueAsString()
+                    : readNestedString(parser, value, "fsPath");
+                case "metadata" -> targetPlatform = readNestedString(parser, value, "targetPlatform");
+                default -> parser.skipChildren();
+            }
+        }
+
+        if (id == null || version == null) {
+            return null;
+        }
+
+        Path installPath = relativeLocation != null
+            ? extensionsDirectory.resolve(relativeLocation)
+            : fsPath != null ? Path.of(fsPath) : null;
+        return new InstalledExtension(id.toLowerCase(Locale.ROOT), version,
+            normalizePlatform(targetPlatform), installPath);
+    }
+
+    /**
+     * Reads one string field from the object the parser is positioned on,
+     * skipping everything else in it.
+     */
+    private static String readNestedString(JsonParser parser, JsonToken current, String fieldName) throws IOException {
+        if (current != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        String result = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (field.equals(fieldName) && value == JsonToken.VALUE_STRING) {
+                result = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads the identity fields of an extension folder's {@code package.json}.
+     * Parsing stops as soon as publisher, name and version are known, unless
+     * the VS Code-written {@code __metadata} block is requested as well.
+     */
+    public static Optional<PackageInfo> readPackageManifest(Path extensionFolder, boolean includeMetadata) {
+        Path packageJson = extensionFolder.resolve(PACKAGE_MANIFEST);
+        if (!Files.isRegularFile(packageJson)) {
+            return Optional.empty();
+        }
+
+        String publisher = null;
+        String name = null;
+        String version = null;
+        String targetPlatform = null;
+        boolean metadataSeen = false;
+
+        try (JsonParser parser = JSON_FACTORY.createParser(packageJson.toFile())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return Optional.empty();
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "publisher" -> publisher = parser.getValueAsString();
+                    case "name" -> name = parser.getValueAsString();
+                    case "version" -> version = parser.getValueAsString();
+                    case "__metadata" -> {
+                        targetPlatform = readNestedString(parser, value, "targetPlatform");
+                        metadataSeen = true;
+                    }
+                    default -> parser.skipChildren();
+                }
+                if (publisher != null && name != null && version != null && (metadataSeen || !includeMetadata)) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Failed to read {}: {}", packageJson, e.getMessage());
+            return Optional.empty();
+        }
+
+        if (publisher == null || name == null || version == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new PackageInfo(publisher, name, version, normalizePlatform(targetPlatform)));
+    }
+
+    /**
+     * Reads a single extension folder without an {@code extensions.json} entry.
+     */
+    public static Optional<InstalledExtension> readExtensionFolder(Path extensionFolder) {
+        return readPackageManifest(extensionFolder, true)
+            .map(info -> new InstalledExtension(info.id(), info.version(), info.targetPlatform(), extensionFolder));
+    }
+
+    /**
+     * Confirms a manifest entry against the folder on disk. Entries whose folder
+     * has gone are dropped; the on-disk version wins if the two disagree.
+     */
+    static Optional<InstalledExtension> reconcileWithPackage(InstalledExtension entry) {
+        if (entry.installPath() == null) {
+            return Optional.of(entry);
+        }
+        return readPackageManifest(entry.installPath(), false)
+            .map(info -> info.version().equals(entry.version())
+                ? entry
+                : new InstalledExtension(entry.id(), info.version(), entry.targetPlatform(), entry.installPath()));
+    }
+
+    private static List<InstalledExtension> scanFolders(Path extensionsDirectory) {
+        List<InstalledExtension> extensions = new ArrayList<>();
+        try (DirectoryStream<Path> folders = Files.newDirectoryStream(extensionsDirectory,
+                path -> Files.isDirectory(path) && !path.getFileName().toString().startsWith("."))) {
+            for (Path folder : folders) {
+                readExtensionFolder(folder).ifPresent(extensions::add);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to list extensions directory {}: {}", extensionsDirectory, e.getMessage());
+        }
+        return extensions;
+    }
+
+    private static String normalizePlatform(String targetPlatform) {
+        if (targetPlatform == null || targetPlatform.isEmpty() || targetPlatform.equals("undefined")) {
+            return InstalledExtension.UNIVERSAL;
+        }
+        return targetPlatform;
+    }
+}
@@ -0,0 +1,107 @@
+package com.vscode.updater.inventory;
+
+import java.util.Comparator;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares extension version strings (semver-like, e.g. {@code 1.28.0} or
+ * {@code 2024.2.1-pre}).
+ */
+public class ExtensionVersions {
+
+    /** Orders versions from oldest to newest. */
+    public static final Comparator<String> ORDER = ExtensionVersions::compare;
+
+    private static final Pattern ENGINE_VERSION = Pattern.compile("(\\d+)\\.(\\d+)\\.(\\d+|x)");
+
+    private ExtensionVersions() {
+    }
+
+    /**
+     * Compares two versions numerically segment by segment. A pre-release
+     * suffix sorts before the release it precedes.
+     */
+    public static int compare(String left, String right) {
+        if (left.equals(right)) {
+            return 0;
+        }
+
+        String[] leftParts = splitPreRelease(left);
+        String[] rightParts = splitPreRelease(right);
+        String[] leftSegments = leftParts[0].split("\\.");
+        String[] rightSegments = rightParts[0].split("\\.");
+
+        int length = Math.max(leftSegments.length, rightSegments.length);
+        for (int i = 0; i < length; i++) {
+            String l = i < leftSegments.length ? leftSegments[i] : "0";
+            String r = i < rightSegments.length ? rightSegments[i] : "0";
+            int result = compareSegment(l, r);
+            if (result != 0) {
+                return result;
+            }
+        }
+
+        // Same release: a pre-release is older than the release itself
+        if (leftParts[1] == null || rightParts[1] == null) {
+            return leftParts[1] == null ? (rightParts[1] == null ? 0 : 1) : -1;
+        }
+        return leftParts[1].compareTo(rightParts[1]);
+    }
+
+    /**
+     * Checks whether {@code candidate} is newer than {@code installed}.
+     */
+    public static boolean isNewer(String candidate, String installed) {
+        return candidate != null && installed != null && compare(candidate, installed) > 0;
+    }
+
+    /**
+     * Gets the lowest VS Code version an {@code engines.vscode} range such as
+     * {@code ^1.85.0} accepts, or null if the range is not understood.
+     */
+    public static String minimumEngineVersion(String engine) {
+        if (engine == null || engine.isBlank() || engine.trim().equals("*")) {
+            return null;
+        }
+        Matcher matcher = ENGINE_VERSION.matcher(engine);
+        if (!matcher.find()) {
+            return null;
+        }
+        String patch = matcher.group(3).equals("x") ? "0" : matcher.group(3);
+        return matcher.group(1) + "." + matcher.group(2) + "." + patch;
+    }
+
+    /**
+     * Checks whether a VS Code version meets the lower bound of an
+     * {@code engines.vscode} range. Ranges or versions that cannot be parsed
+     * (e.g. {@code Unknown}) are treated as compatible.
+     */
+    public static boolean isEngineCompatible(String engine, String vsCodeVersion) {
+        String required = minimumEngineVersion(engine);
+        if (required == null || vsCodeVersion == null) {
+            return true;
+        }
+        Matcher matcher = ENGINE_VERSION.matcher(vsCodeVersion);
+        if (!matcher.lookingAt() || matcher.group(3).equals("x")) {
+            return true;
+        }
+        // An Insiders build such as 1.96.0-insider counts as 1.96.0
+        return !isNewer(required, matcher.group());
+    }
+
+    private static String[] splitPreRelease(String version) {
+        int dash = version.indexOf('-');
+        return dash < 0
+            ? new String[]{version, null}
+            : new String[]{version.substring(0, dash), version.substring(dash + 1)};
+    }
+
+    private static int compareSegment(String left, String right) {
+        try {
+            return Long.compare(Long.parseLong(left), Long.parseLong(right));
+        } catch (NumberFormatException e) {
+            return left.compareTo(right);
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package com.vscode.updater.inventory;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Replaces byte-identical files of the same extension folder in two
+ * extensions directories (e.g. Stable and Insiders) with hard links. Files
+ * are compared by SHA-256, hashed in parallel from memory-mapped reads, and
+ * only linked within one file store. Every link is recorded in a ledger so
+ * the copies can be separated again before either instance changes the
+ * extension; VS Code replaces extension folders rather than editing them,
+ * but {@code package.json} is rewritten in place and is never linked.
+ */
+public class HardlinkDeduplicator {
+    private static final Logger logger = LoggerFactory.getLogger(HardlinkDeduplicator.class);
+
+    /** File name of the ledger inside the configuration directory. */
+    public static final String FILE_NAME = "dedup-ledger.json";
+
+    /** Files smaller than this take a block either way and are left alone. */
+    public static final long MIN_FILE_SIZE = 4096;
+
+    private static final Set<String> EXCLUDED_FILES = Set.of(ExtensionInventoryScanner.PACKAGE_MANIFEST);
+    private static final long MAP_WINDOW = 64L * 1024 * 1024;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final Path file;
+    private final List<LedgerEntry> entries = new ArrayList<>();
+
+    /**
+     * A file replaced by a hard link to its identical twin.
+     *
+     * @param source File kept as it was
+     * @param linked File replaced by a link to {@code source}
+     */
+    public record LedgerEntry(
+        @JsonProperty("source") String source,
+        @JsonProperty("linked") String linked,
+        @JsonProperty("sha256") String sha256,
+        @JsonProperty("size") long size,
+        @JsonProperty("linkedAt") Instant linkedAt
+    ) {
+        boolean touches(Path extensionsDirectory) {
+            return Path.of(source).startsWith(extensionsDirectory) || Path.of(linked).startsWith(extensionsDirectory);
+        }
+    }
+
+    /**
+     * On-disk format.
+     */
+    private record LedgerFile(@JsonProperty("entries") List<LedgerEntry> entries) {}
+
+    /**
+     * Outcome of one deduplication pass.
+     */
+    public record DedupResult(int foldersCompared, int filesLinked, long bytesSaved, int filesDiffering,
+                              int failures) {
+        static final DedupResult EMPTY = new DedupResult(0, 0, 0, 0, 0);
+
+        public String getSummary() {
+            return String.format("Linked %d identical file(s) in %d shared extension folder(s), %d KB saved"
+                    + " (%d differing, %d failed)",
+                filesLinked, foldersCompared, bytesSaved / 1024, filesDiffering, failures);
+        }
+    }
+
+    /**
+     * Outcome of undoing links.
+     */
+    public record UndoResult(int filesRestored, long bytesRestored, int failures) {
+        public String getSummary() {
+            return String.format("Restored %d linked file(s), %d KB (%d failed)",
+                filesRestored, bytesRestored / 1024, failures);
+        }
+    }
+
+    /**
+     * Two files expected to be identical.
+     */
+    private record FilePair(Path source, Path linked, long size) {}
+
+    private HardlinkDeduplicator(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Loads the ledger from a file; a missing or unreadable file yields an empty ledger.
+     */
+    public static HardlinkDeduplicator load(Path file) {
+        HardlinkDeduplicator deduplicator = new HardlinkDeduplicator(file);
+        if (file != null && Files.isRegularFile(file)) {
+            try {
+                LedgerFile stored = objectMapper.readValue(file.toFile(), LedgerFile.class);
+                if (stored.entries() != null) {
+                    deduplicator.entries.addAll(stored.entries());
+                }
+                logger.debug("Loaded dedup ledger with {} link(s)", deduplicator.entries.size());
+            } catch (IOException e) {
+                logger.warn("Ignoring unreadable dedup ledger {}: {}", file, e.getMessage());
+            }
+        }
+        return deduplicator;
+    }
+
+    /**
+     * Creates a deduplicator whose ledger is never persisted.
+     */
+    public static HardlinkDeduplicator inMemory() {
+        return new HardlinkDeduplicator(null);
+    }
+
+    public synchronized List<LedgerEntry> getEntries() {
+        return List.copyOf(entries);
+    }
+
+    /**
+     * Checks whether any link involves an extensions directory.
+     */
+    public synchronized boolean hasLinks(Path extensionsDirectory) {
+        Path directory = extensionsDirectory.toAbsolutePath().normalize();
+        return entries.stream().anyMatch(entry -> entry.touches(directory));
+    }
+
+    /**
+     * Links the identical files of extension folders present in both
+     * directories; files in {@code secondary} are replaced by links to
+     * their twins in {@code primary}.
+     */
+    public synchronized DedupResult deduplicate(Path primary, Path secondary) {
+        Path primaryDirectory = primary.toAbsolutePath().normalize();
+        Path secondaryDirectory = secondary.toAbsolutePath().normalize();
+        if (!Files.isDirectory(primaryDirectory) || !Files.isDirectory(secondaryDirectory)
+                || primaryDirectory.equals(secondaryDirectory)) {
+            return DedupResult.EMPTY;
+        }
+
+        long startNanos = System.nanoTime();
+        List<String> folders;
+        List<FilePair> pairs = new ArrayList<>();
+        try {
+            if (!Files.getFileStore(primaryDirectory).equals(Files.getFileStore(secondaryDirectory))) {
+                logger.info("Not deduplicating {} and {}: different file systems", primaryDirectory, secondaryDirectory);
+                return DedupResult.EMPTY;
+            }
+            folders = sharedFolders(primaryDirectory, secondaryDirectory);
+            for (String folder : folders) {
+                collectPairs(primaryDirectory.resolve(folder), secondaryDirectory.resolve(folder), pairs);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to compare {} and {}: {}", primaryDirectory, secondaryDirectory, e.getMessage());
+            return DedupResult.EMPTY;
+        }
+
+        int linked = 0;
+        int differing = 0;
+        int failures = 0;
+        long saved = 0;
+        try (ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(2, Runtime.getRuntime().availableProcessors()))) {
+            List<Future<String>> sourceHashes = new ArrayList<>();
+            List<Future<String>> linkedHashes = new ArrayList<>();
+            for (FilePair pair : pairs) {
+                sourceHashes.add(executor.submit(() -> sha256(pair.source())));
+                linkedHashes.add(executor.submit(() -> sha256(pair.linked())));
+            }
+            for (int i = 0; i < pairs.size(); i++) {
+                FilePair pair = pairs.get(i);
+                String sha256;
+                try {
+                    sha256 = sourceHashes.get(i).get();
+                    if (!sha256.equals(linkedHashes.get(i).get())) {
+                        differing++;
+                        continue;
+                    }
+                } catch (ExecutionException e) {
+                    failures++;
+                    continue;
+                }
+                try {
+                    link(pair.source(), pair.linked());
+                    entries.add(new LedgerEntry(pair.source().toString(), pair.linked().toString(), sha256,
+                        pair.size(), Instant.now()));
+                    linked++;
+                    saved += pair.size();
+                } catch (IOException | UnsupportedOperationException e) {
+                    logger.debug("Failed to link {} to {}: {}", pair.linked(), pair.source(), e.getMessage());
+                    failures++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        save();
+
+        DedupResult result = new DedupResult(folders.size(), linked, saved, differing, failures);
+        logger.info("{} between {} and {} in {} ms", result.getSummary(), primaryDirectory, secondaryDirectory,
+            (System.nanoTime() - startNanos) / 1_000_000);
+        return result;
+    }
+
+    /**
+     * Gives every linked file involving an extensions directory its own copy
+     * again, so either instance can change its extensions safely.
+     */
+    public synchronized UndoResult undo(Path extensionsDirectory) {
+        Path directory = extensionsDirectory.toAbsolutePath().normalize();
+        return undoMatching(entry -> entry.touches(directory));
+    }
+
+    /**
+     * Separates every linked file in the ledger.
+     */
+    public synchronized UndoResult undoAll() {
+        return undoMatching(entry -> true);
+    }
+
+    private UndoResult undoMatching(Predicate<LedgerEntry> filter) {
+        int restored = 0;
+        int failures = 0;
+        long bytes = 0;
+        for (Iterator<LedgerEntry> iterator = entries.iterator(); iterator.hasNext(); ) {
+            LedgerEntry entry = iterator.next();
+            if (!filter.test(entry)) {
+                continue;
+            }
+            Path source = Path.of(entry.source());
+            Path linked = Path.of(entry.linked());
+            try {
+                // Files deleted since, e.g. with an old extension version, need nothing
+                if (Files.exists(source) && Files.exists(linked) && Files.isSameFile(source, linked)) {
+                    copyOver(source, linked);
+                    restored++;
+                    bytes += entry.size();
+                }
+                iterator.remove();
+            } catch (IOException e) {
+                logger.warn("Failed to separate {} from {}: {}", linked, source, e.getMessage());
+                failures++;
+            }
+        }
+        save();
+
+        UndoResult result = new UndoResult(restored, bytes, failures);
+        if (restored > 0 || failures > 0) {
+            logger.info(result.getSummary());
+        }
+        return result;
+    }
+
+    /**
+     * Writes the ledger to disk atomically.
+     */
+    public synchronized void save() {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            objectMapper.writeValue(temp.toFile(), new LedgerFile(List.copyOf(entries)));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Failed to save dedup ledger to {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static List<String> sharedFolders(Path primary, Path secondary) throws IOException {
+        Set<String> primaryFolders = listFolders(primary);
+        primaryFolders.retainAll(listFolders(secondary));
+        return List.copyOf(primaryFolders);
+    }
+
+    private static Set<String> listFolders(Path extensionsDirectory) throws IOException {
+        Set<String> folders = new TreeSet<>();
+        try (DirectoryStream<Path> children = Files.newDirectoryStream(extensionsDirectory,
+                path -> Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)
+                    && !path.getFileName().toString().startsWith("."))) {
+            for (Path child : children) {
+                folders.add(child.getFileName().toString());
+            }
+        }
+        return folders;
+    }
+
+    /**
+     * Finds files of the same size at the same relative path that are not linked yet.
+     */
+    private static void collectPairs(Path primaryFolder, Path secondaryFolder, List<FilePair> pairs)
+            throws IOException {
+        try (Stream<Path> files = Files.walk(primaryFolder)) {
+            for (Path source : (Iterable<Path>) files::iterator) {
+                BasicFileAttributes sourceAttributes =
+                    Files.readAttributes(source, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                if (!sourceAttributes.isRegularFile() || sourceAttributes.size() < MIN_FILE_SIZE
+                        || EXCLUDED_FILES.contains(source.getFileName().toString())) {
+                    continue;
+                }
+                Path linked = secondaryFolder.resolve(primaryFolder.relativize(source).toString());
+                if (!Files.isRegularFile(linked, LinkOption.NOFOLLOW_LINKS)) {
+                    continue;
+                }
+                BasicFileAttributes linkedAttributes =
+                    Files.readAttributes(linked, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                if (linkedAttributes.size() != sourceAttributes.size() || Files.isSameFile(source, linked)) {
+                    continue;
+                }
+                pairs.add(new FilePair(source, linked, sourceAttributes.size()));
+            }
+        }
+    }
+
+    /**
+     * Replaces {@code linked} with a hard link to {@code source}; the original
+     * stays in place until the link is ready.
+     */
+    private static void link(Path source, Path linked) throws IOException {
+        Path temp = linked.resolveSibling(linked.getFileName() + "." + UUID.randomUUID() + ".link");
+        try {
+            Files.createLink(temp, source);
+            move(temp, linked);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void copyOver(Path source, Path linked) throws IOException {
+        Path temp = linked.resolveSibling(linked.getFileName() + "." + UUID.randomUUID() + ".copy");
+        try {
+            Files.copy(source, temp, StandardCopyOption.COPY_ATTRIBUTES);
+            move(temp, linked);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Hashes a file through memory-mapped windows.
+     */
+    static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += MAP_WINDOW) {
+                digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(MAP_WINDOW, size - position)));
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
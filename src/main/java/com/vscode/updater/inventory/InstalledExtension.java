@@ -0,0 +1,25 @@
+package com.vscode.updater.inventory;
+
+import java.nio.file.Path;
+
+/**
+ * An extension installed in a VS Code extensions directory.
+ *
+ * @param id Lower-case extension identifier (publisher.name)
+ * @param version Installed version
+ * @param targetPlatform Target platform such as {@code linux-x64}, or {@link #UNIVERSAL}
+ * @param installPath Extension folder
+ */
+public record InstalledExtension(
+    String id,
+    String version,
+    String targetPlatform,
+    Path installPath
+) {
+    /** Target platform of extensions that are not platform specific. */
+    public static final String UNIVERSAL = "universal";
+
+    public boolean isPlatformSpecific() {
+        return !UNIVERSAL.equals(targetPlatform);
+    }
+}
@@ -0,0 +1,321 @@
+package com.vscode.updater.inventory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inventory of one extensions directory, kept current by a
+ * {@link WatchService} on the directory and on each extension folder, so an
+ * in-place edit of a {@code package.json} is seen too. Queries read a
+ * published immutable state and never touch disk. Changes are debounced;
+ * only the changed extension folders and the {@code extensions.json} delta
+ * are re-read, and an overflow falls back to a full rescan.
+ */
+public class InventoryIndex implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(InventoryIndex.class);
+
+    /** Quiet period before a burst of file system events is applied. */
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 500;
+
+    private static final Path PACKAGE_MANIFEST = Path.of("package.json");
+
+    private final Path extensionsDirectory;
+    private final long debounceMillis;
+    private final Consumer<InventoryIndex> changeListener;
+    private final Map<String, String> latestVersions = new ConcurrentHashMap<>();
+    private final AtomicLong fullRescans = new AtomicLong();
+    private final AtomicLong incrementalUpdates = new AtomicLong();
+    private final Object updateLock = new Object();
+
+    private volatile IndexState state;
+    private volatile boolean closed;
+    private WatchService watchService;
+    private Thread watcherThread;
+
+    /**
+     * Published view of the index; replaced as a whole on every change.
+     */
+    private record IndexState(
+        InventorySnapshot snapshot,
+        Map<String, InstalledExtension> byId,
+        Map<Path, InstalledExtension> byPath,
+        Set<String> staleIds
+    ) {}
+
+    public InventoryIndex(Path extensionsDirectory, long debounceMillis, Consumer<InventoryIndex> changeListener) {
+        this.extensionsDirectory = extensionsDirectory;
+        this.debounceMillis = debounceMillis;
+        this.changeListener = changeListener != null ? changeListener : index -> { };
+        rescan();
+    }
+
+    /**
+     * Starts watching the extensions directory and its extension folders.
+     * Does nothing if the directory does not exist yet.
+     */
+    public synchronized void start() {
+        if (closed || watchService != null || !Files.isDirectory(extensionsDirectory)) {
+            return;
+        }
+        try {
+            watchService = extensionsDirectory.getFileSystem().newWatchService();
+            extensionsDirectory.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+            try (Stream<Path> folders = Files.list(extensionsDirectory)) {
+                folders.filter(Files::isDirectory).forEach(this::watchFolder);
+            }
+            watcherThread = Thread.ofVirtual()
+                .name("inventory-watch-" + extensionsDirectory.getFileName())
+                .start(this::watchLoop);
+            logger.debug("Watching {}", extensionsDirectory);
+        } catch (IOException e) {
+            logger.warn("Cannot watch {}, inventory will only refresh on rescan: {}",
+                extensionsDirectory, e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.debug("Failed to close watch service for {}: {}", extensionsDirectory, e.getMessage());
+            }
+            watcherThread.interrupt();
+        }
+    }
+
+    // Queries
+
+    public Path getExtensionsDirectory() {
+        return extensionsDirectory;
+    }
+
+    public InventorySnapshot snapshot() {
+        return state.snapshot();
+    }
+
+    public int size() {
+        return state.byId().size();
+    }
+
+    public Optional<InstalledExtension> find(String extensionId) {
+        return Optional.ofNullable(state.byId().get(extensionId.toLowerCase(Locale.ROOT)));
+    }
+
+    public Optional<String> installedVersion(String extensionId) {
+        return find(extensionId).map(InstalledExtension::version);
+    }
+
+    public boolean isStale(String extensionId) {
+        return state.staleIds().contains(extensionId.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Gets the ids of installed extensions with a newer known version.
+     */
+    public Set<String> staleExtensions() {
+        return state.staleIds();
+    }
+
+    public int staleCount() {
+        return state.staleIds().size();
+    }
+
+    public long getFullRescanCount() {
+        return fullRescans.get();
+    }
+
+    public long getIncrementalUpdateCount() {
+        return incrementalUpdates.get();
+    }
+
+    // Updates
+
+    /**
+     * Records the latest known versions (lower-case id to version) and
+     * recomputes the stale set.
+     */
+    public void updateLatestVersions(Map<String, String> versions) {
+        versions.forEach((id, version) -> latestVersions.put(id.toLowerCase(Locale.ROOT), version));
+        synchronized (updateLock) {
+            publish(state.snapshot().extensions());
+        }
+    }
+
+    /**
+     * Rebuilds the index from a full scan of the extensions directory.
+     */
+    public void rescan() {
+        synchronized (updateLock) {
+            publish(ExtensionInventoryScanner.scan(extensionsDirectory).extensions());
+            fullRescans.incrementAndGet();
+        }
+    }
+
+    /**
+     * Applies a set of changed top-level paths (extension folders and
+     * {@code extensions.json}) to the index.
+     */
+    void applyChanges(Set<Path> changedPaths) {
+        Path manifest = extensionsDirectory.resolve(ExtensionInventoryScanner.EXTENSIONS_MANIFEST);
+        Set<Path> changedFolders = new HashSet<>(changedPaths);
+        boolean manifestChanged = changedFolders.remove(manifest);
+
+        synchronized (updateLock) {
+            List<InstalledExtension> current = state.snapshot().extensions();
+            Map<Path, InstalledExtension> byPath = state.byPath();
+            List<InstalledExtension> next = new ArrayList<>();
+
+            if (!Files.isRegularFile(manifest)) {
+                if (manifestChanged) {
+                    // The registry went away; start over from the folders
+                    rescan();
+                    return;
+                }
+                current.stream()
+                    .filter(extension -> !changedFolders.contains(extension.installPath()))
+                    .forEach(next::add);
+                for (Path folder : changedFolders) {
+                    ExtensionInventoryScanner.readExtensionFolder(folder).ifPresent(next::add);
+                }
+            } else if (manifestChanged) {
+                List<InstalledExtension> entries;
+                try {
+                    entries = ExtensionInventoryScanner.readExtensionsManifest(extensionsDirectory);
+                } catch (IOException e) {
+                    logger.debug("Failed to read {}, rescanning: {}", manifest, e.getMessage());
+                    rescan();
+                    return;
+                }
+                for (InstalledExtension entry : entries) {
+                    InstalledExtension existing = byPath.get(entry.installPath());
+                    if (existing != null && existing.id().equals(entry.id())
+                            && existing.version().equals(entry.version())
+                            && !changedFolders.contains(entry.installPath())) {
+                        next.add(existing);
+                    } else {
+                        ExtensionInventoryScanner.reconcileWithPackage(entry).ifPresent(next::add);
+                    }
+                }
+            } else {
+                // Folders not listed in extensions.json are ignored until VS Code registers them
+                for (InstalledExtension extension : current) {
+                    if (changedFolders.contains(extension.installPath())) {
+                        ExtensionInventoryScanner.reconcileWithPackage(extension).ifPresent(next::add);
+                    } else {
+                        next.add(extension);
+                    }
+                }
+            }
+
+            publish(next);
+            incrementalUpdates.incrementAndGet();
+        }
+    }
+
+    private void publish(List<InstalledExtension> extensions) {
+        Map<String, InstalledExtension> byId = new HashMap<>();
+        Map<Path, InstalledExtension> byPath = new HashMap<>();
+        Set<String> staleIds = new HashSet<>();
+        for (InstalledExtension extension : extensions) {
+            byId.putIfAbsent(extension.id(), extension);
+            if (extension.installPath() != null) {
+                byPath.put(extension.installPath(), extension);
+            }
+            if (ExtensionVersions.isNewer(latestVersions.get(extension.id()), extension.version())) {
+                staleIds.add(extension.id());
+            }
+        }
+        state = new IndexState(
+            new InventorySnapshot(extensionsDirectory, extensions, Instant.now()),
+            Map.copyOf(byId), Map.copyOf(byPath), Set.copyOf(staleIds));
+    }
+
+    private void watchLoop() {
+        try {
+            while (!closed) {
+                Set<Path> changed = new HashSet<>();
+                boolean overflow = drainEvents(watchService.take(), changed);
+
+                // Debounce: keep collecting until the directory has been quiet
+                WatchKey next;
+                while ((next = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    overflow |= drainEvents(next, changed);
+                }
+
+                if (overflow) {
+                    logger.debug("Watch overflow on {}, rescanning", extensionsDirectory);
+                    rescan();
+                } else {
+                    applyChanges(changed);
+                }
+                changeListener.accept(this);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        } catch (RuntimeException e) {
+            logger.warn("Inventory watcher for {} stopped: {}", extensionsDirectory, e.getMessage());
+        }
+    }
+
+    private boolean drainEvents(WatchKey key, Set<Path> changed) {
+        Path watched = (Path) key.watchable();
+        boolean root = watched.equals(extensionsDirectory);
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+            } else if (root) {
+                Path path = extensionsDirectory.resolve((Path) event.context());
+                changed.add(path);
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                    watchFolder(path);
+                }
+            } else if (PACKAGE_MANIFEST.equals(event.context())) {
+                changed.add(watched);
+            }
+        }
+        // An invalid root key means the directory itself is gone; a removed
+        // extension folder is reported by the root
+        boolean valid = key.reset();
+        return (!valid && root) || overflow;
+    }
+
+    private void watchFolder(Path folder) {
+        try {
+            folder.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException | ClosedWatchServiceException e) {
+            logger.debug("Cannot watch {}, in-place edits will show on rescan: {}", folder, e.getMessage());
+        }
+    }
+}
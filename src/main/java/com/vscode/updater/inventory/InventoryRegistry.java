@@ -0,0 +1,84 @@
+package com.vscode.updater.inventory;
+
+import com.vscode.updater.discovery.VSCodeInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps one {@link InventoryIndex} per extensions directory for the detected
+ * VS Code instances. Installations of the same edition share a directory and
+ * therefore share an index.
+ */
+public class InventoryRegistry implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(InventoryRegistry.class);
+
+    private final Map<Path, InventoryIndex> indexes = new ConcurrentHashMap<>();
+    private final Consumer<InventoryIndex> changeListener;
+    private final Map<Path, Map<String, String>> latestVersions = new ConcurrentHashMap<>();
+
+    public InventoryRegistry(Consumer<InventoryIndex> changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    /**
+     * Opens indexes for new instances and closes those no longer needed.
+     */
+    public synchronized void sync(List<VSCodeInstance> instances) {
+        Set<Path> directories = instances.stream()
+            .map(VSCodeInstance::getExtensionsDirectory)
+            .collect(Collectors.toSet());
+
+        indexes.entrySet().removeIf(entry -> {
+            if (!directories.contains(entry.getKey())) {
+                entry.getValue().close();
+                return true;
+            }
+            return false;
+        });
+
+        for (Path directory : directories) {
+            indexes.computeIfAbsent(directory, dir -> {
+                InventoryIndex index = new InventoryIndex(dir, InventoryIndex.DEFAULT_DEBOUNCE_MILLIS, changeListener);
+                index.updateLatestVersions(latestVersions.getOrDefault(dir, Map.of()));
+                index.start();
+                logger.info("Indexed {} extension(s) in {}", index.size(), dir);
+                return index;
+            });
+        }
+    }
+
+    /**
+     * Gets the index of an instance's extensions directory, if open.
+     */
+    public Optional<InventoryIndex> get(VSCodeInstance instance) {
+        return Optional.ofNullable(indexes.get(instance.getExtensionsDirectory()));
+    }
+
+    /**
+     * Records latest known versions (id to version) for an instance so the
+     * stale set of its index stays current.
+     */
+    public void updateLatestVersions(VSCodeInstance instance, Map<String, String> versions) {
+        Path directory = instance.getExtensionsDirectory();
+        latestVersions.computeIfAbsent(directory, dir -> new ConcurrentHashMap<>()).putAll(versions);
+        InventoryIndex index = indexes.get(directory);
+        if (index != null) {
+            index.updateLatestVersions(versions);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        indexes.values().forEach(InventoryIndex::close);
+        indexes.clear();
+    }
+}
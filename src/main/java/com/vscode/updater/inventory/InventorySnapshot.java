@@ -0,0 +1,50 @@
+package com.vscode.updater.inventory;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable view of the extensions installed in one extensions directory.
+ */
+public record InventorySnapshot(
+    Path extensionsDirectory,
+    List<InstalledExtension> extensions,
+    Instant scannedAt
+) {
+    public InventorySnapshot {
+        extensions = List.copyOf(extensions);
+    }
+
+    /**
+     * Creates an empty snapshot, used when the directory does not exist.
+     */
+    public static InventorySnapshot empty(Path extensionsDirectory) {
+        return new InventorySnapshot(extensionsDirectory, List.of(), Instant.now());
+    }
+
+    /**
+     * Finds an installed extension by id (case-insensitive).
+     */
+    public Optional<InstalledExtension> find(String extensionId) {
+        String id = extensionId.toLowerCase(Locale.ROOT);
+        return extensions.stream().filter(e -> e.id().equals(id)).findFirst();
+    }
+
+    /**
+     * Gets installed versions keyed by lower-case extension id.
+     */
+    public Map<String, String> installedVersions() {
+        return extensions.stream().collect(Collectors.toMap(
+            InstalledExtension::id, InstalledExtension::version, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    public int size() {
+        return extensions.size();
+    }
+}
@@ -0,0 +1,303 @@
+package com.vscode.updater.inventory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Deletes extension version folders VS Code no longer uses: folders listed in
+ * {@code .obsolete}, and older versions of registered extensions that are not
+ * referenced by {@code extensions.json}. Folders referenced by the manifest,
+ * hidden staging folders and folders of extensions VS Code does not know
+ * about are never touched. Folders are measured and deleted in parallel.
+ */
+public class ObsoleteExtensionCollector {
+    private static final Logger logger = LoggerFactory.getLogger(ObsoleteExtensionCollector.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /** File listing extension folders VS Code deletes on its next start. */
+    public static final String OBSOLETE_FILE = ".obsolete";
+
+    /** Folders changed more recently than this may belong to an install in progress. */
+    public static final Duration DEFAULT_MINIMUM_AGE = Duration.ofMinutes(10);
+
+    /**
+     * Outcome of one collection.
+     *
+     * @param removedFolders Folders deleted, or that would be deleted in a dry run
+     * @param reclaimedBytes Bytes freed, or that would be freed in a dry run
+     * @param failedFolders Folders that could not be deleted completely
+     */
+    public record CollectionResult(
+        Path extensionsDirectory,
+        boolean dryRun,
+        List<String> removedFolders,
+        long reclaimedBytes,
+        List<String> failedFolders
+    ) {
+        public CollectionResult {
+            removedFolders = List.copyOf(removedFolders);
+            failedFolders = List.copyOf(failedFolders);
+        }
+
+        static CollectionResult empty(Path extensionsDirectory, boolean dryRun) {
+            return new CollectionResult(extensionsDirectory, dryRun, List.of(), 0, List.of());
+        }
+
+        public String getSummary() {
+            String summary = String.format("%s %d obsolete extension folder(s), %s",
+                dryRun ? "Would remove" : "Removed", removedFolders.size(), formatBytes(reclaimedBytes));
+            return failedFolders.isEmpty() ? summary : summary + ", " + failedFolders.size() + " failed";
+        }
+    }
+
+    private record FolderResult(String folder, long bytes, boolean deleted) {}
+
+    private ObsoleteExtensionCollector() {
+    }
+
+    /**
+     * Collects obsolete folders of an extensions directory.
+     *
+     * @param dryRun Only report what would be removed
+     */
+    public static CollectionResult collect(Path extensionsDirectory, boolean dryRun) {
+        return collect(extensionsDirectory, dryRun, DEFAULT_MINIMUM_AGE);
+    }
+
+    static CollectionResult collect(Path extensionsDirectory, boolean dryRun, Duration minimumAge) {
+        if (!Files.isDirectory(extensionsDirectory)) {
+            return CollectionResult.empty(extensionsDirectory, dryRun);
+        }
+
+        long startNanos = System.nanoTime();
+        List<Path> candidates;
+        try {
+            candidates = findCandidates(extensionsDirectory, Instant.now().minus(minimumAge));
+        } catch (IOException e) {
+            logger.warn("Skipping cleanup of {}: {}", extensionsDirectory, e.getMessage());
+            return CollectionResult.empty(extensionsDirectory, dryRun);
+        }
+        if (candidates.isEmpty()) {
+            return CollectionResult.empty(extensionsDirectory, dryRun);
+        }
+
+        List<String> removed = new ArrayList<>();
+        List<String> failed = new ArrayList<>();
+        long reclaimed = 0;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<FolderResult>> results = candidates.stream()
+                .map(folder -> executor.submit(() -> collectFolder(folder, dryRun)))
+                .toList();
+            for (Future<FolderResult> future : results) {
+                FolderResult result = future.get();
+                reclaimed += result.bytes();
+                (result.deleted() || dryRun ? removed : failed).add(result.folder());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.warn("Cleanup of {} failed: {}", extensionsDirectory, e.getCause().getMessage());
+        }
+
+        if (!dryRun && !removed.isEmpty()) {
+            forgetObsolete(extensionsDirectory, removed);
+        }
+
+        CollectionResult result = new CollectionResult(extensionsDirectory, dryRun, removed, reclaimed, failed);
+        logger.info("{} in {} ({} ms)", result.getSummary(), extensionsDirectory,
+            (System.nanoTime() - startNanos) / 1_000_000);
+        return result;
+    }
+
+    /**
+     * Finds the folders to remove. Without a readable {@code extensions.json}
+     * only folders listed in {@code .obsolete} are candidates.
+     */
+    static List<Path> findCandidates(Path extensionsDirectory, Instant changedBefore) throws IOException {
+        Set<String> obsolete = readObsolete(extensionsDirectory);
+        Set<String> referencedFolders = new HashSet<>();
+        Set<String> registeredIds = new HashSet<>();
+        boolean manifestRead = false;
+        if (Files.isRegularFile(extensionsDirectory.resolve(ExtensionInventoryScanner.EXTENSIONS_MANIFEST))) {
+            try {
+                for (InstalledExtension extension : ExtensionInventoryScanner.readExtensionsManifest(extensionsDirectory)) {
+                    registeredIds.add(extension.id());
+                    if (extension.installPath() != null) {
+                        referencedFolders.add(extension.installPath().getFileName().toString());
+                    }
+                }
+                manifestRead = true;
+            } catch (IOException e) {
+                logger.warn("Failed to read {} in {}, only cleaning {}: {}",
+                    ExtensionInventoryScanner.EXTENSIONS_MANIFEST, extensionsDirectory, OBSOLETE_FILE, e.getMessage());
+            }
+        }
+
+        List<Path> candidates = new ArrayList<>();
+        try (DirectoryStream<Path> folders = Files.newDirectoryStream(extensionsDirectory,
+                path -> Files.isDirectory(path) && !path.getFileName().toString().startsWith("."))) {
+            for (Path folder : folders) {
+                String name = folder.getFileName().toString();
+                if (referencedFolders.contains(name)
+                        || Files.getLastModifiedTime(folder).toInstant().isAfter(changedBefore)) {
+                    continue;
+                }
+                if (obsolete.contains(name) || manifestRead && isOlderVersion(folder, registeredIds)) {
+                    candidates.add(folder);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private static boolean isOlderVersion(Path folder, Set<String> registeredIds) {
+        Optional<ExtensionInventoryScanner.PackageInfo> info = ExtensionInventoryScanner.readPackageManifest(folder, false);
+        return info.isPresent() && registeredIds.contains(info.get().id());
+    }
+
+    private static FolderResult collectFolder(Path folder, boolean dryRun) {
+        String name = folder.getFileName().toString();
+        long[] bytes = new long[1];
+        boolean[] complete = {true};
+        try {
+            Files.walkFileTree(folder, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    long size = attributes.size();
+                    if (dryRun) {
+                        bytes[0] += size;
+                        return FileVisitResult.CONTINUE;
+                    }
+                    try {
+                        Files.delete(file);
+                        bytes[0] += size;
+                    } catch (IOException e) {
+                        complete[0] = false;
+                        logger.debug("Failed to delete {}: {}", file, e.getMessage());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    complete[0] = false;
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path directory, IOException e) {
+                    if (!dryRun) {
+                        try {
+                            Files.delete(directory);
+                        } catch (IOException deleteFailure) {
+                            complete[0] = false;
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            complete[0] = false;
+        }
+        if (!complete[0]) {
+            logger.warn("Could not {} obsolete extension folder {}", dryRun ? "measure" : "delete", folder);
+        }
+        return new FolderResult(name, bytes[0], complete[0]);
+    }
+
+    private static Set<String> readObsolete(Path extensionsDirectory) {
+        Set<String> obsolete = new HashSet<>();
+        Path obsoleteFile = extensionsDirectory.resolve(OBSOLETE_FILE);
+        if (Files.isRegularFile(obsoleteFile)) {
+            try {
+                objectMapper.readTree(obsoleteFile.toFile()).properties().forEach(field -> {
+                    if (field.getValue().asBoolean()) {
+                        obsolete.add(field.getKey());
+                    }
+                });
+            } catch (IOException e) {
+                logger.debug("Failed to read {}: {}", obsoleteFile, e.getMessage());
+            }
+        }
+        return obsolete;
+    }
+
+    /**
+     * Adds a folder to {@code .obsolete}, keeping the entries already listed.
+     */
+    public static synchronized void markObsolete(Path extensionsDirectory, String folder) throws IOException {
+        updateObsolete(extensionsDirectory, obsolete -> obsolete.put(folder, true));
+    }
+
+    private static synchronized void forgetObsolete(Path extensionsDirectory, List<String> folders) {
+        try {
+            updateObsolete(extensionsDirectory, obsolete -> folders.forEach(obsolete::remove));
+        } catch (IOException e) {
+            logger.debug("Failed to update {} in {}: {}", OBSOLETE_FILE, extensionsDirectory, e.getMessage());
+        }
+    }
+
+    private static void updateObsolete(Path extensionsDirectory, Consumer<ObjectNode> change)
+            throws IOException {
+        Path obsoleteFile = extensionsDirectory.resolve(OBSOLETE_FILE);
+        ObjectNode obsolete = objectMapper.createObjectNode();
+        if (Files.isRegularFile(obsoleteFile)) {
+            try {
+                if (objectMapper.readTree(obsoleteFile.toFile()) instanceof ObjectNode existing) {
+                    obsolete = existing;
+                }
+            } catch (IOException e) {
+                logger.warn("Replacing unreadable {}: {}", obsoleteFile, e.getMessage());
+            }
+        }
+        change.accept(obsolete);
+        if (obsolete.isEmpty()) {
+            Files.deleteIfExists(obsoleteFile);
+            return;
+        }
+
+        Path temp = obsoleteFile.resolveSibling(OBSOLETE_FILE + "." + UUID.randomUUID() + ".tmp");
+        try {
+            Files.write(temp, objectMapper.writeValueAsBytes(obsolete));
+            try {
+                Files.move(temp, obsoleteFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, obsoleteFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes < 1024 * 1024) {
+            return String.format("%d KB", bytes / 1024);
+        }
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+}
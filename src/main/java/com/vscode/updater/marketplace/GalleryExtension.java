@@ -0,0 +1,29 @@
+package com.vscode.updater.marketplace;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * Latest published version of an extension as reported by the gallery.
+ *
+ * @param id Lower-case extension identifier (publisher.name)
+ * @param version Latest release version
+ * @param targetPlatform Target platform of that version, or {@code universal}
+ * @param assetUri Base URI of the version's assets (VSIX, manifest), may be null
+ */
+public record GalleryExtension(
+    String id,
+    String version,
+    String targetPlatform,
+    String assetUri
+) {
+    /** Asset type of the VSIX package under {@link #assetUri()}. */
+    public static final String VSIX_ASSET_TYPE = "Microsoft.VisualStudio.Services.VSIXPackage";
+
+    /**
+     * Gets the VSIX download URL, or null if the gallery did not report assets.
+     */
+    @JsonIgnore
+    public String getVsixUrl() {
+        return assetUri != null ? assetUri + "/" + VSIX_ASSET_TYPE : null;
+    }
+}
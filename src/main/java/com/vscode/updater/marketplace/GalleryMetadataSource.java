@@ -0,0 +1,22 @@
+package com.vscode.updater.marketplace;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Source of the latest published extension versions.
+ */
+@FunctionalInterface
+public interface GalleryMetadataSource {
+
+    /**
+     * Fetches the latest versions of the given extensions that a VS Code
+     * version can run, in as few requests as possible.
+     *
+     * @param vsCodeVersion Version checked against each release's {@code engines.vscode}, or null to skip
+     * @return lower-case extension id to latest version; unknown extensions are absent
+     */
+    Map<String, String> fetchLatestVersions(Collection<String> extensionIds, String vsCodeVersion)
+        throws IOException;
+}
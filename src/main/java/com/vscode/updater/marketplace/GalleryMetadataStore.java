@@ -0,0 +1,175 @@
+package com.vscode.updater.marketplace;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Local cache of the latest known gallery version of each extension,
+ * persisted as JSON in the configuration directory. Latest means latest
+ * that a given VS Code version can run, so entries are kept per VS Code
+ * version and Stable and Insiders do not overwrite each other.
+ */
+public class GalleryMetadataStore {
+    private static final Logger logger = LoggerFactory.getLogger(GalleryMetadataStore.class);
+
+    /** File name of the cache inside the configuration directory. */
+    public static final String FILE_NAME = "gallery-metadata.json";
+
+    /** How long a cached latest version is trusted when planning updates. */
+    public static final Duration DEFAULT_MAX_AGE = Duration.ofHours(6);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        .enable(SerializationFeature.INDENT_OUTPUT);
+
+    /** Key of entries learned without an engine check. */
+    private static final String ANY_VSCODE_VERSION = "*";
+
+    private final Path file;
+    private final Map<String, Map<String, GalleryEntry>> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Latest known version of one extension and when it was learned.
+     */
+    public record GalleryEntry(
+        @JsonProperty("latestVersion") String latestVersion,
+        @JsonProperty("fetchedAt") Instant fetchedAt
+    ) {
+        public boolean isFresh(Duration maxAge, Instant now) {
+            return fetchedAt != null && fetchedAt.plus(maxAge).isAfter(now);
+        }
+    }
+
+    /**
+     * On-disk format: VS Code version to extension id to entry. Files written
+     * before entries were keyed by VS Code version load as empty.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    private record StoreFile(@JsonProperty("vscodeVersions") Map<String, Map<String, GalleryEntry>> vscodeVersions) {}
+
+    private GalleryMetadataStore(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Loads the store from a file; a missing or unreadable file yields an empty store.
+     */
+    public static GalleryMetadataStore load(Path file) {
+        GalleryMetadataStore store = new GalleryMetadataStore(file);
+        if (file != null && Files.isRegularFile(file)) {
+            try {
+                StoreFile stored = objectMapper.readValue(file.toFile(), StoreFile.class);
+                if (stored.vscodeVersions() != null) {
+                    stored.vscodeVersions().forEach((vsCodeVersion, extensions) ->
+                        store.entries.put(vsCodeVersion, new ConcurrentHashMap<>(extensions)));
+                }
+                logger.debug("Loaded gallery metadata for {} extension(s)", store.size());
+            } catch (IOException e) {
+                logger.warn("Ignoring unreadable gallery metadata {}: {}", file, e.getMessage());
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Creates a store that is never persisted.
+     */
+    public static GalleryMetadataStore inMemory() {
+        return new GalleryMetadataStore(null);
+    }
+
+    /**
+     * Gets the entry of an extension for a VS Code version.
+     *
+     * @param vsCodeVersion Version the entry was learned for, or null for entries without an engine check
+     */
+    public Optional<GalleryEntry> get(String extensionId, String vsCodeVersion) {
+        Map<String, GalleryEntry> extensions = entries.get(versionKey(vsCodeVersion));
+        return extensions == null
+            ? Optional.empty()
+            : Optional.ofNullable(extensions.get(extensionId.toLowerCase(Locale.ROOT)));
+    }
+
+    /**
+     * Gets the latest version of an extension for a VS Code version if it was learned within {@code maxAge}.
+     */
+    public Optional<String> getFreshLatestVersion(String extensionId, String vsCodeVersion, Duration maxAge) {
+        Instant now = Instant.now();
+        return get(extensionId, vsCodeVersion)
+            .filter(entry -> entry.isFresh(maxAge, now))
+            .map(GalleryEntry::latestVersion);
+    }
+
+    /**
+     * Gets every latest version for a VS Code version learned within {@code maxAge}, keyed by lower-case id.
+     */
+    public Map<String, String> getFreshLatestVersions(String vsCodeVersion, Duration maxAge) {
+        Instant now = Instant.now();
+        Map<String, String> versions = new HashMap<>();
+        entries.getOrDefault(versionKey(vsCodeVersion), Map.of()).forEach((id, entry) -> {
+            if (entry.isFresh(maxAge, now)) {
+                versions.put(id, entry.latestVersion());
+            }
+        });
+        return versions;
+    }
+
+    /**
+     * Records latest versions (id to version) a VS Code version can run, learned now.
+     */
+    public void recordLatestVersions(String vsCodeVersion, Map<String, String> latestVersions) {
+        Instant now = Instant.now();
+        Map<String, GalleryEntry> extensions = entries.computeIfAbsent(versionKey(vsCodeVersion),
+            key -> new ConcurrentHashMap<>());
+        latestVersions.forEach((id, version) ->
+            extensions.put(id.toLowerCase(Locale.ROOT), new GalleryEntry(version, now)));
+    }
+
+    /**
+     * Gets the number of entries across all VS Code versions.
+     */
+    public int size() {
+        return entries.values().stream().mapToInt(Map::size).sum();
+    }
+
+    private static String versionKey(String vsCodeVersion) {
+        return vsCodeVersion != null ? vsCodeVersion : ANY_VSCODE_VERSION;
+    }
+
+    /**
+     * Writes the store to disk atomically.
+     */
+    public synchronized void save() {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+            Map<String, Map<String, GalleryEntry>> snapshot = new HashMap<>();
+            entries.forEach((vsCodeVersion, extensions) -> snapshot.put(vsCodeVersion, new HashMap<>(extensions)));
+            objectMapper.writeValue(temp.toFile(), new StoreFile(snapshot));
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Failed to save gallery metadata to {}: {}", file, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package com.vscode.updater.marketplace;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.vscode.updater.executor.ExtensionUpdate;
+import com.vscode.updater.executor.OutdatedExtensionResolver;
+import com.vscode.updater.inventory.ExtensionVersions;
+import com.vscode.updater.inventory.InstalledExtension;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Queries the extension gallery for the latest versions of many extensions
+ * with one {@code extensionquery} request per batch. Only the newest version
+ * of each extension is requested; all versions are fetched just for the few
+ * whose newest one is a pre-release, for another platform or needs a newer
+ * VS Code. Parsed results are cached on disk: within the TTL no request is
+ * made, after it the cached result is revalidated with {@code If-None-Match}.
+ */
+public class MarketplaceClient implements GalleryMetadataSource {
+    private static final Logger logger = LoggerFactory.getLogger(MarketplaceClient.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /** Public Visual Studio Marketplace gallery. */
+    public static final URI DEFAULT_GALLERY_URL = URI.create("https://marketplace.visualstudio.com/_apis/public/gallery");
+
+    /** How long a cached response is used without revalidation. */
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(30);
+
+    /** Directory of cached responses inside the configuration directory. */
+    public static final String CACHE_DIRECTORY = "marketplace-cache";
+
+    /** Maximum extension ids per gallery request. */
+    static final int MAX_BATCH_SIZE = 500;
+
+    private static final String API_ACCEPT = "application/json;api-version=3.0-preview.1";
+    private static final String PRE_RELEASE_PROPERTY = "Microsoft.VisualStudio.Code.PreRelease";
+    private static final String ENGINE_PROPERTY = "Microsoft.VisualStudio.Code.Engine";
+
+    // Gallery query filter types and flags
+    private static final int FILTER_EXTENSION_NAME = 7;
+    private static final int FILTER_TARGET = 8;
+    private static final int FILTER_EXCLUDE_WITH_FLAGS = 12;
+    private static final String EXCLUDE_UNPUBLISHED = "4096";
+    private static final int ALL_VERSIONS_FLAGS = 0x1     // IncludeVersions
+                                                | 0x10    // IncludeVersionProperties
+                                                | 0x80;   // IncludeAssetUri
+    private static final int LATEST_VERSION_FLAGS = ALL_VERSIONS_FLAGS
+                                                  | 0x200; // IncludeLatestVersionOnly
+
+    private final HttpClient httpClient;
+    private final URI galleryUrl;
+    private final MarketplaceResponseCache cache;
+    private final Duration ttl;
+    private final String targetPlatform;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+
+    public MarketplaceClient(URI galleryUrl, Path cacheDirectory, Duration ttl, String targetPlatform) {
+        this.httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(10))
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .build();
+        this.galleryUrl = galleryUrl;
+        this.cache = new MarketplaceResponseCache(cacheDirectory);
+        this.ttl = ttl;
+        this.targetPlatform = targetPlatform;
+    }
+
+    /**
+     * Creates a client for the public marketplace caching under the configuration directory.
+     */
+    public static MarketplaceClient create(Path configDirectory) {
+        return new MarketplaceClient(DEFAULT_GALLERY_URL, configDirectory.resolve(CACHE_DIRECTORY),
+            DEFAULT_TTL, detectTargetPlatform());
+    }
+
+    /**
+     * Gets the VS Code target platform of this machine (e.g. {@code linux-x64}).
+     */
+    public static String detectTargetPlatform() {
+        String osName = System.getProperty("os.name").toLowerCase(Locale.ROOT);
+        String arch = System.getProperty("os.arch").toLowerCase(Locale.ROOT);
+
+        String os = osName.contains("win") ? "win32" : osName.contains("mac") ? "darwin" : "linux";
+        String cpu = switch (arch) {
+            case "aarch64", "arm64" -> "arm64";
+            case "arm" -> "armhf";
+            default -> "x64";
+        };
+        return os + "-" + cpu;
+    }
+
+    /**
+     * Queries the latest release of each extension for this platform.
+     *
+     * @return extensions found in the gallery keyed by lower-case id
+     * @throws IOException if the gallery cannot be reached and nothing is cached
+     */
+    public Map<String, GalleryExtension> queryLatest(Collection<String> extensionIds) throws IOException {
+        return queryLatest(extensionIds, null);
+    }
+
+    /**
+     * Queries the latest release of each extension for this platform that a
+     * VS Code version can run.
+     *
+     * @param vsCodeVersion Version checked against each release's {@code engines.vscode}, or null to skip
+     * @return extensions with a compatible release keyed by lower-case id
+     * @throws IOException if the gallery cannot be reached and nothing is cached
+     */
+    public Map<String, GalleryExtension> queryLatest(Collection<String> extensionIds, String vsCodeVersion)
+            throws IOException {
+        List<String> ids = new ArrayList<>(new TreeSet<>(extensionIds.stream()
+            .map(id -> id.toLowerCase(Locale.ROOT))
+            .toList()));
+
+        Map<String, GalleryExtension> results = new HashMap<>();
+        for (int i = 0; i < ids.size(); i += MAX_BATCH_SIZE) {
+            List<String> batch = ids.subList(i, Math.min(i + MAX_BATCH_SIZE, ids.size()));
+            results.putAll(fetchBatch(batch, vsCodeVersion));
+        }
+        return results;
+    }
+
+    @Override
+    public Map<String, String> fetchLatestVersions(Collection<String> extensionIds, String vsCodeVersion)
+            throws IOException {
+        Map<String, String> versions = new HashMap<>();
+        queryLatest(extensionIds, vsCodeVersion).forEach((id, extension) -> versions.put(id, extension.version()));
+        return versions;
+    }
+
+    /**
+     * Gets a resolver that installs only extensions with a newer gallery
+     * release the instance can run, pinned to that version. Falls back to
+     * updating everything to latest when the gallery cannot be queried.
+     *
+     * @param vsCodeVersion Version of the instance, or null to skip the engine check
+     */
+    public OutdatedExtensionResolver asResolver(String vsCodeVersion) {
+        return installedVersions -> {
+            Map<String, GalleryExtension> latest;
+            try {
+                latest = queryLatest(installedVersions.keySet(), vsCodeVersion);
+            } catch (IOException e) {
+                logger.warn("Marketplace query failed, updating all extensions: {}", e.getMessage());
+                return OutdatedExtensionResolver.ALL_TO_LATEST.resolveOutdated(installedVersions);
+            }
+
+            List<ExtensionUpdate> updates = new ArrayList<>();
+            installedVersions.forEach((id, version) -> {
+                // Extensions missing from the gallery (e.g. sideloaded) have nothing to update to
+                GalleryExtension extension = latest.get(id);
+                if (extension != null && ExtensionVersions.isNewer(extension.version(), version)) {
+                    updates.add(new ExtensionUpdate(id, version, extension.version(),
+                        extension.targetPlatform(), extension.getVsixUrl()));
+                }
+            });
+            return updates;
+        };
+    }
+
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    public long getNotModifiedCount() {
+        return notModified.get();
+    }
+
+    public long getCacheHitCount() {
+        return cacheHits.get();
+    }
+
+    private Map<String, GalleryExtension> fetchBatch(List<String> ids, String vsCodeVersion) throws IOException {
+        String body = buildQuery(ids, LATEST_VERSION_FLAGS);
+        // Results depend on the platform and VS Code version, not just the query
+        String key = cacheKey(targetPlatform + "\n" + vsCodeVersion + "\n" + body);
+        Optional<MarketplaceResponseCache.CachedResponse> cached = cache.get(key);
+
+        if (cached.isPresent() && cached.get().isFresh(ttl, Instant.now())) {
+            cacheHits.incrementAndGet();
+            return cached.get().extensions();
+        }
+
+        try {
+            HttpResponse<String> response = post(body, cached.map(MarketplaceResponseCache.CachedResponse::etag));
+            if (response.statusCode() == 304 && cached.isPresent()) {
+                notModified.incrementAndGet();
+                cache.put(key, cached.get().revalidated());
+                return cached.get().extensions();
+            }
+            requireSuccess(response);
+
+            Set<String> listed = new HashSet<>();
+            Map<String, GalleryExtension> results = parseResponse(response.body(), vsCodeVersion, listed);
+            // The newest version of these is unusable; look further back only for them
+            List<String> retry = ids.stream()
+                .filter(id -> listed.contains(id) && !results.containsKey(id))
+                .toList();
+            if (!retry.isEmpty()) {
+                HttpResponse<String> allVersions = post(buildQuery(retry, ALL_VERSIONS_FLAGS), Optional.empty());
+                requireSuccess(allVersions);
+                results.putAll(parseResponse(allVersions.body(), vsCodeVersion, new HashSet<>()));
+            }
+
+            String etag = response.headers().firstValue("ETag").orElse(null);
+            cache.put(key, new MarketplaceResponseCache.CachedResponse(etag, Instant.now(), results));
+            logger.debug("Fetched gallery metadata for {} extension(s), {} needing all versions",
+                ids.size(), retry.size());
+            return results;
+
+        } catch (IOException e) {
+            if (cached.isPresent()) {
+                logger.warn("Gallery query failed, using cached metadata: {}", e.getMessage());
+                return cached.get().extensions();
+            }
+            throw e;
+        }
+    }
+
+    private HttpResponse<String> post(String body, Optional<String> etag) throws IOException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(galleryUrl + "/extensionquery"))
+            .timeout(Duration.ofSeconds(30))
+            .header("Content-Type", "application/json")
+            .header("Accept", API_ACCEPT)
+            .POST(HttpRequest.BodyPublishers.ofString(body));
+        etag.ifPresent(value -> request.header("If-None-Match", value));
+
+        try {
+            requests.incrementAndGet();
+            return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Gallery query interrupted", e);
+        }
+    }
+
+    private static void requireSuccess(HttpResponse<String> response) throws IOException {
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("Gallery returned HTTP " + response.statusCode());
+        }
+    }
+
+    private String buildQuery(List<String> ids, int flags) {
+        ObjectNode query = objectMapper.createObjectNode();
+        ObjectNode filter = query.putArray("filters").addObject();
+        ArrayNode criteria = filter.putArray("criteria");
+        for (String id : ids) {
+            criteria.addObject().put("filterType", FILTER_EXTENSION_NAME).put("value", id);
+        }
+        criteria.addObject().put("filterType", FILTER_TARGET).put("value", "Microsoft.VisualStudio.Code");
+        criteria.addObject().put("filterType", FILTER_EXCLUDE_WITH_FLAGS).put("value", EXCLUDE_UNPUBLISHED);
+        filter.put("pageNumber", 1);
+        filter.put("pageSize", ids.size());
+        filter.put("sortBy", 0);
+        filter.put("sortOrder", 0);
+        query.putArray("assetTypes");
+        query.put("flags", flags);
+        return query.toString();
+    }
+
+    /**
+     * Picks the newest release version per extension that applies to this
+     * platform and VS Code version; pre-releases are ignored.
+     *
+     * @param listed Receives the id of every extension in the response, usable or not
+     */
+    Map<String, GalleryExtension> parseResponse(String body, String vsCodeVersion, Set<String> listed)
+            throws IOException {
+        Map<String, GalleryExtension> results = new HashMap<>();
+        JsonNode root = objectMapper.readTree(body);
+
+        for (JsonNode result : root.path("results")) {
+            for (JsonNode extension : result.path("extensions")) {
+                String id = (extension.path("publisher").path("publisherName").asText() + "."
+                    + extension.path("extensionName").asText()).toLowerCase(Locale.ROOT);
+                listed.add(id);
+
+                for (JsonNode version : extension.path("versions")) {
+                    String platform = version.path("targetPlatform").asText(InstalledExtension.UNIVERSAL);
+                    if (isPreRelease(version)
+                            || !(platform.equals(InstalledExtension.UNIVERSAL) || platform.equals(targetPlatform))
+                            || !ExtensionVersions.isEngineCompatible(property(version, ENGINE_PROPERTY), vsCodeVersion)) {
+                        continue;
+                    }
+                    String number = version.path("version").asText();
+                    GalleryExtension current = results.get(id);
+                    if (current == null || ExtensionVersions.isNewer(number, current.version())) {
+                        results.put(id, new GalleryExtension(id, number, platform,
+                            version.hasNonNull("assetUri") ? version.get("assetUri").asText() : null));
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private static boolean isPreRelease(JsonNode version) {
+        return "true".equalsIgnoreCase(property(version, PRE_RELEASE_PROPERTY));
+    }
+
+    private static String property(JsonNode version, String key) {
+        for (JsonNode property : version.path("properties")) {
+            if (key.equals(property.path("key").asText())) {
+                return property.path("value").asText();
+            }
+        }
+        return null;
+    }
+
+    private static String cacheKey(String body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.vscode.updater.marketplace;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * On-disk cache of gallery query results, one file per query key, holding
+ * the extensions parsed from the response, its ETag and when it was last
+ * validated. Raw responses are not kept.
+ */
+public class MarketplaceResponseCache {
+    private static final Logger logger = LoggerFactory.getLogger(MarketplaceResponseCache.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private final Path directory;
+
+    /**
+     * A cached query result: the latest usable release per lower-case extension id.
+     */
+    public record CachedResponse(
+        @JsonProperty("etag") String etag,
+        @JsonProperty("validatedAt") Instant validatedAt,
+        @JsonProperty("extensions") Map<String, GalleryExtension> extensions
+    ) {
+        public boolean isFresh(Duration ttl, Instant now) {
+            return validatedAt != null && validatedAt.plus(ttl).isAfter(now);
+        }
+
+        /**
+         * Marks the response as revalidated now (e.g. after a 304).
+         */
+        public CachedResponse revalidated() {
+            return new CachedResponse(etag, Instant.now(), extensions);
+        }
+    }
+
+    public MarketplaceResponseCache(Path directory) {
+        this.directory = directory;
+    }
+
+    public Optional<CachedResponse> get(String key) {
+        Path file = directory.resolve(key + ".json");
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readValue(file.toFile(), CachedResponse.class));
+        } catch (IOException e) {
+            logger.debug("Ignoring unreadable cache entry {}: {}", file, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public void put(String key, CachedResponse response) {
+        try {
+            Files.createDirectories(directory);
+            Path file = directory.resolve(key + ".json");
+            Path temp = directory.resolve(key + ".json.tmp");
+            objectMapper.writeValue(temp.toFile(), response);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Failed to write marketplace cache entry {}: {}", key, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.vscode.updater.scheduler;
+
+import com.vscode.updater.discovery.VSCodeInstance;
+import com.vscode.updater.executor.ExtensionUpdate;
+import com.vscode.updater.inventory.ExtensionVersions;
+import com.vscode.updater.inventory.InstalledExtension;
+import com.vscode.updater.inventory.InventorySnapshot;
+import com.vscode.updater.marketplace.GalleryMetadataSource;
+import com.vscode.updater.marketplace.GalleryMetadataStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Decides which instances need an update by comparing their installed
+ * extensions against cached gallery metadata, without spawning any process.
+ * Instances are updated conservatively whenever their inventory or the
+ * metadata for one of their extensions is unknown or expired. With a
+ * {@link GalleryMetadataSource} the cache is refreshed before each plan.
+ * Latest versions are those the instance's VS Code version can run.
+ */
+public class UpdatePlanner {
+    private static final Logger logger = LoggerFactory.getLogger(UpdatePlanner.class);
+
+    private final Function<VSCodeInstance, Optional<InventorySnapshot>> inventoryLookup;
+    private final GalleryMetadataStore metadataStore;
+    private final Duration metadataMaxAge;
+    private final GalleryMetadataSource metadataSource;
+
+    /**
+     * Planning outcome for one instance.
+     */
+    public record UpdatePlan(
+        VSCodeInstance instance,
+        Decision decision,
+        int installedCount,
+        List<ExtensionUpdate> staleExtensions,
+        List<String> unknownExtensions
+    ) {
+        public enum Decision {
+            UPDATE("Outdated extensions found"),
+            UPDATE_UNKNOWN("Metadata missing, updating to be safe"),
+            SKIP("All extensions up to date");
+
+            private final String description;
+
+            Decision(String description) {
+                this.description = description;
+            }
+
+            public String getDescription() { return description; }
+        }
+
+        public boolean requiresUpdate() {
+            return decision != Decision.SKIP;
+        }
+
+        /**
+         * Gets a one-line description suitable for the update log.
+         */
+        public String getSummary() {
+            return switch (decision) {
+                case SKIP -> String.format("Skipping: all %d extension(s) up to date", installedCount);
+                case UPDATE -> String.format("%d of %d extension(s) outdated: %s", staleExtensions.size(),
+                    installedCount, staleExtensions.stream()
+                        .map(ExtensionUpdate::getDisplayLabel)
+                        .collect(Collectors.joining(", ")));
+                case UPDATE_UNKNOWN -> unknownExtensions.isEmpty()
+                    ? "Installed extensions unknown, updating to be safe"
+                    : String.format("No current metadata for %d extension(s), updating to be safe",
+                        unknownExtensions.size());
+            };
+        }
+    }
+
+    public UpdatePlanner(Function<VSCodeInstance, Optional<InventorySnapshot>> inventoryLookup,
+                         GalleryMetadataStore metadataStore,
+                         Duration metadataMaxAge) {
+        this(inventoryLookup, metadataStore, metadataMaxAge, null);
+    }
+
+    public UpdatePlanner(Function<VSCodeInstance, Optional<InventorySnapshot>> inventoryLookup,
+                         GalleryMetadataStore metadataStore,
+                         Duration metadataMaxAge,
+                         GalleryMetadataSource metadataSource) {
+        this.inventoryLookup = inventoryLookup;
+        this.metadataStore = metadataStore;
+        this.metadataMaxAge = metadataMaxAge;
+        this.metadataSource = metadataSource;
+    }
+
+    /**
+     * Plans the update of one instance.
+     */
+    public UpdatePlan plan(VSCodeInstance instance) {
+        Optional<InventorySnapshot> inventory = inventoryLookup.apply(instance);
+        if (inventory.isEmpty()) {
+            return new UpdatePlan(instance, UpdatePlan.Decision.UPDATE_UNKNOWN, 0, List.of(), List.of());
+        }
+
+        refreshMetadata(instance, inventory.get());
+        
+        List<ExtensionUpdate> stale = new ArrayList<>();
+        List<String> unknown = new ArrayList<>();
+        for (InstalledExtension extension : inventory.get().extensions()) {
+            Optional<String> latest = metadataStore.getFreshLatestVersion(extension.id(), instance.version(),
+                metadataMaxAge);
+            if (latest.isEmpty()) {
+                unknown.add(extension.id());
+            } else if (ExtensionVersions.isNewer(latest.get(), extension.version())) {
+                stale.add(new ExtensionUpdate(extension.id(), extension.version(), latest.get()));
+            }
+        }
+
+        UpdatePlan.Decision decision = !stale.isEmpty() ? UpdatePlan.Decision.UPDATE
+            : !unknown.isEmpty() ? UpdatePlan.Decision.UPDATE_UNKNOWN
+            : UpdatePlan.Decision.SKIP;
+        return new UpdatePlan(instance, decision, inventory.get().size(), List.copyOf(stale), List.copyOf(unknown));
+    }
+
+    private void refreshMetadata(VSCodeInstance instance, InventorySnapshot inventory) {
+        if (metadataSource == null || inventory.size() == 0) {
+            return;
+        }
+        try {
+            Map<String, String> installed = inventory.installedVersions();
+            Map<String, String> latest = new HashMap<>(
+                metadataSource.fetchLatestVersions(installed.keySet(), instance.version()));
+            // Extensions the gallery does not know (e.g. sideloaded) have nothing newer to offer
+            installed.forEach(latest::putIfAbsent);
+            metadataStore.recordLatestVersions(instance.version(), latest);
+            metadataStore.save();
+        } catch (IOException e) {
+            logger.warn("Could not refresh gallery metadata, planning from cache: {}", e.getMessage());
+        }
+    }
+}
@@ -9,11 +9,19 @@ import org.slf4j.LoggerFactory;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Manages automatic scheduling of VS Code extension updates.
@@ -24,9 +32,11 @@ public class UpdateScheduler {
     private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm:ss");
     
     private final ScheduledExecutorService scheduler;
-    private final Consumer<VSCodeInstance> updateCallback;
+    private final Function<VSCodeInstance, CompletableFuture<Boolean>> updateTask;
     private final Consumer<String> statusCallback;
     
+    private UpdatePlanner updatePlanner;
+    private Consumer<UpdatePlanner.UpdatePlan> planListener = plan -> { };
     private ScheduledFuture<?> currentSchedule;
     private VSCodeConfig config;
     private boolean isRunning = false;
@@ -116,9 +126,24 @@ public class UpdateScheduler {
         }
     }
     
+    /**
+     * Creates a scheduler whose update callback completes synchronously.
+     */
     public UpdateScheduler(Consumer<VSCodeInstance> updateCallback, 
                           Consumer<String> statusCallback) {
-        this.updateCallback = updateCallback;
+        this(instance -> {
+            updateCallback.accept(instance);
+            return CompletableFuture.completedFuture(true);
+        }, statusCallback);
+    }
+    
+    /**
+     * Creates a scheduler whose update task returns a future that completes
+     * with whether the update for that instance succeeded.
+     */
+    public UpdateScheduler(Function<VSCodeInstance, CompletableFuture<Boolean>> updateTask,
+                          Consumer<String> statusCallback) {
+        this.updateTask = updateTask;
         this.statusCallback = statusCallback;
         this.scheduler = Executors.newScheduledThreadPool(2, r -> {
             Thread t = new Thread(r, "UpdateScheduler");
@@ -129,6 +154,15 @@ public class UpdateScheduler {
         logger.info("Update scheduler initialized");
     }
     
+    /**
+     * Sets the planner used to skip instances with nothing to update.
+     * Without a planner every enabled instance is updated on each cycle.
+     */
+    public void setUpdatePlanner(UpdatePlanner updatePlanner, Consumer<UpdatePlanner.UpdatePlan> planListener) {
+        this.updatePlanner = updatePlanner;
+        this.planListener = planListener != null ? planListener : plan -> { };
+    }
+    
     /**
      * Starts the scheduler with the given configuration.
      */
@@ -218,36 +252,38 @@ public class UpdateScheduler {
                 return;
             }
             
+            // Leave out instances whose extensions are all known to be current
+            List<VSCodeInstance> instancesToUpdate = planUpdates(enabledInstances);
+            if (instancesToUpdate.isEmpty()) {
+                logger.info("Skipping scheduled update - no outdated extensions in {} instance(s)", 
+                    enabledInstances.size());
+                updateStatus("Skipped - nothing outdated");
+                calculateNextUpdateTime();
+                return;
+            }
+            
             lastUpdateTime = LocalDateTime.now();
             
             // Perform updates with concurrency limit
-            int maxConcurrent = Math.min(scheduleConfig.maxConcurrentUpdates(), enabledInstances.size());
-            logger.info("Updating {} enabled instance(s) with max concurrency {}", 
-                enabledInstances.size(), maxConcurrent);
-            
-            // Simple sequential updates for now (can be enhanced to true concurrency)
-            int updated = 0;
-            for (VSCodeInstance instance : enabledInstances) {
-                if (updated >= maxConcurrent) {
-                    logger.info("Reached concurrent update limit, queueing remaining updates");
-                    break;
-                }
-                
-                try {
-                    logger.info("Scheduled update for: {}", instance.displayName());
-                    updateCallback.accept(instance);
-                    updated++;
-                } catch (Exception e) {
-                    logger.error("Failed to update {} during scheduled cycle: {}", 
-                        instance.displayName(), e.getMessage());
-                }
+            int maxConcurrent = Math.min(scheduleConfig.maxConcurrentUpdates(), instancesToUpdate.size());
+            if (config.concurrency() != null && config.concurrency().updateInstancesSequentially()) {
+                maxConcurrent = 1;
             }
+            logger.info("Updating {} of {} enabled instance(s) with max concurrency {}", 
+                instancesToUpdate.size(), enabledInstances.size(), maxConcurrent);
+            
+            CycleResult result = runUpdateCycle(instancesToUpdate, maxConcurrent);
             
-            updateStatus(String.format("Updated %d instance(s)", updated));
+            updateStatus(result.getSummary());
             calculateNextUpdateTime();
             
-            logger.info("Scheduled update cycle completed. Updated {} instance(s)", updated);
+            logger.info("Scheduled update cycle completed. Updated {} instance(s), {} failed", 
+                result.updated(), result.failed());
             
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Scheduled update cycle interrupted");
+            updateStatus("Interrupted");
         } catch (Exception e) {
             logger.error("Error during scheduled update cycle", e);
             updateStatus("Error: " + e.getMessage());
@@ -255,6 +291,98 @@ public class UpdateScheduler {
         }
     }
     
+    /**
+     * Plans each instance and returns those that need an update.
+     */
+    private List<VSCodeInstance> planUpdates(List<VSCodeInstance> instances) {
+        if (updatePlanner == null) {
+            return instances;
+        }
+        
+        List<VSCodeInstance> toUpdate = new ArrayList<>();
+        for (VSCodeInstance instance : instances) {
+            UpdatePlanner.UpdatePlan plan = updatePlanner.plan(instance);
+            planListener.accept(plan);
+            if (plan.requiresUpdate()) {
+                logger.info("Update plan for {}: {}", instance.displayName(), plan.getSummary());
+                toUpdate.add(instance);
+            } else {
+                logger.debug("Update plan for {}: {}", instance.displayName(), plan.getSummary());
+            }
+        }
+        return toUpdate;
+    }
+    
+    /**
+     * Drains every instance through a permit-gated work queue and waits until
+     * all started updates have completed.
+     * 
+     * @return counts of instances whose update succeeded and failed
+     */
+    private CycleResult runUpdateCycle(List<VSCodeInstance> instances, int maxConcurrent) 
+            throws InterruptedException {
+        Queue<VSCodeInstance> workQueue = new ConcurrentLinkedQueue<>(instances);
+        Semaphore permits = new Semaphore(maxConcurrent);
+        List<CompletableFuture<?>> inFlight = new ArrayList<>();
+        AtomicInteger updated = new AtomicInteger(0);
+        AtomicInteger failed = new AtomicInteger(0);
+        
+        VSCodeInstance instance;
+        while ((instance = workQueue.poll()) != null) {
+            permits.acquire();
+            
+            CompletableFuture<Boolean> future;
+            try {
+                logger.info("Scheduled update for: {} ({} queued)", instance.displayName(), workQueue.size());
+                future = updateTask.apply(instance);
+            } catch (Exception e) {
+                permits.release();
+                failed.incrementAndGet();
+                logger.error("Failed to update {} during scheduled cycle: {}", 
+                    instance.displayName(), e.getMessage());
+                continue;
+            }
+            
+            if (future == null) {
+                future = CompletableFuture.completedFuture(true);
+            }
+            
+            VSCodeInstance current = instance;
+            inFlight.add(future.whenComplete((result, throwable) -> {
+                permits.release();
+                if (throwable != null) {
+                    failed.incrementAndGet();
+                    logger.error("Failed to update {} during scheduled cycle: {}", 
+                        current.displayName(), throwable.getMessage());
+                } else if (Boolean.TRUE.equals(result)) {
+                    updated.incrementAndGet();
+                } else {
+                    failed.incrementAndGet();
+                    logger.warn("Update of {} did not succeed during scheduled cycle", current.displayName());
+                }
+            }));
+        }
+        
+        // Wait for the slowest instance; individual failures are already logged
+        CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new))
+            .exceptionally(throwable -> null)
+            .join();
+        
+        return new CycleResult(updated.get(), failed.get());
+    }
+    
+    /**
+     * Outcome of one scheduled update cycle.
+     */
+    record CycleResult(int updated, int failed) {
+        String getSummary() {
+            if (failed == 0) {
+                return String.format("Updated %d instance(s)", updated);
+            }
+            return String.format("Updated %d instance(s), %d failed", updated, failed);
+        }
+    }
+    
     private boolean wasRecentlyUpdated(ScheduleConfig scheduleConfig) {
         if (lastUpdateTime == null) {
             return false;
@@ -6,6 +6,7 @@ import org.slf4j.LoggerFactory;
 
 import java.awt.*;
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * Builds dynamic tray menus for multi-instance VS Code support.
@@ -39,6 +40,34 @@ public class MultiInstanceMenuBuilder {
                                     String schedulerStatus,
                                     boolean schedulerRunning,
                                     MenuActionHandler handler) {
+        return buildMenu(instances, lastUpdateSummary, schedulerStatus, schedulerRunning, instance -> null, handler);
+    }
+    
+    /**
+     * Builds a dynamic popup menu, adding an inventory line (e.g. installed and
+     * stale extension counts) to each instance that has one.
+     */
+    public static PopupMenu buildMenu(List<VSCodeInstance> instances, 
+                                    String lastUpdateSummary,
+                                    String schedulerStatus,
+                                    boolean schedulerRunning,
+                                    Function<VSCodeInstance, String> inventorySummary,
+                                    MenuActionHandler handler) {
+        return buildMenu(instances, lastUpdateSummary, schedulerStatus, schedulerRunning, inventorySummary,
+            instance -> null, handler);
+    }
+    
+    /**
+     * Builds a dynamic popup menu with inventory and update prefetch lines
+     * for each instance that has them.
+     */
+    public static PopupMenu buildMenu(List<VSCodeInstance> instances, 
+                                    String lastUpdateSummary,
+                                    String schedulerStatus,
+                                    boolean schedulerRunning,
+                                    Function<VSCodeInstance, String> inventorySummary,
+                                    Function<VSCodeInstance, String> prefetchSummary,
+                                    MenuActionHandler handler) {
         PopupMenu menu = new PopupMenu();
         
         // Header with status
@@ -73,7 +102,8 @@ public class MultiInstanceMenuBuilder {
             
             // Add menu items for each instance
             for (VSCodeInstance instance : instances) {
-                Menu instanceMenu = createInstanceMenu(instance, handler);
+                Menu instanceMenu = createInstanceMenu(instance, inventorySummary.apply(instance),
+                    prefetchSummary.apply(instance), handler);
                 menu.add(instanceMenu);
             }
             
@@ -118,7 +148,8 @@ public class MultiInstanceMenuBuilder {
         return menu;
     }
     
-    private static Menu createInstanceMenu(VSCodeInstance instance, MenuActionHandler handler) {
+    private static Menu createInstanceMenu(VSCodeInstance instance, String inventorySummary,
+                                           String prefetchSummary, MenuActionHandler handler) {
         String menuTitle = String.format("%s %s %s", 
             instance.enabled() ? "✅" : "❌",
             instance.edition().getDisplayName(),
@@ -161,6 +192,18 @@ public class MultiInstanceMenuBuilder {
         statusItem.setEnabled(false);
         instanceMenu.add(statusItem);
         
+        if (inventorySummary != null) {
+            MenuItem inventoryItem = new MenuItem("🧩 " + inventorySummary);
+            inventoryItem.setEnabled(false);
+            instanceMenu.add(inventoryItem);
+        }
+        
+        if (prefetchSummary != null) {
+            MenuItem prefetchItem = new MenuItem("📦 " + prefetchSummary);
+            prefetchItem.setEnabled(false);
+            instanceMenu.add(prefetchItem);
+        }
+        
         return instanceMenu;
     }
     
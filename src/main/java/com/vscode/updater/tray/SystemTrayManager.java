@@ -3,13 +3,33 @@ package com.vscode.updater.tray;
 import com.vscode.updater.config.VSCodeConfig;
 import com.vscode.updater.config.ConfigManager;
 import com.vscode.updater.discovery.VSCodeInstance;
+import com.vscode.updater.executor.BandwidthLimiter;
 import com.vscode.updater.executor.CommandExecutor;
+import com.vscode.updater.executor.CommandRuntime;
+import com.vscode.updater.executor.ExecutorStrategy;
+import com.vscode.updater.executor.GranularUpdateOptions;
+import com.vscode.updater.executor.OutdatedExtensionResolver;
+import com.vscode.updater.executor.SegmentedDownloader;
+import com.vscode.updater.executor.VsixProvider;
 import com.vscode.updater.gui.AboutDialog;
 import com.vscode.updater.gui.LogViewerWindow;
 import com.vscode.updater.gui.SettingsWindow;
+import com.vscode.updater.inventory.HardlinkDeduplicator;
+import com.vscode.updater.inventory.InventoryIndex;
+import com.vscode.updater.inventory.InventoryRegistry;
+import com.vscode.updater.inventory.ObsoleteExtensionCollector;
 import com.vscode.updater.logging.LogManager;
+import com.vscode.updater.marketplace.GalleryMetadataStore;
+import com.vscode.updater.marketplace.MarketplaceClient;
+import com.vscode.updater.scheduler.UpdatePlanner;
 import com.vscode.updater.scheduler.UpdateScheduler;
 import com.vscode.updater.util.ProcessUtils;
+import com.vscode.updater.vsix.CachingVsixProvider;
+import com.vscode.updater.vsix.PeerCacheClient;
+import com.vscode.updater.vsix.PeerCacheServer;
+import com.vscode.updater.vsix.VsixCache;
+import com.vscode.updater.vsix.VsixMirror;
+import com.vscode.updater.vsix.VsixPrefetcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,11 +40,22 @@ import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Enhanced system tray manager with multi-instance VS Code support.
@@ -35,13 +66,31 @@ public class SystemTrayManager implements MultiInstanceMenuBuilder.MenuActionHan
     private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("MMM dd, HH:mm");
     
     private final ConfigManager configManager;
-    private final LogViewerWindow logViewer;
+    private final Object logViewerLock = new Object();
+    private final List<String> pendingLogLines = new ArrayList<>();
+    private LogViewerWindow logViewer;
     private final LogManager logManager;
     private final AtomicInteger runningUpdates;
     private final UpdateScheduler scheduler;
-    private final SettingsWindow settingsWindow;
+    private SettingsWindow settingsWindow;
+    private final InventoryRegistry inventory;
+    private final GalleryMetadataStore galleryMetadata;
+    private final MarketplaceClient marketplace;
+    private final VsixCache vsixCache;
+    private final BandwidthLimiter scheduledBandwidth;
+    private final BandwidthLimiter manualBandwidth;
+    private final VsixProvider scheduledVsixProvider;
+    private final VsixProvider manualVsixProvider;
+    private final VsixProvider localVsixProvider;
+    private final VsixPrefetcher prefetcher;
+    private volatile VsixMirror mirror;
+    private final PeerCacheClient peerClient;
+    private final HardlinkDeduplicator deduplicator;
+    private PeerCacheServer peerServer;
     
-    private VSCodeConfig config;
+    private volatile VSCodeConfig config;
+    private final Object commandRuntimeLock = new Object();
+    private CommandRuntime commandRuntime;
     private SystemTray systemTray;
     private TrayIcon trayIcon;
     
@@ -50,38 +99,193 @@ public class SystemTrayManager implements MultiInstanceMenuBuilder.MenuActionHan
     private String lastUpdateSummary = "";
     private String schedulerStatus = "Disabled";
     
+    /**
+     * Shows the tray icon for the given configuration. Windows are built on
+     * first use or by {@link #prepareWindows()}; watchers, the scheduler and
+     * other background work wait for {@link #startBackgroundServices()}.
+     */
     public SystemTrayManager(VSCodeConfig initialConfig, ConfigManager configManager) {
+        this(initialConfig, configManager, true);
+    }
+    
+    /**
+     * Creates the tray manager. Without {@code requireTray}, a desktop with no
+     * tray (e.g. a virtual display for class-data-sharing training) still gets
+     * the menu built, just not shown.
+     */
+    public SystemTrayManager(VSCodeConfig initialConfig, ConfigManager configManager, boolean requireTray) {
         this.config = initialConfig;
         this.configManager = configManager;
-        this.logViewer = new LogViewerWindow();
         this.logManager = new LogManager();
         this.runningUpdates = new AtomicInteger(0);
+        this.commandRuntime = ExecutorStrategy.createRuntime(config.concurrency());
+        
+        // Watch extension directories so menus can show inventory without spawning the CLI
+        this.inventory = new InventoryRegistry(index -> SwingUtilities.invokeLater(this::onInventoryChanged));
+        this.galleryMetadata = GalleryMetadataStore.load(
+            configManager.getConfigDirectory().resolve(GalleryMetadataStore.FILE_NAME));
+        config.vsCodeInstances().forEach(instance -> inventory.updateLatestVersions(instance,
+            galleryMetadata.getFreshLatestVersions(instance.version(), GalleryMetadataStore.DEFAULT_MAX_AGE)));
+        this.marketplace = MarketplaceClient.create(configManager.getConfigDirectory());
+        this.mirror = openMirror(config);
+        this.vsixCache = openVsixCache(configManager, config);
+        this.deduplicator = HardlinkDeduplicator.load(
+            configManager.getConfigDirectory().resolve(HardlinkDeduplicator.FILE_NAME));
+        
+        // Scheduled and tray-triggered downloads are paced separately
+        VSCodeConfig.BandwidthConfig bandwidth = config.bandwidth();
+        this.scheduledBandwidth = new BandwidthLimiter(bandwidth.getScheduledBytesPerSecond(), bandwidth.getBurstBytes());
+        this.manualBandwidth = new BandwidthLimiter(bandwidth.getManualBytesPerSecond(), bandwidth.getBurstBytes());
+        this.peerClient = new PeerCacheClient(PeerCacheClient.parsePeers(config.peers().peers()));
+        if (vsixCache != null) {
+            CachingVsixProvider provider = new CachingVsixProvider(vsixCache, SegmentedDownloader.create())
+                .withPeers(peerClient);
+            this.scheduledVsixProvider = provider.withLimiter(scheduledBandwidth);
+            this.manualVsixProvider = provider.withLimiter(manualBandwidth);
+            this.localVsixProvider = provider.localOnly();
+            // Background downloads count against the scheduled budget
+            this.prefetcher = new VsixPrefetcher(scheduledVsixProvider,
+                instance -> marketplace.asResolver(instance.version()),
+                instance -> SwingUtilities.invokeLater(this::updateTrayMenu));
+        } else {
+            this.scheduledVsixProvider = VsixProvider.NONE;
+            this.manualVsixProvider = VsixProvider.NONE;
+            this.localVsixProvider = VsixProvider.NONE;
+            this.prefetcher = null;
+        }
         
         // Initialize scheduler with callbacks
         this.scheduler = new UpdateScheduler(
             this::handleScheduledUpdate,
             this::updateSchedulerStatus
         );
+        scheduler.setUpdatePlanner(new UpdatePlanner(
+            instance -> inventory.get(instance).map(InventoryIndex::snapshot),
+            galleryMetadata, GalleryMetadataStore.DEFAULT_MAX_AGE, this::fetchLatestVersions), this::logUpdatePlan);
         
-        // Initialize settings window
-        this.settingsWindow = new SettingsWindow(config, this::handleConfigUpdate);
-        
-        if (!SystemTray.isSupported()) {
+        boolean traySupported = SystemTray.isSupported();
+        if (!traySupported && requireTray) {
             throw new UnsupportedOperationException("System tray is not supported on this platform");
         }
         
         setupLogManager();
-        initializeSystemTray();
+        if (traySupported) {
+            initializeSystemTray();
+        } else {
+            logger.warn("System tray is not supported, building the menu without showing it");
+        }
         updateTrayMenu();
-        
-        // Start scheduler with current config
+    }
+    
+    /**
+     * Starts the work that does not need to delay the tray icon: extension
+     * directory watchers, the scheduler, the peer server and prefetching.
+     */
+    public void startBackgroundServices() {
+        inventory.sync(config.vsCodeInstances());
         scheduler.start(config);
+        updatePeerServer(config.peers());
+        schedulePrefetch();
+    }
+    
+    /**
+     * Applies freshly detected instances to the menu and the watchers.
+     * Call on the event dispatch thread.
+     */
+    public void applyDetectedInstances(VSCodeConfig detectedConfig) {
+        updateConfig(detectedConfig);
+        inventory.sync(detectedConfig.vsCodeInstances());
+        if (settingsWindow != null) {
+            settingsWindow.updateConfig(detectedConfig);
+        }
+    }
+    
+    /**
+     * Builds the log viewer and settings windows ahead of first use.
+     * Call on the event dispatch thread.
+     */
+    public void prepareWindows() {
+        getLogViewer();
+        getSettingsWindow();
+    }
+    
+    private LogViewerWindow getLogViewer() {
+        synchronized (logViewerLock) {
+            if (logViewer == null) {
+                logViewer = new LogViewerWindow();
+                // Lines logged before the window existed
+                pendingLogLines.forEach(logViewer::appendLog);
+                pendingLogLines.clear();
+            }
+            return logViewer;
+        }
+    }
+    
+    private SettingsWindow getSettingsWindow() {
+        if (settingsWindow == null) {
+            settingsWindow = new SettingsWindow(config, this::handleConfigUpdate);
+            settingsWindow.setBandwidthLimiters(scheduledBandwidth, manualBandwidth);
+        }
+        return settingsWindow;
+    }
+    
+    /**
+     * Starts, restarts or stops serving the VSIX cache to peers to match the settings.
+     */
+    private void updatePeerServer(VSCodeConfig.PeerConfig peers) {
+        boolean serve = peers.serveEnabled() && vsixCache != null;
+        if (peerServer != null && (!serve || peerServer.getPort() != peers.servePort())) {
+            peerServer.close();
+            peerServer = null;
+        }
+        if (serve && peerServer == null) {
+            try {
+                peerServer = PeerCacheServer.start(vsixCache, new InetSocketAddress(peers.servePort()));
+            } catch (IOException e) {
+                logger.warn("Cannot serve VSIX cache on port {}: {}", peers.servePort(), e.getMessage());
+            }
+        }
+    }
+    
+    private static VsixMirror openMirror(VSCodeConfig config) {
+        if (!config.mirror().enabled()) {
+            return null;
+        }
+        logger.info("Mirror mode: resolving updates from {} only", config.mirror().directory());
+        return new VsixMirror(Path.of(config.mirror().directory()), MarketplaceClient.detectTargetPlatform());
+    }
+    
+    /**
+     * Gets the latest versions from the mirror in mirror mode, from the gallery otherwise.
+     */
+    private Map<String, String> fetchLatestVersions(Collection<String> extensionIds, String vsCodeVersion)
+            throws IOException {
+        VsixMirror currentMirror = mirror;
+        return currentMirror != null
+            ? currentMirror.fetchLatestVersions(extensionIds, vsCodeVersion)
+            : marketplace.fetchLatestVersions(extensionIds, vsCodeVersion);
+    }
+    
+    private static VsixCache openVsixCache(ConfigManager configManager, VSCodeConfig config) {
+        try {
+            return VsixCache.open(configManager.getConfigDirectory().resolve(VsixCache.DIRECTORY),
+                config.cache().getVsixCacheMaxBytes());
+        } catch (IOException e) {
+            logger.warn("VSIX cache unavailable, extensions will be downloaded by the CLI: {}", e.getMessage());
+            return null;
+        }
     }
     
     private void setupLogManager() {
         // Connect log manager to log viewer
         logManager.addGlobalConsumer(entry -> {
-            logViewer.appendLog(entry.getFormattedMessage());
+            synchronized (logViewerLock) {
+                if (logViewer != null) {
+                    logViewer.appendLog(entry.getFormattedMessage());
+                } else {
+                    pendingLogLines.add(entry.getFormattedMessage());
+                }
+            }
         });
         
         // Add initial welcome message
@@ -124,12 +328,51 @@ public class SystemTrayManager implements MultiInstanceMenuBuilder.MenuActionHan
             lastUpdateSummary,
             schedulerStatus.getStatusSummary(),
             schedulerStatus.isRunning(),
+            this::describeInventory,
+            this::describePrefetch,
             this
         );
-        trayIcon.setPopupMenu(menu);
+        if (trayIcon != null) {
+            trayIcon.setPopupMenu(menu);
+        }
         updateTrayTooltip();
     }
     
+    private String describeInventory(VSCodeInstance instance) {
+        return inventory.get(instance)
+            .map(index -> index.staleCount() > 0
+                ? String.format("%d extensions, %d outdated", index.size(), index.staleCount())
+                : String.format("%d extensions", index.size()))
+            .orElse(null);
+    }
+    
+    private String describePrefetch(VSCodeInstance instance) {
+        return prefetcher != null ? prefetcher.getStatus(instance).describe() : null;
+    }
+    
+    private void onInventoryChanged() {
+        schedulePrefetch();
+        updateTrayMenu();
+    }
+    
+    /**
+     * Starts downloading newer packages for instances with outdated extensions.
+     */
+    private void schedulePrefetch() {
+        if (prefetcher == null || !config.cache().vsixCacheEnabled() || mirror != null) {
+            return;
+        }
+        for (VSCodeInstance instance : config.getEnabledInstances()) {
+            inventory.get(instance).ifPresent(index -> {
+                Map<String, String> outdated = new HashMap<>();
+                for (String id : index.staleExtensions()) {
+                    index.installedVersion(id).ifPresent(version -> outdated.put(id, version));
+                }
+                prefetcher.prefetch(instance, outdated);
+            });
+        }
+    }
+    
     private void updateTrayTooltip() {
         int totalInstances = config.vsCodeInstances().size();
         int enabledInstances = config.getEnabledInstances().size();
@@ -142,7 +385,9 @@ public class SystemTrayManager implements MultiInstanceMenuBuilder.MenuActionHan
             tooltip += String.format(" (%d updating)", runningCount);
         }
         
-        trayIcon.setToolTip(tooltip);
+        if (trayIcon != null) {
+            trayIcon.setToolTip(tooltip);
+        }
     }
     
     // Implementation of MenuActionHandler interface
@@ -156,7 +401,7 @@ public class SystemTrayManager implements MultiInstanceMenuBuilder.MenuActionHan
             return;
         }
         
-        runSingleInstanceUpdate(instance);
+        runSingleInstanceUpdate(instance, manualVsixProvider);
     }
     
     @Override
@@ -196,6 +441,7 @@ public class SystemTrayManager implements MultiInstanceMenuBuilder.MenuActionHan
         
         SwingUtilities.invokeLater(() -> {
             config = configManager.refreshDetection(config);
+            inventory.sync(config.vsCodeInstances());
             updateTrayMenu();
             
             int detected = config.vsCodeInstances().size();
@@ -233,7 +479,8 @@ public class SystemTrayManager implements MultiInstanceMenuBuilder.MenuActionHan
         scheduler.triggerImmediateUpdate();
     }
     
-    private void runSingleInstanceUpdate(VSCodeInstance instance) {
+    private CompletableFuture<CommandExecutor.ExecutionResult> runSingleInstanceUpdate(
+            VSCodeInstance instance, VsixProvider vsixProvider) {
         runningUpdates.incrementAndGet();
         updateTrayMenu();
         
@@ -249,8 +496,8 @@ public class SystemTrayManager implements MultiInstanceMenuBuilder.MenuActionHan
         };
         
         // Run command asynchronously
-        CommandExecutor.updateExtensionsAsync(instance.executablePath(), 
-            config.commandTimeoutSeconds(), outputConsumer)
+        return runCommand(runtime -> separateLinkedExtensions(instance, session, runtime)
+            .thenCompose(ignored -> startExtensionUpdate(instance, vsixProvider, outputConsumer, runtime)))
         .whenComplete((result, throwable) -> {
             SwingUtilities.invokeLater(() -> {
                 handleUpdateCompletion(instance, session, result, throwable);
@@ -258,6 +505,50 @@ public class SystemTrayManager implements MultiInstanceMenuBuilder.MenuActionHan
         });
     }
     
+    /**
+     * Runs a command on the current command runtime. The runtime stays usable
+     * until the command completes, even if a settings change replaces it.
+     */
+    private <T> CompletableFuture<T> runCommand(Function<CommandRuntime, CompletableFuture<T>> command) {
+        synchronized (commandRuntimeLock) {
+            CommandRuntime runtime = commandRuntime;
+            return runtime.track(() -> command.apply(runtime));
+        }
+    }
+    
+    /**
+     * Starts an extension update using the configured update mode.
+     */
+    private CompletableFuture<CommandExecutor.ExecutionResult> startExtensionUpdate(
+            VSCodeInstance instance, VsixProvider vsixProvider, Consumer<String> outputConsumer,
+            CommandRuntime runtime) {
+        // The mirror is the only source in mirror mode, whatever the update mode
+        VsixMirror currentMirror = mirror;
+        if (currentMirror != null) {
+            return CommandExecutor.updateExtensionsGranularAsync(instance, config.commandTimeoutSeconds(),
+                granularOptions(currentMirror.asResolver(), currentMirror), outputConsumer, runtime);
+        }
+        
+        if (config.updates().mode() == VSCodeConfig.UpdateConfig.UpdateMode.GRANULAR) {
+            return CommandExecutor.updateExtensionsGranularAsync(instance, config.commandTimeoutSeconds(),
+                granularOptions(marketplace.asResolver(instance.version()),
+                    config.cache().vsixCacheEnabled() ? vsixProvider : VsixProvider.NONE),
+                outputConsumer, runtime);
+        }
+        
+        return CommandExecutor.updateExtensionsAsync(instance.executablePath(), 
+            config.commandTimeoutSeconds(), outputConsumer, runtime);
+    }
+    
+    /**
+     * Builds granular update options from the configured batching, parallelism and install mode.
+     */
+    private GranularUpdateOptions granularOptions(OutdatedExtensionResolver resolver, VsixProvider vsixProvider) {
+        VSCodeConfig.UpdateConfig updates = config.updates();
+        return new GranularUpdateOptions(resolver, vsixProvider, updates.directInstall(), updates.batchSize(),
+            updates.granularParallelism());
+    }
+    
     private void runUpdateAndOpenInstance(VSCodeInstance instance) {
         runningUpdates.incrementAndGet();
         updateTrayMenu();
@@ -273,9 +564,28 @@ public class SystemTrayManager implements MultiInstanceMenuBuilder.MenuActionHan
             session.addEntry(LogManager.LogLevel.INFO, line, line);
         };
         
+        // Install prefetched packages from disk when all of them are ready
+        VsixMirror currentMirror = mirror;
+        boolean prefetched = currentMirror == null && prefetcher != null && config.cache().vsixCacheEnabled()
+            && prefetcher.getStatus(instance).isReady();
+        CompletableFuture<CommandExecutor.UpdateAndLaunchResult> updateAndLaunch = runCommand(runtime -> {
+            CompletableFuture<Void> separated = separateLinkedExtensions(instance, session, runtime);
+            if (currentMirror != null) {
+                return separated.thenCompose(ignored -> CommandExecutor.updateAndLaunchAsync(instance,
+                    config.commandTimeoutSeconds(), granularOptions(currentMirror.asResolver(), currentMirror),
+                    outputConsumer, runtime));
+            } else if (prefetched) {
+                session.addEntry(LogManager.LogLevel.INFO, "Installing prefetched updates from the local cache", "");
+                return separated.thenCompose(ignored -> CommandExecutor.updateAndLaunchAsync(instance,
+                    config.commandTimeoutSeconds(), granularOptions(prefetcher.asResolver(instance), localVsixProvider),
+                    outputConsumer, runtime));
+            }
+            return separated.thenCompose(ignored -> CommandExecutor.updateAndLaunchAsync(
+                instance.executablePath(), config.commandTimeoutSeconds(), outputConsumer, runtime));
+        });
+        
         // Run update and open command asynchronously
-        CommandExecutor.updateAndLaunchAsync(instance.executablePath(), 
-            config.commandTimeoutSeconds(), outputConsumer)
+        updateAndLaunch
         .whenComplete((result, throwable) -> {
             SwingUtilities.invokeLater(() -> {
                 handleUpdateAndOpenCompletion(instance, session, result, throwable);
@@ -283,6 +593,19 @@ public class SystemTrayManager implements MultiInstanceMenuBuilder.MenuActionHan
         });
     }
     
+    private void logUpdatePlan(UpdatePlanner.UpdatePlan plan) {
+        // Skips happen for every instance on every tick; only planned updates get a log session
+        if (plan.requiresUpdate()) {
+            LogManager.LogSession session = logManager.createSession(plan.instance());
+            session.addEntry(LogManager.LogLevel.INFO, "Update plan: " + plan.getSummary(), "");
+        } else {
+            logger.debug("Update plan for {}: {}", plan.instance().displayName(), plan.getSummary());
+        }
+        inventory.updateLatestVersions(plan.instance(), galleryMetadata.getFreshLatestVersions(
+            plan.instance().version(), GalleryMetadataStore.DEFAULT_MAX_AGE));
+        SwingUtilities.invokeLater(this::schedulePrefetch);
+    }
+    
     private void handleUpdateCompletion(VSCodeInstance instance, LogManager.LogSession session,
                                       CommandExecutor.ExecutionResult result, Throwable throwable) {
         runningUpdates.decrementAndGet();
@@ -297,11 +620,18 @@ public class SystemTrayManager implements MultiInstanceMenuBuilder.MenuActionHan
             success = false;
             session.addEntry(LogManager.LogLevel.ERROR, "Update failed: " + throwable.getMessage(), "");
         } else if (result.success()) {
+            logExtensionOutcomes(session, result);
             logger.info("Update completed successfully for {}: {}", instance.displayName(), result.summary());
             status = "Success";
             success = true;
             session.addEntry(LogManager.LogLevel.INFO, "Update completed successfully", "");
+            // Runs on the EDT; the cleanup walks and deletes folders, so it goes to the executor
+            runCommand(runtime -> CompletableFuture.runAsync(() -> {
+                collectObsoleteExtensions(instance, session);
+                deduplicateExtensions(instance, session);
+            }, runtime.executor()));
         } else {
+            logExtensionOutcomes(session, result);
             logger.warn("Update failed for {}: {}", instance.displayName(), result.summary());
             status = "Failed";
             success = false;
@@ -328,6 +658,81 @@ public class SystemTrayManager implements MultiInstanceMenuBuilder.MenuActionHan
         session.addEntry(LogManager.LogLevel.INFO, "=== Update session completed ===", "");
     }
     
+    /**
+     * Deletes extension folders left behind by the update, or only reports
+     * them in dry-run mode. Nothing is deleted while an install sharing the
+     * extensions directory is running, as open windows may still load the
+     * old versions; a later update collects them.
+     */
+    private void collectObsoleteExtensions(VSCodeInstance instance, LogManager.LogSession session) {
+        VSCodeConfig.MaintenanceConfig maintenance = config.maintenance();
+        if (!maintenance.collectObsoleteExtensions()) {
+            return;
+        }
+        Path extensionsDirectory = instance.getExtensionsDirectory();
+        if (!maintenance.dryRun() && config.getEnabledInstances().stream()
+                .filter(other -> other.getExtensionsDirectory().equals(extensionsDirectory))
+                .anyMatch(other -> ProcessUtils.isVSCodeRunning(other.executablePath()))) {
+            logger.info("Skipping cleanup of {} while VS Code is running", extensionsDirectory);
+            session.addEntry(LogManager.LogLevel.INFO,
+                "Skipped cleanup of obsolete extensions while VS Code is running", "");
+            return;
+        }
+        try {
+            ObsoleteExtensionCollector.CollectionResult collection = ObsoleteExtensionCollector.collect(
+                extensionsDirectory, maintenance.dryRun());
+            session.addEntry(collection.failedFolders().isEmpty() ? LogManager.LogLevel.INFO : LogManager.LogLevel.WARN,
+                collection.getSummary(), "");
+        } catch (RuntimeException e) {
+            logger.warn("Cleanup of obsolete extensions failed for {}: {}", instance.displayName(), e.getMessage());
+            session.addEntry(LogManager.LogLevel.WARN, "Cleanup of obsolete extensions failed: " + e.getMessage(), "");
+        }
+    }
+    
+    /**
+     * Links files of the updated instance's extensions that are identical in
+     * the other instances' extensions directories.
+     */
+    private void deduplicateExtensions(VSCodeInstance instance, LogManager.LogSession session) {
+        if (!config.maintenance().deduplicateExtensions()) {
+            return;
+        }
+        Path primary = instance.getExtensionsDirectory();
+        Set<Path> others = config.getEnabledInstances().stream()
+            .map(VSCodeInstance::getExtensionsDirectory)
+            .filter(directory -> !directory.equals(primary))
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+        for (Path secondary : others) {
+            HardlinkDeduplicator.DedupResult result = deduplicator.deduplicate(primary, secondary);
+            if (result.foldersCompared() > 0) {
+                session.addEntry(LogManager.LogLevel.INFO, result.getSummary(), "");
+            }
+        }
+    }
+    
+    /**
+     * Gives linked extension files their own copies before an update, so
+     * changes to one instance's extensions cannot reach another instance.
+     */
+    private CompletableFuture<Void> separateLinkedExtensions(VSCodeInstance instance, LogManager.LogSession session,
+                                                            CommandRuntime runtime) {
+        if (!deduplicator.hasLinks(instance.getExtensionsDirectory())) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> {
+            HardlinkDeduplicator.UndoResult result = deduplicator.undo(instance.getExtensionsDirectory());
+            session.addEntry(result.failures() == 0 ? LogManager.LogLevel.INFO : LogManager.LogLevel.WARN,
+                result.getSummary(), "");
+        }, runtime.executor());
+    }
+    
+    private void logExtensionOutcomes(LogManager.LogSession session, CommandExecutor.ExecutionResult result) {
+        for (CommandExecutor.ExtensionOutcome outcome : result.extensionOutcomes()) {
+            session.addEntry(outcome.success() ? LogManager.LogLevel.INFO : LogManager.LogLevel.ERROR,
+                String.format("%s: %s (%s)", outcome.extensionId(), outcome.status(), outcome.message()), "");
+        }
+    }
+    
     private void handleUpdateAndOpenCompletion(VSCodeInstance instance, LogManager.LogSession session,
                                              CommandExecutor.UpdateAndLaunchResult result, Throwable throwable) {
         runningUpdates.decrementAndGet();
@@ -507,7 +912,7 @@ public class SystemTrayManager implements MultiInstanceMenuBuilder.MenuActionHan
         logger.info("Showing log viewer window");
         SwingUtilities.invokeLater(() -> {
             try {
-                logViewer.showWindow();
+                getLogViewer().showWindow();
                 logger.debug("Log viewer window should now be visible");
             } catch (Exception e) {
                 logger.error("Failed to show log viewer", e);
@@ -534,7 +939,7 @@ public class SystemTrayManager implements MultiInstanceMenuBuilder.MenuActionHan
     }
     
     private void showNotification(String title, String message) {
-        if (config.showNotifications()) {
+        if (config.showNotifications() && trayIcon != null) {
             trayIcon.displayMessage(title, message, TrayIcon.MessageType.INFO);
         }
     }
@@ -544,13 +949,29 @@ public class SystemTrayManager implements MultiInstanceMenuBuilder.MenuActionHan
         
         // Shutdown scheduler first
         scheduler.shutdown();
+        synchronized (commandRuntimeLock) {
+            commandRuntime.executor().shutdownNow();
+        }
+        inventory.close();
+        if (prefetcher != null) {
+            prefetcher.close();
+        }
+        if (peerServer != null) {
+            peerServer.close();
+        }
         
         // Hide windows
-        logViewer.setVisible(false);
-        settingsWindow.setVisible(false);
+        if (logViewer != null) {
+            logViewer.setVisible(false);
+        }
+        if (settingsWindow != null) {
+            settingsWindow.setVisible(false);
+        }
         
         // Remove tray icon
-        systemTray.remove(trayIcon);
+        if (trayIcon != null) {
+            systemTray.remove(trayIcon);
+        }
         
         // Exit application
         System.exit(0);
@@ -576,7 +997,9 @@ public class SystemTrayManager implements MultiInstanceMenuBuilder.MenuActionHan
      * Updates the tray icon based on current state.
      */
     public void updateTrayIcon() {
-        trayIcon.setImage(createTrayIcon());
+        if (trayIcon != null) {
+            trayIcon.setImage(createTrayIcon());
+        }
         updateTrayTooltip();
     }
     
@@ -589,9 +1012,12 @@ public class SystemTrayManager implements MultiInstanceMenuBuilder.MenuActionHan
     
     // Milestone 3: Scheduling integration methods
     
-    private void handleScheduledUpdate(VSCodeInstance instance) {
-        // This is called by the scheduler to perform updates
-        runSingleInstanceUpdate(instance);
+    private CompletableFuture<Boolean> handleScheduledUpdate(VSCodeInstance instance) {
+        // This is called by the scheduler to perform updates; the returned
+        // future lets the scheduler hold a concurrency permit until completion
+        // and count only updates that actually succeeded
+        return runSingleInstanceUpdate(instance, scheduledVsixProvider)
+            .thenApply(CommandExecutor.ExecutionResult::success);
     }
     
     private void updateSchedulerStatus(String status) {
@@ -605,15 +1031,38 @@ public class SystemTrayManager implements MultiInstanceMenuBuilder.MenuActionHan
             configManager.saveConfig(newConfig);
             
             // Update current config only after successful save
+            VSCodeConfig previousConfig = this.config;
             this.config = newConfig;
             
+            // Swap the command runtime if the concurrency settings changed;
+            // the old one shuts down once the commands running on it complete
+            if (!newConfig.concurrency().equals(previousConfig.concurrency())) {
+                synchronized (commandRuntimeLock) {
+                    CommandRuntime previousRuntime = commandRuntime;
+                    commandRuntime = ExecutorStrategy.createRuntime(newConfig.concurrency());
+                    previousRuntime.retire();
+                }
+            }
+            
+            mirror = openMirror(newConfig);
+            peerClient.setPeers(PeerCacheClient.parsePeers(newConfig.peers().peers()));
+            updatePeerServer(newConfig.peers());
+            inventory.sync(newConfig.vsCodeInstances());
+            schedulePrefetch();
+            if (vsixCache != null) {
+                vsixCache.setMaxBytes(newConfig.cache().getVsixCacheMaxBytes());
+            }
+            VSCodeConfig.BandwidthConfig bandwidth = newConfig.bandwidth();
+            scheduledBandwidth.setLimit(bandwidth.getScheduledBytesPerSecond(), bandwidth.getBurstBytes());
+            manualBandwidth.setLimit(bandwidth.getManualBytesPerSecond(), bandwidth.getBurstBytes());
+            
             // Restart scheduler with new configuration
             scheduler.start(newConfig);
             
             // Update UI elements
             updateTrayMenu();
             updateTrayIcon();
-            settingsWindow.updateConfig(newConfig);
+            getSettingsWindow().updateConfig(newConfig);
             
             logger.info("Configuration updated and applied successfully");
             
@@ -640,6 +1089,7 @@ public class SystemTrayManager implements MultiInstanceMenuBuilder.MenuActionHan
         SwingUtilities.invokeLater(() -> {
             try {
                 // Ensure settings window has the latest configuration
+                SettingsWindow settingsWindow = getSettingsWindow();
                 settingsWindow.updateConfig(config);
                 settingsWindow.setVisible(true);
                 settingsWindow.toFront();
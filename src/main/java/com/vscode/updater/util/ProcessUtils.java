@@ -1,12 +1,17 @@
 package com.vscode.updater.util;
 
+import com.vscode.updater.discovery.InstallationResolver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 /**
  * Utilities for process execution and VS Code detection.
@@ -117,13 +122,21 @@ public class ProcessUtils {
     }
     
     /**
-     * Tests if VS Code executable is working by running --version command.
+     * Tests if VS Code executable is working. The install's product.json is
+     * read when it can be found; otherwise the --version command is run.
      */
     public static boolean isVSCodeValid(String vsCodePath) {
         if (vsCodePath == null || vsCodePath.isEmpty()) {
             return false;
         }
         
+        Optional<InstallationResolver.InstallationInfo> info = InstallationResolver.resolve(vsCodePath);
+        if (info.isPresent() && Files.isExecutable(Path.of(vsCodePath))) {
+            logger.info("VS Code validation successful. Version info: {} ({})",
+                info.get().version(), info.get().architecture());
+            return true;
+        }
+        
         try {
             ProcessBuilder pb = new ProcessBuilder(vsCodePath, "--version");
             Process process = pb.start();
@@ -144,6 +157,44 @@ public class ProcessUtils {
         }
     }
     
+    /**
+     * Checks whether a process runs from the install a launcher belongs to,
+     * such as an open window or its extension host. When the install cannot
+     * be resolved (e.g. a snap wrapper), processes named like the launcher count.
+     */
+    public static boolean isVSCodeRunning(String vsCodePath) {
+        if (vsCodePath == null || vsCodePath.isEmpty()) {
+            return false;
+        }
+
+        Optional<Path> root = InstallationResolver.resolve(vsCodePath)
+            .map(InstallationResolver.InstallationInfo::installRoot);
+        String name = baseName(vsCodePath);
+        long self = ProcessHandle.current().pid();
+        try (Stream<ProcessHandle> processes = ProcessHandle.allProcesses()) {
+            return processes
+                .filter(process -> process.pid() != self)
+                .flatMap(process -> process.info().command().stream())
+                .anyMatch(command -> root.isPresent()
+                    ? startsWith(command, root.get())
+                    : baseName(command).equals(name));
+        }
+    }
+
+    private static boolean startsWith(String command, Path root) {
+        try {
+            return Path.of(command).startsWith(root);
+        } catch (InvalidPathException e) {
+            return false;
+        }
+    }
+
+    private static String baseName(String path) {
+        String name = path.substring(Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\')) + 1);
+        int extension = name.lastIndexOf('.');
+        return (extension > 0 ? name.substring(0, extension) : name).toLowerCase(Locale.ROOT);
+    }
+
     /**
      * Gets the display name for the current operating system.
      */
@@ -0,0 +1,133 @@
+package com.vscode.updater.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * Times the phases of application startup. Phases on the way to the tray
+ * icon run in order on the main thread; the rest run in the background and
+ * are marked as such. Times are measured from the start of {@code main},
+ * with the JVM's own startup reported separately.
+ */
+public class StartupTimings {
+    private static final Logger logger = LoggerFactory.getLogger(StartupTimings.class);
+
+    private final long originNanos;
+    private final long jvmStartupMillis;
+    private final List<Phase> phases = new CopyOnWriteArrayList<>();
+    private volatile long trayVisibleMillis = -1;
+
+    /**
+     * A finished phase; {@code startMillis} is relative to the start of {@code main}.
+     */
+    public record Phase(String name, long startMillis, long durationMillis, boolean background) {}
+
+    StartupTimings(long originNanos, long jvmStartupMillis) {
+        this.originNanos = originNanos;
+        this.jvmStartupMillis = jvmStartupMillis;
+    }
+
+    /**
+     * Starts timing; call first thing in {@code main}.
+     */
+    public static StartupTimings start() {
+        long originNanos = System.nanoTime();
+        long jvmStartupMillis;
+        try {
+            jvmStartupMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        } catch (RuntimeException | LinkageError e) {
+            // Images without java.management only lose the JVM phase
+            jvmStartupMillis = -1;
+        }
+        return new StartupTimings(originNanos, jvmStartupMillis);
+    }
+
+    /**
+     * Runs a phase on the way to the tray icon.
+     */
+    public <T> T time(String name, Supplier<T> phase) {
+        return time(name, false, phase);
+    }
+
+    public void time(String name, Runnable phase) {
+        time(name, false, () -> {
+            phase.run();
+            return null;
+        });
+    }
+
+    /**
+     * Runs a phase that no longer delays the tray icon.
+     */
+    public void timeInBackground(String name, Runnable phase) {
+        time(name, true, () -> {
+            phase.run();
+            return null;
+        });
+    }
+
+    private <T> T time(String name, boolean background, Supplier<T> phase) {
+        long startNanos = System.nanoTime();
+        try {
+            return phase.get();
+        } finally {
+            long endNanos = System.nanoTime();
+            Phase finished = new Phase(name, toMillis(startNanos - originNanos), toMillis(endNanos - startNanos),
+                background);
+            phases.add(finished);
+            logger.info("Startup phase '{}' took {} ms", name, finished.durationMillis());
+        }
+    }
+
+    /**
+     * Records that the tray icon is showing.
+     */
+    public void markTrayVisible() {
+        trayVisibleMillis = toMillis(System.nanoTime() - originNanos);
+        logger.info("Tray icon visible {} ms after main, {} ms after JVM start", trayVisibleMillis,
+            getTimeToTrayMillis());
+    }
+
+    public List<Phase> getPhases() {
+        return List.copyOf(phases);
+    }
+
+    /**
+     * Gets the time from JVM start to the tray icon, or -1 if it is not showing yet.
+     */
+    public long getTimeToTrayMillis() {
+        if (trayVisibleMillis < 0) {
+            return -1;
+        }
+        return trayVisibleMillis + Math.max(0, jvmStartupMillis);
+    }
+
+    /**
+     * Formats all phases as a table for {@code --startup-report}.
+     */
+    public String getReport() {
+        StringBuilder report = new StringBuilder("Startup report\n");
+        if (jvmStartupMillis >= 0) {
+            report.append(String.format("  %-36s %7d ms%n", "JVM startup", jvmStartupMillis));
+        }
+        for (Phase phase : phases) {
+            report.append(String.format("  %-36s %7d ms   at +%d ms%n",
+                phase.background() ? phase.name() + " (background)" : phase.name(),
+                phase.durationMillis(), phase.startMillis()));
+        }
+        long timeToTray = getTimeToTrayMillis();
+        report.append(timeToTray >= 0
+            ? String.format("  %-36s %7d ms", "Time to tray", timeToTray)
+            : "  Tray icon not shown");
+        return report.toString();
+    }
+
+    private static long toMillis(long nanos) {
+        return nanos / 1_000_000;
+    }
+}
@@ -0,0 +1,208 @@
+package com.vscode.updater.vsix;
+
+import com.vscode.updater.executor.BandwidthLimiter;
+import com.vscode.updater.executor.ExtensionUpdate;
+import com.vscode.updater.executor.SegmentedDownloader;
+import com.vscode.updater.executor.VsixProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves VSIX packages from the {@link VsixCache}, downloading and caching
+ * them on a miss. Concurrent requests for the same package (e.g. Stable and
+ * Insiders updating at once) share one download. Configured LAN peers are
+ * asked before the marketplace.
+ */
+public class CachingVsixProvider implements VsixProvider {
+    private static final Logger logger = LoggerFactory.getLogger(CachingVsixProvider.class);
+
+    private final VsixCache cache;
+    private final Downloader downloader;
+    private final SegmentedDownloader segmentedDownloader;
+    private final PeerCacheClient peers;
+    private final BandwidthLimiter limiter;
+    private final Map<String, CompletableFuture<Optional<Path>>> inFlight;
+
+    /**
+     * Downloads a URL to a file.
+     */
+    @FunctionalInterface
+    public interface Downloader {
+        void download(URI source, Path target) throws IOException;
+    }
+
+    public CachingVsixProvider(VsixCache cache, Downloader downloader) {
+        this(cache, downloader, null, null, null, new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Creates a provider that downloads with a {@link SegmentedDownloader}
+     * into stable temp files, so interrupted downloads resume on the next try.
+     */
+    public CachingVsixProvider(VsixCache cache, SegmentedDownloader downloader) {
+        this(cache, downloader::download, downloader, null, null, new ConcurrentHashMap<>());
+    }
+
+    private CachingVsixProvider(VsixCache cache, Downloader downloader, SegmentedDownloader segmentedDownloader,
+                                PeerCacheClient peers, BandwidthLimiter limiter,
+                                Map<String, CompletableFuture<Optional<Path>>> inFlight) {
+        this.cache = cache;
+        this.downloader = downloader;
+        this.segmentedDownloader = segmentedDownloader;
+        this.peers = peers;
+        this.limiter = limiter;
+        this.inFlight = inFlight;
+    }
+
+    /**
+     * Gets a provider whose downloads, from peers and from a
+     * {@link SegmentedDownloader}, are paced by {@code limiter}. It shares
+     * this provider's cache and in-flight downloads.
+     */
+    public CachingVsixProvider withLimiter(BandwidthLimiter limiter) {
+        if (segmentedDownloader == null) {
+            return new CachingVsixProvider(cache, downloader, null, peers, limiter, inFlight);
+        }
+        SegmentedDownloader limited = segmentedDownloader.withLimiter(limiter);
+        return new CachingVsixProvider(cache, limited::download, limited, peers, limiter, inFlight);
+    }
+
+    /**
+     * Gets a provider that asks {@code peers} for a package before downloading
+     * it. It shares this provider's cache and in-flight downloads.
+     */
+    public CachingVsixProvider withPeers(PeerCacheClient peers) {
+        return new CachingVsixProvider(cache, downloader, segmentedDownloader, peers, limiter, inFlight);
+    }
+
+    /**
+     * Creates a downloader that streams the response body straight to the file.
+     */
+    public static Downloader httpDownloader(HttpClient httpClient) {
+        return (source, target) -> {
+            HttpRequest request = HttpRequest.newBuilder(source).timeout(Duration.ofMinutes(10)).GET().build();
+            try {
+                HttpResponse<Path> response = httpClient.send(request, HttpResponse.BodyHandlers.ofFile(target));
+                if (response.statusCode() / 100 != 2) {
+                    throw new IOException("Download of " + source + " returned HTTP " + response.statusCode());
+                }
+                SegmentedDownloader.requireIdentityEncoding(source, response);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Download interrupted", e);
+            }
+        };
+    }
+
+    /**
+     * Gets a provider that only serves packages already in the cache and never downloads.
+     */
+    public VsixProvider localOnly() {
+        return update -> update.targetVersion() == null
+            ? Optional.empty()
+            : cache.lookup(VsixCache.key(update.extensionId(), update.targetVersion(), update.targetPlatform()));
+    }
+
+    @Override
+    public Optional<Path> provide(ExtensionUpdate update) {
+        if (update.targetVersion() == null) {
+            return Optional.empty();
+        }
+
+        String key = VsixCache.key(update.extensionId(), update.targetVersion(), update.targetPlatform());
+        Optional<Path> cached = cache.lookup(key);
+        if (cached.isPresent()) {
+            logger.debug("VSIX cache hit for {}", key);
+            return cached;
+        }
+        if (update.vsixUrl() == null && !hasPeers()) {
+            return Optional.empty();
+        }
+
+        CompletableFuture<Optional<Path>> download = new CompletableFuture<>();
+        CompletableFuture<Optional<Path>> existing = inFlight.putIfAbsent(key, download);
+        if (existing != null) {
+            return existing.join();
+        }
+        try {
+            Optional<Path> fromPeer = fetchFromPeers(key);
+            download.complete(fromPeer.isPresent() || update.vsixUrl() == null
+                ? fromPeer
+                : downloadToCache(key, URI.create(update.vsixUrl())));
+        } catch (RuntimeException | Error e) {
+            // Callers waiting on this download must not block forever
+            download.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key);
+        }
+        return download.join();
+    }
+
+    private Optional<Path> fetchFromPeers(String key) {
+        if (!hasPeers()) {
+            return Optional.empty();
+        }
+        Path temp = null;
+        try {
+            temp = cache.newTempFile();
+            Optional<String> sha256 = peers.fetch(key, temp, limiter);
+            if (sha256.isEmpty()) {
+                return Optional.empty();
+            }
+            // A peer's file is only accepted if it matches the hash the peer announced
+            VsixCache.verifyPackage(key, temp);
+            return Optional.of(cache.put(key, temp, sha256.get()));
+        } catch (IOException e) {
+            logger.warn("Discarding {} from peer: {}", key, e.getMessage());
+            try {
+                if (temp != null) {
+                    Files.deleteIfExists(temp);
+                }
+            } catch (IOException ignored) {
+                // Leftover temp files are removed when the cache is next opened
+            }
+            return Optional.empty();
+        }
+    }
+
+    private boolean hasPeers() {
+        return peers != null && !peers.getPeers().isEmpty();
+    }
+
+    private Optional<Path> downloadToCache(String key, URI source) {
+        Path temp = null;
+        try {
+            temp = segmentedDownloader != null ? cache.resumableTempFile(key) : cache.newTempFile();
+            long startNanos = System.nanoTime();
+            downloader.download(source, temp);
+            VsixCache.verifyPackage(key, temp);
+            Path cached = cache.put(key, temp, null);
+            logger.info("Downloaded {} into VSIX cache in {} ms", key, (System.nanoTime() - startNanos) / 1_000_000);
+            return Optional.of(cached);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not cache {}, the CLI will download it: {}", key, e.getMessage());
+            if (temp != null && !(segmentedDownloader != null && Files.exists(SegmentedDownloader.stateFile(temp)))) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // Leftover temp files are removed when the cache is next opened
+                }
+            }
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,454 @@
+package com.vscode.updater.vsix;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Deduplicating store for VSIX packages. A package is cut at its zip entry
+ * boundaries and, within each entry, into content-defined chunks, so that
+ * files unchanged between two versions of an extension map to the same
+ * chunks. Chunks are stored once under their SHA-256; a recipe per package
+ * lists the chunks needed to write it back byte for byte.
+ */
+public class ChunkStore {
+    private static final Logger logger = LoggerFactory.getLogger(ChunkStore.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final String CHUNK_DIRECTORY = "chunks";
+    private static final String RECIPE_DIRECTORY = "recipes";
+
+    static final int MIN_CHUNK_SIZE = 4 * 1024;
+    static final int MAX_CHUNK_SIZE = 64 * 1024;
+    // Bytes of a package held in memory while it is chunked
+    private static final int WINDOW_SIZE = 4 * MAX_CHUNK_SIZE;
+    // Larger central directories are not read; chunks are then only content-defined
+    private static final int MAX_DIRECTORY_SIZE = 4 * 1024 * 1024;
+    // Top 14 bits of the gear hash, for chunks of about 16 KB on average
+    private static final long BOUNDARY_MASK = -1L << 50;
+    private static final long[] GEAR = gearTable();
+
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+
+    private final Path chunkDirectory;
+    private final Path recipeDirectory;
+    private final Map<String, Recipe> recipes = new HashMap<>();
+    private final Map<String, Integer> chunkReferences = new HashMap<>();
+    private final Map<String, Integer> chunkSizes = new HashMap<>();
+    private long physicalBytes;
+
+    /**
+     * One chunk of a package.
+     */
+    public record ChunkRef(
+        @JsonProperty("sha256") String sha256,
+        @JsonProperty("length") int length
+    ) {}
+
+    /**
+     * Chunks that make up a package, in order.
+     */
+    public record Recipe(
+        @JsonProperty("sha256") String sha256,
+        @JsonProperty("size") long size,
+        @JsonProperty("chunks") List<ChunkRef> chunks
+    ) {}
+
+    /**
+     * Store usage: bytes of the packages it holds versus bytes on disk.
+     */
+    public record ChunkStats(int packages, int chunks, long logicalBytes, long physicalBytes) {
+        public double dedupRatio() {
+            return physicalBytes == 0 ? 1.0 : (double) logicalBytes / physicalBytes;
+        }
+    }
+
+    private ChunkStore(Path directory) {
+        this.chunkDirectory = directory.resolve(CHUNK_DIRECTORY);
+        this.recipeDirectory = directory.resolve(RECIPE_DIRECTORY);
+    }
+
+    /**
+     * Opens (creating if needed) the store in a directory.
+     */
+    public static ChunkStore open(Path directory) throws IOException {
+        ChunkStore store = new ChunkStore(directory);
+        Files.createDirectories(store.chunkDirectory);
+        Files.createDirectories(store.recipeDirectory);
+        try (var files = Files.list(store.recipeDirectory)) {
+            for (Path file : files.toList()) {
+                try {
+                    store.register(objectMapper.readValue(file.toFile(), Recipe.class));
+                } catch (IOException e) {
+                    logger.warn("Dropping unreadable chunk recipe {}: {}", file, e.getMessage());
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        store.deleteUnreferencedChunks();
+        return store;
+    }
+
+    /**
+     * Splits a package into chunks and stores the ones not present yet. The
+     * package is streamed through a small window and the store is only
+     * locked to look up and register the recipe, so packages of any size
+     * can be chunked while the store stays usable.
+     *
+     * @param expectedSha256 Checksum the file must have
+     * @throws IOException if the file cannot be read or does not match its checksum
+     */
+    public Recipe store(Path file, String expectedSha256) throws IOException {
+        synchronized (this) {
+            Recipe existing = recipes.get(expectedSha256);
+            if (existing != null) {
+                return existing;
+            }
+        }
+
+        MessageDigest fileDigest = newDigest();
+        List<ChunkRef> chunks = new ArrayList<>();
+        long size;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            size = channel.size();
+            NavigableSet<Long> boundaries = zipBoundaries(channel, size);
+            boundaries.add(size);
+            // Read rather than mapped: on Windows a live mapping keeps the blob from being deleted
+            ByteBuffer window = ByteBuffer.allocate(WINDOW_SIZE).flip();
+            for (long position = 0; position < size; ) {
+                int limit = (int) Math.min(MAX_CHUNK_SIZE, boundaries.higher(position) - position);
+                fill(channel, window, limit);
+                ByteBuffer chunk = window.slice(window.position(), chunkLength(window, limit));
+                fileDigest.update(chunk.duplicate());
+                chunks.add(writeChunk(chunk));
+                window.position(window.position() + chunk.remaining());
+                position += chunk.remaining();
+            }
+        }
+
+        String sha256 = HexFormat.of().formatHex(fileDigest.digest());
+        if (!sha256.equals(expectedSha256)) {
+            throw new IOException("Package changed while chunking: expected " + expectedSha256 + ", got " + sha256);
+        }
+
+        Recipe recipe = new Recipe(sha256, size, List.copyOf(chunks));
+        synchronized (this) {
+            Recipe existing = recipes.get(sha256);
+            if (existing != null) {
+                return existing;
+            }
+            for (ChunkRef chunk : chunks) {
+                // A chunk found on disk may have been removed with its last package since
+                if (!chunkReferences.containsKey(chunk.sha256()) && !Files.exists(chunkPath(chunk.sha256()))) {
+                    throw new IOException("Chunk " + chunk.sha256() + " was removed while chunking");
+                }
+            }
+            Path temp = recipeDirectory.resolve(sha256 + ".tmp");
+            objectMapper.writeValue(temp.toFile(), recipe);
+            move(temp, recipePath(sha256));
+            register(recipe);
+        }
+        logger.debug("Chunked package {} into {} chunks", sha256, chunks.size());
+        return recipe;
+    }
+
+    public synchronized boolean contains(String sha256) {
+        return recipes.containsKey(sha256);
+    }
+
+    /**
+     * Writes a package back from its chunks, streaming each chunk into the
+     * target through file channels.
+     *
+     * @throws IOException if the package is unknown, a chunk is missing or the result does not match
+     */
+    public synchronized void write(String sha256, Path target) throws IOException {
+        Recipe recipe = recipes.get(sha256);
+        if (recipe == null) {
+            throw new IOException("No chunk recipe for " + sha256);
+        }
+
+        MessageDigest digest = newDigest();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(MAX_CHUNK_SIZE);
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (ChunkRef chunk : recipe.chunks()) {
+                try (FileChannel in = FileChannel.open(chunkPath(chunk.sha256()), StandardOpenOption.READ)) {
+                    buffer.clear();
+                    while (buffer.hasRemaining() && in.read(buffer) != -1) {
+                        // Chunks are small enough to be read whole
+                    }
+                }
+                buffer.flip();
+                if (buffer.remaining() != chunk.length()) {
+                    throw new IOException("Chunk " + chunk.sha256() + " has the wrong size");
+                }
+                digest.update(buffer.duplicate());
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+            }
+        }
+
+        String written = HexFormat.of().formatHex(digest.digest());
+        if (!written.equals(sha256)) {
+            throw new IOException("Reassembled package " + sha256 + " does not match, got " + written);
+        }
+    }
+
+    /**
+     * Removes a package, deleting chunks no other package uses.
+     */
+    public synchronized void remove(String sha256) {
+        Recipe recipe = recipes.remove(sha256);
+        if (recipe == null) {
+            return;
+        }
+        for (String chunk : distinctChunks(recipe)) {
+            if (chunkReferences.merge(chunk, -1, Integer::sum) <= 0) {
+                chunkReferences.remove(chunk);
+                physicalBytes -= chunkSizes.remove(chunk);
+                try {
+                    Files.deleteIfExists(chunkPath(chunk));
+                } catch (IOException e) {
+                    logger.debug("Failed to delete chunk {}: {}", chunk, e.getMessage());
+                }
+            }
+        }
+        try {
+            Files.deleteIfExists(recipePath(sha256));
+        } catch (IOException e) {
+            logger.debug("Failed to delete chunk recipe {}: {}", sha256, e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the checksums of all stored packages.
+     */
+    public synchronized Set<String> getPackages() {
+        return Set.copyOf(recipes.keySet());
+    }
+
+    public synchronized ChunkStats getStats() {
+        long logicalBytes = recipes.values().stream().mapToLong(Recipe::size).sum();
+        return new ChunkStats(recipes.size(), chunkReferences.size(), logicalBytes, physicalBytes);
+    }
+
+    /**
+     * Makes sure the window holds at least {@code length} bytes, refilling it
+     * from the channel once it runs low.
+     */
+    private static void fill(FileChannel channel, ByteBuffer window, int length) throws IOException {
+        if (window.remaining() >= length) {
+            return;
+        }
+        window.compact();
+        while (window.hasRemaining() && channel.read(window) > 0) {
+            // Fill the window
+        }
+        window.flip();
+        if (window.remaining() < length) {
+            throw new IOException("Package shrank while chunking");
+        }
+    }
+
+    /**
+     * Finds where the chunk starting at the window's position ends: at a
+     * content-defined point of a gear rolling hash, or at {@code limit}, the
+     * next zip entry boundary or the maximum chunk size.
+     */
+    static int chunkLength(ByteBuffer window, int limit) {
+        int start = window.position();
+        long hash = 0;
+        for (int length = 1; length <= limit; length++) {
+            hash = (hash << 1) + GEAR[window.get(start + length - 1) & 0xff];
+            if ((length >= MIN_CHUNK_SIZE && (hash & BOUNDARY_MASK) == 0) || length >= MAX_CHUNK_SIZE) {
+                return length;
+            }
+        }
+        return limit;
+    }
+
+    /**
+     * Finds the offsets where zip entry headers and data start, reading only
+     * the central directory and the local headers. Returns no boundaries for
+     * anything it cannot read (e.g. zip64), which only makes chunking less aligned.
+     */
+    private static NavigableSet<Long> zipBoundaries(FileChannel channel, long size) throws IOException {
+        NavigableSet<Long> boundaries = new TreeSet<>();
+        try {
+            int tailLength = (int) Math.min(size, 22 + 0xffff);
+            ByteBuffer tail = read(channel, size - tailLength, tailLength);
+            int end = -1;
+            for (int p = tailLength - 22; p >= 0; p--) {
+                if (tail.getInt(p) == END_OF_CENTRAL_DIRECTORY_SIGNATURE) {
+                    end = p;
+                    break;
+                }
+            }
+            if (end < 0) {
+                return boundaries;
+            }
+
+            long endOffset = size - tailLength + end;
+            int entries = Short.toUnsignedInt(tail.getShort(end + 10));
+            long directorySize = Integer.toUnsignedLong(tail.getInt(end + 12));
+            long directoryOffset = Integer.toUnsignedLong(tail.getInt(end + 16));
+            if (directoryOffset + directorySize > endOffset || directorySize > MAX_DIRECTORY_SIZE) {
+                return boundaries;
+            }
+
+            ByteBuffer directory = read(channel, directoryOffset, (int) directorySize);
+            NavigableSet<Long> found = new TreeSet<>();
+            int p = 0;
+            for (int i = 0; i < entries; i++) {
+                if (directory.getInt(p) != CENTRAL_HEADER_SIGNATURE) {
+                    return boundaries;
+                }
+                long header = Integer.toUnsignedLong(directory.getInt(p + 42));
+                if (header + 30 > directoryOffset) {
+                    return boundaries;
+                }
+                ByteBuffer local = read(channel, header, 30);
+                if (local.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+                    return boundaries;
+                }
+                found.add(header);
+                found.add(header + 30 + Short.toUnsignedInt(local.getShort(26))
+                    + Short.toUnsignedInt(local.getShort(28)));
+                p += 46 + Short.toUnsignedInt(directory.getShort(p + 28))
+                    + Short.toUnsignedInt(directory.getShort(p + 30))
+                    + Short.toUnsignedInt(directory.getShort(p + 32));
+            }
+            found.add(directoryOffset);
+            found.add(endOffset);
+            boundaries.addAll(found.subSet(1L, true, size, false));
+        } catch (IndexOutOfBoundsException | EOFException e) {
+            boundaries.clear();
+        }
+        return boundaries;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+        return buffer.flip();
+    }
+
+    private ChunkRef writeChunk(ByteBuffer chunk) throws IOException {
+        MessageDigest digest = newDigest();
+        digest.update(chunk.duplicate());
+        String sha256 = HexFormat.of().formatHex(digest.digest());
+        Path path = chunkPath(sha256);
+        if (!Files.exists(path)) {
+            Files.createDirectories(path.getParent());
+            // Stores run concurrently and may write the same chunk
+            Path temp = path.resolveSibling(sha256 + "." + UUID.randomUUID() + ".tmp");
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer remaining = chunk.duplicate();
+                while (remaining.hasRemaining()) {
+                    out.write(remaining);
+                }
+            }
+            move(temp, path);
+        }
+        return new ChunkRef(sha256, chunk.remaining());
+    }
+
+    /**
+     * Deletes chunks left behind by a store that failed part way.
+     */
+    private void deleteUnreferencedChunks() throws IOException {
+        try (var files = Files.walk(chunkDirectory)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                if (!chunkReferences.containsKey(file.getFileName().toString())) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    private void register(Recipe recipe) {
+        recipes.put(recipe.sha256(), recipe);
+        Map<String, Integer> lengths = new HashMap<>();
+        recipe.chunks().forEach(chunk -> lengths.put(chunk.sha256(), chunk.length()));
+        lengths.forEach((chunk, length) -> {
+            if (chunkReferences.merge(chunk, 1, Integer::sum) == 1) {
+                chunkSizes.put(chunk, length);
+                physicalBytes += length;
+            }
+        });
+    }
+
+    private static Set<String> distinctChunks(Recipe recipe) {
+        Set<String> chunks = new HashSet<>();
+        recipe.chunks().forEach(chunk -> chunks.add(chunk.sha256()));
+        return chunks;
+    }
+
+    private Path chunkPath(String sha256) {
+        return chunkDirectory.resolve(sha256.substring(0, 2)).resolve(sha256);
+    }
+
+    private Path recipePath(String sha256) {
+        return recipeDirectory.resolve(sha256 + ".json");
+    }
+
+    private static long[] gearTable() {
+        // Fixed seed: chunk boundaries must be the same on every run and machine
+        SplittableRandom random = new SplittableRandom(0x5653495843484e4bL);
+        long[] table = new long[256];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = random.nextLong();
+        }
+        return table;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
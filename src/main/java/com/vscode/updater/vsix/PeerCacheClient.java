@@ -0,0 +1,150 @@
+package com.vscode.updater.vsix;
+
+import com.vscode.updater.executor.BandwidthLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Fetches VSIX packages from the caches of other updaters on the network
+ * (see {@link PeerCacheServer}). Peers are tried in order; an unreachable
+ * peer or one without the package simply moves on to the next.
+ */
+public class PeerCacheClient {
+    private static final Logger logger = LoggerFactory.getLogger(PeerCacheClient.class);
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(2);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(5);
+
+    private final HttpClient httpClient;
+    private volatile List<URI> peers;
+
+    public PeerCacheClient(List<URI> peers) {
+        // The peer server only speaks HTTP/1.1
+        this(HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(CONNECT_TIMEOUT).build(),
+            peers);
+    }
+
+    PeerCacheClient(HttpClient httpClient, List<URI> peers) {
+        this.httpClient = httpClient;
+        this.peers = List.copyOf(peers);
+    }
+
+    public List<URI> getPeers() {
+        return peers;
+    }
+
+    /**
+     * Replaces the peers; fetches already running finish with the old list.
+     */
+    public void setPeers(List<URI> peers) {
+        this.peers = List.copyOf(peers);
+    }
+
+    /**
+     * Builds peer URIs from configured URLs.
+     */
+    public static List<URI> parsePeers(List<String> urls) {
+        return urls.stream().map(URI::create).toList();
+    }
+
+    /**
+     * Downloads a package from the first peer that has it.
+     *
+     * @param limiter Paces the transfer like marketplace downloads, or null for no limit
+     * @return SHA-256 the peer announced for the file, to be verified when
+     *         the file is stored, or empty if no peer has the package
+     */
+    public Optional<String> fetch(String key, Path target, BandwidthLimiter limiter) {
+        for (URI peer : this.peers) {
+            URI source = peer.resolve(PeerCacheServer.CONTEXT + URLEncoder.encode(key, StandardCharsets.UTF_8));
+            HttpRequest request = HttpRequest.newBuilder(source).timeout(REQUEST_TIMEOUT).GET().build();
+            try {
+                HttpResponse<Path> response = httpClient.send(request, responseInfo -> limiter != null
+                    ? new LimitedBodySubscriber<>(HttpResponse.BodySubscribers.ofFile(target), limiter)
+                    : HttpResponse.BodySubscribers.ofFile(target));
+                Optional<String> sha256 = response.headers().firstValue(PeerCacheServer.SHA256_HEADER);
+                if (response.statusCode() == 200 && sha256.isPresent()) {
+                    logger.info("Fetched {} from peer {}", key, peer);
+                    return sha256;
+                }
+                logger.debug("Peer {} does not have {} (HTTP {})", peer, key, response.statusCode());
+            } catch (IOException e) {
+                logger.debug("Peer {} unavailable: {}", peer, e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Optional.empty();
+            }
+        }
+        try {
+            Files.deleteIfExists(target);
+        } catch (IOException ignored) {
+            // Leftover temp files are removed when the cache is next opened
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Takes tokens from a limiter for every buffer before passing it on, so
+     * the HTTP client pulls data no faster than the limit allows.
+     */
+    private static final class LimitedBodySubscriber<T> implements HttpResponse.BodySubscriber<T> {
+        private final HttpResponse.BodySubscriber<T> delegate;
+        private final BandwidthLimiter limiter;
+        private Flow.Subscription subscription;
+
+        LimitedBodySubscriber(HttpResponse.BodySubscriber<T> delegate, BandwidthLimiter limiter) {
+            this.delegate = delegate;
+            this.limiter = limiter;
+        }
+
+        @Override
+        public CompletionStage<T> getBody() {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            delegate.onSubscribe(subscription);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            try {
+                limiter.acquire(buffers.stream().mapToLong(ByteBuffer::remaining).sum());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                subscription.cancel();
+                delegate.onError(e);
+                return;
+            }
+            delegate.onNext(buffers);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            delegate.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            delegate.onComplete();
+        }
+    }
+}
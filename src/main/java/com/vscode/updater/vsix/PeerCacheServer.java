@@ -0,0 +1,115 @@
+package com.vscode.updater.vsix;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-only HTTP endpoint that serves the local {@link VsixCache} to other
+ * updaters on the network. {@code GET /vsix/<key>} returns the package with
+ * its SHA-256 in {@value #SHA256_HEADER}; packages are re-hashed by the cache
+ * before being served, so a corrupt blob is never handed out.
+ */
+public class PeerCacheServer implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(PeerCacheServer.class);
+
+    /** Path prefix of package requests. */
+    public static final String CONTEXT = "/vsix/";
+
+    /** Response header carrying the package hash. */
+    public static final String SHA256_HEADER = "X-Content-SHA256";
+
+    private final VsixCache cache;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicLong served = new AtomicLong();
+    private final AtomicLong notFound = new AtomicLong();
+
+    private PeerCacheServer(VsixCache cache, HttpServer server, ExecutorService executor) {
+        this.cache = cache;
+        this.server = server;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts serving the cache on a port (0 picks a free one).
+     */
+    public static PeerCacheServer start(VsixCache cache, InetSocketAddress address) throws IOException {
+        HttpServer server = HttpServer.create(address, 0);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        PeerCacheServer peerServer = new PeerCacheServer(cache, server, executor);
+        server.createContext(CONTEXT, peerServer::handle);
+        server.setExecutor(executor);
+        server.start();
+        logger.info("Serving VSIX cache to peers on port {}", server.getAddress().getPort());
+        return peerServer;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public long getServedCount() {
+        return served.get();
+    }
+
+    public long getNotFoundCount() {
+        return notFound.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String method = exchange.getRequestMethod();
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                exchange.getResponseHeaders().add("Allow", "GET, HEAD");
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            String key = URLDecoder.decode(
+                exchange.getRequestURI().getRawPath().substring(CONTEXT.length()), StandardCharsets.UTF_8);
+            Optional<Path> blob = key.isEmpty() ? Optional.empty() : cache.lookup(key);
+            Optional<VsixCache.CacheEntry> entry = blob.flatMap(path -> Optional.ofNullable(cache.getEntries().get(key)));
+            if (entry.isEmpty()) {
+                notFound.incrementAndGet();
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            exchange.getResponseHeaders().add("Content-Type", "application/vsix");
+            exchange.getResponseHeaders().add(SHA256_HEADER, entry.get().sha256());
+            if (method.equals("HEAD")) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            // Counted before the body is sent, so the count is current once the peer has it
+            served.incrementAndGet();
+            exchange.sendResponseHeaders(200, entry.get().size());
+            try (OutputStream out = exchange.getResponseBody()) {
+                Files.copy(blob.get(), out);
+            }
+            logger.debug("Served {} to {}", key, exchange.getRemoteAddress());
+        } catch (RuntimeException e) {
+            logger.warn("Failed to serve peer request {}: {}", exchange.getRequestURI(), e.getMessage());
+        }
+    }
+}
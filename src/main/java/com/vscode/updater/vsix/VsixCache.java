@@ -0,0 +1,603 @@
+package com.vscode.updater.vsix;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.vscode.updater.inventory.ExtensionVersions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * Content-addressed cache of VSIX packages shared by all VS Code instances.
+ * Packages are stored once under their SHA-256 and indexed by
+ * {@code publisher.name@version[+targetPlatform]}; the least recently used
+ * entries are evicted when the cache exceeds its size limit. Only the newest
+ * version of each extension is kept whole; older versions are moved into a
+ * {@link ChunkStore} and written back when they are looked up.
+ */
+public class VsixCache {
+    private static final Logger logger = LoggerFactory.getLogger(VsixCache.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    /** Directory of the cache inside the configuration directory. */
+    public static final String DIRECTORY = "vsix-cache";
+
+    private static final String INDEX_FILE = "index.json";
+    private static final String BLOB_DIRECTORY = "blobs";
+    private static final String TEMP_DIRECTORY = "tmp";
+    private static final String RESUMABLE_PREFIX = "resume-";
+    private static final String PACKAGE_MANIFEST = "extension/package.json";
+
+    /** How long an interrupted download is kept for resuming. */
+    public static final Duration RESUME_MAX_AGE = Duration.ofDays(7);
+    private static final Duration IN_USE_GRACE = Duration.ofHours(1);
+    /** Access times from lookups are written to the index at most this often. */
+    private static final Duration INDEX_SAVE_INTERVAL = Duration.ofMinutes(1);
+    private static final String UNIVERSAL = "universal";
+    private static final Pattern TARGET_PLATFORM = Pattern.compile("(win32|linux|alpine|darwin)-(x64|ia32|arm64|armhf)|web");
+
+    private final Path directory;
+    private final Path blobDirectory;
+    private final Path indexFile;
+    private final ChunkStore chunks;
+    // Packages handed out or written back from chunks recently, probably being installed
+    private final Map<String, Instant> inUse = new ConcurrentHashMap<>();
+    // Blobs hashed since they were last written, with the modification time they had then
+    private final Map<String, FileTime> verified = new ConcurrentHashMap<>();
+    private final Map<String, CacheEntry> entries = new HashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile long maxBytes;
+    private Instant indexSavedAt = Instant.EPOCH;
+
+    /**
+     * Index entry of one cached package.
+     */
+    public record CacheEntry(
+        @JsonProperty("sha256") String sha256,
+        @JsonProperty("size") long size,
+        @JsonProperty("lastAccess") Instant lastAccess
+    ) {
+        CacheEntry touched() {
+            return new CacheEntry(sha256, size, Instant.now());
+        }
+    }
+
+    /**
+     * Identity of a cached package, parsed from its key.
+     */
+    public record PackageKey(String extensionId, String version, String targetPlatform) {}
+
+    /**
+     * Cache usage figures. {@code logicalBytes} is the size of all cached
+     * packages, {@code totalBytes} what they take on disk.
+     */
+    public record CacheStats(int entries, long totalBytes, long hits, long misses, long logicalBytes,
+                             int chunkedPackages) {
+        public double dedupRatio() {
+            return totalBytes == 0 ? 1.0 : (double) logicalBytes / totalBytes;
+        }
+
+        public String getSummary() {
+            return String.format("%d package(s), %d KB stored as %d KB on disk (dedup ratio %.2f, %d chunked)",
+                entries, logicalBytes / 1024, totalBytes / 1024, dedupRatio(), chunkedPackages);
+        }
+    }
+
+    private record IndexFile(@JsonProperty("entries") Map<String, CacheEntry> entries) {}
+
+    private VsixCache(Path directory, long maxBytes, ChunkStore chunks) {
+        this.directory = directory;
+        this.blobDirectory = directory.resolve(BLOB_DIRECTORY);
+        this.indexFile = directory.resolve(INDEX_FILE);
+        this.maxBytes = maxBytes;
+        this.chunks = chunks;
+    }
+
+    /**
+     * Opens (creating if needed) the cache in a directory.
+     */
+    public static VsixCache open(Path directory, long maxBytes) throws IOException {
+        VsixCache cache = new VsixCache(directory, maxBytes, ChunkStore.open(directory));
+        Files.createDirectories(cache.blobDirectory);
+        cache.clearTempDirectory();
+        if (Files.isRegularFile(cache.indexFile)) {
+            try {
+                IndexFile index = objectMapper.readValue(cache.indexFile.toFile(), IndexFile.class);
+                if (index.entries() != null) {
+                    cache.entries.putAll(index.entries());
+                }
+            } catch (IOException e) {
+                logger.warn("Ignoring unreadable VSIX cache index {}: {}", cache.indexFile, e.getMessage());
+            }
+        }
+        // Chunked packages whose entries were lost with an unreadable index
+        Set<String> referenced = new HashSet<>();
+        cache.entries.values().forEach(entry -> referenced.add(entry.sha256()));
+        cache.chunks.getPackages().stream()
+            .filter(sha256 -> !referenced.contains(sha256))
+            .forEach(cache.chunks::remove);
+        logger.debug("Opened VSIX cache {}: {}", directory, cache.getStats().getSummary());
+        return cache;
+    }
+
+    /**
+     * Builds the cache key of a package, e.g. {@code ms-python.python@2024.2.1+linux-x64}.
+     */
+    public static String key(String extensionId, String version, String targetPlatform) {
+        String key = extensionId.toLowerCase(Locale.ROOT) + "@" + version;
+        return targetPlatform == null || targetPlatform.isEmpty() || targetPlatform.equals(UNIVERSAL)
+            ? key
+            : key + "+" + targetPlatform;
+    }
+
+    /**
+     * Parses a key created by {@link #key}. A {@code +} suffix is only taken
+     * as the platform if it looks like one, so versions with build metadata survive.
+     */
+    public static PackageKey parseKey(String key) {
+        int at = key.indexOf('@');
+        if (at <= 0) {
+            throw new IllegalArgumentException("Not a VSIX cache key: " + key);
+        }
+        String id = key.substring(0, at);
+        String version = key.substring(at + 1);
+        int plus = version.lastIndexOf('+');
+        if (plus > 0 && TARGET_PLATFORM.matcher(version.substring(plus + 1)).matches()) {
+            return new PackageKey(id, version.substring(0, plus), version.substring(plus + 1));
+        }
+        return new PackageKey(id, version, UNIVERSAL);
+    }
+
+    /**
+     * Checks that a file is a VSIX package whose {@code extension/package.json}
+     * names the extension and version of the key. Downloads are checked before
+     * {@link #put}, so that an error page, a truncated body or the wrong package
+     * is never cached and served.
+     *
+     * @throws IOException if the file is not the package the key describes
+     */
+    public static void verifyPackage(String key, Path file) throws IOException {
+        PackageKey expected = parseKey(key);
+        JsonNode manifest;
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            ZipEntry entry = zip.getEntry(PACKAGE_MANIFEST);
+            if (entry == null) {
+                throw new IOException("Package for " + key + " has no " + PACKAGE_MANIFEST);
+            }
+            try (InputStream in = zip.getInputStream(entry)) {
+                manifest = objectMapper.readTree(in);
+            }
+        } catch (ZipException e) {
+            throw new IOException("Package for " + key + " is not a VSIX: " + e.getMessage(), e);
+        }
+
+        String id = (manifest.path("publisher").asText() + "." + manifest.path("name").asText())
+            .toLowerCase(Locale.ROOT);
+        String version = manifest.path("version").asText();
+        if (!id.equals(expected.extensionId()) || !version.equals(expected.version())) {
+            throw new IOException("Package is " + id + "@" + version + ", expected " + key);
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Gets a copy of the index, keyed like {@link #key}.
+     */
+    public synchronized Map<String, CacheEntry> getEntries() {
+        return Map.copyOf(entries);
+    }
+
+    /**
+     * Gets the blob file of an entry.
+     */
+    public Path getBlobPath(CacheEntry entry) {
+        return blobPath(entry.sha256());
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        synchronized (this) {
+            if (evict()) {
+                saveIndex();
+            }
+        }
+    }
+
+    /**
+     * Gets the cached package for a key. Its SHA-256 is checked once after it
+     * is stored and again only if its size or modification time changes.
+     * Corrupt or missing packages are dropped from the index. A package handed
+     * out is not moved into chunks for a while, since it is probably being installed.
+     */
+    public Optional<Path> lookup(String key) {
+        CacheEntry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+
+        // Not chunked while the caller may still be installing it
+        inUse.put(entry.sha256(), Instant.now());
+        Path blob = blobPath(entry.sha256());
+        if (!Files.isRegularFile(blob) && chunks.contains(entry.sha256())) {
+            restoreFromChunks(entry.sha256());
+        }
+        if (!isIntact(blob, entry)) {
+            logger.warn("Dropping corrupt VSIX cache entry {}", key);
+            synchronized (this) {
+                entries.remove(key);
+                deleteIfUnreferenced(entry.sha256());
+                saveIndex();
+            }
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+
+        synchronized (this) {
+            entries.computeIfPresent(key, (k, current) -> current.touched());
+            if (indexSavedAt.plus(INDEX_SAVE_INTERVAL).isBefore(Instant.now())) {
+                saveIndex();
+            }
+        }
+        hits.incrementAndGet();
+        return Optional.of(blob);
+    }
+
+    /**
+     * Moves a downloaded package into the cache.
+     *
+     * @param expectedSha256 Checksum the file must have, or null to accept any
+     * @return path of the cached package
+     * @throws IOException if the file cannot be stored or its checksum does not match
+     */
+    public Path put(String key, Path file, String expectedSha256) throws IOException {
+        String sha256 = sha256(file);
+        if (expectedSha256 != null && !expectedSha256.equalsIgnoreCase(sha256)) {
+            Files.deleteIfExists(file);
+            throw new IOException("Checksum mismatch for " + key + ": expected " + expectedSha256 + ", got " + sha256);
+        }
+
+        long size = Files.size(file);
+        Path blob = blobPath(sha256);
+        synchronized (this) {
+            if (Files.exists(blob)) {
+                // Same content already cached under another key
+                Files.deleteIfExists(file);
+            } else {
+                move(file, blob);
+                verified.put(sha256, Files.getLastModifiedTime(blob));
+            }
+            entries.put(key, new CacheEntry(sha256, size, Instant.now()));
+            evict();
+            saveIndex();
+        }
+        logger.debug("Cached {} ({} bytes, sha256 {})", key, size, sha256);
+        chunkOlderVersions();
+        return blob;
+    }
+
+    /**
+     * Copies a cached package to a file, writing it back from chunks if it is
+     * an older version.
+     */
+    public void copyTo(CacheEntry entry, Path target) throws IOException {
+        Path blob = blobPath(entry.sha256());
+        if (Files.isRegularFile(blob)) {
+            try {
+                Files.copy(blob, target, StandardCopyOption.REPLACE_EXISTING);
+                return;
+            } catch (NoSuchFileException e) {
+                // Chunked in the meantime
+            }
+        }
+        chunks.write(entry.sha256(), target);
+    }
+
+    /**
+     * Creates a temporary file on the cache's file system for a download.
+     */
+    public Path newTempFile() throws IOException {
+        return Files.createTempFile(directory.resolve(TEMP_DIRECTORY), "download-", ".part");
+    }
+
+    /**
+     * Gets the stable download file of a key, so that an interrupted download
+     * of the same package can be resumed. Kept across restarts for
+     * {@link #RESUME_MAX_AGE}.
+     */
+    public Path resumableTempFile(String key) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        return directory.resolve(TEMP_DIRECTORY)
+            .resolve(RESUMABLE_PREFIX + HexFormat.of().formatHex(digest, 0, 16) + ".vsix");
+    }
+
+    public synchronized CacheStats getStats() {
+        long logicalBytes = entries.values().stream().mapToLong(CacheEntry::size).sum();
+        return new CacheStats(entries.size(), totalBytes(), hits.get(), misses.get(), logicalBytes,
+            chunks.getStats().packages());
+    }
+
+    /**
+     * Computes the hex SHA-256 of a file.
+     */
+    public static String sha256(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void clearTempDirectory() throws IOException {
+        Path tempDirectory = directory.resolve(TEMP_DIRECTORY);
+        Files.createDirectories(tempDirectory);
+        // Partial downloads from an earlier run; recent resumable ones are kept
+        Instant cutoff = Instant.now().minus(RESUME_MAX_AGE);
+        try (var files = Files.list(tempDirectory)) {
+            for (Path file : files.toList()) {
+                if (!file.getFileName().toString().startsWith(RESUMABLE_PREFIX)
+                        || Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves every package that is not the newest version of its extension into
+     * the chunk store. Versions of the same extension share most of their
+     * files, so older versions cost little beyond what changed.
+     */
+    private void chunkOlderVersions() {
+        Set<String> candidates = new HashSet<>();
+        expireInUse();
+        synchronized (this) {
+            Set<String> latest = latestPackages();
+            entries.values().forEach(entry -> {
+                if (!latest.contains(entry.sha256()) && !chunks.contains(entry.sha256())
+                        && !inUse.containsKey(entry.sha256())) {
+                    candidates.add(entry.sha256());
+                }
+            });
+        }
+
+        for (String sha256 : candidates) {
+            Path blob = blobPath(sha256);
+            try {
+                chunks.store(blob, sha256);
+            } catch (IOException e) {
+                logger.debug("Keeping {} unchunked: {}", sha256, e.getMessage());
+                continue;
+            }
+            synchronized (this) {
+                boolean referenced = entries.values().stream().anyMatch(entry -> entry.sha256().equals(sha256));
+                if (!referenced || latestPackages().contains(sha256) || inUse.containsKey(sha256)) {
+                    // Evicted, became the newest version or was handed out while chunking
+                    chunks.remove(sha256);
+                    continue;
+                }
+                try {
+                    Files.deleteIfExists(blob);
+                    verified.remove(sha256);
+                } catch (IOException e) {
+                    chunks.remove(sha256);
+                }
+            }
+        }
+        if (!candidates.isEmpty()) {
+            logger.debug("VSIX cache after chunking older versions: {}", getStats().getSummary());
+        }
+    }
+
+    /**
+     * Gets the packages that are the newest version of their extension and platform.
+     */
+    private Set<String> latestPackages() {
+        Map<String, Map.Entry<PackageKey, CacheEntry>> newest = new HashMap<>();
+        entries.forEach((key, entry) -> {
+            PackageKey packageKey;
+            try {
+                packageKey = parseKey(key);
+            } catch (IllegalArgumentException e) {
+                return;
+            }
+            newest.merge(packageKey.extensionId() + "+" + packageKey.targetPlatform(), Map.entry(packageKey, entry),
+                (a, b) -> ExtensionVersions.isNewer(b.getKey().version(), a.getKey().version()) ? b : a);
+        });
+        Set<String> latest = new HashSet<>();
+        newest.values().forEach(entry -> latest.add(entry.getValue().sha256()));
+        // Packages not keyed by version are never chunked
+        entries.forEach((key, entry) -> {
+            if (key.indexOf('@') <= 0) {
+                latest.add(entry.sha256());
+            }
+        });
+        return latest;
+    }
+
+    /**
+     * Writes an older version back from its chunks so that it can be installed.
+     */
+    private void restoreFromChunks(String sha256) {
+        Path temp = null;
+        try {
+            temp = newTempFile();
+            chunks.write(sha256, temp);
+            synchronized (this) {
+                Path blob = blobPath(sha256);
+                if (Files.exists(blob)) {
+                    Files.deleteIfExists(temp);
+                } else {
+                    move(temp, blob);
+                }
+                chunks.remove(sha256);
+                inUse.put(sha256, Instant.now());
+            }
+            logger.debug("Restored {} from chunks", sha256);
+        } catch (IOException e) {
+            logger.warn("Cannot restore VSIX package {} from chunks: {}", sha256, e.getMessage());
+            try {
+                if (temp != null) {
+                    Files.deleteIfExists(temp);
+                }
+            } catch (IOException ignored) {
+                // Leftover temp files are removed when the cache is next opened
+            }
+        }
+    }
+
+    private Path blobPath(String sha256) {
+        return blobDirectory.resolve(sha256 + ".vsix");
+    }
+
+    private boolean isIntact(Path blob, CacheEntry entry) {
+        try {
+            if (!Files.isRegularFile(blob) || Files.size(blob) != entry.size()) {
+                return false;
+            }
+            FileTime modified = Files.getLastModifiedTime(blob);
+            if (modified.equals(verified.get(entry.sha256()))) {
+                return true;
+            }
+            if (!sha256(blob).equals(entry.sha256())) {
+                verified.remove(entry.sha256());
+                return false;
+            }
+            verified.put(entry.sha256(), modified);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Removes least recently used entries until the cache fits its limit.
+     * The most recent entry is always kept, and so are packages handed out
+     * recently, even if the cache stays over its limit until they expire.
+     *
+     * @return true if anything was evicted
+     */
+    private boolean evict() {
+        expireInUse();
+        boolean evicted = false;
+        while (totalBytes() > maxBytes && entries.size() > 1) {
+            String newest = entries.entrySet().stream()
+                .max(Comparator.comparing(e -> e.getValue().lastAccess()))
+                .orElseThrow()
+                .getKey();
+            Optional<Map.Entry<String, CacheEntry>> candidate = entries.entrySet().stream()
+                .filter(e -> !e.getKey().equals(newest) && !inUse.containsKey(e.getValue().sha256()))
+                .min(Comparator.comparing(e -> e.getValue().lastAccess()));
+            if (candidate.isEmpty()) {
+                logger.debug("VSIX cache over its limit, the remaining packages are in use");
+                break;
+            }
+            Map.Entry<String, CacheEntry> oldest = candidate.get();
+            entries.remove(oldest.getKey());
+            deleteIfUnreferenced(oldest.getValue().sha256());
+            logger.debug("Evicted {} from VSIX cache", oldest.getKey());
+            evicted = true;
+        }
+        return evicted;
+    }
+
+    private void expireInUse() {
+        Instant graceCutoff = Instant.now().minus(IN_USE_GRACE);
+        inUse.values().removeIf(time -> time.isBefore(graceCutoff));
+    }
+
+    private long totalBytes() {
+        // Blobs shared by several keys count once, chunked packages by their unique chunks
+        Map<String, Long> blobs = new HashMap<>();
+        entries.values().forEach(entry -> {
+            if (!chunks.contains(entry.sha256())) {
+                blobs.put(entry.sha256(), entry.size());
+            }
+        });
+        return blobs.values().stream().mapToLong(Long::longValue).sum() + chunks.getStats().physicalBytes();
+    }
+
+    private void deleteIfUnreferenced(String sha256) {
+        boolean referenced = entries.values().stream().anyMatch(entry -> entry.sha256().equals(sha256));
+        if (referenced) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(blobPath(sha256));
+        } catch (IOException e) {
+            logger.debug("Failed to delete cached package {}: {}", sha256, e.getMessage());
+        }
+        chunks.remove(sha256);
+        inUse.remove(sha256);
+        verified.remove(sha256);
+    }
+
+    private void saveIndex() {
+        try {
+            Path temp = directory.resolve(INDEX_FILE + ".tmp");
+            objectMapper.writeValue(temp.toFile(), new IndexFile(new HashMap<>(entries)));
+            move(temp, indexFile);
+            indexSavedAt = Instant.now();
+        } catch (IOException e) {
+            logger.warn("Failed to save VSIX cache index: {}", e.getMessage());
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
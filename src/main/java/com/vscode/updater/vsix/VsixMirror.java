@@ -0,0 +1,266 @@
+package com.vscode.updater.vsix;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.vscode.updater.executor.ExtensionUpdate;
+import com.vscode.updater.executor.OutdatedExtensionResolver;
+import com.vscode.updater.executor.VsixProvider;
+import com.vscode.updater.inventory.ExtensionVersions;
+import com.vscode.updater.inventory.InstalledExtension;
+import com.vscode.updater.marketplace.GalleryMetadataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Offline mirror of VSIX packages for machines without internet access. One
+ * machine exports its {@link VsixCache} into a directory; updaters configured
+ * with that directory resolve and install updates from its index alone.
+ * The mirror uses the cache's content-addressed layout, so a sync only copies
+ * blobs the mirror does not have yet.
+ */
+public class VsixMirror implements GalleryMetadataSource, VsixProvider {
+    private static final Logger logger = LoggerFactory.getLogger(VsixMirror.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private static final String INDEX_FILE = "mirror-index.json";
+    private static final String BLOB_DIRECTORY = "blobs";
+
+    private final Path directory;
+    private final String targetPlatform;
+    private volatile LoadedIndex loaded;
+
+    /**
+     * One package in the mirror.
+     */
+    public record MirrorPackage(
+        @JsonProperty("id") String id,
+        @JsonProperty("version") String version,
+        @JsonProperty("targetPlatform") String targetPlatform,
+        @JsonProperty("sha256") String sha256,
+        @JsonProperty("size") long size
+    ) {
+        String key() {
+            return VsixCache.key(id, version, targetPlatform);
+        }
+    }
+
+    /**
+     * On-disk mirror index.
+     */
+    record MirrorIndex(
+        @JsonProperty("exportedAt") Instant exportedAt,
+        @JsonProperty("packages") List<MirrorPackage> packages
+    ) {}
+
+    /**
+     * Outcome of an export.
+     */
+    public record ExportResult(int packages, int blobsCopied, int blobsSkipped, long bytesCopied) {
+        public String getSummary() {
+            return String.format("%d package(s) in mirror, %d blob(s) copied (%d KB), %d already present",
+                packages, blobsCopied, bytesCopied / 1024, blobsSkipped);
+        }
+    }
+
+    /**
+     * Index as last read, with the file time used to notice re-exports.
+     */
+    private record LoadedIndex(Instant modified, Map<String, MirrorPackage> latestById) {}
+
+    public VsixMirror(Path directory, String targetPlatform) {
+        this.directory = directory;
+        this.targetPlatform = targetPlatform;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Copies the packages of a cache into a mirror directory. Blobs already in
+     * the mirror are skipped; the index is written last so that readers never
+     * see an entry whose blob is missing.
+     */
+    public static ExportResult export(VsixCache cache, Path mirrorDirectory) throws IOException {
+        Path blobDirectory = mirrorDirectory.resolve(BLOB_DIRECTORY);
+        Files.createDirectories(blobDirectory);
+
+        Map<String, MirrorPackage> packages = new LinkedHashMap<>();
+        readIndex(mirrorDirectory).ifPresent(index -> index.packages().forEach(p -> packages.put(p.key(), p)));
+
+        int copied = 0;
+        int skipped = 0;
+        long bytesCopied = 0;
+        for (Map.Entry<String, VsixCache.CacheEntry> entry : cache.getEntries().entrySet()) {
+            VsixCache.CacheEntry cacheEntry = entry.getValue();
+            Path target = blobDirectory.resolve(cacheEntry.sha256() + ".vsix");
+            if (Files.isRegularFile(target) && Files.size(target) == cacheEntry.size()) {
+                skipped++;
+            } else {
+                Path temp = blobDirectory.resolve(cacheEntry.sha256() + ".tmp");
+                try {
+                    cache.copyTo(cacheEntry, temp);
+                } catch (IOException e) {
+                    logger.warn("Skipping {} in mirror export: {}", entry.getKey(), e.getMessage());
+                    Files.deleteIfExists(temp);
+                    continue;
+                }
+                move(temp, target);
+                copied++;
+                bytesCopied += cacheEntry.size();
+            }
+
+            VsixCache.PackageKey key = VsixCache.parseKey(entry.getKey());
+            MirrorPackage mirrorPackage = new MirrorPackage(key.extensionId(), key.version(),
+                key.targetPlatform(), cacheEntry.sha256(), cacheEntry.size());
+            packages.put(mirrorPackage.key(), mirrorPackage);
+        }
+
+        Path indexFile = mirrorDirectory.resolve(INDEX_FILE);
+        Path temp = mirrorDirectory.resolve(INDEX_FILE + ".tmp");
+        objectMapper.writerWithDefaultPrettyPrinter()
+            .writeValue(temp.toFile(), new MirrorIndex(Instant.now(), List.copyOf(packages.values())));
+        move(temp, indexFile);
+
+        ExportResult result = new ExportResult(packages.size(), copied, skipped, bytesCopied);
+        logger.info("Exported VSIX mirror to {}: {}", mirrorDirectory, result.getSummary());
+        return result;
+    }
+
+    /**
+     * Gets the newest version of each extension in the mirror. The mirror
+     * holds one package per extension, so the VS Code version is not checked.
+     */
+    @Override
+    public Map<String, String> fetchLatestVersions(Collection<String> extensionIds, String vsCodeVersion)
+            throws IOException {
+        Map<String, MirrorPackage> latest = latestById();
+        Map<String, String> versions = new HashMap<>();
+        for (String id : extensionIds) {
+            MirrorPackage mirrorPackage = latest.get(id.toLowerCase(Locale.ROOT));
+            if (mirrorPackage != null) {
+                versions.put(mirrorPackage.id(), mirrorPackage.version());
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * Gets a resolver that pins every extension with a newer package in the
+     * mirror to that package. Extensions the mirror does not have are left alone.
+     */
+    public OutdatedExtensionResolver asResolver() {
+        return installedVersions -> {
+            Map<String, MirrorPackage> latest;
+            try {
+                latest = latestById();
+            } catch (IOException e) {
+                logger.warn("Cannot read VSIX mirror {}: {}", directory, e.getMessage());
+                return List.of();
+            }
+
+            List<ExtensionUpdate> updates = new ArrayList<>();
+            installedVersions.forEach((id, version) -> {
+                MirrorPackage mirrorPackage = latest.get(id);
+                if (mirrorPackage != null && ExtensionVersions.isNewer(mirrorPackage.version(), version)) {
+                    updates.add(new ExtensionUpdate(id, version, mirrorPackage.version(),
+                        mirrorPackage.targetPlatform(), null));
+                }
+            });
+            return updates;
+        };
+    }
+
+    /**
+     * Serves a package straight from the mirror after checking its hash.
+     */
+    @Override
+    public Optional<Path> provide(ExtensionUpdate update) {
+        try {
+            MirrorPackage mirrorPackage = latestById().get(update.extensionId());
+            if (mirrorPackage == null || !mirrorPackage.version().equals(update.targetVersion())) {
+                return Optional.empty();
+            }
+            Path blob = blobPath(mirrorPackage);
+            if (!Files.isRegularFile(blob) || !VsixCache.sha256(blob).equals(mirrorPackage.sha256())) {
+                logger.warn("Mirror package {} is missing or corrupt", mirrorPackage.key());
+                return Optional.empty();
+            }
+            return Optional.of(blob);
+        } catch (IOException e) {
+            logger.warn("Cannot read VSIX mirror {}: {}", directory, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Gets the mirror's newest applicable package per extension id, reloading
+     * the index if it was re-exported.
+     */
+    private Map<String, MirrorPackage> latestById() throws IOException {
+        Path indexFile = directory.resolve(INDEX_FILE);
+        if (!Files.isRegularFile(indexFile)) {
+            throw new IOException("No mirror index in " + directory);
+        }
+        Instant modified = Files.getLastModifiedTime(indexFile).toInstant();
+        LoadedIndex current = loaded;
+        if (current != null && current.modified().equals(modified)) {
+            return current.latestById();
+        }
+
+        MirrorIndex index = objectMapper.readValue(indexFile.toFile(), MirrorIndex.class);
+        Map<String, MirrorPackage> latest = new HashMap<>();
+        for (MirrorPackage mirrorPackage : index.packages()) {
+            String platform = mirrorPackage.targetPlatform();
+            if (!(platform.equals(InstalledExtension.UNIVERSAL) || platform.equals(targetPlatform))) {
+                continue;
+            }
+            latest.merge(mirrorPackage.id(), mirrorPackage,
+                (a, b) -> ExtensionVersions.isNewer(b.version(), a.version()) ? b : a);
+        }
+        loaded = new LoadedIndex(modified, Map.copyOf(latest));
+        logger.debug("Loaded VSIX mirror index {} with {} package(s)", indexFile, index.packages().size());
+        return loaded.latestById();
+    }
+
+    private Path blobPath(MirrorPackage mirrorPackage) {
+        return directory.resolve(BLOB_DIRECTORY).resolve(mirrorPackage.sha256() + ".vsix");
+    }
+
+    private static Optional<MirrorIndex> readIndex(Path mirrorDirectory) {
+        Path indexFile = mirrorDirectory.resolve(INDEX_FILE);
+        if (!Files.isRegularFile(indexFile)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readValue(indexFile.toFile(), MirrorIndex.class));
+        } catch (IOException e) {
+            logger.warn("Rebuilding unreadable mirror index {}: {}", indexFile, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.vscode.updater.vsix;
+
+import com.vscode.updater.discovery.VSCodeInstance;
+import com.vscode.updater.executor.ExtensionUpdate;
+import com.vscode.updater.executor.OutdatedExtensionResolver;
+import com.vscode.updater.executor.VsixProvider;
+import com.vscode.updater.inventory.ExtensionVersions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Downloads newer VSIX packages into the cache in the background as soon as
+ * extensions are known to be outdated, so that a later update only installs
+ * from local disk. Work runs one package at a time on a single low-priority
+ * thread; the provider decides how fast it may download.
+ */
+public class VsixPrefetcher implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(VsixPrefetcher.class);
+
+    private final VsixProvider provider;
+    private final Function<VSCodeInstance, OutdatedExtensionResolver> resolvers;
+    private final Consumer<VSCodeInstance> changeListener;
+    private final ExecutorService worker;
+    private final Map<Path, Prefetch> prefetches = new ConcurrentHashMap<>();
+
+    /**
+     * Prefetch progress of one instance.
+     */
+    public record PrefetchStatus(State state, int downloaded, int total) {
+        public enum State { IDLE, DOWNLOADING, READY, INCOMPLETE }
+
+        public static final PrefetchStatus IDLE = new PrefetchStatus(State.IDLE, 0, 0);
+
+        /**
+         * Checks whether every outdated extension is available locally.
+         */
+        public boolean isReady() {
+            return state == State.READY && total > 0;
+        }
+
+        public String describe() {
+            return switch (state) {
+                case IDLE -> null;
+                case DOWNLOADING -> String.format("Prefetching updates %d/%d", downloaded, total);
+                case READY -> String.format("%d update(s) ready to install offline", total);
+                case INCOMPLETE -> String.format("%d of %d update(s) prefetched", downloaded, total);
+            };
+        }
+    }
+
+    /**
+     * Prefetch requested for a set of outdated extensions and the updates
+     * whose packages are in the cache so far.
+     */
+    private record Prefetch(Map<String, String> outdated, PrefetchStatus status, List<ExtensionUpdate> ready) {}
+
+    /**
+     * @param resolvers Gives the gallery resolver for an instance, which knows its VS Code version
+     */
+    public VsixPrefetcher(VsixProvider provider, Function<VSCodeInstance, OutdatedExtensionResolver> resolvers,
+                          Consumer<VSCodeInstance> changeListener) {
+        this.provider = provider;
+        this.resolvers = resolvers;
+        this.changeListener = changeListener != null ? changeListener : instance -> { };
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "vsix-prefetch");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues a prefetch of the given outdated extensions (lower-case id to
+     * installed version). Does nothing if the same set is already queued or
+     * prefetched.
+     */
+    public void prefetch(VSCodeInstance instance, Map<String, String> outdatedVersions) {
+        Path key = instance.getExtensionsDirectory();
+        if (outdatedVersions.isEmpty()) {
+            clear(instance);
+            return;
+        }
+
+        Map<String, String> outdated = Map.copyOf(outdatedVersions);
+        Prefetch previous = prefetches.get(key);
+        if (previous != null && previous.outdated().equals(outdated)
+                && previous.status().state() != PrefetchStatus.State.INCOMPLETE) {
+            return;
+        }
+
+        Prefetch queued = new Prefetch(outdated,
+            new PrefetchStatus(PrefetchStatus.State.DOWNLOADING, 0, outdated.size()), List.of());
+        prefetches.put(key, queued);
+        changeListener.accept(instance);
+        worker.execute(() -> run(instance, queued));
+    }
+
+    /**
+     * Forgets the prefetch state of an instance, e.g. after it was updated.
+     */
+    public void clear(VSCodeInstance instance) {
+        if (prefetches.remove(instance.getExtensionsDirectory()) != null) {
+            changeListener.accept(instance);
+        }
+    }
+
+    public PrefetchStatus getStatus(VSCodeInstance instance) {
+        Prefetch prefetch = prefetches.get(instance.getExtensionsDirectory());
+        return prefetch != null ? prefetch.status() : PrefetchStatus.IDLE;
+    }
+
+    /**
+     * Gets a resolver that only returns the prefetched updates still newer
+     * than what is installed, so an update needs no gallery query.
+     */
+    public OutdatedExtensionResolver asResolver(VSCodeInstance instance) {
+        return installedVersions -> {
+            Prefetch prefetch = prefetches.get(instance.getExtensionsDirectory());
+            if (prefetch == null) {
+                return List.of();
+            }
+            return prefetch.ready().stream()
+                .filter(update -> installedVersions.containsKey(update.extensionId())
+                    && ExtensionVersions.isNewer(update.targetVersion(), installedVersions.get(update.extensionId())))
+                .toList();
+        };
+    }
+
+    @Override
+    public void close() {
+        worker.shutdownNow();
+    }
+
+    private void run(VSCodeInstance instance, Prefetch queued) {
+        Path key = instance.getExtensionsDirectory();
+        if (prefetches.get(key) != queued) {
+            // Superseded by a newer request
+            return;
+        }
+
+        List<ExtensionUpdate> updates;
+        try {
+            updates = resolvers.apply(instance).resolveOutdated(queued.outdated()).stream()
+                .filter(update -> update.vsixUrl() != null)
+                .toList();
+        } catch (RuntimeException e) {
+            logger.warn("Prefetch for {} could not resolve updates: {}", instance.displayName(), e.getMessage());
+            publish(instance, queued, new PrefetchStatus(PrefetchStatus.State.INCOMPLETE, 0, queued.outdated().size()),
+                List.of());
+            return;
+        }
+
+        List<ExtensionUpdate> ready = new ArrayList<>();
+        Prefetch current = publish(instance, queued,
+            new PrefetchStatus(PrefetchStatus.State.DOWNLOADING, 0, updates.size()), List.of());
+        for (ExtensionUpdate update : updates) {
+            if (current == null || Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            Optional<Path> vsix = provider.provide(update);
+            if (vsix.isPresent()) {
+                ready.add(update);
+            }
+            current = publish(instance, current,
+                new PrefetchStatus(PrefetchStatus.State.DOWNLOADING, ready.size(), updates.size()), ready);
+        }
+
+        if (current != null) {
+            boolean complete = ready.size() == updates.size() && updates.size() == queued.outdated().size();
+            publish(instance, current, new PrefetchStatus(
+                complete ? PrefetchStatus.State.READY : PrefetchStatus.State.INCOMPLETE,
+                ready.size(), queued.outdated().size()), ready);
+            logger.info("Prefetched {} of {} update(s) for {}", ready.size(), queued.outdated().size(),
+                instance.displayName());
+        }
+    }
+
+    /**
+     * Replaces the prefetch state unless a newer request took over.
+     *
+     * @return the published state, or null if superseded
+     */
+    private Prefetch publish(VSCodeInstance instance, Prefetch expected, PrefetchStatus status,
+                             List<ExtensionUpdate> ready) {
+        Prefetch next = new Prefetch(expected.outdated(), status, List.copyOf(ready));
+        if (!prefetches.replace(instance.getExtensionsDirectory(), expected, next)) {
+            return null;
+        }
+        changeListener.accept(instance);
+        return next;
+    }
+}
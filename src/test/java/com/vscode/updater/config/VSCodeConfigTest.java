@@ -1,5 +1,6 @@
 package com.vscode.updater.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.vscode.updater.discovery.VSCodeInstance;
 import com.vscode.updater.scheduler.UpdateScheduler;
 import org.junit.jupiter.api.Test;
@@ -163,4 +164,114 @@ class VSCodeConfigTest {
         assertTrue(config.groupLogsByInstance());
         assertTrue(config.autoOpenLogsOnError());
     }
-}
\ No newline at end of file
+    
+    @Test
+    void testLegacyConfigWithoutUpdatesSection() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        String json = mapper.writeValueAsString(VSCodeConfig.createDefault())
+            .replaceAll(",\\s*\"updates\"\\s*:\\s*\\{[^}]*\\}", "");
+        assertFalse(json.contains("\"updates\""));
+        
+        VSCodeConfig config = mapper.readValue(json, VSCodeConfig.class);
+        
+        assertEquals(VSCodeConfig.UpdateConfig.createDefault(), config.updates());
+        assertNull(config.validate());
+    }
+    
+    @Test
+    void testUpdateConfigValidation() {
+        assertNull(VSCodeConfig.UpdateConfig.createDefault().validate());
+        assertEquals(VSCodeConfig.UpdateConfig.UpdateMode.BULK, VSCodeConfig.UpdateConfig.createDefault().mode());
+        
+        VSCodeConfig.UpdateConfig invalid = new VSCodeConfig.UpdateConfig(
+            VSCodeConfig.UpdateConfig.UpdateMode.GRANULAR, 0, 8);
+        assertNotNull(invalid.validate());
+        assertNotNull(VSCodeConfig.createDefault().withUpdatedUpdates(invalid).validate());
+        
+        VSCodeConfig.UpdateConfig invalidBatch = new VSCodeConfig.UpdateConfig(
+            VSCodeConfig.UpdateConfig.UpdateMode.GRANULAR, 4, 0);
+        assertNotNull(invalidBatch.validate());
+    }
+    
+    @Test
+    void testLegacyConfigWithoutCacheSection() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        String json = mapper.writeValueAsString(VSCodeConfig.createDefault())
+            .replaceAll(",\\s*\"cache\"\\s*:\\s*\\{[^}]*\\}", "");
+        assertFalse(json.contains("\"cache\""));
+        
+        VSCodeConfig config = mapper.readValue(json, VSCodeConfig.class);
+        
+        assertEquals(VSCodeConfig.CacheConfig.createDefault(), config.cache());
+        assertNull(config.validate());
+        assertNotNull(config.withUpdatedCache(new VSCodeConfig.CacheConfig(true, 1)).validate());
+    }
+    
+    @Test
+    void testLegacyConfigWithoutBandwidthSection() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        String json = mapper.writeValueAsString(VSCodeConfig.createDefault())
+            .replaceAll(",\\s*\"bandwidth\"\\s*:\\s*\\{[^}]*\\}", "");
+        assertFalse(json.contains("\"bandwidth\""));
+        
+        VSCodeConfig config = mapper.readValue(json, VSCodeConfig.class);
+        
+        assertEquals(VSCodeConfig.BandwidthConfig.createDefault(), config.bandwidth());
+        assertEquals(0, config.bandwidth().getScheduledBytesPerSecond());
+        assertNull(config.validate());
+        assertNotNull(config.withUpdatedBandwidth(new VSCodeConfig.BandwidthConfig(-1, 0, 1024)).validate());
+        assertEquals(512 * 1024, config.withUpdatedBandwidth(new VSCodeConfig.BandwidthConfig(512, 0, 1024))
+            .bandwidth().getScheduledBytesPerSecond());
+    }
+    
+    @Test
+    void testLegacyConfigWithoutMirrorSection() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        String json = mapper.writeValueAsString(VSCodeConfig.createDefault())
+            .replaceAll(",\\s*\"mirror\"\\s*:\\s*\\{[^}]*\\}", "");
+        assertFalse(json.contains("\"mirror\""));
+        
+        VSCodeConfig config = mapper.readValue(json, VSCodeConfig.class);
+        
+        assertEquals(VSCodeConfig.MirrorConfig.createDefault(), config.mirror());
+        assertNull(config.validate());
+        assertNotNull(config.withUpdatedMirror(new VSCodeConfig.MirrorConfig(true, " ")).validate());
+        assertNull(config.withUpdatedMirror(new VSCodeConfig.MirrorConfig(true, "/srv/vsix-mirror")).validate());
+    }
+    
+    @Test
+    void testLegacyConfigWithoutPeersSection() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        String json = mapper.writeValueAsString(VSCodeConfig.createDefault())
+            .replaceAll(",\\s*\"peers\"\\s*:\\s*\\{[^}]*\\}", "");
+        assertFalse(json.contains("\"peers\""));
+        
+        VSCodeConfig config = mapper.readValue(json, VSCodeConfig.class);
+        
+        assertEquals(VSCodeConfig.PeerConfig.createDefault(), config.peers());
+        assertNull(config.validate());
+        assertNotNull(config.withUpdatedPeers(
+            new VSCodeConfig.PeerConfig(true, 80, List.of())).validate());
+        assertNotNull(config.withUpdatedPeers(
+            new VSCodeConfig.PeerConfig(false, 47800, List.of("ftp://peer.local/"))).validate());
+        assertNull(config.withUpdatedPeers(
+            new VSCodeConfig.PeerConfig(true, 47800, List.of("http://build-01.lan:47800/"))).validate());
+    }
+    
+    @Test
+    void testLegacyConfigWithoutMaintenanceSection() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        String json = mapper.writeValueAsString(VSCodeConfig.createDefault())
+            .replaceAll(",\\s*\"maintenance\"\\s*:\\s*\\{[^}]*\\}", "");
+        assertFalse(json.contains("\"maintenance\""));
+        
+        VSCodeConfig config = mapper.readValue(json, VSCodeConfig.class);
+        
+        assertEquals(VSCodeConfig.MaintenanceConfig.createDefault(), config.maintenance());
+        assertTrue(config.maintenance().collectObsoleteExtensions());
+        assertFalse(config.maintenance().dryRun());
+        assertFalse(config.maintenance().deduplicateExtensions());
+        assertTrue(config.withUpdatedMaintenance(new VSCodeConfig.MaintenanceConfig(true, true))
+            .maintenance().dryRun());
+    }
+}
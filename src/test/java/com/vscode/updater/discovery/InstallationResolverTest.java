@@ -0,0 +1,120 @@
+package com.vscode.updater.discovery;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+/**
+ * Tests for InstallationResolver functionality.
+ */
+class InstallationResolverTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testLinuxLayout() throws IOException {
+        Path root = tempDir.resolve("usr/share/code");
+        Path app = writeProduct(root.resolve("resources/app"), "1.95.3", "stable", "f1a4fb10");
+        Path launcher = writeFile(root.resolve("bin/code"), "#!/bin/sh\n".getBytes());
+        writeFile(root.resolve("code"), elfHeader((short) 0x3e));
+
+        InstallationResolver.InstallationInfo info = InstallationResolver.resolve(launcher.toString()).orElseThrow();
+
+        assertEquals("1.95.3", info.version());
+        assertEquals("f1a4fb10", info.commit());
+        assertEquals("x64", info.architecture());
+        assertEquals(VSCodeInstance.VSCodeEdition.STABLE, info.edition());
+        assertEquals(app.toRealPath(), info.appDirectory());
+        assertEquals("1.95.3\nf1a4fb10\nx64", info.getVersionInfo());
+        assertEquals(root.toRealPath(), info.installRoot());
+    }
+
+    @Test
+    void testMacOSLayoutWithSymlinkedLauncher() throws IOException {
+        Path contents = tempDir.resolve("Visual Studio Code - Insiders.app/Contents");
+        Path app = writeProduct(contents.resolve("Resources/app"), "1.96.0-insider", "insider", "abc123");
+        Path launcher = writeFile(app.resolve("bin/code"), "#!/bin/sh\n".getBytes());
+        writeFile(contents.resolve("MacOS/Electron"), machOHeader(0x0100000c));
+        Path link = tempDir.resolve("bin/code-insiders");
+        Files.createDirectories(link.getParent());
+        Files.createSymbolicLink(link, launcher);
+
+        InstallationResolver.InstallationInfo info = InstallationResolver.resolve(link.toString()).orElseThrow();
+
+        assertEquals("1.96.0-insider", info.version());
+        assertEquals("arm64", info.architecture());
+        assertEquals(VSCodeInstance.VSCodeEdition.INSIDERS, info.edition());
+        assertEquals(contents.toRealPath(), info.installRoot());
+    }
+
+    @Test
+    void testWindowsLayoutPrefersNewestCommitFolder() throws IOException {
+        Path root = tempDir.resolve("Microsoft VS Code");
+        Path launcher = writeFile(root.resolve("bin/code.cmd"), "@echo off\r\n".getBytes());
+        Path old = writeProduct(root.resolve("1111111/resources/app"), "1.94.0", "stable", "1111111");
+        Path current = writeProduct(root.resolve("2222222/resources/app"), "1.95.0", "stable", "2222222");
+        Files.setLastModifiedTime(old.resolve("product.json"), FileTime.from(Instant.now().minusSeconds(3600)));
+        writeFile(root.resolve("Code.exe"), peHeader((short) 0xaa64));
+
+        InstallationResolver.InstallationInfo info = InstallationResolver.resolve(launcher.toString()).orElseThrow();
+
+        assertEquals("1.95.0", info.version());
+        assertEquals(current.toRealPath(), info.appDirectory());
+        assertEquals("arm64", info.architecture());
+        assertEquals(root.toRealPath(), info.installRoot());
+    }
+
+    @Test
+    void testUnresolvableLaunchers() throws IOException {
+        Path wrapper = writeFile(tempDir.resolve("snap/bin/code"), "#!/bin/sh\n".getBytes());
+
+        assertTrue(InstallationResolver.resolve(wrapper.toString()).isEmpty());
+        assertTrue(InstallationResolver.resolve(tempDir.resolve("missing").toString()).isEmpty());
+        assertTrue(InstallationResolver.resolve(null).isEmpty());
+        assertEquals("unknown", InstallationResolver.readArchitecture(wrapper));
+    }
+
+    private static Path writeProduct(Path app, String version, String quality, String commit) throws IOException {
+        writeFile(app.resolve("product.json"), ("{\"nameShort\": \"Code\", \"applicationName\": \"code\", "
+            + "\"quality\": \"" + quality + "\", \"commit\": \"" + commit + "\"}").getBytes());
+        writeFile(app.resolve("package.json"), ("{\"name\": \"code-oss-dev\", \"version\": \"" + version + "\"}").getBytes());
+        return app;
+    }
+
+    private static Path writeFile(Path file, byte[] content) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.write(file, content);
+    }
+
+    private static byte[] elfHeader(short machine) {
+        ByteBuffer header = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[] {0x7f, 'E', 'L', 'F', 2, 1});
+        header.putShort(18, machine);
+        return header.array();
+    }
+
+    private static byte[] peHeader(short machine) {
+        ByteBuffer header = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(new byte[] {'M', 'Z'});
+        header.putInt(0x3c, 0x80);
+        header.put(0x80, (byte) 'P').put(0x81, (byte) 'E');
+        header.putShort(0x84, machine);
+        return header.array();
+    }
+
+    private static byte[] machOHeader(int cpuType) {
+        ByteBuffer header = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(0xfeedfacf);
+        header.putInt(cpuType);
+        return header.array();
+    }
+}
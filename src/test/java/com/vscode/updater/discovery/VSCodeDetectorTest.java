@@ -1,8 +1,17 @@
 package com.vscode.updater.discovery;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 
 /**
@@ -10,6 +19,9 @@ import java.util.List;
  */
 class VSCodeDetectorTest {
     
+    @TempDir
+    Path tempDir;
+    
     @Test
     void testDetectInstallations() {
         // This test will detect actual installations on the system
@@ -49,4 +61,129 @@ class VSCodeDetectorTest {
             assertNotNull(instances);
         });
     }
-}
\ No newline at end of file
+    
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void testSnapshotSkipsVersionCheckOfUnchangedExecutable() throws IOException {
+        Path runs = tempDir.resolve("runs.log");
+        Path code = writeLauncher("code", runs, "1.95.0", 0);
+        Path snapshotFile = tempDir.resolve("config").resolve(DetectionSnapshot.FILE_NAME);
+        List<VSCodeDetector.Candidate> candidates = List.of(
+            new VSCodeDetector.Candidate(tempDir.resolve("missing/code").toString(), VSCodeInstance.VSCodeEdition.STABLE, false),
+            new VSCodeDetector.Candidate(code.toString(), VSCodeInstance.VSCodeEdition.STABLE, true));
+        
+        DetectionSnapshot snapshot = DetectionSnapshot.load(snapshotFile);
+        List<VSCodeInstance> first = VSCodeDetector.detect(candidates, snapshot, VSCodeDetector.DEFAULT_BUDGET);
+        snapshot.save();
+        assertEquals(1, first.size());
+        assertEquals("1.95.0", first.get(0).version());
+        assertEquals(1, Files.readAllLines(runs).size());
+        
+        // Next launch: the unchanged executable is not run again
+        List<VSCodeInstance> second = VSCodeDetector.detect(candidates, DetectionSnapshot.load(snapshotFile),
+            VSCodeDetector.DEFAULT_BUDGET);
+        assertEquals(first, second);
+        assertEquals(1, Files.readAllLines(runs).size());
+        
+        // An update replaces the executable, so its version is checked again
+        writeLauncher("code", runs, "1.96.0", 0);
+        List<VSCodeInstance> third = VSCodeDetector.detect(candidates, DetectionSnapshot.load(snapshotFile),
+            VSCodeDetector.DEFAULT_BUDGET);
+        assertEquals("1.96.0", third.get(0).version());
+        assertEquals(2, Files.readAllLines(runs).size());
+    }
+    
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void testLaunchersSharingATargetKeepTheirOwnVersion() throws IOException {
+        // Like snap, where /snap/bin/code and /snap/bin/code-insiders both link to /usr/bin/snap
+        Path runs = tempDir.resolve("runs.log");
+        Path snap = tempDir.resolve("usr/bin/snap");
+        Files.createDirectories(snap.getParent());
+        Files.writeString(snap, "#!/bin/sh\n"
+            + "echo run >> '" + runs + "'\n"
+            + "case \"$0\" in *insiders) echo 1.96.0-insider ;; *) echo 1.95.0 ;; esac\n");
+        Files.setPosixFilePermissions(snap, PosixFilePermissions.fromString("rwxr-xr-x"));
+        Path code = Files.createDirectories(tempDir.resolve("snap/bin")).resolve("code");
+        Path insiders = code.resolveSibling("code-insiders");
+        Files.createSymbolicLink(code, snap);
+        Files.createSymbolicLink(insiders, snap);
+        Path snapshotFile = tempDir.resolve("config").resolve(DetectionSnapshot.FILE_NAME);
+        List<VSCodeDetector.Candidate> candidates = List.of(
+            new VSCodeDetector.Candidate(code.toString(), VSCodeInstance.VSCodeEdition.STABLE, false),
+            new VSCodeDetector.Candidate(insiders.toString(), VSCodeInstance.VSCodeEdition.INSIDERS, false));
+        
+        DetectionSnapshot snapshot = DetectionSnapshot.load(snapshotFile);
+        VSCodeDetector.detect(candidates, snapshot, VSCodeDetector.DEFAULT_BUDGET);
+        snapshot.save();
+        assertEquals(2, snapshot.size());
+        
+        List<VSCodeInstance> cached = VSCodeDetector.detect(candidates, DetectionSnapshot.load(snapshotFile),
+            VSCodeDetector.DEFAULT_BUDGET);
+        assertEquals(List.of("1.95.0", "1.96.0-insider"), cached.stream().map(VSCodeInstance::version).toList());
+        assertEquals(2, Files.readAllLines(runs).size());
+        
+        // The wrapper never changes when the snap refreshes, so entries expire
+        ExecutableFingerprint fingerprint = ExecutableFingerprint.of(code.toString()).orElseThrow();
+        assertTrue(snapshot.getVersion(fingerprint, Instant.now()).isPresent());
+        assertTrue(snapshot.getVersion(fingerprint,
+            Instant.now().plus(DetectionSnapshot.DEFAULT_MAX_AGE).plusSeconds(1)).isEmpty());
+    }
+    
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void testSlowVersionCheckIsBoundedByBudget() throws IOException {
+        Path runs = tempDir.resolve("runs.log");
+        Path slow = writeLauncher("code", runs, "1.95.0", 30);
+        Path insiders = writeLauncher("code-insiders", runs, "1.96.0-insider", 0);
+        DetectionSnapshot snapshot = DetectionSnapshot.inMemory();
+        
+        long start = System.nanoTime();
+        List<VSCodeInstance> instances = VSCodeDetector.detect(List.of(
+                new VSCodeDetector.Candidate(slow.toString(), VSCodeInstance.VSCodeEdition.STABLE, false),
+                new VSCodeDetector.Candidate(insiders.toString(), VSCodeInstance.VSCodeEdition.INSIDERS, false)),
+            snapshot, Duration.ofSeconds(2));
+        
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).toSeconds() < 8);
+        assertEquals(2, instances.size());
+        assertEquals("Unknown", instances.get(0).version());
+        assertEquals("1.96.0-insider", instances.get(1).version());
+        // Only the completed check is remembered
+        assertEquals(1, snapshot.size());
+    }
+    
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void testEditionAndVersionComeFromProductJson() throws IOException {
+        Path runs = tempDir.resolve("runs.log");
+        Path root = tempDir.resolve("opt/vscode");
+        Files.createDirectories(root.resolve("resources/app"));
+        Files.writeString(root.resolve("resources/app/product.json"), "{\"quality\": \"insider\", \"commit\": \"abc\"}");
+        Files.writeString(root.resolve("resources/app/package.json"), "{\"version\": \"1.97.0-insider\"}");
+        Path launcher = root.resolve("bin/code");
+        Files.createDirectories(launcher.getParent());
+        Files.writeString(launcher, "#!/bin/sh\necho run >> '" + runs + "'\necho 0.0.0\n");
+        Files.setPosixFilePermissions(launcher, PosixFilePermissions.fromString("rwxr-xr-x"));
+        
+        // Listed as stable and with no "insiders" in its path, but the build says otherwise
+        List<VSCodeInstance> instances = VSCodeDetector.detect(List.of(
+                new VSCodeDetector.Candidate(launcher.toString(), VSCodeInstance.VSCodeEdition.STABLE, true)),
+            DetectionSnapshot.inMemory(), VSCodeDetector.DEFAULT_BUDGET);
+        
+        assertEquals(1, instances.size());
+        assertEquals(VSCodeInstance.VSCodeEdition.INSIDERS, instances.get(0).edition());
+        assertEquals("1.97.0-insider", instances.get(0).version());
+        assertFalse(Files.exists(runs));
+    }
+    
+    private Path writeLauncher(String name, Path runs, String version, int delaySeconds) throws IOException {
+        Path launcher = tempDir.resolve(name.contains("insiders") ? "Insiders" : "Stable").resolve(name);
+        Files.createDirectories(launcher.getParent());
+        Files.writeString(launcher, "#!/bin/sh\n"
+            + "echo run >> '" + runs + "'\n"
+            + (delaySeconds > 0 ? "sleep " + delaySeconds + "\n" : "")
+            + "echo " + version + "\n");
+        Files.setPosixFilePermissions(launcher, PosixFilePermissions.fromString("rwxr-xr-x"));
+        return launcher;
+    }
+}
@@ -0,0 +1,76 @@
+package com.vscode.updater.executor;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests for BandwidthLimiter functionality.
+ */
+class BandwidthLimiterTest {
+
+    @Test
+    void testUnlimitedNeverWaits() throws InterruptedException {
+        BandwidthLimiter limiter = new BandwidthLimiter(0, 0);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            limiter.acquire(1024 * 1024);
+        }
+
+        assertTrue(System.nanoTime() - start < 1_000_000_000L);
+        assertEquals(1000L * 1024 * 1024, limiter.getTotalBytes());
+        assertTrue(limiter.isUnlimited());
+    }
+
+    @Test
+    void testBurstIsServedImmediately() throws InterruptedException {
+        BandwidthLimiter limiter = new BandwidthLimiter(1024, 64 * 1024);
+
+        long start = System.nanoTime();
+        limiter.acquire(32 * 1024);
+
+        assertTrue(System.nanoTime() - start < 200_000_000L);
+    }
+
+    @Test
+    void testRateIsEnforcedAcrossThreads() throws InterruptedException {
+        // 400 KB at 1 MB/s with a 100 KB burst takes at least 300 ms
+        BandwidthLimiter limiter = new BandwidthLimiter(1024 * 1024, 100 * 1024);
+
+        long start = System.nanoTime();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(Thread.ofVirtual().start(() -> {
+                try {
+                    for (int i = 0; i < 10; i++) {
+                        limiter.acquire(10 * 1024);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis >= 280, "Finished too fast: " + elapsedMillis + " ms");
+        assertEquals(400 * 1024, limiter.getTotalBytes());
+    }
+
+    @Test
+    void testSetLimitTakesEffect() throws InterruptedException {
+        BandwidthLimiter limiter = new BandwidthLimiter(1024, 1024);
+        limiter.setLimit(0, 0);
+
+        long start = System.nanoTime();
+        limiter.acquire(10 * 1024 * 1024);
+
+        assertTrue(System.nanoTime() - start < 200_000_000L);
+        assertEquals(0, limiter.getBytesPerSecond());
+    }
+}
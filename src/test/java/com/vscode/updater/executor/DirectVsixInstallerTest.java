@@ -0,0 +1,176 @@
+package com.vscode.updater.executor;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vscode.updater.inventory.ExtensionInventoryScanner;
+import com.vscode.updater.inventory.InstalledExtension;
+import com.vscode.updater.inventory.InventorySnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Tests for DirectVsixInstaller functionality.
+ */
+class DirectVsixInstallerTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    private Path extensionsDirectory;
+
+    @BeforeEach
+    void installPreviousVersion() throws IOException {
+        extensionsDirectory = tempDir.resolve("extensions");
+        Path previous = extensionsDirectory.resolve("pub.one-1.0.0");
+        Files.createDirectories(previous);
+        Files.writeString(previous.resolve("package.json"), packageJson("1.0.0", "^1.80.0"));
+        Files.writeString(extensionsDirectory.resolve("extensions.json"), """
+            [{"identifier":{"id":"pub.one","uuid":"1234"},"version":"1.0.0",
+              "location":{"$mid":1,"path":"/old/pub.one-1.0.0","scheme":"file"},
+              "relativeLocation":"pub.one-1.0.0",
+              "metadata":{"id":"1234","publisherDisplayName":"Pub","source":"gallery"}},
+             {"identifier":{"id":"pub.other"},"version":"3.0.0","relativeLocation":"pub.other-3.0.0"}]
+            """);
+    }
+
+    @Test
+    void testInstallReplacesPreviousVersion() throws IOException {
+        Path vsix = vsix("2.0.0", "^1.80.0", Map.of("extension/dist/main.js", "console.log('v2')"));
+
+        InstalledExtension installed = DirectVsixInstaller.install(extensionsDirectory, "1.90.0",
+            new ExtensionUpdate("pub.one", "1.0.0", "2.0.0"), vsix);
+
+        assertEquals(extensionsDirectory.resolve("pub.one-2.0.0"), installed.installPath());
+        assertEquals("console.log('v2')", Files.readString(installed.installPath().resolve("dist/main.js")));
+
+        InventorySnapshot snapshot = ExtensionInventoryScanner.scan(extensionsDirectory);
+        assertEquals("2.0.0", snapshot.installedVersions().get("pub.one"));
+
+        JsonNode manifest = objectMapper.readTree(extensionsDirectory.resolve("extensions.json").toFile());
+        assertEquals(2, manifest.size());
+        JsonNode entry = manifest.get(0);
+        assertEquals("pub.one-2.0.0", entry.get("relativeLocation").asText());
+        assertEquals("1234", entry.get("metadata").get("id").asText());
+        assertEquals("gallery", entry.get("metadata").get("source").asText());
+        assertEquals("3.0.0", manifest.get(1).get("version").asText());
+
+        JsonNode obsolete = objectMapper.readTree(extensionsDirectory.resolve(".obsolete").toFile());
+        assertTrue(obsolete.get("pub.one-1.0.0").asBoolean());
+        assertNoStagingLeft();
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void testExecutableBitsAreKept() throws IOException {
+        Path vsix = vsix("2.0.0", "^1.80.0", Map.of("extension/bin/server", "#!/bin/sh",
+            "extension/dist/main.js", "console.log('v2')"));
+        try (FileSystem zip = FileSystems.newFileSystem(vsix, Map.of("enablePosixFileAttributes", "true"))) {
+            Files.setPosixFilePermissions(zip.getPath("/extension/bin/server"),
+                PosixFilePermissions.fromString("rwxr-xr-x"));
+            Files.setPosixFilePermissions(zip.getPath("/extension/dist/main.js"),
+                PosixFilePermissions.fromString("rw-r--r--"));
+        }
+
+        InstalledExtension installed = DirectVsixInstaller.install(extensionsDirectory, "1.90.0",
+            new ExtensionUpdate("pub.one", "1.0.0", "2.0.0"), vsix);
+
+        assertTrue(Files.isExecutable(installed.installPath().resolve("bin/server")));
+        assertFalse(Files.isExecutable(installed.installPath().resolve("dist/main.js")));
+        assertFalse(Files.isExecutable(installed.installPath().resolve("package.json")));
+    }
+
+    @Test
+    void testMismatchLeavesDirectoryUntouched() throws IOException {
+        String manifestBefore = Files.readString(extensionsDirectory.resolve("extensions.json"));
+        Path wrongVersion = vsix("2.0.1", "^1.80.0", Map.of());
+        Path tooNew = vsix("2.0.0", "^1.95.0", Map.of());
+        Path unsafe = vsix("2.0.0", "^1.80.0", Map.of("extension/../../escaped.txt", "x"));
+        ExtensionUpdate update = new ExtensionUpdate("pub.one", "1.0.0", "2.0.0");
+
+        assertThrows(IOException.class,
+            () -> DirectVsixInstaller.install(extensionsDirectory, "1.90.0", update, wrongVersion));
+        assertThrows(IOException.class,
+            () -> DirectVsixInstaller.install(extensionsDirectory, "1.90.0", update, tooNew));
+        assertThrows(IOException.class,
+            () -> DirectVsixInstaller.install(extensionsDirectory, "1.90.0", update, unsafe));
+
+        assertEquals(manifestBefore, Files.readString(extensionsDirectory.resolve("extensions.json")));
+        assertFalse(Files.exists(extensionsDirectory.resolve("pub.one-2.0.0")));
+        assertFalse(Files.exists(tempDir.resolve("escaped.txt")));
+        assertFalse(Files.exists(extensionsDirectory.resolve(".obsolete")));
+        assertNoStagingLeft();
+    }
+
+    @Test
+    void testPlatformSpecificFolderAndNewEntry() throws IOException {
+        Path vsix = vsixFor("pub", "native", "0.5.0", "*", Map.of());
+
+        InstalledExtension installed = DirectVsixInstaller.install(extensionsDirectory, "1.90.0",
+            new ExtensionUpdate("pub.native", null, "0.5.0", "linux-x64", null), vsix);
+
+        assertEquals("pub.native-0.5.0-linux-x64", installed.installPath().getFileName().toString());
+        JsonNode manifest = objectMapper.readTree(extensionsDirectory.resolve("extensions.json").toFile());
+        assertEquals(3, manifest.size());
+        assertEquals("linux-x64", manifest.get(2).get("metadata").get("targetPlatform").asText());
+        assertEquals(List.of("pub.one", "pub.other", "pub.native"),
+            ExtensionInventoryScanner.readExtensionsManifest(extensionsDirectory).stream()
+                .map(InstalledExtension::id).toList());
+    }
+
+    private void assertNoStagingLeft() throws IOException {
+        try (var files = Files.list(extensionsDirectory)) {
+            assertTrue(files.noneMatch(path -> path.getFileName().toString().startsWith(".")
+                && Files.isDirectory(path)));
+        }
+    }
+
+    private Path vsix(String version, String engine, Map<String, String> files) throws IOException {
+        return vsixFor("pub", "one", version, engine, files);
+    }
+
+    private Path vsixFor(String publisher, String name, String version, String engine, Map<String, String> files)
+            throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        entries.put("extension.vsixmanifest", "<PackageManifest/>");
+        entries.put("extension/package.json", """
+            {"publisher":"%s","name":"%s","version":"%s","engines":{"vscode":"%s"}}
+            """.formatted(publisher, name, version, engine));
+        entries.putAll(files);
+
+        Path path = tempDir.resolve(publisher + "." + name + "-" + version + "-" + entries.hashCode() + ".vsix");
+        try (OutputStream out = Files.newOutputStream(path); ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                zip.putNextEntry(new ZipEntry(entry.getKey()));
+                zip.write(entry.getValue().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return path;
+    }
+
+    private static String packageJson(String version, String engine) {
+        return """
+            {"publisher":"pub","name":"one","version":"%s","engines":{"vscode":"%s"}}
+            """.formatted(version, engine);
+    }
+}
@@ -0,0 +1,58 @@
+package com.vscode.updater.executor;
+
+import com.vscode.updater.config.VSCodeConfig;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for ExecutorStrategy selection and behaviour.
+ */
+class ExecutorStrategyTest {
+
+    @Test
+    void testStrategySelectionFromConfig() {
+        assertEquals(ExecutorStrategy.VIRTUAL_THREADS,
+            ExecutorStrategy.fromConfig(new VSCodeConfig.ConcurrencyConfig(3, true, false)));
+        assertEquals(ExecutorStrategy.PLATFORM_POOL,
+            ExecutorStrategy.fromConfig(new VSCodeConfig.ConcurrencyConfig(3, false, false)));
+        assertEquals(ExecutorStrategy.SEQUENTIAL,
+            ExecutorStrategy.fromConfig(new VSCodeConfig.ConcurrencyConfig(3, true, true)));
+        assertEquals(ExecutorStrategy.VIRTUAL_THREADS, ExecutorStrategy.fromConfig(null));
+    }
+
+    @Test
+    void testVirtualThreadExecutor() {
+        try (ExecutorService executor = ExecutorStrategy.VIRTUAL_THREADS.createExecutor(1)) {
+            boolean virtual = CompletableFuture.supplyAsync(() -> Thread.currentThread().isVirtual(), executor).join();
+            assertTrue(virtual);
+        }
+    }
+
+    @Test
+    void testSequentialExecutorRunsOneTaskAtATime() {
+        AtomicInteger active = new AtomicInteger(0);
+        AtomicInteger maxActive = new AtomicInteger(0);
+
+        try (ExecutorService executor = ExecutorStrategy.SEQUENTIAL.createExecutor(4)) {
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[4];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = CompletableFuture.runAsync(() -> {
+                    maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(20);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    active.decrementAndGet();
+                }, executor);
+            }
+            CompletableFuture.allOf(futures).join();
+        }
+
+        assertEquals(1, maxActive.get());
+    }
+}
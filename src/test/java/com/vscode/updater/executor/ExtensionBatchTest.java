@@ -0,0 +1,126 @@
+package com.vscode.updater.executor;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Tests for ExtensionBatch command building and output parsing.
+ */
+class ExtensionBatchTest {
+
+    @Test
+    void testPartitionSeparatesTypesAndRespectsBatchSize() {
+        List<ExtensionOperation> operations = List.of(
+            ExtensionOperation.install(new ExtensionUpdate("a.one", "1.0.0", "1.1.0")),
+            ExtensionOperation.uninstall("b.two"),
+            ExtensionOperation.install(new ExtensionUpdate("a.three", "1.0.0", null)),
+            ExtensionOperation.install(new ExtensionUpdate("a.four", "1.0.0", null))
+        );
+
+        List<ExtensionBatch> batches = ExtensionBatch.partition(operations, 2);
+
+        assertEquals(3, batches.size());
+        assertEquals(ExtensionOperation.Type.INSTALL, batches.get(0).type());
+        assertEquals(2, batches.get(0).operations().size());
+        assertEquals(1, batches.get(1).operations().size());
+        assertEquals(ExtensionOperation.Type.UNINSTALL, batches.get(2).type());
+    }
+
+    @Test
+    void testInstallCommand() {
+        ExtensionBatch batch = new ExtensionBatch(ExtensionOperation.Type.INSTALL, List.of(
+            ExtensionOperation.install(new ExtensionUpdate("a.one", "1.0.0", "1.1.0")),
+            ExtensionOperation.install(new ExtensionUpdate("a.two", "1.0.0", null))
+        ));
+
+        assertArrayEquals(new String[]{"code", "--install-extension", "a.one@1.1.0",
+            "--install-extension", "a.two", "--force"}, batch.toCommand("code"));
+    }
+
+    @Test
+    void testMixedBatchRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new ExtensionBatch(ExtensionOperation.Type.INSTALL,
+            List.of(ExtensionOperation.uninstall("a.one"))));
+    }
+
+    @Test
+    void testParseCombinedInstallOutput() {
+        ExtensionBatch batch = new ExtensionBatch(ExtensionOperation.Type.INSTALL, List.of(
+            ExtensionOperation.install(new ExtensionUpdate("Pub.One", "1.0.0", "1.1.0")),
+            ExtensionOperation.install(new ExtensionUpdate("pub.two", "2.0.0", null)),
+            ExtensionOperation.install(new ExtensionUpdate("pub.three", "1.0.0", null)),
+            ExtensionOperation.install(new ExtensionUpdate("pub.four", "1.0.0", null))
+        ));
+
+        List<CommandExecutor.ExtensionOutcome> outcomes = batch.parseOutcomes(List.of(
+            "Installing extensions...",
+            "Installing extension 'pub.one@1.1.0'...",
+            "Extension 'pub.one' v1.1.0 was successfully installed.",
+            "Extension 'pub.two' v2.0.0 is already installed.",
+            "Failed Installing Extensions: pub.three"
+        ), 1);
+
+        assertEquals(4, outcomes.size());
+        assertEquals(CommandExecutor.ExtensionOutcome.Status.UPDATED, outcomes.get(0).status());
+        assertEquals(CommandExecutor.ExtensionOutcome.Status.UP_TO_DATE, outcomes.get(1).status());
+        assertEquals(CommandExecutor.ExtensionOutcome.Status.FAILED, outcomes.get(2).status());
+        // Not mentioned in the output and the process failed
+        assertEquals(CommandExecutor.ExtensionOutcome.Status.FAILED, outcomes.get(3).status());
+    }
+
+    @Test
+    void testQuotedIdIsNotMistakenForFailure() {
+        ExtensionBatch batch = new ExtensionBatch(ExtensionOperation.Type.INSTALL, List.of(
+            ExtensionOperation.install(new ExtensionUpdate("usernamehw.errorlens", "3.20.0", "3.21.0")),
+            ExtensionOperation.install(new ExtensionUpdate("pub.failed-builds", "1.0.0", "1.1.0"))
+        ));
+
+        List<CommandExecutor.ExtensionOutcome> outcomes = batch.parseOutcomes(List.of(
+            "Installing extensions...",
+            "Installing extension 'usernamehw.errorlens@3.21.0'...",
+            "Extension 'usernamehw.errorlens' v3.21.0 was successfully installed.",
+            "Installing extension 'pub.failed-builds@1.1.0'...",
+            "Extension 'pub.failed-builds' v1.1.0 was successfully installed."
+        ), 0);
+
+        assertEquals(CommandExecutor.ExtensionOutcome.Status.UPDATED, outcomes.get(0).status());
+        assertEquals(CommandExecutor.ExtensionOutcome.Status.UPDATED, outcomes.get(1).status());
+    }
+
+    @Test
+    void testParseUninstallOutput() {
+        ExtensionBatch batch = new ExtensionBatch(ExtensionOperation.Type.UNINSTALL, List.of(
+            ExtensionOperation.uninstall("pub.one"),
+            ExtensionOperation.uninstall("pub.two")
+        ));
+
+        List<CommandExecutor.ExtensionOutcome> outcomes = batch.parseOutcomes(List.of(
+            "Uninstalling pub.one...",
+            "Extension 'pub.one' was successfully uninstalled!",
+            "Extension 'pub.two' is not installed."
+        ), 0);
+
+        assertEquals(CommandExecutor.ExtensionOutcome.Status.UNINSTALLED, outcomes.get(0).status());
+        assertEquals(CommandExecutor.ExtensionOutcome.Status.UP_TO_DATE, outcomes.get(1).status());
+    }
+
+    @Test
+    void testVsixInstallUsesPathAndMapsOutcome() {
+        Path vsix = Path.of("cache", "blobs", "0123abcd.vsix");
+        ExtensionBatch batch = new ExtensionBatch(ExtensionOperation.Type.INSTALL, List.of(
+            ExtensionOperation.install(new ExtensionUpdate("pub.one", "1.0.0", "1.1.0")).withVsixPath(vsix)
+        ));
+
+        assertArrayEquals(new String[]{"code", "--install-extension", vsix.toString(), "--force"},
+            batch.toCommand("code"));
+
+        List<CommandExecutor.ExtensionOutcome> outcomes = batch.parseOutcomes(List.of(
+            "Extension '0123abcd.vsix' was successfully installed."
+        ), 0);
+        assertEquals("pub.one", outcomes.get(0).extensionId());
+        assertEquals(CommandExecutor.ExtensionOutcome.Status.UPDATED, outcomes.get(0).status());
+    }
+}
@@ -0,0 +1,126 @@
+package com.vscode.updater.executor;
+
+import com.vscode.updater.discovery.VSCodeInstance;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for granular (per-extension) updates.
+ */
+class GranularUpdateExecutorTest {
+
+    @Test
+    void testParseExtensionList() {
+        Map<String, String> installed = GranularUpdateExecutor.parseExtensionList(List.of(
+            "ms-python.python@2024.2.1",
+            "Redhat.Java@1.28.0",
+            "Warning: something unrelated",
+            ""
+        ));
+
+        assertEquals(2, installed.size());
+        assertEquals("2024.2.1", installed.get("ms-python.python"));
+        assertEquals("1.28.0", installed.get("redhat.java"));
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void testGranularUpdateWithFakeCli(@TempDir Path tempDir) throws Exception {
+        Path fakeCode = tempDir.resolve("code");
+        Files.writeString(fakeCode, """
+            #!/bin/sh
+            case "$1" in
+              --version) echo "1.90.0"; exit 0 ;;
+              --list-extensions) echo "pub.one@1.0.0"; echo "pub.two@2.0.0"; echo "pub.bad@1.0.0"; exit 0 ;;
+              --install-extension)
+                status=0
+                while [ "$1" = "--install-extension" ]; do
+                  case "$2" in
+                    pub.bad*) echo "Failed Installing Extensions: $2"; status=1 ;;
+                    pub.two*) echo "Extension '$2' is already installed." ;;
+                    *) echo "Extension '$2' was successfully installed." ;;
+                  esac
+                  shift 2
+                done
+                exit $status ;;
+            esac
+            exit 2
+            """);
+        assertTrue(fakeCode.toFile().setExecutable(true));
+
+        VSCodeInstance instance = new VSCodeInstance(fakeCode.toString(), VSCodeInstance.VSCodeEdition.STABLE,
+            "1.90.0", "Fake VS Code", true, "Never", "Not run");
+
+        try (CommandRuntime runtime = ExecutorStrategy.VIRTUAL_THREADS.createRuntime(1)) {
+            CommandExecutor.ExecutionResult result = CommandExecutor.updateExtensionsGranularAsync(instance, 10,
+                new GranularUpdateOptions(OutdatedExtensionResolver.ALL_TO_LATEST, VsixProvider.NONE, false, 2, 2),
+                line -> { }, runtime)
+                .get(30, TimeUnit.SECONDS);
+
+            assertTrue(result.isGranular());
+            assertFalse(result.success());
+            assertEquals(3, result.extensionOutcomes().size());
+
+            Map<String, CommandExecutor.ExtensionOutcome.Status> statuses = result.extensionOutcomes().stream()
+                .collect(java.util.stream.Collectors.toMap(
+                    CommandExecutor.ExtensionOutcome::extensionId,
+                    CommandExecutor.ExtensionOutcome::status));
+            assertEquals(CommandExecutor.ExtensionOutcome.Status.UPDATED, statuses.get("pub.one"));
+            assertEquals(CommandExecutor.ExtensionOutcome.Status.UP_TO_DATE, statuses.get("pub.two"));
+            assertEquals(CommandExecutor.ExtensionOutcome.Status.FAILED, statuses.get("pub.bad"));
+        }
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void testConcurrencyChangeDuringUpdate(@TempDir Path tempDir) throws Exception {
+        Path fakeCode = tempDir.resolve("code");
+        Files.writeString(fakeCode, """
+            #!/bin/sh
+            case "$1" in
+              --version) echo "1.90.0"; exit 0 ;;
+              --list-extensions) echo "pub.one@1.0.0"; echo "pub.two@1.0.0"; echo "pub.three@1.0.0"; exit 0 ;;
+              --install-extension) sleep 0.3; echo "Extension '$2' was successfully installed."; exit 0 ;;
+            esac
+            exit 2
+            """);
+        assertTrue(fakeCode.toFile().setExecutable(true));
+
+        VSCodeInstance instance = new VSCodeInstance(fakeCode.toString(), VSCodeInstance.VSCodeEdition.STABLE,
+            "1.90.0", "Fake VS Code", true, "Never", "Not run");
+        CountDownLatch installing = new CountDownLatch(1);
+
+        CommandRuntime runtime = ExecutorStrategy.PLATFORM_POOL.createRuntime(1);
+        CompletableFuture<CommandExecutor.ExecutionResult> update = runtime.track(() ->
+            CommandExecutor.updateExtensionsGranularAsync(instance, 10,
+                new GranularUpdateOptions(OutdatedExtensionResolver.ALL_TO_LATEST, VsixProvider.NONE, false, 1, 1),
+                line -> {
+                    if (line.contains("Installing")) {
+                        installing.countDown();
+                    }
+                }, runtime));
+
+        // What the tray does when the concurrency settings change
+        assertTrue(installing.await(10, TimeUnit.SECONDS));
+        runtime.retire();
+        assertFalse(runtime.executor().isShutdown(), "Retired while an update was still running");
+
+        CommandExecutor.ExecutionResult result = update.get(30, TimeUnit.SECONDS);
+        assertTrue(result.success(), result.summary());
+        assertEquals(3, result.extensionOutcomes().size());
+        assertTrue(result.extensionOutcomes().stream()
+            .allMatch(outcome -> outcome.status() == CommandExecutor.ExtensionOutcome.Status.UPDATED));
+        assertTrue(runtime.executor().awaitTermination(5, TimeUnit.SECONDS));
+    }
+}
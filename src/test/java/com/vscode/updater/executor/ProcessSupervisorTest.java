@@ -0,0 +1,94 @@
+package com.vscode.updater.executor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for ProcessSupervisor functionality.
+ */
+@DisabledOnOs(OS.WINDOWS)
+class ProcessSupervisorTest {
+
+    @Test
+    void testCompletedProcessOutput() throws Exception {
+        List<String> streamed = new CopyOnWriteArrayList<>();
+
+        try (ExecutorService executor = ExecutorStrategy.VIRTUAL_THREADS.createExecutor(1)) {
+            ProcessSupervisor.ProcessOutcome outcome = ProcessSupervisor.execute(
+                new ProcessBuilder("sh", "-c", "echo first; echo second; exit 3"),
+                10, streamed::add, executor).get(10, TimeUnit.SECONDS);
+
+            assertFalse(outcome.timedOut());
+            assertEquals(3, outcome.exitCode());
+            assertFalse(outcome.success());
+            assertEquals(List.of("first", "second"), outcome.outputLines());
+            assertEquals(2, streamed.size());
+        }
+    }
+
+    @Test
+    void testTimeoutDestroysProcessTree() throws Exception {
+        try (ExecutorService executor = ExecutorStrategy.VIRTUAL_THREADS.createExecutor(1)) {
+            ProcessBuilder builder = new ProcessBuilder("sh", "-c", "sleep 30 & echo $!; wait");
+            ProcessSupervisor.ProcessOutcome outcome = ProcessSupervisor.execute(
+                builder, 1, line -> { }, executor).get(15, TimeUnit.SECONDS);
+
+            assertTrue(outcome.timedOut());
+            assertEquals(-1, outcome.exitCode());
+            assertFalse(outcome.outputLines().isEmpty(), "Child pid should have been printed");
+
+            long childPid = Long.parseLong(outcome.outputLines().get(0).trim());
+            ProcessHandle.of(childPid).ifPresent(child -> {
+                child.onExit().orTimeout(5, TimeUnit.SECONDS).join();
+                assertFalse(child.isAlive(), "Descendant process should have been destroyed");
+            });
+        }
+    }
+
+    @Test
+    void testSequentialRuntimeRunsOneProcessAtATime(@TempDir Path tempDir) throws Exception {
+        Path marker = tempDir.resolve("first-done");
+
+        try (CommandRuntime runtime = ExecutorStrategy.SEQUENTIAL.createRuntime(1)) {
+            CompletableFuture<ProcessSupervisor.ProcessOutcome> first = runtime.startProcess(
+                new ProcessBuilder("sh", "-c", "sleep 1; touch '" + marker + "'"), 10, line -> { });
+            // Must not start until the first process has exited
+            CompletableFuture<ProcessSupervisor.ProcessOutcome> second = runtime.startProcess(
+                new ProcessBuilder("sh", "-c", "test -f '" + marker + "'"), 10, line -> { });
+
+            // Waiting for the limiter does not hold the only executor thread
+            assertTrue(CompletableFuture.supplyAsync(() -> true, runtime.executor()).get(500, TimeUnit.MILLISECONDS));
+            assertFalse(second.isDone());
+
+            assertTrue(first.get(10, TimeUnit.SECONDS).success());
+            assertTrue(second.get(10, TimeUnit.SECONDS).success(), "Second process overlapped the first");
+            assertTrue(Files.exists(marker));
+        }
+    }
+
+    @Test
+    void testStartFailureReleasesProcessSlot(@TempDir Path tempDir) throws Exception {
+        try (CommandRuntime runtime = ExecutorStrategy.SEQUENTIAL.createRuntime(1)) {
+            CompletableFuture<ProcessSupervisor.ProcessOutcome> missing = runtime.startProcess(
+                new ProcessBuilder(tempDir.resolve("missing").toString()), 10, line -> { });
+            ExecutionException error = assertThrows(ExecutionException.class, () -> missing.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(IOException.class, error.getCause());
+
+            assertTrue(runtime.startProcess(new ProcessBuilder("true"), 10, line -> { })
+                .get(10, TimeUnit.SECONDS).success());
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.vscode.updater.executor;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Tests for SegmentedDownloader against a local server that serves ranges.
+ */
+class SegmentedDownloaderTest {
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+    private static final int FILE_SIZE = 2 * 1024 * 1024;
+    private static final int CHUNK_SIZE = 32 * 1024;
+
+    private final byte[] payload = new byte[FILE_SIZE];
+    private final AtomicInteger rangeRequests = new AtomicInteger();
+    private final AtomicLong bytesServed = new AtomicLong();
+    private final AtomicBoolean rangesSupported = new AtomicBoolean(true);
+    private final AtomicBoolean dropSecondHalf = new AtomicBoolean();
+    private final AtomicBoolean weakEtag = new AtomicBoolean();
+    private final AtomicBoolean changesOnEveryRequest = new AtomicBoolean();
+    private final AtomicInteger ifRangeRequests = new AtomicInteger();
+
+    private HttpServer server;
+    private URI fileUri;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        new Random(42).nextBytes(payload);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/file.vsix", this::serve);
+        server.start();
+        fileUri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/file.vsix");
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void testSegmentedDownload() throws IOException {
+        Path target = tempDir.resolve("file.vsix");
+        downloader(4).download(fileUri, target);
+
+        assertArrayEquals(payload, Files.readAllBytes(target));
+        // One probe plus one request per segment
+        assertEquals(5, rangeRequests.get());
+        assertFalse(Files.exists(SegmentedDownloader.stateFile(target)));
+    }
+
+    @Test
+    void testResumeAfterInterruptedDownload() throws IOException {
+        Path target = tempDir.resolve("file.vsix");
+        dropSecondHalf.set(true);
+
+        assertThrows(IOException.class, () -> downloader(4).download(fileUri, target));
+        assertTrue(Files.exists(SegmentedDownloader.stateFile(target)));
+
+        dropSecondHalf.set(false);
+        bytesServed.set(0);
+        downloader(4).download(fileUri, target);
+
+        assertArrayEquals(payload, Files.readAllBytes(target));
+        assertEquals(FILE_SIZE / 4, bytesServed.get(),
+            "Resume should only fetch the missing bytes, fetched " + bytesServed.get());
+        assertFalse(Files.exists(SegmentedDownloader.stateFile(target)));
+    }
+
+    @Test
+    void testFallsBackToSingleStreamWithoutRangeSupport() throws IOException {
+        rangesSupported.set(false);
+        Path target = tempDir.resolve("file.vsix");
+        downloader(4).download(fileUri, target);
+
+        assertArrayEquals(payload, Files.readAllBytes(target));
+        assertEquals(0, rangeRequests.get());
+    }
+
+    @Test
+    void testPlanSegmentsCoversWholeFile() {
+        List<SegmentedDownloader.Segment> segments = SegmentedDownloader.planSegments(10, 3);
+
+        assertEquals(3, segments.size());
+        assertEquals(0, segments.get(0).start());
+        assertEquals(9, segments.get(2).end());
+        assertEquals(10, segments.stream().mapToLong(SegmentedDownloader.Segment::length).sum());
+    }
+
+    @Test
+    void testWeakEtagIsNotSentAsIfRange() throws IOException {
+        weakEtag.set(true);
+        Path target = tempDir.resolve("file.vsix");
+        downloader(4).download(fileUri, target);
+
+        assertArrayEquals(payload, Files.readAllBytes(target));
+        assertEquals(0, ifRangeRequests.get());
+        assertEquals(5, rangeRequests.get());
+    }
+
+    @Test
+    void testDownloadRestartsOnlyOnce() {
+        changesOnEveryRequest.set(true);
+        Path target = tempDir.resolve("file.vsix");
+
+        assertThrows(IOException.class, () -> downloader(4).download(fileUri, target));
+        // At most four segment requests for each of the two attempts
+        assertTrue(ifRangeRequests.get() > 0 && ifRangeRequests.get() <= 8,
+            "Unexpected segment requests: " + ifRangeRequests.get());
+        assertFalse(Files.exists(SegmentedDownloader.stateFile(target)));
+    }
+
+    @Test
+    void testDownloadIsPacedByLimiter() throws IOException {
+        // 2 MB at 4 MB/s with a 512 KB burst takes at least 375 ms
+        BandwidthLimiter limiter = new BandwidthLimiter(4 * 1024 * 1024, 512 * 1024);
+        Path target = tempDir.resolve("file.vsix");
+
+        long start = System.nanoTime();
+        downloader(4).withLimiter(limiter).download(fileUri, target);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertArrayEquals(payload, Files.readAllBytes(target));
+        assertTrue(elapsedMillis >= 350, "Finished too fast: " + elapsedMillis + " ms");
+        assertEquals(FILE_SIZE, limiter.getTotalBytes());
+    }
+
+    private SegmentedDownloader downloader(int segments) {
+        return new SegmentedDownloader(HttpClient.newHttpClient(), segments, 1024);
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        Matcher matcher = range != null ? RANGE.matcher(range) : null;
+        int start = 0;
+        int end = FILE_SIZE - 1;
+
+        String etag = weakEtag.get() ? "W/\"payload\"" : "\"payload\"";
+        exchange.getResponseHeaders().add("ETag", etag);
+        String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+        if (ifRange != null) {
+            ifRangeRequests.incrementAndGet();
+        }
+        // A failed If-Range, or one with a weak validator, gets the whole file
+        boolean validatorMatches = ifRange == null
+            || (ifRange.equals(etag) && !ifRange.startsWith("W/") && !changesOnEveryRequest.get());
+        if (rangesSupported.get() && matcher != null && matcher.matches() && validatorMatches) {
+            rangeRequests.incrementAndGet();
+            start = Integer.parseInt(matcher.group(1));
+            end = Math.min(Integer.parseInt(matcher.group(2)), FILE_SIZE - 1);
+            exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+            exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + FILE_SIZE);
+            // A chunked body can end early, which looks like a dropped connection to the client
+            exchange.sendResponseHeaders(206, dropSecondHalf.get() ? 0 : end - start + 1);
+        } else {
+            exchange.sendResponseHeaders(200, FILE_SIZE);
+        }
+
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (int position = start; position <= end; position += CHUNK_SIZE) {
+                if (dropSecondHalf.get() && start >= FILE_SIZE / 2 && position - start >= (end - start) / 2) {
+                    // Cut the transfer short partway through
+                    return;
+                }
+                int length = Math.min(CHUNK_SIZE, end - position + 1);
+                out.write(payload, position, length);
+                out.flush();
+                bytesServed.addAndGet(length);
+            }
+        } catch (IOException e) {
+            // Client went away
+        } finally {
+            exchange.close();
+        }
+    }
+}
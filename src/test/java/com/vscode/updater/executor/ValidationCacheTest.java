@@ -0,0 +1,88 @@
+package com.vscode.updater.executor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for ValidationCache functionality.
+ */
+class ValidationCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicInteger validations = new AtomicInteger();
+    private final AtomicBoolean valid = new AtomicBoolean(true);
+    private final ValidationCache cache = new ValidationCache(Duration.ofMinutes(10), path -> {
+        validations.incrementAndGet();
+        return valid.get();
+    });
+
+    @Test
+    void testUnchangedExecutableIsValidatedOnce() throws IOException {
+        Path code = Files.writeString(tempDir.resolve("code"), "#!/bin/sh\n");
+        Instant now = Instant.now();
+
+        assertEquals(new ValidationCache.Validation(true, false), cache.validate(code.toString(), now));
+        assertEquals(new ValidationCache.Validation(true, true), cache.validate(code.toString(), now.plusSeconds(60)));
+        assertEquals(new ValidationCache.Validation(true, true), cache.validate(code.toString(), now.plusSeconds(120)));
+
+        assertEquals(1, validations.get());
+        assertEquals(new ValidationCache.Stats(2, 1), cache.getStats());
+        assertEquals("validation cache hit rate 67% (2 of 3)", cache.getStats().getSummary());
+    }
+
+    @Test
+    void testChangedOrExpiredEntriesAreValidatedAgain() throws IOException {
+        Path code = Files.writeString(tempDir.resolve("code"), "#!/bin/sh\n");
+        Instant now = Instant.now();
+        cache.validate(code.toString(), now);
+
+        // Expired
+        assertFalse(cache.validate(code.toString(), now.plus(Duration.ofMinutes(11))).cached());
+        assertEquals(2, validations.get());
+
+        // An update replaces the executable
+        Files.writeString(code, "#!/bin/sh\nexec /opt/code \"$@\"\n");
+        assertFalse(cache.validate(code.toString(), now.plus(Duration.ofMinutes(12))).cached());
+        assertEquals(3, validations.get());
+    }
+
+    @Test
+    void testLaunchersSharingATargetAreValidatedSeparately() throws IOException {
+        Path snap = Files.writeString(tempDir.resolve("snap"), "#!/bin/sh\n");
+        Path code = Files.createSymbolicLink(tempDir.resolve("code"), snap);
+        Path insiders = Files.createSymbolicLink(tempDir.resolve("code-insiders"), snap);
+        Instant now = Instant.now();
+
+        assertFalse(cache.validate(code.toString(), now).cached());
+        assertFalse(cache.validate(insiders.toString(), now).cached());
+        assertTrue(cache.validate(code.toString(), now).cached());
+        assertEquals(2, validations.get());
+    }
+
+    @Test
+    void testFailuresAreNotCached() throws IOException {
+        Path code = Files.writeString(tempDir.resolve("code"), "#!/bin/sh\n");
+        Instant now = Instant.now();
+        valid.set(false);
+
+        assertFalse(cache.validate(code.toString(), now).valid());
+        assertFalse(cache.validate(code.toString(), now).valid());
+        assertEquals(2, validations.get());
+
+        // A missing executable is never passed to the validator
+        assertFalse(cache.validate(tempDir.resolve("missing").toString(), now).valid());
+        assertEquals(2, validations.get());
+        assertEquals(0, cache.getStats().hits());
+    }
+}
@@ -0,0 +1,102 @@
+package com.vscode.updater.inventory;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tests for DiskUsageAnalyzer functionality.
+ */
+class DiskUsageAnalyzerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testBreakdownPerExtension() throws IOException {
+        Path stable = tempDir.resolve("stable");
+        writeExtension(stable.resolve("pub.big-1.0.0"), 200_000, 8);
+        writeExtension(stable.resolve("pub.small-1.0.0"), 1_000, 2);
+
+        DiskUsageAnalyzer.UsageReport report = DiskUsageAnalyzer.inMemory()
+            .analyzeDirectories(Map.of("Stable", stable));
+
+        DiskUsageAnalyzer.InstanceUsage usage = report.instances().get(0);
+        assertEquals(List.of("pub.big-1.0.0", "pub.small-1.0.0"),
+            usage.extensions().stream().map(DiskUsageAnalyzer.ExtensionUsage::folder).toList());
+
+        DiskUsageAnalyzer.ExtensionUsage big = usage.extensions().get(0);
+        assertEquals(10, big.files());
+        assertEquals(200_000 + 8 * 100 + 10, big.bytes());
+        assertEquals(new DiskUsageAnalyzer.FileSize("dist/bundle.js", 200_000), big.largestFiles().get(0));
+        assertEquals(DiskUsageAnalyzer.LARGEST_FILES, big.largestFiles().size());
+        assertEquals(big.bytes() + usage.extensions().get(1).bytes(), usage.totalBytes());
+        assertTrue(report.duplicates().isEmpty());
+    }
+
+    @Test
+    void testDuplicatesAcrossInstances() throws IOException {
+        Path stable = tempDir.resolve("stable");
+        Path insiders = tempDir.resolve("insiders");
+        writeExtension(stable.resolve("pub.shared-2.0.0"), 50_000, 3);
+        writeExtension(insiders.resolve("pub.shared-2.0.0"), 50_000, 3);
+        writeExtension(insiders.resolve("pub.other-1.0.0"), 10_000, 1);
+        Map<String, Path> directories = new LinkedHashMap<>();
+        directories.put("Stable", stable);
+        directories.put("Insiders", insiders);
+
+        DiskUsageAnalyzer.UsageReport report = DiskUsageAnalyzer.inMemory().analyzeDirectories(directories);
+
+        assertEquals(1, report.duplicates().size());
+        DiskUsageAnalyzer.DuplicateFolder duplicate = report.duplicates().get(0);
+        assertEquals("pub.shared-2.0.0", duplicate.folder());
+        assertEquals(List.of("Stable", "Insiders"), duplicate.instances());
+        assertEquals(50_000 + 3 * 100 + 10, report.duplicateBytes());
+    }
+
+    @Test
+    void testUnchangedDirectoriesComeFromCache() throws IOException {
+        Path stable = tempDir.resolve("stable");
+        Path extension = stable.resolve("pub.one-1.0.0");
+        writeExtension(extension, 5_000, 2);
+        Path cacheFile = tempDir.resolve("config").resolve(DiskUsageAnalyzer.FILE_NAME);
+
+        DiskUsageAnalyzer analyzer = DiskUsageAnalyzer.load(cacheFile);
+        DiskUsageAnalyzer.UsageReport first = analyzer.analyzeDirectories(Map.of("Stable", stable));
+        analyzer.save();
+        assertEquals(0, first.directoriesFromCache());
+        assertEquals(4, first.directoriesListed());
+
+        DiskUsageAnalyzer reloaded = DiskUsageAnalyzer.load(cacheFile);
+        DiskUsageAnalyzer.UsageReport second = reloaded.analyzeDirectories(Map.of("Stable", stable));
+        assertEquals(0, second.directoriesListed());
+        assertEquals(4, second.directoriesFromCache());
+        assertEquals(first.instances(), second.instances());
+
+        // A new file changes the directory's modification time
+        Files.write(extension.resolve("dist/extra.js"), new byte[3_000]);
+        Files.setLastModifiedTime(extension.resolve("dist"), FileTime.from(Instant.now().plusSeconds(5)));
+        DiskUsageAnalyzer.UsageReport third = reloaded.analyzeDirectories(Map.of("Stable", stable));
+        assertEquals(1, third.directoriesListed());
+        assertEquals(first.instances().get(0).totalBytes() + 3_000, third.instances().get(0).totalBytes());
+    }
+
+    private static void writeExtension(Path folder, int bundleSize, int modules) throws IOException {
+        Files.createDirectories(folder.resolve("dist"));
+        Files.write(folder.resolve("package.json"), new byte[10]);
+        Files.write(folder.resolve("dist/bundle.js"), new byte[bundleSize]);
+        Files.createDirectories(folder.resolve("node_modules"));
+        for (int i = 0; i < modules; i++) {
+            Files.write(folder.resolve("node_modules/module" + i + ".js"), new byte[100]);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.vscode.updater.inventory;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Tests for ExtensionInventoryScanner functionality.
+ */
+class ExtensionInventoryScannerTest {
+
+    @Test
+    void testScanReadsExtensionsManifest(@TempDir Path extensionsDir) throws IOException {
+        writePackage(extensionsDir.resolve("ms-python.python-2024.2.1"), "ms-python", "python", "2024.2.1");
+        writePackage(extensionsDir.resolve("redhat.java-1.28.0-linux-x64"), "redhat", "java", "1.28.0");
+        Files.writeString(extensionsDir.resolve("extensions.json"), """
+            [
+              {
+                "identifier": {"id": "ms-python.python", "uuid": "f1f59ae4"},
+                "version": "2024.2.1",
+                "location": {"$mid": 1, "fsPath": "/ignored", "scheme": "file"},
+                "relativeLocation": "ms-python.python-2024.2.1",
+                "metadata": {"installedTimestamp": 1700000000000, "targetPlatform": "undefined"}
+              },
+              {
+                "identifier": {"id": "Redhat.Java"},
+                "version": "1.27.0",
+                "relativeLocation": "redhat.java-1.28.0-linux-x64",
+                "metadata": {"targetPlatform": "linux-x64", "pinned": false}
+              },
+              {
+                "identifier": {"id": "gone.extension"},
+                "version": "1.0.0",
+                "relativeLocation": "gone.extension-1.0.0"
+              }
+            ]
+            """);
+
+        InventorySnapshot snapshot = ExtensionInventoryScanner.scan(extensionsDir);
+
+        assertEquals(2, snapshot.size());
+        InstalledExtension python = snapshot.find("ms-python.python").orElseThrow();
+        assertEquals("2024.2.1", python.version());
+        assertFalse(python.isPlatformSpecific());
+        assertEquals(extensionsDir.resolve("ms-python.python-2024.2.1"), python.installPath());
+
+        // package.json on disk wins over a stale manifest entry
+        InstalledExtension java = snapshot.find("redhat.java").orElseThrow();
+        assertEquals("1.28.0", java.version());
+        assertEquals("linux-x64", java.targetPlatform());
+
+        assertTrue(snapshot.find("gone.extension").isEmpty());
+    }
+
+    @Test
+    void testScanFallsBackToFolders(@TempDir Path extensionsDir) throws IOException {
+        writePackage(extensionsDir.resolve("pub.one-1.0.0"), "pub", "one", "1.0.0");
+        Files.createDirectories(extensionsDir.resolve(".obsolete-folder"));
+        Files.createDirectories(extensionsDir.resolve("no-package"));
+
+        InventorySnapshot snapshot = ExtensionInventoryScanner.scan(extensionsDir);
+
+        assertEquals(1, snapshot.size());
+        assertEquals("1.0.0", snapshot.installedVersions().get("pub.one"));
+    }
+
+    @Test
+    void testScanMissingDirectory(@TempDir Path tempDir) {
+        InventorySnapshot snapshot = ExtensionInventoryScanner.scan(tempDir.resolve("missing"));
+
+        assertEquals(0, snapshot.size());
+    }
+
+    @Test
+    void testReadPackageManifestMetadata(@TempDir Path tempDir) throws IOException {
+        Path folder = tempDir.resolve("pub.native-2.0.0-darwin-arm64");
+        Files.createDirectories(folder);
+        Files.writeString(folder.resolve("package.json"), """
+            {
+              "name": "native",
+              "publisher": "Pub",
+              "version": "2.0.0",
+              "contributes": {"commands": [{"command": "a", "title": "A"}]},
+              "__metadata": {"id": "abc", "targetPlatform": "darwin-arm64"}
+            }
+            """);
+
+        ExtensionInventoryScanner.PackageInfo info =
+            ExtensionInventoryScanner.readPackageManifest(folder, true).orElseThrow();
+
+        assertEquals("pub.native", info.id());
+        assertEquals("darwin-arm64", info.targetPlatform());
+    }
+
+    private static void writePackage(Path folder, String publisher, String name, String version) throws IOException {
+        Files.createDirectories(folder);
+        Files.writeString(folder.resolve("package.json"), """
+            {"name": "%s", "publisher": "%s", "version": "%s", "engines": {"vscode": "^1.80.0"}}
+            """.formatted(name, publisher, version));
+    }
+}
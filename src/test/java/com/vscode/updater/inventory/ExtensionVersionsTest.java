@@ -0,0 +1,47 @@
+package com.vscode.updater.inventory;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for ExtensionVersions functionality.
+ */
+class ExtensionVersionsTest {
+
+    @Test
+    void testNumericSegmentsCompareNumerically() {
+        assertTrue(ExtensionVersions.compare("1.10.0", "1.9.0") > 0);
+        assertTrue(ExtensionVersions.compare("2024.2.1", "2024.10.0") < 0);
+        assertEquals(0, ExtensionVersions.compare("1.2", "1.2.0"));
+    }
+
+    @Test
+    void testPreReleaseSortsBeforeRelease() {
+        assertTrue(ExtensionVersions.compare("1.0.0-pre", "1.0.0") < 0);
+        assertTrue(ExtensionVersions.compare("1.0.1-pre", "1.0.0") > 0);
+    }
+
+    @Test
+    void testIsNewer() {
+        assertTrue(ExtensionVersions.isNewer("1.1.0", "1.0.0"));
+        assertFalse(ExtensionVersions.isNewer("1.0.0", "1.0.0"));
+        assertFalse(ExtensionVersions.isNewer(null, "1.0.0"));
+    }
+
+    @Test
+    void testMinimumEngineVersion() {
+        assertEquals("1.85.0", ExtensionVersions.minimumEngineVersion("^1.85.0"));
+        assertEquals("1.74.0", ExtensionVersions.minimumEngineVersion(">=1.74.x"));
+        assertNull(ExtensionVersions.minimumEngineVersion("*"));
+        assertNull(ExtensionVersions.minimumEngineVersion(null));
+    }
+
+    @Test
+    void testEngineCompatibility() {
+        assertTrue(ExtensionVersions.isEngineCompatible("^1.85.0", "1.85.0"));
+        assertTrue(ExtensionVersions.isEngineCompatible("^1.85.0", "1.85.0-insider"));
+        assertFalse(ExtensionVersions.isEngineCompatible("^1.90.0", "1.85.2"));
+        assertTrue(ExtensionVersions.isEngineCompatible("^1.90.0", "Unknown"));
+        assertTrue(ExtensionVersions.isEngineCompatible(null, "1.85.2"));
+    }
+}
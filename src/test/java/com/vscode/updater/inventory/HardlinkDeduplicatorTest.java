@@ -0,0 +1,115 @@
+package com.vscode.updater.inventory;
+
+import com.vscode.updater.vsix.VsixCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Tests for HardlinkDeduplicator functionality.
+ */
+class HardlinkDeduplicatorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path stable;
+    private Path insiders;
+
+    @BeforeEach
+    void createExtensions() throws IOException {
+        stable = tempDir.resolve("stable");
+        insiders = tempDir.resolve("insiders");
+        for (Path directory : new Path[] {stable, insiders}) {
+            Path folder = directory.resolve("pub.shared-1.0.0");
+            Files.createDirectories(folder.resolve("dist"));
+            Files.write(folder.resolve("dist/bundle.js"), randomBytes(1, 100_000));
+            Files.write(folder.resolve("dist/worker.js"), randomBytes(2, 20_000));
+            Files.write(folder.resolve("package.json"), randomBytes(3, 8_000));
+        }
+        // Same name and size, different content
+        Files.write(insiders.resolve("pub.shared-1.0.0/dist/worker.js"), randomBytes(4, 20_000));
+        Files.createDirectories(stable.resolve("pub.only-1.0.0"));
+        Files.write(stable.resolve("pub.only-1.0.0/main.js"), randomBytes(5, 50_000));
+    }
+
+    @Test
+    void testIdenticalFilesAreLinked() throws IOException {
+        Path ledger = tempDir.resolve("config").resolve(HardlinkDeduplicator.FILE_NAME);
+        HardlinkDeduplicator deduplicator = HardlinkDeduplicator.load(ledger);
+
+        HardlinkDeduplicator.DedupResult result = deduplicator.deduplicate(stable, insiders);
+
+        assertEquals(1, result.foldersCompared());
+        assertEquals(1, result.filesLinked());
+        assertEquals(100_000, result.bytesSaved());
+        assertEquals(1, result.filesDiffering());
+        assertTrue(Files.isSameFile(stable.resolve("pub.shared-1.0.0/dist/bundle.js"),
+            insiders.resolve("pub.shared-1.0.0/dist/bundle.js")));
+        assertFalse(Files.isSameFile(stable.resolve("pub.shared-1.0.0/dist/worker.js"),
+            insiders.resolve("pub.shared-1.0.0/dist/worker.js")));
+        // package.json is rewritten in place by VS Code and stays separate
+        assertFalse(Files.isSameFile(stable.resolve("pub.shared-1.0.0/package.json"),
+            insiders.resolve("pub.shared-1.0.0/package.json")));
+        assertArrayEquals(randomBytes(1, 100_000),
+            Files.readAllBytes(insiders.resolve("pub.shared-1.0.0/dist/bundle.js")));
+
+        // A second pass finds nothing new; the ledger survives a reload
+        assertEquals(0, deduplicator.deduplicate(stable, insiders).filesLinked());
+        assertEquals(1, HardlinkDeduplicator.load(ledger).getEntries().size());
+        assertTrue(HardlinkDeduplicator.load(ledger).hasLinks(insiders));
+    }
+
+    @Test
+    void testUndoSeparatesLinkedFiles() throws IOException {
+        HardlinkDeduplicator deduplicator = HardlinkDeduplicator.inMemory();
+        deduplicator.deduplicate(stable, insiders);
+        Path stableBundle = stable.resolve("pub.shared-1.0.0/dist/bundle.js");
+        Path insidersBundle = insiders.resolve("pub.shared-1.0.0/dist/bundle.js");
+
+        HardlinkDeduplicator.UndoResult result = deduplicator.undo(stable);
+
+        assertEquals(1, result.filesRestored());
+        assertEquals(0, result.failures());
+        assertFalse(Files.isSameFile(stableBundle, insidersBundle));
+        assertArrayEquals(Files.readAllBytes(stableBundle), Files.readAllBytes(insidersBundle));
+        assertFalse(deduplicator.hasLinks(insiders));
+
+        // Writing to one copy no longer changes the other
+        Files.write(stableBundle, new byte[10]);
+        assertEquals(100_000, Files.size(insidersBundle));
+    }
+
+    @Test
+    void testUndoSkipsDeletedFiles() throws IOException {
+        HardlinkDeduplicator deduplicator = HardlinkDeduplicator.inMemory();
+        deduplicator.deduplicate(stable, insiders);
+        Files.delete(insiders.resolve("pub.shared-1.0.0/dist/bundle.js"));
+
+        HardlinkDeduplicator.UndoResult result = deduplicator.undoAll();
+
+        assertEquals(0, result.filesRestored());
+        assertTrue(deduplicator.getEntries().isEmpty());
+        assertTrue(Files.exists(stable.resolve("pub.shared-1.0.0/dist/bundle.js")));
+    }
+
+    @Test
+    void testMemoryMappedHashMatchesStreamedHash() throws IOException {
+        Path file = tempDir.resolve("file.bin");
+        Files.write(file, randomBytes(6, 300_000));
+
+        assertEquals(VsixCache.sha256(file), HardlinkDeduplicator.sha256(file));
+    }
+
+    private static byte[] randomBytes(long seed, int size) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
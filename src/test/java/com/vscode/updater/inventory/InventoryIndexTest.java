@@ -0,0 +1,112 @@
+package com.vscode.updater.inventory;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests for InventoryIndex functionality.
+ */
+class InventoryIndexTest {
+
+    @Test
+    void testStaleExtensionsFromLatestVersions(@TempDir Path extensionsDir) throws IOException {
+        writePackage(extensionsDir, "pub", "one", "1.0.0");
+        writePackage(extensionsDir, "pub", "two", "2.0.0");
+
+        try (InventoryIndex index = new InventoryIndex(extensionsDir, 50, null)) {
+            assertEquals(2, index.size());
+            assertEquals(0, index.staleCount());
+
+            index.updateLatestVersions(Map.of("Pub.One", "1.1.0", "pub.two", "2.0.0"));
+
+            assertEquals(Set.of("pub.one"), index.staleExtensions());
+            assertTrue(index.isStale("PUB.ONE"));
+            assertFalse(index.isStale("pub.two"));
+        }
+    }
+
+    @Test
+    void testApplyChangesRereadsOnlyManifestDelta(@TempDir Path extensionsDir) throws IOException {
+        writePackage(extensionsDir, "pub", "one", "1.0.0");
+        writeManifest(extensionsDir, "pub.one", "1.0.0");
+
+        try (InventoryIndex index = new InventoryIndex(extensionsDir, 50, null)) {
+            index.updateLatestVersions(Map.of("pub.one", "1.1.0"));
+            assertTrue(index.isStale("pub.one"));
+
+            // VS Code installs the new version into a new folder and rewrites the registry
+            writePackage(extensionsDir, "pub", "one", "1.1.0");
+            writeManifest(extensionsDir, "pub.one", "1.1.0");
+            index.applyChanges(Set.of(
+                extensionsDir.resolve("pub.one-1.1.0"),
+                extensionsDir.resolve(ExtensionInventoryScanner.EXTENSIONS_MANIFEST)));
+
+            assertEquals("1.1.0", index.installedVersion("pub.one").orElseThrow());
+            assertFalse(index.isStale("pub.one"));
+            assertEquals(1, index.getFullRescanCount());
+            assertEquals(1, index.getIncrementalUpdateCount());
+        }
+    }
+
+    @Test
+    void testWatcherPicksUpNewExtension(@TempDir Path extensionsDir) throws Exception {
+        writePackage(extensionsDir, "pub", "one", "1.0.0");
+        CountDownLatch changed = new CountDownLatch(1);
+
+        try (InventoryIndex index = new InventoryIndex(extensionsDir, 50, i -> {
+                if (i.find("pub.two").isPresent()) {
+                    changed.countDown();
+                }
+            })) {
+            index.start();
+            writePackage(extensionsDir, "pub", "two", "2.0.0");
+
+            // Polling watch services (e.g. macOS) can take several seconds to report
+            assertTrue(changed.await(30, TimeUnit.SECONDS));
+            assertEquals(2, index.size());
+        }
+    }
+
+    @Test
+    void testWatcherPicksUpInPlacePackageEdit(@TempDir Path extensionsDir) throws Exception {
+        writePackage(extensionsDir, "pub", "one", "1.0.0");
+        CountDownLatch changed = new CountDownLatch(1);
+
+        try (InventoryIndex index = new InventoryIndex(extensionsDir, 50, i -> {
+                if (i.installedVersion("pub.one").filter("1.0.1"::equals).isPresent()) {
+                    changed.countDown();
+                }
+            })) {
+            index.start();
+            Files.writeString(extensionsDir.resolve("pub.one-1.0.0").resolve("package.json"), """
+                {"name": "one", "publisher": "pub", "version": "1.0.1"}
+                """);
+
+            assertTrue(changed.await(30, TimeUnit.SECONDS));
+            assertEquals(1, index.getFullRescanCount());
+        }
+    }
+
+    private static void writePackage(Path extensionsDir, String publisher, String name, String version)
+            throws IOException {
+        Path folder = Files.createDirectories(extensionsDir.resolve(publisher + "." + name + "-" + version));
+        Files.writeString(folder.resolve("package.json"), """
+            {"name": "%s", "publisher": "%s", "version": "%s"}
+            """.formatted(name, publisher, version));
+    }
+
+    private static void writeManifest(Path extensionsDir, String id, String version) throws IOException {
+        Files.writeString(extensionsDir.resolve(ExtensionInventoryScanner.EXTENSIONS_MANIFEST), """
+            [{"identifier": {"id": "%s"}, "version": "%s", "relativeLocation": "%s-%s"}]
+            """.formatted(id, version, id, version));
+    }
+}
@@ -0,0 +1,104 @@
+package com.vscode.updater.inventory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Tests for ObsoleteExtensionCollector functionality.
+ */
+class ObsoleteExtensionCollectorTest {
+
+    @TempDir
+    Path extensionsDir;
+
+    @BeforeEach
+    void createExtensions() throws IOException {
+        writePackage("pub.one-1.0.0", "pub", "one", "1.0.0", 1000);
+        writePackage("pub.one-1.1.0", "pub", "one", "1.1.0", 2000);
+        writePackage("pub.one-2.0.0", "pub", "one", "2.0.0", 3000);
+        writePackage("pub.two-1.0.0", "pub", "two", "1.0.0", 500);
+        writePackage("manual.drop-0.1.0", "manual", "drop", "0.1.0", 700);
+        Files.createDirectories(extensionsDir.resolve(".staging-install"));
+        Files.writeString(extensionsDir.resolve("extensions.json"), """
+            [{"identifier":{"id":"pub.one"},"version":"2.0.0","relativeLocation":"pub.one-2.0.0"},
+             {"identifier":{"id":"pub.two"},"version":"1.0.0","relativeLocation":"pub.two-1.0.0"}]
+            """);
+        // A folder listed as obsolete but still referenced must survive
+        Files.writeString(extensionsDir.resolve(".obsolete"), """
+            {"pub.one-1.0.0":true,"pub.two-1.0.0":true}
+            """);
+    }
+
+    @Test
+    void testRemovesUnreferencedVersions() throws IOException {
+        ObsoleteExtensionCollector.CollectionResult result =
+            ObsoleteExtensionCollector.collect(extensionsDir, false, Duration.ZERO);
+
+        assertFalse(result.dryRun());
+        assertEquals(List.of("pub.one-1.0.0", "pub.one-1.1.0"), result.removedFolders().stream().sorted().toList());
+        assertTrue(result.reclaimedBytes() >= 3000);
+        assertTrue(result.failedFolders().isEmpty());
+
+        assertFalse(Files.exists(extensionsDir.resolve("pub.one-1.0.0")));
+        assertFalse(Files.exists(extensionsDir.resolve("pub.one-1.1.0")));
+        assertTrue(Files.exists(extensionsDir.resolve("pub.one-2.0.0")));
+        assertTrue(Files.exists(extensionsDir.resolve("pub.two-1.0.0")));
+        assertTrue(Files.exists(extensionsDir.resolve("manual.drop-0.1.0")));
+        assertTrue(Files.exists(extensionsDir.resolve(".staging-install")));
+
+        // Removed folders are dropped from .obsolete, the rest is kept
+        String obsolete = Files.readString(extensionsDir.resolve(".obsolete"));
+        assertFalse(obsolete.contains("pub.one-1.0.0"));
+        assertTrue(obsolete.contains("pub.two-1.0.0"));
+        assertEquals("2.0.0", ExtensionInventoryScanner.scan(extensionsDir).installedVersions().get("pub.one"));
+    }
+
+    @Test
+    void testDryRunOnlyReports() throws IOException {
+        String obsoleteBefore = Files.readString(extensionsDir.resolve(".obsolete"));
+
+        ObsoleteExtensionCollector.CollectionResult result =
+            ObsoleteExtensionCollector.collect(extensionsDir, true, Duration.ZERO);
+
+        assertTrue(result.dryRun());
+        assertEquals(2, result.removedFolders().size());
+        assertTrue(result.reclaimedBytes() >= 3000);
+        assertTrue(result.getSummary().startsWith("Would remove 2"));
+        assertTrue(Files.exists(extensionsDir.resolve("pub.one-1.0.0")));
+        assertTrue(Files.exists(extensionsDir.resolve("pub.one-1.1.0")));
+        assertEquals(obsoleteBefore, Files.readString(extensionsDir.resolve(".obsolete")));
+    }
+
+    @Test
+    void testRecentAndUnregisteredFoldersAreKept() throws IOException {
+        // Recently changed folders may belong to an install in progress
+        assertTrue(ObsoleteExtensionCollector.collect(extensionsDir, false).removedFolders().isEmpty());
+
+        // Without extensions.json only .obsolete entries are removed
+        Files.delete(extensionsDir.resolve("extensions.json"));
+        ObsoleteExtensionCollector.CollectionResult result =
+            ObsoleteExtensionCollector.collect(extensionsDir, false, Duration.ZERO);
+
+        assertEquals(List.of("pub.one-1.0.0", "pub.two-1.0.0"), result.removedFolders().stream().sorted().toList());
+        assertTrue(Files.exists(extensionsDir.resolve("pub.one-1.1.0")));
+        assertFalse(Files.exists(extensionsDir.resolve(".obsolete")));
+    }
+
+    private void writePackage(String folder, String publisher, String name, String version, int payloadSize)
+            throws IOException {
+        Path dir = extensionsDir.resolve(folder);
+        Files.createDirectories(dir.resolve("dist"));
+        Files.writeString(dir.resolve("package.json"), """
+            {"publisher": "%s", "name": "%s", "version": "%s"}
+            """.formatted(publisher, name, version));
+        Files.write(dir.resolve("dist/extension.js"), new byte[payloadSize]);
+    }
+}
@@ -0,0 +1,56 @@
+package com.vscode.updater.marketplace;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Tests for GalleryMetadataStore functionality.
+ */
+class GalleryMetadataStoreTest {
+
+    @Test
+    void testSaveAndLoad(@TempDir Path tempDir) {
+        Path file = tempDir.resolve(GalleryMetadataStore.FILE_NAME);
+        GalleryMetadataStore store = GalleryMetadataStore.load(file);
+        store.recordLatestVersions("1.90.0", Map.of("Pub.One", "1.2.0"));
+        store.save();
+
+        GalleryMetadataStore reloaded = GalleryMetadataStore.load(file);
+
+        assertEquals(1, reloaded.size());
+        assertEquals("1.2.0", reloaded.getFreshLatestVersion("pub.one", "1.90.0", Duration.ofHours(1)).orElseThrow());
+        assertTrue(reloaded.getFreshLatestVersion("pub.one", "1.90.0", Duration.ZERO).isEmpty());
+    }
+
+    @Test
+    void testEntriesAreKeptPerVSCodeVersion(@TempDir Path tempDir) {
+        Path file = tempDir.resolve(GalleryMetadataStore.FILE_NAME);
+        GalleryMetadataStore store = GalleryMetadataStore.load(file);
+        store.recordLatestVersions("1.90.0", Map.of("pub.one", "1.2.0"));
+        store.recordLatestVersions("1.95.0-insider", Map.of("pub.one", "1.3.0"));
+        store.save();
+
+        GalleryMetadataStore reloaded = GalleryMetadataStore.load(file);
+
+        assertEquals(2, reloaded.size());
+        assertEquals(Map.of("pub.one", "1.2.0"), reloaded.getFreshLatestVersions("1.90.0", Duration.ofHours(1)));
+        assertEquals(Map.of("pub.one", "1.3.0"),
+            reloaded.getFreshLatestVersions("1.95.0-insider", Duration.ofHours(1)));
+        assertTrue(reloaded.get("pub.one", "1.80.0").isEmpty());
+    }
+
+    @Test
+    void testCorruptFileYieldsEmptyStore(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve(GalleryMetadataStore.FILE_NAME);
+        Files.writeString(file, "{not json");
+
+        assertEquals(0, GalleryMetadataStore.load(file).size());
+    }
+}
@@ -0,0 +1,215 @@
+package com.vscode.updater.marketplace;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.sun.net.httpserver.HttpServer;
+import com.vscode.updater.executor.ExtensionUpdate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Tests for MarketplaceClient against a local stand-in gallery.
+ */
+class MarketplaceClientTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String ETAG = "\"v1\"";
+    private static final int INCLUDE_LATEST_VERSION_ONLY = 0x200;
+    // Versions are listed newest first, as the gallery does
+    private static final String GALLERY_RESPONSE = """
+        {"results": [{"extensions": [
+          {"publisher": {"publisherName": "pub"}, "extensionName": "one",
+           "versions": [{"version": "1.2.0", "assetUri": "https://cdn.example/pub/one/1.2.0"}]},
+          {"publisher": {"publisherName": "Pub"}, "extensionName": "native",
+           "versions": [
+             {"version": "3.0.0", "targetPlatform": "linux-x64"},
+             {"version": "3.1.0", "targetPlatform": "darwin-arm64"}]},
+          {"publisher": {"publisherName": "pub"}, "extensionName": "pre",
+           "versions": [
+             {"version": "2.1.0", "properties": [{"key": "Microsoft.VisualStudio.Code.PreRelease", "value": "true"}]},
+             {"version": "2.0.0"}]},
+          {"publisher": {"publisherName": "pub"}, "extensionName": "engine",
+           "versions": [
+             {"version": "5.0.0", "properties": [{"key": "Microsoft.VisualStudio.Code.Engine", "value": "^1.90.0"}]},
+             {"version": "4.0.0", "properties": [{"key": "Microsoft.VisualStudio.Code.Engine", "value": "^1.80.0"}]}]}
+        ]}]}
+        """;
+
+    private HttpServer server;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger conditionalRequests = new AtomicInteger();
+    private final List<JsonNode> queries = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void startGallery() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/gallery/extensionquery", exchange -> {
+            requests.incrementAndGet();
+            JsonNode query = objectMapper.readTree(exchange.getRequestBody());
+            queries.add(query);
+            if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                conditionalRequests.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            byte[] body = respond(query.path("flags").asInt()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("ETag", ETAG);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopGallery() {
+        server.stop(0);
+    }
+
+    @Test
+    void testBatchedQuerySelectsPlatformReleases(@TempDir Path cacheDir) throws IOException {
+        MarketplaceClient client = client(cacheDir, Duration.ofMinutes(30));
+
+        Map<String, GalleryExtension> latest = client.queryLatest(List.of("pub.one", "PUB.NATIVE", "pub.pre"));
+
+        assertEquals(2, requests.get(), "Latest versions of all, then all versions of pub.pre only");
+        assertEquals(INCLUDE_LATEST_VERSION_ONLY, queries.get(0).path("flags").asInt() & INCLUDE_LATEST_VERSION_ONLY);
+        assertEquals(0, queries.get(1).path("flags").asInt() & INCLUDE_LATEST_VERSION_ONLY);
+        assertEquals(List.of("pub.pre"), extensionNames(queries.get(1)));
+        assertEquals("1.2.0", latest.get("pub.one").version());
+        assertEquals("https://cdn.example/pub/one/1.2.0/" + GalleryExtension.VSIX_ASSET_TYPE,
+            latest.get("pub.one").getVsixUrl());
+        assertEquals("3.0.0", latest.get("pub.native").version());
+        assertEquals("linux-x64", latest.get("pub.native").targetPlatform());
+        // The newest version is a pre-release, so only the follow-up query finds 2.0.0
+        assertEquals("2.0.0", latest.get("pub.pre").version());
+    }
+
+    @Test
+    void testCacheHoldsParsedResultsOnly(@TempDir Path cacheDir) throws IOException {
+        client(cacheDir, Duration.ofMinutes(30)).queryLatest(List.of("pub.one", "pub.pre"));
+
+        try (Stream<Path> files = Files.list(cacheDir)) {
+            List<Path> entries = files.toList();
+            assertEquals(1, entries.size());
+            String cached = Files.readString(entries.get(0));
+            assertFalse(cached.contains("\"versions\""), "Raw gallery response should not be cached");
+            assertTrue(cached.contains("2.0.0"));
+        }
+
+        Map<String, GalleryExtension> latest = client(cacheDir, Duration.ofMinutes(30))
+            .queryLatest(List.of("pub.one", "pub.pre"));
+
+        assertEquals(2, requests.get());
+        assertEquals("2.0.0", latest.get("pub.pre").version());
+    }
+
+    @Test
+    void testReleaseIncompatibleWithInstanceIsSkipped(@TempDir Path cacheDir) throws IOException {
+        MarketplaceClient client = client(cacheDir, Duration.ofMinutes(30));
+
+        assertEquals("4.0.0", client.queryLatest(List.of("pub.engine"), "1.85.2").get("pub.engine").version());
+        assertEquals("5.0.0", client.queryLatest(List.of("pub.engine"), "1.90.0").get("pub.engine").version());
+        assertEquals("5.0.0", client.queryLatest(List.of("pub.engine")).get("pub.engine").version());
+    }
+
+    @Test
+    void testNoRequestWithinTtl(@TempDir Path cacheDir) throws IOException {
+        client(cacheDir, Duration.ofMinutes(30)).queryLatest(List.of("pub.one", "pub.native"));
+
+        // A new client shares the on-disk cache
+        MarketplaceClient client = client(cacheDir, Duration.ofMinutes(30));
+        Map<String, GalleryExtension> latest = client.queryLatest(List.of("pub.native", "pub.one"));
+
+        assertEquals(1, requests.get());
+        assertEquals(1, client.getCacheHitCount());
+        assertEquals("1.2.0", latest.get("pub.one").version());
+    }
+
+    @Test
+    void testConditionalRequestAfterTtl(@TempDir Path cacheDir) throws IOException {
+        MarketplaceClient client = client(cacheDir, Duration.ZERO);
+        client.queryLatest(List.of("pub.one"));
+
+        Map<String, String> versions = client.fetchLatestVersions(List.of("pub.one"), null);
+
+        assertEquals(2, requests.get());
+        assertEquals(1, conditionalRequests.get());
+        assertEquals(1, client.getNotModifiedCount());
+        assertEquals("1.2.0", versions.get("pub.one"));
+    }
+
+    @Test
+    void testStaleCacheUsedWhenGalleryUnreachable(@TempDir Path cacheDir) throws IOException {
+        client(cacheDir, Duration.ZERO).queryLatest(List.of("pub.one"));
+        server.stop(0);
+
+        Map<String, GalleryExtension> latest = client(cacheDir, Duration.ZERO).queryLatest(List.of("pub.one"));
+
+        assertEquals("1.2.0", latest.get("pub.one").version());
+    }
+
+    @Test
+    void testResolverPinsOnlyOutdatedExtensions(@TempDir Path cacheDir) {
+        List<ExtensionUpdate> updates = client(cacheDir, Duration.ofMinutes(30)).asResolver("1.85.2")
+            .resolveOutdated(Map.of("pub.one", "1.0.0", "pub.native", "3.0.0", "pub.engine", "4.0.0",
+                "pub.sideloaded", "0.1.0"));
+
+        assertEquals(1, updates.size());
+        assertEquals("1.2.0", updates.get(0).targetVersion());
+        assertEquals("https://cdn.example/pub/one/1.2.0/" + GalleryExtension.VSIX_ASSET_TYPE,
+            updates.get(0).vsixUrl());
+    }
+
+    /**
+     * Answers like the gallery: with IncludeLatestVersionOnly only the first
+     * (newest) version of each extension is returned, whatever it is.
+     */
+    private static String respond(int flags) throws IOException {
+        JsonNode response = objectMapper.readTree(GALLERY_RESPONSE);
+        if ((flags & INCLUDE_LATEST_VERSION_ONLY) != 0) {
+            for (JsonNode extension : response.path("results").get(0).path("extensions")) {
+                ArrayNode versions = (ArrayNode) extension.path("versions");
+                JsonNode newest = versions.get(0);
+                versions.removeAll().add(newest);
+            }
+        }
+        return objectMapper.writeValueAsString(response);
+    }
+
+    private static List<String> extensionNames(JsonNode query) {
+        List<String> names = new ArrayList<>();
+        for (JsonNode criterion : query.path("filters").get(0).path("criteria")) {
+            if (criterion.path("filterType").asInt() == 7) {
+                names.add(criterion.path("value").asText());
+            }
+        }
+        return names;
+    }
+
+    private MarketplaceClient client(Path cacheDir, Duration ttl) {
+        URI gallery = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/gallery");
+        return new MarketplaceClient(gallery, cacheDir, ttl, "linux-x64");
+    }
+}
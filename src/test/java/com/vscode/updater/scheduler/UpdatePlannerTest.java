@@ -0,0 +1,101 @@
+package com.vscode.updater.scheduler;
+
+import com.vscode.updater.discovery.VSCodeInstance;
+import com.vscode.updater.inventory.InstalledExtension;
+import com.vscode.updater.inventory.InventorySnapshot;
+import com.vscode.updater.marketplace.GalleryMetadataStore;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Tests for UpdatePlanner functionality.
+ */
+class UpdatePlannerTest {
+
+    private final VSCodeInstance instance = new VSCodeInstance("/test/code", VSCodeInstance.VSCodeEdition.STABLE,
+        "1.90.0", "Test VS Code", true, "Never", "Not run");
+
+    private final InventorySnapshot inventory = new InventorySnapshot(Path.of("/test/extensions"), List.of(
+        new InstalledExtension("pub.one", "1.0.0", InstalledExtension.UNIVERSAL, null),
+        new InstalledExtension("pub.two", "2.0.0", InstalledExtension.UNIVERSAL, null)
+    ), Instant.now());
+
+    @Test
+    void testSkipsWhenEverythingIsCurrent() {
+        GalleryMetadataStore store = GalleryMetadataStore.inMemory();
+        store.recordLatestVersions("1.90.0", Map.of("pub.one", "1.0.0", "Pub.Two", "2.0.0"));
+
+        UpdatePlanner.UpdatePlan plan = planner(store, Optional.of(inventory)).plan(instance);
+
+        assertFalse(plan.requiresUpdate());
+        assertEquals(UpdatePlanner.UpdatePlan.Decision.SKIP, plan.decision());
+    }
+
+    @Test
+    void testUpdatesStaleExtensions() {
+        GalleryMetadataStore store = GalleryMetadataStore.inMemory();
+        store.recordLatestVersions("1.90.0", Map.of("pub.one", "1.1.0", "pub.two", "2.0.0"));
+
+        UpdatePlanner.UpdatePlan plan = planner(store, Optional.of(inventory)).plan(instance);
+
+        assertEquals(UpdatePlanner.UpdatePlan.Decision.UPDATE, plan.decision());
+        assertEquals(1, plan.staleExtensions().size());
+        assertEquals("1.1.0", plan.staleExtensions().get(0).targetVersion());
+    }
+
+    @Test
+    void testUpdatesConservativelyWhenMetadataIsMissingOrExpired() {
+        GalleryMetadataStore store = GalleryMetadataStore.inMemory();
+        store.recordLatestVersions("1.90.0", Map.of("pub.one", "1.0.0"));
+
+        UpdatePlanner.UpdatePlan plan = planner(store, Optional.of(inventory)).plan(instance);
+        assertEquals(UpdatePlanner.UpdatePlan.Decision.UPDATE_UNKNOWN, plan.decision());
+        assertEquals(List.of("pub.two"), plan.unknownExtensions());
+
+        store.recordLatestVersions("1.90.0", Map.of("pub.two", "2.0.0"));
+        UpdatePlanner expiring = new UpdatePlanner(i -> Optional.of(inventory), store, Duration.ZERO);
+        assertTrue(expiring.plan(instance).requiresUpdate());
+
+        assertTrue(planner(store, Optional.empty()).plan(instance).requiresUpdate());
+    }
+
+    @Test
+    void testRefreshesMetadataFromSource() {
+        GalleryMetadataStore store = GalleryMetadataStore.inMemory();
+        // pub.two is unknown to the gallery, so its installed version counts as latest
+        UpdatePlanner planner = new UpdatePlanner(i -> Optional.of(inventory), store, Duration.ofHours(1),
+            (ids, vsCodeVersion) -> "1.90.0".equals(vsCodeVersion) ? Map.of("pub.one", "1.0.0") : Map.of());
+
+        UpdatePlanner.UpdatePlan plan = planner.plan(instance);
+
+        assertEquals(UpdatePlanner.UpdatePlan.Decision.SKIP, plan.decision());
+        assertEquals(2, store.size());
+        assertEquals("1.0.0", store.getFreshLatestVersion("pub.one", "1.90.0", Duration.ofHours(1)).orElseThrow());
+    }
+
+    @Test
+    void testPlansAgainstMetadataOfTheInstanceVersion() {
+        GalleryMetadataStore store = GalleryMetadataStore.inMemory();
+        // 1.1.0 of pub.one needs a newer VS Code than this instance has
+        store.recordLatestVersions("1.90.0", Map.of("pub.one", "1.0.0", "pub.two", "2.0.0"));
+        store.recordLatestVersions("1.95.0-insider", Map.of("pub.one", "1.1.0", "pub.two", "2.0.0"));
+
+        UpdatePlanner planner = planner(store, Optional.of(inventory));
+        assertEquals(UpdatePlanner.UpdatePlan.Decision.SKIP, planner.plan(instance).decision());
+
+        VSCodeInstance insiders = new VSCodeInstance("/test/code-insiders", VSCodeInstance.VSCodeEdition.INSIDERS,
+            "1.95.0-insider", "Test VS Code Insiders", true, "Never", "Not run");
+        assertEquals(UpdatePlanner.UpdatePlan.Decision.UPDATE, planner.plan(insiders).decision());
+    }
+
+    private static UpdatePlanner planner(GalleryMetadataStore store, Optional<InventorySnapshot> inventory) {
+        return new UpdatePlanner(i -> inventory, store, Duration.ofHours(1));
+    }
+}
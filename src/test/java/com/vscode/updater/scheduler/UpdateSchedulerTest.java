@@ -8,9 +8,13 @@ import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.IntStream;
 
 /**
  * Tests for UpdateScheduler functionality.
@@ -199,4 +203,96 @@ class UpdateSchedulerTest {
         
         assertFalse(scheduler.getStatus().isRunning());
     }
-}
\ No newline at end of file
+    
+    @Test
+    void testScheduledCycleDrainsAllInstancesWithinConcurrencyLimit() throws InterruptedException {
+        List<VSCodeInstance> instances = IntStream.range(0, 5)
+            .mapToObj(i -> new VSCodeInstance(
+                "/test/path" + i,
+                VSCodeInstance.VSCodeEdition.STABLE,
+                "1.0.0",
+                "Test VS Code " + i,
+                true,
+                "Never",
+                "Not run"))
+            .toList();
+        
+        AtomicInteger active = new AtomicInteger(0);
+        AtomicInteger maxActive = new AtomicInteger(0);
+        AtomicInteger completed = new AtomicInteger(0);
+        CountDownLatch allDone = new CountDownLatch(instances.size());
+        
+        Function<VSCodeInstance, CompletableFuture<Boolean>> updateTask = instance -> CompletableFuture.supplyAsync(() -> {
+            int now = active.incrementAndGet();
+            maxActive.accumulateAndGet(now, Math::max);
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            active.decrementAndGet();
+            completed.incrementAndGet();
+            allDone.countDown();
+            return true;
+        });
+        UpdateScheduler boundedScheduler = new UpdateScheduler(updateTask, status -> { });
+        
+        try {
+            UpdateScheduler.ScheduleConfig scheduleConfig = new UpdateScheduler.ScheduleConfig(
+                false, 60, UpdateScheduler.ScheduleConfig.ScheduleType.MINUTES, "", 
+                false, false, 0, false, 2
+            );
+            boundedScheduler.start(VSCodeConfig.withInstances(instances).withUpdatedSchedule(scheduleConfig));
+            boundedScheduler.triggerImmediateUpdate();
+            
+            assertTrue(allDone.await(10, TimeUnit.SECONDS), "Every enabled instance should be updated");
+            assertEquals(5, completed.get());
+            assertTrue(maxActive.get() <= 2, "Concurrency limit should be honoured");
+        } finally {
+            boundedScheduler.shutdown();
+        }
+    }
+    
+    @Test
+    void testUnsuccessfulUpdatesAreReportedAsFailed() throws InterruptedException {
+        List<VSCodeInstance> instances = IntStream.range(0, 3)
+            .mapToObj(i -> new VSCodeInstance(
+                "/test/path" + i,
+                VSCodeInstance.VSCodeEdition.STABLE,
+                "1.0.0",
+                "Test VS Code " + i,
+                true,
+                "Never",
+                "Not run"))
+            .toList();
+        
+        CountDownLatch cycleDone = new CountDownLatch(1);
+        List<String> statuses = new CopyOnWriteArrayList<>();
+        UpdateScheduler failingScheduler = new UpdateScheduler(
+            instance -> instance.executablePath().endsWith("0")
+                ? CompletableFuture.completedFuture(true)
+                : instance.executablePath().endsWith("1")
+                    ? CompletableFuture.completedFuture(false)
+                    : CompletableFuture.failedFuture(new IllegalStateException("boom")),
+            status -> {
+                statuses.add(status);
+                if (status.startsWith("Updated")) {
+                    cycleDone.countDown();
+                }
+            });
+        
+        try {
+            UpdateScheduler.ScheduleConfig scheduleConfig = new UpdateScheduler.ScheduleConfig(
+                false, 60, UpdateScheduler.ScheduleConfig.ScheduleType.MINUTES, "", 
+                false, false, 0, false, 3
+            );
+            failingScheduler.start(VSCodeConfig.withInstances(instances).withUpdatedSchedule(scheduleConfig));
+            failingScheduler.triggerImmediateUpdate();
+            
+            assertTrue(cycleDone.await(10, TimeUnit.SECONDS), "Cycle should report its outcome");
+            assertTrue(statuses.contains("Updated 1 instance(s), 2 failed"), "Statuses: " + statuses);
+        } finally {
+            failingScheduler.shutdown();
+        }
+    }
+}
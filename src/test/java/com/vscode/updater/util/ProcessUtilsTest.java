@@ -1,12 +1,23 @@
 package com.vscode.updater.util;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
 /**
  * Tests for ProcessUtils functionality.
  */
 class ProcessUtilsTest {
+
+    @TempDir
+    Path tempDir;
     
     @Test
     void testGetOSDisplayName() {
@@ -39,4 +50,28 @@ class ProcessUtilsTest {
         // Test with invalid path
         assertFalse(ProcessUtils.isVSCodeValid("/nonexistent/path"));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void testIsVSCodeRunning() throws IOException, InterruptedException {
+        Path root = tempDir.resolve("usr/share/code");
+        Files.createDirectories(root.resolve("resources/app"));
+        Files.writeString(root.resolve("resources/app/product.json"), "{\"quality\": \"stable\"}");
+        Files.writeString(root.resolve("resources/app/package.json"), "{\"version\": \"1.95.0\"}");
+        Files.createDirectories(root.resolve("bin"));
+        Path launcher = Files.writeString(root.resolve("bin/code"), "#!/bin/sh\n");
+        Path electron = Files.copy(Path.of("/bin/sleep"), root.resolve("code"), StandardCopyOption.COPY_ATTRIBUTES);
+
+        assertFalse(ProcessUtils.isVSCodeRunning(launcher.toString()));
+
+        Process window = new ProcessBuilder(electron.toString(), "30").start();
+        try {
+            assertTrue(ProcessUtils.isVSCodeRunning(launcher.toString()));
+        } finally {
+            window.destroy();
+            window.waitFor();
+        }
+        assertFalse(ProcessUtils.isVSCodeRunning(launcher.toString()));
+        assertFalse(ProcessUtils.isVSCodeRunning(null));
+    }
+}
@@ -0,0 +1,72 @@
+package com.vscode.updater.util;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+/**
+ * Tests for StartupTimings functionality.
+ */
+class StartupTimingsTest {
+
+    @Test
+    void testPhasesAreRecordedInOrder() throws InterruptedException {
+        StartupTimings timings = new StartupTimings(System.nanoTime(), 150);
+
+        String config = timings.time("Load configuration", () -> "config");
+        timings.time("Show tray icon", () -> sleep(20));
+        timings.markTrayVisible();
+        timings.timeInBackground("Start background services", () -> sleep(5));
+
+        assertEquals("config", config);
+        List<StartupTimings.Phase> phases = timings.getPhases();
+        assertEquals(List.of("Load configuration", "Show tray icon", "Start background services"),
+            phases.stream().map(StartupTimings.Phase::name).toList());
+        assertFalse(phases.get(1).background());
+        assertTrue(phases.get(2).background());
+        assertTrue(phases.get(1).durationMillis() >= 20);
+        assertTrue(phases.get(2).startMillis() >= phases.get(1).startMillis() + 20);
+        // Background phases do not count towards time to tray
+        assertTrue(timings.getTimeToTrayMillis() >= 170);
+        assertTrue(timings.getTimeToTrayMillis() < phases.get(2).startMillis() + 150 + 5);
+    }
+
+    @Test
+    void testReport() {
+        StartupTimings timings = new StartupTimings(System.nanoTime(), 120);
+        timings.time("Load configuration", () -> { });
+
+        String pending = timings.getReport();
+        assertTrue(pending.contains("JVM startup"));
+        assertTrue(pending.contains("Load configuration"));
+        assertTrue(pending.endsWith("Tray icon not shown"));
+        assertEquals(-1, timings.getTimeToTrayMillis());
+
+        timings.markTrayVisible();
+        timings.timeInBackground("Build windows", () -> { });
+        String report = timings.getReport();
+        assertTrue(report.contains("Build windows (background)"));
+        assertTrue(report.contains("Time to tray"));
+    }
+
+    @Test
+    void testFailedPhaseIsStillTimed() {
+        StartupTimings timings = new StartupTimings(System.nanoTime(), -1);
+
+        assertThrows(IllegalStateException.class, () -> timings.time("Show tray icon", () -> {
+            throw new IllegalStateException("no tray");
+        }));
+
+        assertEquals(1, timings.getPhases().size());
+        assertFalse(timings.getReport().contains("JVM startup"));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
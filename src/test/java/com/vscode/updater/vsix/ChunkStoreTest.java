@@ -0,0 +1,141 @@
+package com.vscode.updater.vsix;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Tests for ChunkStore functionality.
+ */
+class ChunkStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testVersionsShareChunks() throws IOException {
+        Map<String, byte[]> files = extensionFiles();
+        Path v1 = vsix("v1.vsix", files);
+        files.put("extension/dist/extension.js", randomBytes(99, 40_000));
+        files.put("extension/package.json", "{\"version\":\"1.1.0\"}".getBytes());
+        Path v2 = vsix("v2.vsix", files);
+
+        ChunkStore store = ChunkStore.open(tempDir.resolve("store"));
+        store.store(v1, VsixCache.sha256(v1));
+        store.store(v2, VsixCache.sha256(v2));
+
+        ChunkStore.ChunkStats stats = store.getStats();
+        assertEquals(2, stats.packages());
+        assertEquals(Files.size(v1) + Files.size(v2), stats.logicalBytes());
+        // The second version only adds the changed files and the zip directory
+        assertTrue(stats.physicalBytes() < Files.size(v1) + Files.size(v2) / 4,
+            "physical " + stats.physicalBytes() + " of logical " + stats.logicalBytes());
+        assertTrue(stats.dedupRatio() > 1.6);
+
+        Path restored = tempDir.resolve("restored.vsix");
+        store.write(VsixCache.sha256(v2), restored);
+        assertArrayEquals(Files.readAllBytes(v2), Files.readAllBytes(restored));
+    }
+
+    @Test
+    void testRemoveKeepsSharedChunks() throws IOException {
+        Map<String, byte[]> files = extensionFiles();
+        Path v1 = vsix("v1.vsix", files);
+        files.put("extension/README.md", randomBytes(7, 10_000));
+        Path v2 = vsix("v2.vsix", files);
+        String sha1 = VsixCache.sha256(v1);
+        String sha2 = VsixCache.sha256(v2);
+
+        ChunkStore store = ChunkStore.open(tempDir.resolve("store"));
+        store.store(v1, sha1);
+        store.store(v2, sha2);
+        store.remove(sha1);
+
+        assertFalse(store.contains(sha1));
+        Path restored = tempDir.resolve("restored.vsix");
+        store.write(sha2, restored);
+        assertArrayEquals(Files.readAllBytes(v2), Files.readAllBytes(restored));
+
+        // Reopening rebuilds the same accounting from the recipes on disk
+        ChunkStore reopened = ChunkStore.open(tempDir.resolve("store"));
+        assertEquals(store.getStats(), reopened.getStats());
+        store.remove(sha2);
+        assertEquals(new ChunkStore.ChunkStats(0, 0, 0, 0), store.getStats());
+    }
+
+    @Test
+    void testChecksumMismatchRejected() throws IOException {
+        Path v1 = vsix("v1.vsix", extensionFiles());
+        ChunkStore store = ChunkStore.open(tempDir.resolve("store"));
+
+        assertThrows(IOException.class, () -> store.store(v1, "00".repeat(32)));
+        assertThrows(IOException.class, () -> store.write("00".repeat(32), tempDir.resolve("out.vsix")));
+    }
+
+    @Test
+    void testChunksRespectSizeBounds() throws IOException {
+        // Many times the window the store reads through
+        Path file = Files.write(tempDir.resolve("large.vsix"), randomBytes(3, 3_000_000));
+        ChunkStore store = ChunkStore.open(tempDir.resolve("store"));
+
+        ChunkStore.Recipe recipe = store.store(file, VsixCache.sha256(file));
+
+        long total = 0;
+        for (int i = 0; i < recipe.chunks().size(); i++) {
+            int length = recipe.chunks().get(i).length();
+            assertTrue(length <= ChunkStore.MAX_CHUNK_SIZE);
+            assertTrue(length >= ChunkStore.MIN_CHUNK_SIZE || i == recipe.chunks().size() - 1);
+            total += length;
+        }
+        assertEquals(Files.size(file), total);
+
+        Path restored = tempDir.resolve("restored.vsix");
+        store.write(recipe.sha256(), restored);
+        assertArrayEquals(Files.readAllBytes(file), Files.readAllBytes(restored));
+    }
+
+    private static Map<String, byte[]> extensionFiles() {
+        Map<String, byte[]> files = new TreeMap<>();
+        files.put("extension/package.json", "{\"version\":\"1.0.0\"}".getBytes());
+        files.put("extension/dist/extension.js", randomBytes(1, 40_000));
+        files.put("extension/README.md", randomBytes(2, 10_000));
+        for (int i = 0; i < 12; i++) {
+            files.put("extension/node_modules/lib" + i + "/index.js", randomBytes(100 + i, 30_000));
+        }
+        return files;
+    }
+
+    private Path vsix(String name, Map<String, byte[]> files) throws IOException {
+        Path path = tempDir.resolve(name);
+        try (OutputStream out = Files.newOutputStream(path); ZipOutputStream zip = new ZipOutputStream(out)) {
+            for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                ZipEntry entry = new ZipEntry(file.getKey());
+                entry.setTime(0);
+                zip.putNextEntry(entry);
+                zip.write(file.getValue());
+                zip.closeEntry();
+            }
+        }
+        return path;
+    }
+
+    private static byte[] randomBytes(long seed, int size) {
+        // Printable text, so that entries are compressed like real sources
+        Random random = new Random(seed);
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) ('a' + random.nextInt(26));
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,182 @@
+package com.vscode.updater.vsix;
+
+import com.sun.net.httpserver.HttpServer;
+import com.vscode.updater.executor.BandwidthLimiter;
+import com.vscode.updater.executor.ExtensionUpdate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Tests for PeerCacheServer functionality.
+ */
+class PeerCacheServerTest {
+
+    private static final ExtensionUpdate UPDATE = new ExtensionUpdate(
+        "pub.one", "1.0.0", "2.0.0", "linux-x64", "https://marketplace.example/pub.one-2.0.0.vsix");
+    private static final String KEY = VsixCache.key("pub.one", "2.0.0", "linux-x64");
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicInteger marketplaceDownloads = new AtomicInteger();
+    private PeerCacheServer server;
+    private HttpServer fakePeer;
+
+    @AfterEach
+    void stopServers() {
+        if (server != null) {
+            server.close();
+        }
+        if (fakePeer != null) {
+            fakePeer.stop(0);
+        }
+    }
+
+    @Test
+    void testPackageIsFetchedFromPeer() throws IOException {
+        VsixCache peerCache = VsixCache.open(tempDir.resolve("peer"), 1024 * 1024);
+        peerCache.put(KEY, vsix(peerCache.newTempFile(), "package from peer"), null);
+        server = PeerCacheServer.start(peerCache, loopback());
+
+        VsixCache localCache = VsixCache.open(tempDir.resolve("local"), 1024 * 1024);
+        CachingVsixProvider provider = provider(localCache, peerUri(server.getPort()));
+
+        Path vsix = provider.provide(UPDATE).orElseThrow();
+
+        assertEquals("package from peer", origin(vsix));
+        assertTrue(vsix.startsWith(localCache.getDirectory()));
+        assertEquals(0, marketplaceDownloads.get());
+        assertEquals(1, server.getServedCount());
+    }
+
+    @Test
+    void testPeerFetchIsPacedByLimiter() throws IOException {
+        VsixCache peerCache = VsixCache.open(tempDir.resolve("peer"), 1024 * 1024);
+        peerCache.put(KEY, vsix(peerCache.newTempFile(), "package from peer"), null);
+        server = PeerCacheServer.start(peerCache, loopback());
+
+        BandwidthLimiter limiter = new BandwidthLimiter(0, 0);
+        VsixCache localCache = VsixCache.open(tempDir.resolve("local"), 1024 * 1024);
+        Path vsix = provider(localCache, peerUri(server.getPort())).withLimiter(limiter).provide(UPDATE).orElseThrow();
+
+        assertEquals("package from peer", origin(vsix));
+        assertEquals(Files.size(vsix), limiter.getTotalBytes());
+    }
+
+    @Test
+    void testMissingPackageFallsBackToMarketplace() throws IOException {
+        VsixCache peerCache = VsixCache.open(tempDir.resolve("peer"), 1024 * 1024);
+        peerCache.put(KEY, vsix(peerCache.newTempFile(), "package from peer"), null);
+        // The peer's copy is damaged, so it must not be served
+        Files.writeString(peerCache.getBlobPath(peerCache.getEntries().get(KEY)), "damaged");
+        server = PeerCacheServer.start(peerCache, loopback());
+
+        VsixCache localCache = VsixCache.open(tempDir.resolve("local"), 1024 * 1024);
+        CachingVsixProvider provider = provider(localCache, peerUri(unusedPort()), peerUri(server.getPort()));
+
+        Path vsix = provider.provide(UPDATE).orElseThrow();
+
+        assertEquals("package from marketplace", origin(vsix));
+        assertEquals(1, marketplaceDownloads.get());
+        assertEquals(1, server.getNotFoundCount());
+        assertEquals(0, server.getServedCount());
+    }
+
+    @Test
+    void testPackageNotMatchingAnnouncedHashIsRejected() throws IOException {
+        fakePeer = HttpServer.create(loopback(), 0);
+        fakePeer.createContext(PeerCacheServer.CONTEXT, exchange -> {
+            byte[] body = "tampered".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add(PeerCacheServer.SHA256_HEADER, "00".repeat(32));
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        fakePeer.start();
+
+        VsixCache localCache = VsixCache.open(tempDir.resolve("local"), 1024 * 1024);
+        CachingVsixProvider provider = provider(localCache, peerUri(fakePeer.getAddress().getPort()));
+
+        Path vsix = provider.provide(UPDATE).orElseThrow();
+
+        assertEquals("package from marketplace", origin(vsix));
+        assertEquals(1, marketplaceDownloads.get());
+        assertEquals(1, localCache.getStats().entries());
+    }
+
+    @Test
+    void testOnlyReadRequestsAreAllowed() throws Exception {
+        VsixCache peerCache = VsixCache.open(tempDir.resolve("peer"), 1024 * 1024);
+        server = PeerCacheServer.start(peerCache, loopback());
+
+        HttpURLConnection connection = (HttpURLConnection) peerUri(server.getPort())
+            .resolve(PeerCacheServer.CONTEXT + KEY).toURL().openConnection();
+        connection.setRequestMethod("DELETE");
+
+        assertEquals(405, connection.getResponseCode());
+        connection.disconnect();
+    }
+
+    private CachingVsixProvider provider(VsixCache cache, URI... peers) {
+        CachingVsixProvider.Downloader marketplace = (source, target) -> {
+            marketplaceDownloads.incrementAndGet();
+            vsix(target, "package from marketplace");
+        };
+        return new CachingVsixProvider(cache, marketplace).withPeers(new PeerCacheClient(List.of(peers)));
+    }
+
+    private static InetSocketAddress loopback() {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+    }
+
+    private static URI peerUri(int port) {
+        return URI.create("http://127.0.0.1:" + port + "/");
+    }
+
+    private static int unusedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Writes a package for {@link #KEY} that records where it came from.
+     */
+    private static Path vsix(Path file, String origin) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file); ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry("extension/package.json"));
+            zip.write("{\"publisher\": \"pub\", \"name\": \"one\", \"version\": \"2.0.0\"}"
+                .getBytes(StandardCharsets.UTF_8));
+            zip.putNextEntry(new ZipEntry("extension/origin.txt"));
+            zip.write(origin.getBytes(StandardCharsets.UTF_8));
+        }
+        return file;
+    }
+
+    private static String origin(Path vsix) throws IOException {
+        try (ZipFile zip = new ZipFile(vsix.toFile());
+             InputStream in = zip.getInputStream(zip.getEntry("extension/origin.txt"))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.vscode.updater.vsix;
+
+import com.vscode.updater.executor.ExtensionUpdate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Tests for VsixCache and CachingVsixProvider functionality.
+ */
+class VsixCacheTest {
+
+    @Test
+    void testKey() {
+        assertEquals("pub.one@1.0.0", VsixCache.key("Pub.One", "1.0.0", null));
+        assertEquals("pub.one@1.0.0", VsixCache.key("pub.one", "1.0.0", "universal"));
+        assertEquals("pub.one@1.0.0+linux-x64", VsixCache.key("pub.one", "1.0.0", "linux-x64"));
+    }
+
+    @Test
+    void testParseKey() {
+        assertEquals(new VsixCache.PackageKey("pub.one", "1.0.0", "universal"), VsixCache.parseKey("pub.one@1.0.0"));
+        assertEquals(new VsixCache.PackageKey("pub.one", "1.0.0", "linux-x64"),
+            VsixCache.parseKey("pub.one@1.0.0+linux-x64"));
+        assertEquals(new VsixCache.PackageKey("pub.one", "1.0.0+build.5", "universal"),
+            VsixCache.parseKey("pub.one@1.0.0+build.5"));
+    }
+
+    @Test
+    void testPutAndLookupSurvivesReopen(@TempDir Path tempDir) throws IOException {
+        VsixCache cache = VsixCache.open(tempDir.resolve("cache"), 1024 * 1024);
+        Path blob = cache.put("pub.one@1.0.0", download(cache, "package-one"), null);
+
+        VsixCache reopened = VsixCache.open(tempDir.resolve("cache"), 1024 * 1024);
+
+        assertEquals(Optional.of(blob), reopened.lookup("pub.one@1.0.0"));
+        assertEquals(1, reopened.getStats().hits());
+        assertTrue(reopened.lookup("pub.one@2.0.0").isEmpty());
+    }
+
+    @Test
+    void testIdenticalContentStoredOnce(@TempDir Path tempDir) throws IOException {
+        VsixCache cache = VsixCache.open(tempDir, 1024 * 1024);
+        Path first = cache.put("pub.one@1.0.0", download(cache, "same"), null);
+        Path second = cache.put("pub.one@1.0.0+linux-x64", download(cache, "same"), null);
+
+        assertEquals(first, second);
+        assertEquals(4, cache.getStats().totalBytes());
+    }
+
+    @Test
+    void testChecksumMismatchRejected(@TempDir Path tempDir) throws IOException {
+        VsixCache cache = VsixCache.open(tempDir, 1024 * 1024);
+
+        assertThrows(IOException.class, () -> cache.put("pub.one@1.0.0", download(cache, "data"), "00"));
+        assertTrue(cache.lookup("pub.one@1.0.0").isEmpty());
+    }
+
+    @Test
+    void testCorruptBlobDropped(@TempDir Path tempDir) throws IOException {
+        VsixCache cache = VsixCache.open(tempDir, 1024 * 1024);
+        Path blob = cache.put("pub.one@1.0.0", download(cache, "original"), null);
+        assertTrue(cache.lookup("pub.one@1.0.0").isPresent());
+        Files.writeString(blob, "tampered");
+        // Same size, so only the new modification time shows the change
+        Files.setLastModifiedTime(blob, FileTime.from(Instant.now().plusSeconds(10)));
+
+        assertTrue(cache.lookup("pub.one@1.0.0").isEmpty());
+        assertEquals(0, cache.getStats().entries());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEvicted(@TempDir Path tempDir) throws Exception {
+        VsixCache cache = VsixCache.open(tempDir, 20);
+        cache.put("pub.one@1.0.0", download(cache, "aaaaaaaaaa"), null);
+        Thread.sleep(5);
+        cache.put("pub.two@1.0.0", download(cache, "bbbbbbbbbb"), null);
+        Thread.sleep(5);
+        assertTrue(cache.lookup("pub.one@1.0.0").isPresent());
+        Thread.sleep(5);
+
+        cache.put("pub.three@1.0.0", download(cache, "cccccccccc"), null);
+
+        assertTrue(cache.lookup("pub.one@1.0.0").isPresent());
+        assertTrue(cache.lookup("pub.two@1.0.0").isEmpty());
+        assertTrue(cache.lookup("pub.three@1.0.0").isPresent());
+    }
+
+    @Test
+    void testPackageHandedOutIsNotEvicted(@TempDir Path tempDir) throws IOException {
+        VsixCache cache = VsixCache.open(tempDir, 15);
+        cache.put("pub.one@1.0.0", download(cache, "aaaaaaaaaa"), null);
+        Path installing = cache.lookup("pub.one@1.0.0").orElseThrow();
+
+        cache.put("pub.two@1.0.0", download(cache, "bbbbbbbbbb"), null);
+
+        // Over the limit until the first package is no longer in use
+        assertEquals("aaaaaaaaaa", Files.readString(installing));
+        assertEquals(2, cache.getEntries().size());
+    }
+
+    @Test
+    void testOlderVersionsAreChunked(@TempDir Path tempDir) throws IOException {
+        VsixCache cache = VsixCache.open(tempDir, 16 * 1024 * 1024);
+        String shared = "x".repeat(16).repeat(16) + new Random(1).ints(200_000, 'a', 'z' + 1)
+            .collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append);
+        Path older = cache.put("pub.one@1.0.0", download(cache, shared + "version 1.0.0"), null);
+        cache.put("pub.one@1.1.0", download(cache, shared + "version 1.1.0"), null);
+        cache.put("pub.one@1.2.0", download(cache, shared + "version 1.2.0"), null);
+        Path latest = cache.put("pub.one@1.3.0", download(cache, shared + "version 1.3.0"), null);
+
+        // Three older versions cost about as much as one
+        VsixCache.CacheStats stats = cache.getStats();
+        assertFalse(Files.exists(older));
+        assertTrue(Files.exists(latest));
+        assertEquals(3, stats.chunkedPackages());
+        assertTrue(stats.dedupRatio() > 1.8, stats.getSummary());
+
+        // An older version is written back byte for byte when needed
+        Path restored = cache.lookup("pub.one@1.0.0").orElseThrow();
+        assertEquals(shared + "version 1.0.0", Files.readString(restored));
+        assertEquals(2, cache.getStats().chunkedPackages());
+    }
+
+    @Test
+    void testPackageHandedOutIsNotChunked(@TempDir Path tempDir) throws IOException {
+        VsixCache cache = VsixCache.open(tempDir, 1024 * 1024);
+        cache.put("pub.one@1.0.0", download(cache, "version 1.0.0"), null);
+        Path installing = cache.lookup("pub.one@1.0.0").orElseThrow();
+
+        cache.put("pub.one@1.1.0", download(cache, "version 1.1.0"), null);
+
+        assertEquals("version 1.0.0", Files.readString(installing));
+        assertEquals(0, cache.getStats().chunkedPackages());
+    }
+
+    @Test
+    void testProviderDownloadsOnceForBothEditions(@TempDir Path tempDir) throws IOException {
+        VsixCache cache = VsixCache.open(tempDir, 1024 * 1024);
+        AtomicInteger downloads = new AtomicInteger();
+        CachingVsixProvider provider = new CachingVsixProvider(cache, (source, target) -> {
+            downloads.incrementAndGet();
+            vsix(target, "pub", "one", "1.1.0");
+        });
+        ExtensionUpdate update = new ExtensionUpdate("pub.one", "1.0.0", "1.1.0", "universal",
+            "https://cdn.example/pub/one/1.1.0/vsix");
+
+        Optional<Path> stable = provider.provide(update);
+        Optional<Path> insiders = provider.provide(update);
+
+        assertTrue(stable.isPresent());
+        assertEquals(stable, insiders);
+        assertEquals(1, downloads.get());
+        assertTrue(provider.provide(new ExtensionUpdate("pub.two", "1.0.0", "1.1.0")).isEmpty());
+    }
+
+    @Test
+    void testProviderDoesNotCacheWrongDownloads(@TempDir Path tempDir) throws IOException {
+        VsixCache cache = VsixCache.open(tempDir, 1024 * 1024);
+        ExtensionUpdate update = new ExtensionUpdate("pub.one", "1.0.0", "1.1.0", "universal",
+            "https://cdn.example/pub/one/1.1.0/vsix");
+
+        CachingVsixProvider errorPage = new CachingVsixProvider(cache,
+            (source, target) -> Files.writeString(target, "<html>Proxy authentication required</html>"));
+        CachingVsixProvider wrongVersion = new CachingVsixProvider(cache,
+            (source, target) -> vsix(target, "pub", "one", "1.0.0"));
+
+        assertTrue(errorPage.provide(update).isEmpty());
+        assertTrue(wrongVersion.provide(update).isEmpty());
+        assertEquals(0, cache.getStats().entries());
+    }
+
+    private static void vsix(Path target, String publisher, String name, String version) throws IOException {
+        try (OutputStream out = Files.newOutputStream(target); ZipOutputStream zip = new ZipOutputStream(out)) {
+            zip.putNextEntry(new ZipEntry("extension/package.json"));
+            zip.write(String.format("{\"publisher\": \"%s\", \"name\": \"%s\", \"version\": \"%s\"}",
+                publisher, name, version).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static Path download(VsixCache cache, String content) throws IOException {
+        Path file = cache.newTempFile();
+        Files.writeString(file, content);
+        return file;
+    }
+}
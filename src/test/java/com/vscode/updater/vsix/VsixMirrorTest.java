@@ -0,0 +1,85 @@
+package com.vscode.updater.vsix;
+
+import com.vscode.updater.executor.ExtensionUpdate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Tests for VsixMirror functionality.
+ */
+class VsixMirrorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testExportIsIncremental() throws IOException {
+        VsixCache cache = VsixCache.open(tempDir.resolve("cache"), 1024 * 1024);
+        cache.put("pub.one@1.0.0", file(cache, "one-1"), null);
+        cache.put("pub.two@2.0.0+linux-x64", file(cache, "two-2"), null);
+        Path mirrorDirectory = tempDir.resolve("mirror");
+
+        VsixMirror.ExportResult first = VsixMirror.export(cache, mirrorDirectory);
+        assertEquals(2, first.blobsCopied());
+        assertEquals(2, first.packages());
+
+        cache.put("pub.one@1.1.0", file(cache, "one-1.1"), null);
+        VsixMirror.ExportResult second = VsixMirror.export(cache, mirrorDirectory);
+
+        assertEquals(1, second.blobsCopied());
+        assertEquals(2, second.blobsSkipped());
+        assertEquals(3, second.packages());
+    }
+
+    @Test
+    void testResolvesAndProvidesFromMirrorOnly() throws IOException {
+        VsixCache cache = VsixCache.open(tempDir.resolve("cache"), 1024 * 1024);
+        cache.put("pub.one@1.0.0", file(cache, "one-1"), null);
+        cache.put("pub.one@1.2.0", file(cache, "one-1.2"), null);
+        cache.put("pub.native@3.0.0+linux-x64", file(cache, "native-linux"), null);
+        cache.put("pub.native@3.1.0+darwin-arm64", file(cache, "native-mac"), null);
+        Path mirrorDirectory = tempDir.resolve("mirror");
+        VsixMirror.export(cache, mirrorDirectory);
+
+        VsixMirror mirror = new VsixMirror(mirrorDirectory, "linux-x64");
+
+        assertEquals(Map.of("pub.one", "1.2.0", "pub.native", "3.0.0"),
+            mirror.fetchLatestVersions(Set.of("Pub.One", "pub.native", "pub.unknown"), "1.90.0"));
+
+        List<ExtensionUpdate> updates = mirror.asResolver().resolveOutdated(
+            Map.of("pub.one", "1.0.0", "pub.native", "3.0.0", "pub.unknown", "1.0.0"));
+        assertEquals(1, updates.size());
+        ExtensionUpdate update = updates.get(0);
+        assertEquals("1.2.0", update.targetVersion());
+
+        Path blob = mirror.provide(update).orElseThrow();
+        assertEquals("one-1.2", Files.readString(blob));
+        assertTrue(blob.startsWith(mirrorDirectory));
+
+        // A damaged blob is never handed to the CLI
+        Files.writeString(blob, "corrupted");
+        assertTrue(mirror.provide(update).isEmpty());
+    }
+
+    @Test
+    void testMissingMirrorResolvesNothing() {
+        VsixMirror mirror = new VsixMirror(tempDir.resolve("absent"), "linux-x64");
+
+        assertThrows(IOException.class, () -> mirror.fetchLatestVersions(Set.of("pub.one"), null));
+        assertTrue(mirror.asResolver().resolveOutdated(Map.of("pub.one", "1.0.0")).isEmpty());
+    }
+
+    private static Path file(VsixCache cache, String content) throws IOException {
+        Path file = cache.newTempFile();
+        Files.writeString(file, content);
+        return file;
+    }
+}
@@ -0,0 +1,106 @@
+package com.vscode.updater.vsix;
+
+import com.vscode.updater.discovery.VSCodeInstance;
+import com.vscode.updater.executor.ExtensionUpdate;
+import com.vscode.updater.executor.OutdatedExtensionResolver;
+import com.vscode.updater.executor.VsixProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests for VsixPrefetcher functionality.
+ */
+class VsixPrefetcherTest {
+
+    private static final VSCodeInstance INSTANCE = new VSCodeInstance(
+        "/path/to/code", VSCodeInstance.VSCodeEdition.STABLE, "1.85.0", "VS Code", true, "Never", "Not run");
+
+    private final OutdatedExtensionResolver galleryResolver = installed -> installed.keySet().stream()
+        .map(id -> new ExtensionUpdate(id, installed.get(id), "2.0.0", "universal", "https://cdn.example/" + id))
+        .toList();
+
+    private VsixPrefetcher prefetcher;
+
+    @AfterEach
+    void closePrefetcher() {
+        if (prefetcher != null) {
+            prefetcher.close();
+        }
+    }
+
+    @Test
+    void testPrefetchBecomesReady() throws InterruptedException {
+        AtomicInteger downloads = new AtomicInteger();
+        VsixProvider provider = update -> {
+            downloads.incrementAndGet();
+            return Optional.of(Path.of(update.extensionId() + ".vsix"));
+        };
+        CountDownLatch ready = new CountDownLatch(1);
+        prefetcher = new VsixPrefetcher(provider, instance -> galleryResolver, instance -> {
+            if (prefetcher.getStatus(instance).isReady()) {
+                ready.countDown();
+            }
+        });
+
+        prefetcher.prefetch(INSTANCE, Map.of("pub.one", "1.0.0", "pub.two", "1.5.0"));
+
+        assertTrue(ready.await(5, TimeUnit.SECONDS));
+        assertEquals(2, downloads.get());
+        assertEquals(new VsixPrefetcher.PrefetchStatus(VsixPrefetcher.PrefetchStatus.State.READY, 2, 2),
+            prefetcher.getStatus(INSTANCE));
+
+        // Only updates still newer than what is installed are returned
+        List<ExtensionUpdate> updates = prefetcher.asResolver(INSTANCE)
+            .resolveOutdated(Map.of("pub.one", "1.0.0", "pub.two", "2.0.0"));
+        assertEquals(List.of("pub.one"), updates.stream().map(ExtensionUpdate::extensionId).toList());
+
+        // The same outdated set is not fetched again
+        prefetcher.prefetch(INSTANCE, Map.of("pub.one", "1.0.0", "pub.two", "1.5.0"));
+        assertTrue(prefetcher.getStatus(INSTANCE).isReady());
+        assertEquals(2, downloads.get());
+    }
+
+    @Test
+    void testMissingPackageLeavesPrefetchIncomplete() throws InterruptedException {
+        VsixProvider provider = update -> update.extensionId().equals("pub.one")
+            ? Optional.of(Path.of("one.vsix"))
+            : Optional.empty();
+        CountDownLatch finished = new CountDownLatch(1);
+        prefetcher = new VsixPrefetcher(provider, instance -> galleryResolver, instance -> {
+            if (prefetcher.getStatus(instance).state() == VsixPrefetcher.PrefetchStatus.State.INCOMPLETE) {
+                finished.countDown();
+            }
+        });
+
+        prefetcher.prefetch(INSTANCE, Map.of("pub.one", "1.0.0", "pub.two", "1.0.0"));
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        VsixPrefetcher.PrefetchStatus status = prefetcher.getStatus(INSTANCE);
+        assertFalse(status.isReady());
+        assertEquals(1, status.downloaded());
+        assertEquals(Set.of("pub.one"), Set.copyOf(prefetcher.asResolver(INSTANCE)
+            .resolveOutdated(Map.of("pub.one", "1.0.0", "pub.two", "1.0.0")).stream()
+            .map(ExtensionUpdate::extensionId).toList()));
+    }
+
+    @Test
+    void testNothingOutdatedClearsStatus() {
+        prefetcher = new VsixPrefetcher(update -> Optional.empty(), instance -> galleryResolver, null);
+
+        prefetcher.prefetch(INSTANCE, Map.of());
+
+        assertEquals(VsixPrefetcher.PrefetchStatus.IDLE, prefetcher.getStatus(INSTANCE));
+        assertNull(prefetcher.getStatus(INSTANCE).describe());
+        assertTrue(prefetcher.asResolver(INSTANCE).resolveOutdated(Map.of("pub.one", "1.0.0")).isEmpty());
+    }
+}